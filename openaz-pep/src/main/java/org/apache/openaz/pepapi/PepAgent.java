@@ -22,6 +22,8 @@ package org.apache.openaz.pepapi;
 
 import java.util.List;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Serves as the main entry point into the PepAPI framework. It coordinates authorization request creation,
  * execution and response assemblage. Applications typically work with a single instance of PepAgent which is
@@ -91,4 +93,43 @@ public interface PepAgent {
      */
     List<PepResponse> bulkDecide(List<?> associations, Object... objects);
 
+    /**
+     * Returns a future authorization decision for the given collection of Domain Objects. The Domain Objects
+     * are mapped to a Request on the calling thread, and the Request is evaluated on an executor thread of
+     * the PDPEngine, which blocks while the PDP looks up attributes.
+     *
+     * @param objects
+     * @return a ListenableFuture for the PepResponse, which fails with a PepException if the underlying PDP
+     *         throws an exception
+     * @throws PepException - if an appropriate ObjectMapper cannot be found.
+     * @throws IllegalArgumentException if any of the arguments are null
+     * @see #decide(Object...)
+     */
+    ListenableFuture<PepResponse> decideAsync(Object... objects);
+
+    /**
+     * Returns future decisions for a collection of associations, as {@link #bulkDecide(List, Object...)}
+     * does, evaluating the Request asynchronously.
+     *
+     * @param associations a list of Domain Object bindings, each of which maps to a individual Request.
+     * @param objects a collection of common Domain Objects shared across all Requests.
+     * @return a ListenableFuture for the PepResponses, which fails with a PepException if the underlying PDP
+     *         throws an exception
+     * @throws PepException - if an appropriate ObjectMapper cannot be found.
+     * @throws IllegalArgumentException if any of the arguments are null
+     */
+    ListenableFuture<List<PepResponse>> bulkDecideAsync(List<?> associations, Object... objects);
+
+    /**
+     * Maps the given Domain Objects once and returns a PreparedRequest that decides requests made of them and
+     * of the Domain Objects passed on each call. Use it on hot paths where most of the request, such as the
+     * Subject and Environment, is the same for many calls.
+     *
+     * @param objects Domain Objects shared by every request made from the PreparedRequest.
+     * @return
+     * @throws PepException - if an appropriate ObjectMapper cannot be found.
+     * @throws IllegalArgumentException if any of the arguments are null
+     */
+    PreparedRequest prepare(Object... objects);
+
 }
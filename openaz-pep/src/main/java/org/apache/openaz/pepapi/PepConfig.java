@@ -60,4 +60,12 @@ public interface PepConfig {
      * @return
      */
     List<String> getMapperClassNames();
+
+    /**
+     * Gets how often requests and responses are logged when debug logging is enabled. Serializing them is
+     * costly, so a rate of n logs one decision in n.
+     *
+     * @return the sampling rate, 1 to log every decision or 0 or less to log none
+     */
+    int getLogSampleRate();
 }
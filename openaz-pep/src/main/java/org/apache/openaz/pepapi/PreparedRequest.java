@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.openaz.pepapi;
+
+import java.util.List;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A PreparedRequest holds the Domain Objects that stay the same across many authorization calls, such as the
+ * Subject and Environment of a session, already mapped to request attributes. Each call only maps the Domain
+ * Objects that vary, typically an Action and a Resource, and shares the prepared attributes with the
+ * request. PreparedRequests are created by {@link PepAgent#prepare(Object...)} and are thread-safe. The
+ * prepared Domain Objects are mapped once, so later changes to them are not seen.
+ */
+public interface PreparedRequest {
+
+    /**
+     * Returns an authorization decision for the prepared Domain Objects together with the given ones.
+     * Attributes the given objects map into a prepared category are added to that category.
+     *
+     * @param objects
+     * @return
+     * @throws PepException - if an appropriate ObjectMapper cannot be found. - if the underlying AzService
+     *             instance/PDP throws an exception - if the PepAgent is configured to throw PepExceptions for
+     *             "Indeterminate" or "Not Applicable" decisions.
+     * @throws IllegalArgumentException if any of the arguments are null
+     * @see PepAgent#decide(Object...)
+     */
+    PepResponse decide(Object... objects);
+
+    /**
+     * Returns a PepResponse for each association, with the prepared Domain Objects shared across all
+     * Requests.
+     *
+     * @param associations a list of Domain Object bindings, each of which maps to a individual Request.
+     * @return
+     * @throws PepException - if an appropriate ObjectMapper cannot be found. - if the underlying AzService
+     *             instance/PDP throws an exception - if the PepAgent is configured to throw PepExceptions for
+     *             "Indeterminate" or "Not Applicable" decisions.
+     * @throws IllegalArgumentException if any of the arguments are null
+     * @see PepAgent#bulkDecide(List, Object...)
+     */
+    List<PepResponse> bulkDecide(List<?> associations);
+
+    /**
+     * Returns a future authorization decision for the prepared Domain Objects together with the given ones.
+     *
+     * @param objects
+     * @return a ListenableFuture for the PepResponse, which fails with a PepException if the underlying PDP
+     *         throws an exception
+     * @throws PepException - if an appropriate ObjectMapper cannot be found.
+     * @throws IllegalArgumentException if any of the arguments are null
+     * @see PepAgent#decideAsync(Object...)
+     */
+    ListenableFuture<PepResponse> decideAsync(Object... objects);
+
+}
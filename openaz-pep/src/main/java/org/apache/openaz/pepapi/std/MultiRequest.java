@@ -28,6 +28,7 @@ import org.apache.openaz.xacml.std.StdMutableRequest;
 import org.apache.openaz.xacml.std.StdMutableRequestReference;
 import org.apache.openaz.xacml.std.StdRequestAttributesReference;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +67,26 @@ final class MultiRequest implements PepRequest {
         return m;
     }
 
+    /**
+     * Creates a MultiRequest whose shared attributes are those of a prepared request. The attributes of the
+     * template are shared with it instead of being copied.
+     *
+     * @param template a request created by <code>StdPepRequest.newInstance</code> that is no longer modified
+     */
+    static MultiRequest newInstance(PepConfig pepConfig, MapperRegistry mapperRegistry, List<?> associations,
+                                    StdPepRequest template) {
+        Collection<StdPepRequestAttributes> sharedAttributes = template.getPepRequestAttributes();
+        MultiRequest m = new MultiRequest(pepConfig, mapperRegistry, associations, null);
+        m.idCounter.set(sharedAttributes.size() + 1);
+        for (StdPepRequestAttributes attributes : sharedAttributes) {
+            m.wrappedRequest.add(attributes.getWrappedRequestAttributes());
+            m.currentRequestReference.add(new StdRequestAttributesReference(attributes.getId()));
+        }
+        m.sharedRequestReference = m.currentRequestReference;
+        m.mapAssociations();
+        return m;
+    }
+
     private MultiRequest(PepConfig pepConfig, MapperRegistry mapperRegistry, List<?> associations,
                          Object[] sharedRequestObjects) {
         this.pepRequestAttributesMapByCategory = new HashMap<Identifier, PepRequestAttributes>();
@@ -27,6 +27,8 @@ import org.apache.openaz.pepapi.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class StdMapperRegistry implements MapperRegistry {
 
@@ -34,12 +36,16 @@ public final class StdMapperRegistry implements MapperRegistry {
 
     private final Map<Class<?>, ObjectMapper> map;
 
+    // Mappers found for concrete classes, so that the class hierarchy is only walked once per class.
+    private final ConcurrentMap<Class<?>, ObjectMapper> resolvedMappers;
+
     private PepConfig pepConfig;
 
     private StdMapperRegistry(PepConfig pepConfig) {
         // Register defaults.
         this.pepConfig = pepConfig;
         map = new HashMap<Class<?>, ObjectMapper>();
+        resolvedMappers = new ConcurrentHashMap<Class<?>, ObjectMapper>();
         registerMapper(new CollectionMapper());
         registerMapper(new ArrayMapper());
         registerMapper(new SubjectMapper());
@@ -67,6 +73,7 @@ public final class StdMapperRegistry implements MapperRegistry {
         mapper.setPepConfig(pepConfig);
         mapper.setMapperRegistry(this);
         map.put(mapper.getMappedClass(), mapper);
+        resolvedMappers.clear();
     }
 
     @Override
@@ -78,6 +85,16 @@ public final class StdMapperRegistry implements MapperRegistry {
 
     @Override
     public ObjectMapper getMapper(Class<?> clazz) {
+        ObjectMapper mapper = resolvedMappers.get(clazz);
+        if (mapper != null) {
+            return mapper;
+        }
+        mapper = resolveMapper(clazz);
+        resolvedMappers.put(clazz, mapper);
+        return mapper;
+    }
+
+    private ObjectMapper resolveMapper(Class<?> clazz) {
         ObjectMapper mapper = null;
         Class<?> c = clazz;
         while (mapper == null && !c.equals(Object.class)) {
@@ -91,7 +108,9 @@ public final class StdMapperRegistry implements MapperRegistry {
         }
 
         if (mapper != null) {
-            logger.debug("Mapper :" + mapper.getClass().getName() + " found for class: " + clazz);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Mapper :" + mapper.getClass().getName() + " found for class: " + clazz);
+            }
             return mapper;
         } else {
             throw new PepException("No ObjectMapper found for Object of Class: " + clazz);
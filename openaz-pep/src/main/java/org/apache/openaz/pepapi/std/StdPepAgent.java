@@ -39,6 +39,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 final class StdPepAgent implements PepAgent {
 
@@ -58,6 +64,10 @@ final class StdPepAgent implements PepAgent {
 
     private PepResponseFactory pepResponseFactory;
 
+    private MapperRegistry mapperRegistry;
+
+    private final AtomicLong decisionCount = new AtomicLong();
+
     StdPepAgent() {
         obligationHandlers = new ArrayList<ObligationStoreAware>();
     }
@@ -80,7 +90,7 @@ final class StdPepAgent implements PepAgent {
                 .loadClass(mapperClassName);
             objectMappers.add(PepUtils.instantiateClass(clazz));
         }
-        MapperRegistry mapperRegistry = StdMapperRegistry.newInstance(pepConfig, objectMappers);
+        mapperRegistry = StdMapperRegistry.newInstance(pepConfig, objectMappers);
 
         ObligationRouter oRouter = null;
         if (!obligationHandlers.isEmpty()) {
@@ -115,12 +125,59 @@ final class StdPepAgent implements PepAgent {
         return decide(pepRequestFactory.newBulkPepRequest(actionResourcePairs, objects));
     }
 
-    private List<PepResponse> decide(PepRequest pepRequest) { //NOPMD
-        List<PepResponse> pepResponses = new ArrayList<PepResponse>();
+    @Override
+    public ListenableFuture<PepResponse> decideAsync(Object... objects) {
+        return Futures.transform(decideAsync(pepRequestFactory.newPepRequest(objects)),
+                                 new Function<List<PepResponse>, PepResponse>() {
+                                     @Override
+                                     public PepResponse apply(List<PepResponse> pepResponses) {
+                                         return pepResponses.get(0);
+                                     }
+                                 });
+    }
+
+    @Override
+    public ListenableFuture<List<PepResponse>> bulkDecideAsync(List<?> actionResourcePairs,
+                                                               Object... objects) {
+        return decideAsync(pepRequestFactory.newBulkPepRequest(actionResourcePairs, objects));
+    }
+
+    @Override
+    public PreparedRequest prepare(Object... objects) {
+        return new StdPreparedRequest(this, pepConfig, mapperRegistry, objects);
+    }
+
+    ListenableFuture<List<PepResponse>> decideAsync(PepRequest pepRequest) {
+        Request request = pepRequest.getWrappedRequest();
+
+        // Log request
+        final boolean logDecision = isLogged();
+        if (logDecision) {
+            logRequest(request);
+        }
+
+        ListenableFuture<List<PepResponse>> pepResponses = Futures
+            .transform(pdpEngine.decideAsync(request), new Function<Response, List<PepResponse>>() {
+                @Override
+                public List<PepResponse> apply(Response response) {
+                    return toPepResponses(response, logDecision);
+                }
+            });
+        return Futures.withFallback(pepResponses, new FutureFallback<List<PepResponse>>() {
+            @Override
+            public ListenableFuture<List<PepResponse>> create(Throwable t) {
+                logger.error(t);
+                return Futures.immediateFailedFuture(t instanceof PepException ? t : new PepException(t));
+            }
+        });
+    }
+
+    List<PepResponse> decide(PepRequest pepRequest) {
         Request request = pepRequest.getWrappedRequest();
 
         // Log request
-        if (logger.isDebugEnabled()) {
+        boolean logDecision = isLogged();
+        if (logDecision) {
             logRequest(request);
         }
 
@@ -132,17 +189,46 @@ final class StdPepAgent implements PepAgent {
             throw new PepException(e);
         }
 
+        return toPepResponses(response, logDecision);
+    }
+
+    private List<PepResponse> toPepResponses(Response response, boolean logDecision) {
         // Log the response
-        if (logger.isDebugEnabled()) {
+        if (logDecision) {
             logResponse(response);
         }
 
+        List<PepResponse> pepResponses = new ArrayList<PepResponse>();
         for (Result result : response.getResults()) {
             pepResponses.add(pepResponseFactory.newPepResponse(result));
         }
         return pepResponses;
     }
 
+    /**
+     * Decides whether the request and response of the next decision are logged, so that debug logging only
+     * serializes one decision in <code>PepConfig.getLogSampleRate()</code>.
+     *
+     * @return true if the decision is to be logged
+     */
+    private boolean isLogged() {
+        return logger.isDebugEnabled() && isSampled();
+    }
+
+    /**
+     * Counts a decision and returns whether it is one of the decisions sampled by
+     * <code>PepConfig.getLogSampleRate()</code>.
+     *
+     * @return true if the decision is sampled
+     */
+    boolean isSampled() {
+        int logSampleRate = pepConfig.getLogSampleRate();
+        if (logSampleRate <= 1) {
+            return logSampleRate == 1;
+        }
+        return decisionCount.getAndIncrement() % logSampleRate == 0;
+    }
+
     private void logRequest(Request request) {
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
             JSONRequest.convert(request, out);
@@ -52,6 +52,8 @@ public final class StdPepConfig implements PepConfig {
 
     private static final String PEP_MAPPER_CLASSES = "pep.mapper.classes";
 
+    private static final String PEP_LOG_SAMPLE_RATE = "pep.log.sampleRate";
+
     private String issuer;
 
     private String subjectIdURI;
@@ -66,6 +68,8 @@ public final class StdPepConfig implements PepConfig {
 
     private List<String> mapperClassNames;
 
+    private int logSampleRate;
+
     public StdPepConfig() {
         // Defaults
         subjectIdURI = XACML3.ID_SUBJECT_SUBJECT_ID.stringValue();
@@ -74,6 +78,7 @@ public final class StdPepConfig implements PepConfig {
         indeterminateBehavior = PepResponseBehavior.THROW_EXCEPTION;
         notApplicableBehavior = PepResponseBehavior.RETURN_NO;
         mapperClassNames = Collections.emptyList();
+        logSampleRate = 1;
     }
 
     public StdPepConfig(Properties properties) {
@@ -125,6 +130,15 @@ public final class StdPepConfig implements PepConfig {
             this.mapperClassNames = Collections.unmodifiableList(mapperClassNames);
         }
 
+        String logSampleRateString = properties.getProperty(PEP_LOG_SAMPLE_RATE);
+        if (!StringUtils.isEmpty(logSampleRateString)) {
+            try {
+                this.logSampleRate = Integer.parseInt(logSampleRateString.trim());
+            } catch (NumberFormatException e) {
+                logger.error("Invalid log sample rate found in configuration: " + logSampleRateString);
+            }
+        }
+
     }
 
     @Override
@@ -161,4 +175,9 @@ public final class StdPepConfig implements PepConfig {
     public List<String> getMapperClassNames() {
         return mapperClassNames;
     }
+
+    @Override
+    public int getLogSampleRate() {
+        return logSampleRate;
+    }
 }
@@ -25,6 +25,8 @@ import org.apache.openaz.xacml.api.Identifier;
 import org.apache.openaz.xacml.api.Request;
 import org.apache.openaz.xacml.std.StdMutableRequest;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,9 +35,14 @@ final class StdPepRequest implements PepRequest {
 
     private static final String REQUEST_ATTR_ID_PREFIX = "attributes";
 
+    private static final Map<Identifier, StdPepRequestAttributes> NO_TEMPLATE = Collections.emptyMap();
+
     private final StdMutableRequest wrappedRequest;
 
-    private final Map<Identifier, PepRequestAttributes> pepRequestAttributesMapByCategory;
+    private final Map<Identifier, StdPepRequestAttributes> pepRequestAttributesMapByCategory;
+
+    // Attributes of a prepared request, shared by every request bound from it and never modified.
+    private final Map<Identifier, StdPepRequestAttributes> templateAttributesMapByCategory;
 
     private final MapperRegistry mapperRegistry;
 
@@ -47,8 +54,29 @@ final class StdPepRequest implements PepRequest {
 
     static StdPepRequest newInstance(PepConfig pepConfig, MapperRegistry mapperRegistry,
                                      Object[] requestObjects) {
-        StdPepRequest stdPepRequest = new StdPepRequest(pepConfig, mapperRegistry, requestObjects);
+        StdPepRequest stdPepRequest = new StdPepRequest(pepConfig, mapperRegistry, requestObjects,
+                                                        NO_TEMPLATE);
+        stdPepRequest.map();
+        return stdPepRequest;
+    }
+
+    /**
+     * Creates a request from the attributes of a prepared request and the given objects. Categories the
+     * objects do not map into are shared with the template instead of being copied.
+     *
+     * @param template a request created by <code>newInstance</code> that is no longer modified
+     */
+    static StdPepRequest newInstance(PepConfig pepConfig, MapperRegistry mapperRegistry,
+                                     StdPepRequest template, Object[] requestObjects) {
+        StdPepRequest stdPepRequest = new StdPepRequest(pepConfig, mapperRegistry, requestObjects,
+                                                        template.pepRequestAttributesMapByCategory);
         stdPepRequest.map();
+        for (Map.Entry<Identifier, StdPepRequestAttributes> entry : template.pepRequestAttributesMapByCategory
+            .entrySet()) {
+            if (!stdPepRequest.pepRequestAttributesMapByCategory.containsKey(entry.getKey())) {
+                stdPepRequest.wrappedRequest.add(entry.getValue().getWrappedRequestAttributes());
+            }
+        }
         return stdPepRequest;
     }
 
@@ -59,29 +87,40 @@ final class StdPepRequest implements PepRequest {
         return REQUEST_ATTR_ID_PREFIX + idCounter.getAndIncrement();
     }
 
-    private StdPepRequest(PepConfig pepConfig, MapperRegistry mapperRegistry, Object[] requestObjects) {
+    private StdPepRequest(PepConfig pepConfig, MapperRegistry mapperRegistry, Object[] requestObjects,
+                          Map<Identifier, StdPepRequestAttributes> templateAttributesMapByCategory) {
         this.pepConfig = pepConfig;
         this.mapperRegistry = mapperRegistry;
         this.requestObjects = requestObjects;
-        this.pepRequestAttributesMapByCategory = new HashMap<Identifier, PepRequestAttributes>();
-        this.idCounter = new AtomicInteger(1);
+        this.pepRequestAttributesMapByCategory = new HashMap<Identifier, StdPepRequestAttributes>();
+        this.templateAttributesMapByCategory = templateAttributesMapByCategory;
+        this.idCounter = new AtomicInteger(templateAttributesMapByCategory.size() + 1);
         this.wrappedRequest = new StdMutableRequest();
     }
 
     @Override
     public PepRequestAttributes getPepRequestAttributes(Identifier categoryIdentifier) {
-        PepRequestAttributes pepRequestAttributes = pepRequestAttributesMapByCategory.get(categoryIdentifier);
+        StdPepRequestAttributes pepRequestAttributes = pepRequestAttributesMapByCategory
+            .get(categoryIdentifier);
         if (pepRequestAttributes == null) {
-            String xmlId = generateRequestAttributesXmlId();
-            StdPepRequestAttributes p = new StdPepRequestAttributes(xmlId, categoryIdentifier);
-            p.setIssuer(pepConfig.getIssuer());
-            pepRequestAttributes = p;
+            StdPepRequestAttributes template = templateAttributesMapByCategory.get(categoryIdentifier);
+            if (template != null) {
+                pepRequestAttributes = new StdPepRequestAttributes(template);
+            } else {
+                String xmlId = generateRequestAttributesXmlId();
+                pepRequestAttributes = new StdPepRequestAttributes(xmlId, categoryIdentifier);
+                pepRequestAttributes.setIssuer(pepConfig.getIssuer());
+            }
             pepRequestAttributesMapByCategory.put(categoryIdentifier, pepRequestAttributes);
             wrappedRequest.add(pepRequestAttributes.getWrappedRequestAttributes());
         }
         return pepRequestAttributes;
     }
 
+    Collection<StdPepRequestAttributes> getPepRequestAttributes() {
+        return Collections.unmodifiableCollection(pepRequestAttributesMapByCategory.values());
+    }
+
     private void map() {
         if (requestObjects == null) {
             throw new IllegalArgumentException("One or more arguments are null");
@@ -57,6 +57,21 @@ final class StdPepRequestAttributes implements PepRequestAttributes {
         this.wrappedRequestAttributes.setXmlId(id);
     }
 
+    /**
+     * Creates a copy of the given attributes that can be added to without changing them.
+     *
+     * @param template
+     */
+    StdPepRequestAttributes(StdPepRequestAttributes template) {
+        this(template.id, template.categoryIdentifier);
+        this.issuer = template.issuer;
+        for (Map.Entry<Identifier, StdMutableAttribute> entry : template.attributeMapById.entrySet()) {
+            StdMutableAttribute mutableAttribute = new StdMutableAttribute(entry.getValue());
+            attributeMapById.put(entry.getKey(), mutableAttribute);
+            wrappedRequestAttributes.add(mutableAttribute);
+        }
+    }
+
     @Override
     public Identifier getCategory() {
         return categoryIdentifier;
@@ -105,7 +120,7 @@ final class StdPepRequestAttributes implements PepRequestAttributes {
         StdMutableAttribute mutableAttribute = attributeMapById.get(attributeId);
         if (mutableAttribute == null) {
             mutableAttribute = new StdMutableAttribute();
-            mutableAttribute.setAttributeId(new IdentifierImpl(name));
+            mutableAttribute.setAttributeId(attributeId);
             mutableAttribute.setCategory(categoryIdentifier);
             mutableAttribute.setIncludeInResults(false);
             mutableAttribute.setIssuer(issuer == null ? "" : issuer);
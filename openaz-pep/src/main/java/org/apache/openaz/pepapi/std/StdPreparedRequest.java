@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.openaz.pepapi.std;
+
+import org.apache.openaz.pepapi.MapperRegistry;
+import org.apache.openaz.pepapi.PepConfig;
+import org.apache.openaz.pepapi.PepResponse;
+import org.apache.openaz.pepapi.PreparedRequest;
+
+import java.util.List;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+final class StdPreparedRequest implements PreparedRequest {
+
+    private final StdPepAgent pepAgent;
+
+    private final PepConfig pepConfig;
+
+    private final MapperRegistry mapperRegistry;
+
+    private final StdPepRequest template;
+
+    StdPreparedRequest(StdPepAgent pepAgent, PepConfig pepConfig, MapperRegistry mapperRegistry,
+                       Object[] objects) {
+        this.pepAgent = pepAgent;
+        this.pepConfig = pepConfig;
+        this.mapperRegistry = mapperRegistry;
+        this.template = StdPepRequest.newInstance(pepConfig, mapperRegistry, objects);
+    }
+
+    @Override
+    public PepResponse decide(Object... objects) {
+        return pepAgent.decide(StdPepRequest.newInstance(pepConfig, mapperRegistry, template, objects))
+            .get(0);
+    }
+
+    @Override
+    public List<PepResponse> bulkDecide(List<?> associations) {
+        return pepAgent.decide(MultiRequest.newInstance(pepConfig, mapperRegistry, associations, template));
+    }
+
+    @Override
+    public ListenableFuture<PepResponse> decideAsync(Object... objects) {
+        return Futures.transform(pepAgent.decideAsync(StdPepRequest.newInstance(pepConfig, mapperRegistry,
+                                                                                 template, objects)),
+                                 new Function<List<PepResponse>, PepResponse>() {
+                                     @Override
+                                     public PepResponse apply(List<PepResponse> pepResponses) {
+                                         return pepResponses.get(0);
+                                     }
+                                 });
+    }
+}
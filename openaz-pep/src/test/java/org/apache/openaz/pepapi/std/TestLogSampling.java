@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.pepapi.std;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLogSampling {
+
+    private static StdPepAgent newPepAgent(String logSampleRate) {
+        Properties properties = logSampleRate == null ? new Properties() : newProperties(logSampleRate);
+        StdPepAgent pepAgent = new StdPepAgent();
+        pepAgent.setPepConfig(new StdPepConfig(properties));
+        return pepAgent;
+    }
+
+    private static int countSampled(StdPepAgent pepAgent, int decisions) {
+        int sampled = 0;
+        for (int i = 0; i < decisions; i++) {
+            if (pepAgent.isSampled()) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testDefaultRate() {
+        Assert.assertEquals(1, new StdPepConfig().getLogSampleRate());
+        Assert.assertEquals(1, new StdPepConfig(new Properties()).getLogSampleRate());
+        Assert.assertEquals(1, new StdPepConfig(newProperties("often")).getLogSampleRate());
+        Assert.assertEquals(9, countSampled(newPepAgent(null), 9));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testConfiguredRate() {
+        StdPepAgent pepAgent = newPepAgent("3");
+        Assert.assertTrue(pepAgent.isSampled());
+        Assert.assertFalse(pepAgent.isSampled());
+        Assert.assertFalse(pepAgent.isSampled());
+        Assert.assertTrue(pepAgent.isSampled());
+        Assert.assertEquals(3, countSampled(newPepAgent(" 3 "), 9));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testEveryDecision() {
+        Assert.assertEquals(10, countSampled(newPepAgent("1"), 10));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testNoDecision() {
+        Assert.assertEquals(0, countSampled(newPepAgent("0"), 10));
+        Assert.assertEquals(0, countSampled(newPepAgent("-5"), 10));
+    }
+
+    private static Properties newProperties(String logSampleRate) {
+        Properties properties = new Properties();
+        properties.setProperty("pep.log.sampleRate", logSampleRate);
+        return properties;
+    }
+}
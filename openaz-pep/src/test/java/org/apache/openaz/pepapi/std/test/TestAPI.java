@@ -90,6 +90,53 @@ public class TestAPI {
 
     }
 
+    /**
+     *
+     */
+    @Test
+    public void testAsync() throws Exception {
+        PepResponse response = getPepAgent()
+            .decideAsync(Subject.newInstance("Julius Hibbert"), Action.newInstance("read"),
+                         Resource.newInstance("http://medico.com/record/patient/BartSimpson")).get();
+        Assert.assertNotNull(response);
+        Assert.assertEquals(true, response.allowed());
+
+        List<Action> actions = new ArrayList<Action>();
+        actions.add(Action.newInstance("read"));
+        actions.add(Action.newInstance("delete"));
+        List<PepResponse> responses = getPepAgent()
+            .bulkDecideAsync(actions, Subject.newInstance("Julius Hibbert"),
+                             Resource.newInstance("http://medico.com/record/patient/BartSimpson")).get();
+        Assert.assertEquals(2, responses.size());
+        Assert.assertEquals(true, responses.get(0).allowed());
+        Assert.assertEquals(false, responses.get(1).allowed());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testPreparedRequest() throws Exception {
+        PreparedRequest prepared = getPepAgent().prepare(Subject.newInstance("Julius Hibbert"));
+        Resource bart = Resource.newInstance("http://medico.com/record/patient/BartSimpson");
+        PepResponse response = prepared.decide(Action.newInstance("read"), bart);
+        Assert.assertEquals(true, response.allowed());
+        response = prepared.decide(Action.newInstance("read"),
+                                   Resource.newInstance("http://medico.com/record/patient/JohnSmith"));
+        Assert.assertEquals(false, response.allowed());
+        response = prepared.decideAsync(Action.newInstance("read"), bart).get();
+        Assert.assertEquals(true, response.allowed());
+
+        List<Action> actions = new ArrayList<Action>();
+        actions.add(Action.newInstance("read"));
+        actions.add(Action.newInstance("delete"));
+        List<PepResponse> responses = getPepAgent().prepare(Subject.newInstance("Julius Hibbert"), bart)
+            .bulkDecide(actions);
+        Assert.assertEquals(2, responses.size());
+        Assert.assertEquals(true, responses.get(0).allowed());
+        Assert.assertEquals(false, responses.get(1).allowed());
+    }
+
     public PepAgent getPepAgent() {
         return pepAgentFactory.getPepAgent();
     }
@@ -20,6 +20,9 @@
 
 package org.apache.openaz.xacml.admin;
 
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -36,7 +39,14 @@ import org.apache.openaz.xacml.api.Result;
 import org.apache.openaz.xacml.api.pdp.PDPEngine;
 import org.apache.openaz.xacml.api.pdp.PDPEngineFactory;
 import org.apache.openaz.xacml.api.pdp.PDPException;
+import org.apache.openaz.xacml.pdp.std.StdPolicyFinderFactory;
+import org.apache.openaz.xacml.rest.XACMLRestProperties;
 import org.apache.openaz.xacml.util.FactoryException;
+import org.apache.openaz.xacml.util.XACMLProperties;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public class XacmlAdminAuthorization {
 	private static Log logger	= LogFactory.getLog(XacmlAdminAuthorization.class);
@@ -116,27 +126,140 @@ public class XacmlAdminAuthorization {
 		}
 	}
 	
+	//
+	// Decisions are cached for this many seconds when XACMLRestProperties.PROP_ADMIN_AUTHORIZATION_CACHE_TTL
+	// is not set or is not a number of seconds >= 0
+	//
+	public static final long DEFAULT_CACHE_TTL = 30;
+	
 	//
 	// The PDP Engine
 	//
-	protected PDPEngine pdpEngine;
+	protected volatile PDPEngine pdpEngine;
+	//
+	// Decisions by user, action and resource. Screens check the same actions many times per render.
+	// Null when the cache TTL is 0.
+	//
+	private final Cache<String, Boolean> decisionCache;
+	private final long cacheTTLMillis;
+	//
+	// The last modified times of the admin policy files the engine was loaded from
+	//
+	private volatile long policyTimestamp;
+	private volatile long policyCheckedMillis;
 
 	public XacmlAdminAuthorization() {
+		this.cacheTTLMillis = TimeUnit.SECONDS.toMillis(getCacheTTL());
+		if (this.cacheTTLMillis > 0) {
+			this.decisionCache = CacheBuilder.newBuilder().expireAfterWrite(this.cacheTTLMillis, TimeUnit.MILLISECONDS).build();
+		} else {
+			this.decisionCache = null;
+		}
+		this.policyTimestamp = getPolicyTimestamp();
+		this.policyCheckedMillis = System.currentTimeMillis();
+		this.pdpEngine = newEngine();
+	}
+	
+	private static PDPEngine newEngine() {
 		PDPEngineFactory pdpEngineFactory	= null;
 		try {
 			pdpEngineFactory	= PDPEngineFactory.newInstance();
 			if (pdpEngineFactory == null) {
 				logger.error("Failed to create PDP Engine Factory");
+				return null;
 			}
-			this.pdpEngine = pdpEngineFactory.newEngine();
+			return pdpEngineFactory.newEngine();
 		} catch (FactoryException e) {
 			logger.error("Exception create PDP Engine: " + e.getLocalizedMessage());
 		}
+		return null;
+	}
+	
+	private static long getCacheTTL() {
+		String ttl = XACMLProperties.getProperty(XACMLRestProperties.PROP_ADMIN_AUTHORIZATION_CACHE_TTL);
+		if (ttl == null) {
+			return DEFAULT_CACHE_TTL;
+		}
+		try {
+			long seconds = Long.parseLong(ttl.trim());
+			if (seconds >= 0) {
+				return seconds;
+			}
+		} catch (NumberFormatException e) { //NOPMD
+			// logged below
+		}
+		logger.error("Invalid " + XACMLRestProperties.PROP_ADMIN_AUTHORIZATION_CACHE_TTL + ": " + ttl + ", using " + DEFAULT_CACHE_TTL);
+		return DEFAULT_CACHE_TTL;
+	}
+	
+	/**
+	 * Combines the last modified times of the root and referenced policy files the PDP engine is loaded from,
+	 * so that a change to any of them can be noticed.
+	 * 
+	 * @return the combined timestamp, or 0 if the policy files are not known
+	 */
+	private static long getPolicyTimestamp() {
+		long timestamp = 0;
+		for (String propertyName : new String[] {XACMLProperties.PROP_ROOTPOLICIES, XACMLProperties.PROP_REFERENCEDPOLICIES}) {
+			String policies = XACMLProperties.getProperty(propertyName);
+			if (policies == null) {
+				continue;
+			}
+			for (String policyId : Splitter.on(',').trimResults().omitEmptyStrings().split(policies)) {
+				String file = XACMLProperties.getProperty(policyId + StdPolicyFinderFactory.PROP_FILE);
+				if (file != null) {
+					timestamp = 31 * timestamp + new File(file).lastModified();
+				}
+			}
+		}
+		return timestamp;
+	}
+	
+	/**
+	 * Reloads the PDP engine and forgets all of the cached decisions if the admin policy files changed. The
+	 * files are checked at most once per cache TTL. Without a cache the engine is kept as it was loaded, as
+	 * checking the files on every decision would cost more than the cache saves.
+	 */
+	private void checkPolicyChanged() {
+		long now = System.currentTimeMillis();
+		if (now - this.policyCheckedMillis < this.cacheTTLMillis) {
+			return;
+		}
+		synchronized (this) {
+			if (now - this.policyCheckedMillis < this.cacheTTLMillis) {
+				return;
+			}
+			this.policyCheckedMillis = now;
+			long timestamp = getPolicyTimestamp();
+			if (timestamp != this.policyTimestamp) {
+				logger.info("Admin policy changed, reloading the PDP engine");
+				this.policyTimestamp = timestamp;
+				this.pdpEngine = newEngine();
+				this.decisionCache.invalidateAll();
+			}
+		}
 	}
 	
 	public boolean	isAuthorized(String userid, AdminAction action, AdminResource resource) {
-		logger.info("authorize: " + userid + " to " + action + " with " + resource);
-		if (this.pdpEngine == null) {
+		if (this.decisionCache == null) {
+			return this.decide(userid, action, resource);
+		}
+		this.checkPolicyChanged();
+		String key = userid + "\n" + action + "\n" + resource;
+		Boolean authorized = this.decisionCache.getIfPresent(key);
+		if (authorized == null) {
+			authorized = this.decide(userid, action, resource);
+			this.decisionCache.put(key, authorized);
+		}
+		return authorized;
+	}
+	
+	private boolean decide(String userid, AdminAction action, AdminResource resource) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("authorize: " + userid + " to " + action + " with " + resource);
+		}
+		PDPEngine engine = this.pdpEngine;
+		if (engine == null) {
 			logger.warn("no pdp engine available to authorize");
 			return false;
 		}
@@ -151,21 +274,26 @@ public class XacmlAdminAuthorization {
 			logger.error("Failed to parse request.");
 			return false;
 		}
-		logger.info("Request: " + request);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Request: " + request);
+		}
 		//
 		// Ask the engine
 		//
 		try {
-			Response response = this.pdpEngine.decide(request);
+			Response response = engine.decide(request);
 			if (response == null) {
 				logger.error("Null response from PDP decide");
+				return false;
 			}
 			//
 			// Should only be one result
 			//
 			for (Result result : response.getResults()) {
 				Decision decision = result.getDecision();
-				logger.info("Decision: " + decision);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Decision: " + decision);
+				}
 				if (decision.equals(Decision.PERMIT)) {
 					return true;
 				}
@@ -63,6 +63,7 @@ import org.apache.openaz.xacml.admin.jpa.PIPResolver;
 import org.apache.openaz.xacml.admin.jpa.PIPType;
 import org.apache.openaz.xacml.admin.jpa.PolicyAlgorithms;
 import org.apache.openaz.xacml.admin.jpa.RuleAlgorithms;
+import org.apache.openaz.xacml.admin.model.GitRepositoryIndex;
 import org.apache.openaz.xacml.admin.model.MatchFunctionQueryDelegate;
 import org.apache.openaz.xacml.admin.util.RESTfulPAPEngine;
 import org.apache.openaz.xacml.api.XACML3;
@@ -353,6 +354,7 @@ public class XacmlAdminUI extends UI implements PAPNotificationBroadcaster.PAPNo
 	}
 
 	public static void servletDestroy() {
+		GitRepositoryIndex.closeAll();
 		if (XacmlAdminUI.repository != null) {
 			XacmlAdminUI.repository.close();
 		}
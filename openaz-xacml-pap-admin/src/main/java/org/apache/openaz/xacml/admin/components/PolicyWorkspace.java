@@ -192,6 +192,15 @@ public class PolicyWorkspace extends CustomComponent implements DropHandler, OnD
 		this.initializeButtons();
 	}
 	
+	@Override
+	public void detach() {
+		//
+		// Let go of the repository index so its file watcher does not outlive us
+		//
+		this.treeContainer.close();
+		super.detach();
+	}
+	
 	protected void initializeButtons() {
 		buttonLeft.addClickListener(new ClickListener() {
 			private static final long serialVersionUID = 1L;
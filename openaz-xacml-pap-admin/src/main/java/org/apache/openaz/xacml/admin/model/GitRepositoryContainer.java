@@ -54,12 +54,7 @@ import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.Status;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.errors.NoWorkTreeException;
 
-import org.apache.openaz.xacml.util.XACMLPolicyScanner;
 import com.vaadin.data.Container;
 import com.vaadin.data.Item;
 import com.vaadin.data.Property;
@@ -165,6 +160,8 @@ public class GitRepositoryContainer extends ItemSetChangeNotifier implements Con
     
     private Path repository = null;
 
+    private GitRepositoryIndex index = null;
+
     /**
      * Constructs a new <code>FileSystemContainer</code> with the specified file
      * as the root of the filesystem. The files are included recursively.
@@ -233,6 +230,31 @@ public class GitRepositoryContainer extends ItemSetChangeNotifier implements Con
         setRecursive(recursive);
     }
 
+    /**
+     * Gets the shared status and metadata index of the repository, opening it
+     * the first time it is needed or after the container was closed.
+     * 
+     * @return the <code>GitRepositoryIndex</code> of the repository
+     */
+    public synchronized GitRepositoryIndex getIndex() {
+    	if (this.index == null) {
+    		this.index = GitRepositoryIndex.open(this.repository);
+    	}
+    	return this.index;
+    }
+
+    /**
+     * Gives back the repository index, stopping its file watcher if no other
+     * container is using it. The owner of the container calls this when the
+     * container is discarded.
+     */
+    public synchronized void close() {
+    	if (this.index != null) {
+    		this.index.close();
+    		this.index = null;
+    	}
+    }
+
     /**
      * Adds new root file directory. Adds a file to be included as root file
      * directory in the <code>FilesystemContainer</code>.
@@ -506,6 +528,7 @@ public class GitRepositoryContainer extends ItemSetChangeNotifier implements Con
             return null;
         }
     	
+    	this.getIndex().invalidate(((File) itemId).toPath());
     	this.fireItemSetChange();
     	
         return new FileItem((File) itemId);
@@ -841,12 +864,11 @@ public class GitRepositoryContainer extends ItemSetChangeNotifier implements Con
         	if (this.file.isDirectory()) {
         		return null;
         	}
-        	try {
-				return XACMLPolicyScanner.getVersion(Paths.get(this.file.getAbsolutePath()));
-			} catch (IOException e) {
-				logger.error("Could not get version: " + e);
-				return "n/a";
-			}
+        	GitRepositoryIndex.Metadata metadata = this.getHost().getIndex().getMetadata(this.file.toPath());
+        	if (metadata == null) {
+        		return "n/a";
+        	}
+        	return metadata.getVersion();
         }
 
         /**
@@ -898,92 +920,26 @@ public class GitRepositoryContainer extends ItemSetChangeNotifier implements Con
          * @return status of this file.
          */
         public TextArea getStatus() {
+        	//
+        	// The status comes from the repository-wide scan cached in the index rather than
+        	// from a git status per file.
+        	//
+        	List<String> status = this.getHost().getIndex().getStatus(this.file.toPath());
+        	if (logger.isDebugEnabled()) {
+        		logger.debug(this.file.getAbsolutePath() + ": " + status);
+        	}
         	TextArea area = null;
-        	try {
-        		Path repoPath = this.getHost().repository;
-				Git git = Git.open(repoPath.toFile());
-				
-				//
-				// I would like to use absolutePath, but that seems to barf when
-				// we try to relativize this if a full path is not given.
-				//
-				Path relativePath = repoPath.relativize(Paths.get(this.file.getPath()));
-				
-				Status status = git.status().addPath(relativePath.toString()).call();
-				if (logger.isDebugEnabled()) {
-					logger.debug(this.file.getAbsolutePath());
-					logger.debug("Added: " + status.getAdded());
-					logger.debug("Changed: " + status.getChanged());
-					logger.debug("Conflicting: " + status.getConflicting());
-					logger.debug("Missing: " + status.getMissing());
-					logger.debug("Modified: " + status.getModified());
-					logger.debug("Removed: " + status.getRemoved());
-					logger.debug("Uncommitted: " + status.getUncommittedChanges());
-					logger.debug("Untracked: " + status.getUntracked());
-					logger.debug("Untracked folders; " + status.getUntrackedFolders());
-				}
-				//
-				// Are we a file or directory?
-				//
-				StringBuffer buffer = new StringBuffer();
-				int length = 0;
-				if (this.file.isFile()) {
-					if (status.getAdded().contains(relativePath.toString())) {
-						buffer.append("Added" + "\n");
-						length++;
-					}
-					if (status.getChanged().contains(relativePath.toString())) {
-						buffer.append("Changed" + "\n");
-						length++;
-					}
-					if (status.getConflicting().contains(relativePath.toString())) {
-						buffer.append("Conflicting" + "\n");
-						length++;
-					}
-					if (status.getMissing().contains(relativePath.toString())) {
-						buffer.append("Missing" + "\n");
-						length++;
-					}
-					if (status.getModified().contains(relativePath.toString())) {
-						buffer.append("Modified" + "\n");
-						length++;
-					}
-					if (status.getRemoved().contains(relativePath.toString())) {
-						buffer.append("Removed" + "\n");
-						length++;
-					}
-					if (status.getUncommittedChanges().contains(relativePath.toString())) {
-						buffer.append("Uncommitted" + "\n");
-						length++;
-					}
-					if (status.getUntracked().contains(relativePath.toString())) {
-						buffer.append("Untracked (New)" + "\n");
-						length++;
-					}
-					if (status.getUntrackedFolders().contains(relativePath.toString())) {
-						buffer.append("Untracked Folders (New)" + "\n");
-						length++;
-					}
-				} else if (this.file.isDirectory()) {
-					if (status.getUntracked().size() > 0) {
-						buffer.append("Untracked (New)" + "\n");
-						length++;
-					}
-					if (status.getUntrackedFolders().size() > 0) {
-						buffer.append("Untracked Folders (New)" + "\n");
-						length++;
-					}
-				}
-				if (length > 0) {
-					area = new TextArea();
-					area.setValue(buffer.toString().trim());
-					area.setWidth("100.0%");
-					area.setRows(length);
-					area.setReadOnly(true);
-				}
-			} catch (IOException | NoWorkTreeException | GitAPIException e) {
-				logger.error(e);
-			}
+        	if (status.size() > 0) {
+        		StringBuffer buffer = new StringBuffer();
+        		for (String label : status) {
+        			buffer.append(label + "\n");
+        		}
+        		area = new TextArea();
+        		area.setValue(buffer.toString().trim());
+        		area.setWidth("100.0%");
+        		area.setRows(status.size());
+        		area.setReadOnly(true);
+        	}
             return area;
         }
 
@@ -0,0 +1,586 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.admin.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.openaz.xacml.util.XACMLPolicyScanner;
+import org.apache.openaz.xacml.util.XACMLPolicyScanner.PolicyHeader;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.NoWorkTreeException;
+
+/**
+ * GitRepositoryIndex caches what the {@link GitRepositoryContainer} displays for the files of a Git
+ * repository, so that the workspace tree does not open the repository and parse each policy once per file:
+ * <ul>
+ * <li>The Git status of the whole work tree is read with a single <code>git status</code> and kept as a map
+ * from relative path to the status labels of that path. Paths reported by the file watcher are re-read with
+ * one <code>git status</code> limited to those paths; a change to the Git index or a watcher overflow causes
+ * a full rescan.</li>
+ * <li>The policy id, version and type of each file are kept in a metadata index keyed by relative path and
+ * last modified time. The index is saved to <code>.git/openaz-policy.index</code> so it survives restarts,
+ * and an entry is only re-read when the file's last modified time changes.</li>
+ * </ul>
+ * There is one <code>GitRepositoryIndex</code> per repository, shared by all of the containers on it. Each
+ * container gets it with {@link #open(Path)} and gives it back with {@link #close()}; the watcher thread is
+ * stopped and the index saved when the last container closes it.
+ */
+public class GitRepositoryIndex {
+	private static final Log logger	= LogFactory.getLog(GitRepositoryIndex.class);
+
+	public static final String STATUS_ADDED				= "Added";
+	public static final String STATUS_CHANGED			= "Changed";
+	public static final String STATUS_CONFLICTING		= "Conflicting";
+	public static final String STATUS_MISSING			= "Missing";
+	public static final String STATUS_MODIFIED			= "Modified";
+	public static final String STATUS_REMOVED			= "Removed";
+	public static final String STATUS_UNCOMMITTED		= "Uncommitted";
+	public static final String STATUS_UNTRACKED			= "Untracked (New)";
+	public static final String STATUS_UNTRACKED_FOLDERS	= "Untracked Folders (New)";
+
+	public static final String TYPE_POLICY		= "Policy";
+	public static final String TYPE_POLICYSET	= "PolicySet";
+
+	private static final String GIT_DIRECTORY	= ".git";
+	private static final String GIT_INDEX		= "index";
+	private static final String INDEX_FILE		= "openaz-policy.index";
+	private static final String INDEX_TMP_FILE	= INDEX_FILE + ".tmp";
+	private static final long SAVE_INTERVAL_MS	= 2000;
+
+	private static final Map<Path, GitRepositoryIndex> indexes = new HashMap<Path, GitRepositoryIndex>();
+
+	/**
+	 * The metadata of a single file. The id, version and type are null for files that are not XACML policies.
+	 */
+	public static class Metadata {
+		private final long lastModified;
+		private final String type;
+		private final String id;
+		private final String version;
+
+		public Metadata(long lastModified, String type, String id, String version) {
+			this.lastModified = lastModified;
+			this.type = type;
+			this.id = id;
+			this.version = version;
+		}
+
+		public long getLastModified() {
+			return this.lastModified;
+		}
+
+		/**
+		 * @return <code>TYPE_POLICY</code>, <code>TYPE_POLICYSET</code> or null if the file is not a policy
+		 */
+		public String getType() {
+			return this.type;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public String getVersion() {
+			return this.version;
+		}
+	}
+
+	private final Path repository;
+	private final Path indexFile;
+	private final ConcurrentMap<String, Metadata> metadata = new ConcurrentHashMap<String, Metadata>();
+	private volatile boolean metadataDirty = false;
+
+	private final Object statusLock = new Object();
+	private Map<String, List<String>> status = null;
+	private boolean statusStale = true;
+	private final Set<String> stalePaths = new HashSet<String>();
+
+	private WatchService watchService = null;
+	private final Map<WatchKey, Path> watchKeys = new HashMap<WatchKey, Path>();
+	private Thread watcher = null;
+	private volatile boolean closed = false;
+	private int references = 0;
+
+	/**
+	 * Gets the shared <code>GitRepositoryIndex</code> for the given repository, creating and loading it the
+	 * first time. Every call must be matched by a call to {@link #close()}.
+	 *
+	 * @param repository - The root of the Git work tree.
+	 * @return - The GitRepositoryIndex for the repository
+	 */
+	public static GitRepositoryIndex open(Path repository) {
+		Path key = repository.toAbsolutePath().normalize();
+		synchronized (indexes) {
+			GitRepositoryIndex index = indexes.get(key);
+			if (index == null) {
+				index = new GitRepositoryIndex(key);
+				index.start();
+				indexes.put(key, index);
+			}
+			index.references++;
+			return index;
+		}
+	}
+
+	/**
+	 * Closes every open index, for when the application is shut down.
+	 */
+	public static void closeAll() {
+		List<GitRepositoryIndex> open;
+		synchronized (indexes) {
+			open = new ArrayList<GitRepositoryIndex>(indexes.values());
+			indexes.clear();
+		}
+		for (GitRepositoryIndex index : open) {
+			index.stop();
+		}
+	}
+
+	private GitRepositoryIndex(Path repository) {
+		this.repository = repository;
+		this.indexFile = repository.resolve(GIT_DIRECTORY).resolve(INDEX_FILE);
+	}
+
+	/**
+	 * Gives back an index obtained from {@link #open(Path)}. When nothing else has the index open, its watcher
+	 * thread is stopped, the watch service closed and the metadata saved, and the next <code>open</code> of the
+	 * repository loads a new index.
+	 */
+	public void close() {
+		synchronized (indexes) {
+			if (this.references == 0 || --this.references > 0) {
+				return;
+			}
+			if (indexes.get(this.repository) == this) {
+				indexes.remove(this.repository);
+			}
+		}
+		this.stop();
+	}
+
+	private void stop() {
+		this.closed = true;
+		if (this.watchService != null) {
+			try {
+				this.watchService.close();
+			} catch (IOException e) {
+				logger.error("Could not close watch service of " + this.repository + ": " + e);
+			}
+		}
+		if (this.watcher != null) {
+			this.watcher.interrupt();
+			try {
+				this.watcher.join(SAVE_INTERVAL_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Gets the repository relative path of the given path, using '/' as the separator like Git does.
+	 *
+	 * @param path - A path in the work tree.
+	 * @return - The relative path, or the empty string for the root of the work tree
+	 */
+	public String relativize(Path path) {
+		Path relative = this.repository.relativize(path.toAbsolutePath().normalize());
+		return relative.toString().replace('\\', '/');
+	}
+
+	/**
+	 * Gets the metadata of a file, reading it from the file if the index does not have an entry for its
+	 * current last modified time.
+	 *
+	 * @param path - The file.
+	 * @return - The Metadata, or null if the path is not a regular file
+	 */
+	public Metadata getMetadata(Path path) {
+		if (! Files.isRegularFile(path)) {
+			return null;
+		}
+		String relative = this.relativize(path);
+		long lastModified;
+		try {
+			lastModified = Files.getLastModifiedTime(path).toMillis();
+		} catch (IOException e) {
+			logger.error("Could not get last modified time of " + path + ": " + e);
+			return null;
+		}
+		Metadata entry = this.metadata.get(relative);
+		if (entry != null && entry.getLastModified() == lastModified) {
+			return entry;
+		}
+		String type = null;
+		String id = null;
+		String version = null;
+		try {
+			PolicyHeader header = XACMLPolicyScanner.readPolicyHeader(path);
+			if (header != null) {
+				type = (header.isPolicySet() ? TYPE_POLICYSET : TYPE_POLICY);
+				id = header.getId();
+				version = header.getVersion();
+			}
+		} catch (IOException e) {
+			logger.error("Could not read policy header of " + path + ": " + e);
+			return null;
+		}
+		entry = new Metadata(lastModified, type, id, version);
+		this.metadata.put(relative, entry);
+		this.metadataDirty = true;
+		return entry;
+	}
+
+	/**
+	 * Gets the Git status labels of a file, or of a directory from the untracked files and folders under it.
+	 *
+	 * @param path - The file or directory.
+	 * @return - The status labels, empty if the path is clean
+	 */
+	public List<String> getStatus(Path path) {
+		Map<String, List<String>> current = this.refreshStatus();
+		if (current == null) {
+			return Collections.emptyList();
+		}
+		String relative = this.relativize(path);
+		if (! Files.isDirectory(path)) {
+			List<String> labels = current.get(relative);
+			return (labels == null ? Collections.<String>emptyList() : labels);
+		}
+		String prefix = (relative.isEmpty() ? "" : relative + "/");
+		boolean untracked = false;
+		boolean untrackedFolders = false;
+		for (Map.Entry<String, List<String>> entry : current.entrySet()) {
+			if (entry.getKey().startsWith(prefix)) {
+				untracked = untracked || entry.getValue().contains(STATUS_UNTRACKED);
+				untrackedFolders = untrackedFolders || entry.getValue().contains(STATUS_UNTRACKED_FOLDERS);
+			}
+		}
+		List<String> labels = new ArrayList<String>(2);
+		if (untracked) {
+			labels.add(STATUS_UNTRACKED);
+		}
+		if (untrackedFolders) {
+			labels.add(STATUS_UNTRACKED_FOLDERS);
+		}
+		return labels;
+	}
+
+	/**
+	 * Forgets the cached status and metadata of a path, for callers that changed the work tree and want the
+	 * change shown before the file watcher reports it.
+	 *
+	 * @param path - The changed file or directory.
+	 */
+	public void invalidate(Path path) {
+		String relative = this.relativize(path);
+		this.metadata.remove(relative);
+		synchronized (this.statusLock) {
+			if (relative.isEmpty()) {
+				this.statusStale = true;
+			} else {
+				this.stalePaths.add(relative);
+			}
+		}
+	}
+
+	/**
+	 * Forgets the cached status of the whole repository, for example after a commit.
+	 */
+	public void invalidateStatus() {
+		synchronized (this.statusLock) {
+			this.statusStale = true;
+		}
+	}
+
+	private Map<String, List<String>> refreshStatus() {
+		synchronized (this.statusLock) {
+			if (! this.statusStale && this.stalePaths.isEmpty()) {
+				return this.status;
+			}
+			Git git = null;
+			try {
+				git = Git.open(this.repository.toFile());
+				if (this.statusStale || this.status == null) {
+					Map<String, List<String>> newStatus = new HashMap<String, List<String>>();
+					addStatus(newStatus, git.status().call());
+					this.status = newStatus;
+					if (logger.isDebugEnabled()) {
+						logger.debug("Scanned status of " + this.repository + ": " + newStatus.size() + " changed paths");
+					}
+				} else {
+					//
+					// Only ask for the paths the watcher reported, and replace whatever we had for them
+					//
+					StatusCommand command = git.status();
+					for (String stale : this.stalePaths) {
+						command.addPath(stale);
+					}
+					Map<String, List<String>> newStatus = new HashMap<String, List<String>>(this.status);
+					for (String stale : this.stalePaths) {
+						newStatus.remove(stale);
+						String prefix = stale + "/";
+						for (Iterator<String> iter = newStatus.keySet().iterator(); iter.hasNext();) {
+							if (iter.next().startsWith(prefix)) {
+								iter.remove();
+							}
+						}
+					}
+					addStatus(newStatus, command.call());
+					this.status = newStatus;
+				}
+				this.statusStale = false;
+				this.stalePaths.clear();
+			} catch (IOException | NoWorkTreeException | GitAPIException e) {
+				logger.error("Could not get status of " + this.repository + ": " + e);
+			} finally {
+				if (git != null) {
+					git.getRepository().close();
+				}
+			}
+			return this.status;
+		}
+	}
+
+	private static void addStatus(Map<String, List<String>> map, Status status) {
+		addStatus(map, status.getAdded(), STATUS_ADDED);
+		addStatus(map, status.getChanged(), STATUS_CHANGED);
+		addStatus(map, status.getConflicting(), STATUS_CONFLICTING);
+		addStatus(map, status.getMissing(), STATUS_MISSING);
+		addStatus(map, status.getModified(), STATUS_MODIFIED);
+		addStatus(map, status.getRemoved(), STATUS_REMOVED);
+		addStatus(map, status.getUncommittedChanges(), STATUS_UNCOMMITTED);
+		addStatus(map, status.getUntracked(), STATUS_UNTRACKED);
+		addStatus(map, status.getUntrackedFolders(), STATUS_UNTRACKED_FOLDERS);
+	}
+
+	private static void addStatus(Map<String, List<String>> map, Collection<String> paths, String label) { //NOPMD
+		for (String path : paths) {
+			List<String> labels = map.get(path);
+			if (labels == null) {
+				labels = new ArrayList<String>(2);
+				map.put(path, labels);
+			}
+			labels.add(label);
+		}
+	}
+
+	private void start() {
+		this.load();
+		try {
+			this.watchService = this.repository.getFileSystem().newWatchService();
+			this.registerAll(this.repository);
+			Path gitDirectory = this.repository.resolve(GIT_DIRECTORY);
+			if (Files.isDirectory(gitDirectory)) {
+				this.register(gitDirectory);
+			}
+		} catch (IOException e) {
+			logger.error("Could not watch " + this.repository + ", status will be scanned on every refresh: " + e);
+			this.watchService = null;
+		}
+		this.watcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				GitRepositoryIndex.this.watch();
+			}
+		}, "GitRepositoryIndex " + this.repository);
+		this.watcher.setDaemon(true);
+		this.watcher.start();
+	}
+
+	private void register(Path directory) throws IOException {
+		WatchKey key = directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		this.watchKeys.put(key, directory);
+	}
+
+	private void registerAll(Path start) throws IOException {
+		final Path gitDirectory = this.repository.resolve(GIT_DIRECTORY);
+		Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if (dir.equals(gitDirectory)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				GitRepositoryIndex.this.register(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void watch() {
+		Path gitDirectory = this.repository.resolve(GIT_DIRECTORY);
+		while (! this.closed) {
+			if (this.watchService == null) {
+				//
+				// Nothing tells us when the work tree changes, so rescan it every time
+				//
+				this.invalidateStatus();
+			}
+			WatchKey key = null;
+			try {
+				if (this.watchService == null) {
+					Thread.sleep(SAVE_INTERVAL_MS);
+				} else {
+					key = this.watchService.poll(SAVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				this.save();
+				return;
+			}
+			if (key != null) {
+				try {
+					this.process(key, gitDirectory);
+				} catch (ClosedWatchServiceException e) {
+					break;
+				}
+			}
+			if (this.metadataDirty) {
+				this.save();
+			}
+		}
+		this.save();
+	}
+
+	private void process(WatchKey key, Path gitDirectory) {
+		Path directory = this.watchKeys.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+				this.invalidateStatus();
+				continue;
+			}
+			Path name = (Path) event.context();
+			if (directory.equals(gitDirectory)) {
+				//
+				// Commits, adds and checkouts rewrite the Git index; our own index file is ignored.
+				//
+				if (name.toString().equals(GIT_INDEX)) {
+					this.invalidateStatus();
+				}
+				continue;
+			}
+			Path child = directory.resolve(name);
+			this.invalidate(child);
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+				try {
+					this.registerAll(child);
+				} catch (IOException e) {
+					logger.error("Could not watch " + child + ": " + e);
+				}
+			}
+		}
+		if (! key.reset()) {
+			this.watchKeys.remove(key);
+		}
+	}
+
+	private void load() {
+		if (! Files.isRegularFile(this.indexFile)) {
+			return;
+		}
+		Properties properties = new Properties();
+		try (InputStream is = Files.newInputStream(this.indexFile)) {
+			properties.load(is);
+		} catch (IOException e) {
+			logger.error("Could not load " + this.indexFile + ": " + e);
+			return;
+		}
+		for (String path : properties.stringPropertyNames()) {
+			//
+			// lastModified \t type \t version \t id; the id is last because it is the only free form field
+			//
+			String[] fields = properties.getProperty(path).split("\t", 4);
+			if (fields.length != 4) {
+				continue;
+			}
+			try {
+				this.metadata.put(path, new Metadata(Long.parseLong(fields[0]), emptyToNull(fields[1]),
+								emptyToNull(fields[3]), emptyToNull(fields[2])));
+			} catch (NumberFormatException e) {
+				logger.warn("Ignoring bad index entry for " + path);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + this.metadata.size() + " entries from " + this.indexFile);
+		}
+	}
+
+	private void save() {
+		if (! Files.isDirectory(this.indexFile.getParent())) {
+			return;
+		}
+		this.metadataDirty = false;
+		Properties properties = new Properties();
+		for (Map.Entry<String, Metadata> entry : this.metadata.entrySet()) {
+			Metadata value = entry.getValue();
+			properties.setProperty(entry.getKey(), value.getLastModified() + "\t" + nullToEmpty(value.getType()) + "\t"
+							+ nullToEmpty(value.getVersion()) + "\t" + nullToEmpty(value.getId()));
+		}
+		Path tmpFile = this.indexFile.resolveSibling(INDEX_TMP_FILE);
+		try {
+			try (OutputStream os = Files.newOutputStream(tmpFile)) {
+				properties.store(os, "OpenAZ policy metadata index");
+			}
+			Files.move(tmpFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.error("Could not save " + this.indexFile + ": " + e);
+		}
+	}
+
+	private static String emptyToNull(String value) {
+		return (value.isEmpty() ? null : value);
+	}
+
+	private static String nullToEmpty(String value) {
+		return (value == null ? "" : value);
+	}
+}
@@ -103,6 +103,15 @@ public class SelectWorkspacePoliciesWindow extends Window {
 		this.treeWorkspace.focus();
 	}
 	
+	@Override
+	public void detach() {
+		//
+		// Let go of the repository index so its file watcher does not outlive us
+		//
+		this.treeContainer.close();
+		super.detach();
+	}
+	
 	protected void initializeTree() {
 		//
 		// This is where the user's Git repository is located
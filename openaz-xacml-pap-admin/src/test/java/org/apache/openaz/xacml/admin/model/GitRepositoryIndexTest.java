@@ -0,0 +1,193 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.admin.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GitRepositoryIndexTest {
+
+	private static final String POLICY =
+			"<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"urn:test:policy\""
+			+ " Version=\"1.2\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:1.0:rule-combining-algorithm:deny-overrides\">"
+			+ "<Target/></Policy>";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path repository;
+	private Path indexFile;
+
+	@Before
+	public void before() throws Exception {
+		this.repository = this.folder.getRoot().toPath().toAbsolutePath().normalize();
+		Git.init().setDirectory(this.repository.toFile()).call().getRepository().close();
+		this.indexFile = this.repository.resolve(".git").resolve("openaz-policy.index");
+	}
+
+	@After
+	public void after() {
+		GitRepositoryIndex.closeAll();
+	}
+
+	private Path write(String name, String content) throws IOException {
+		return Files.write(this.repository.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void writeIndex(Properties properties) throws IOException {
+		try (OutputStream os = Files.newOutputStream(this.indexFile)) {
+			properties.store(os, null);
+		}
+	}
+
+	@Test
+	public void testMetadata() throws Exception {
+		Path policy = this.write("policy.xml", POLICY);
+		Path other = this.write("readme.txt", "not a policy");
+		GitRepositoryIndex index = GitRepositoryIndex.open(this.repository);
+		try {
+			GitRepositoryIndex.Metadata metadata = index.getMetadata(policy);
+			assertEquals(GitRepositoryIndex.TYPE_POLICY, metadata.getType());
+			assertEquals("urn:test:policy", metadata.getId());
+			assertEquals("1.2", metadata.getVersion());
+			assertEquals(Files.getLastModifiedTime(policy).toMillis(), metadata.getLastModified());
+
+			metadata = index.getMetadata(other);
+			assertNull(metadata.getType());
+			assertNull(metadata.getId());
+			assertNull(index.getMetadata(this.repository));
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testIndexFileSavedOnClose() throws Exception {
+		Path policy = this.write("policy.xml", POLICY);
+		GitRepositoryIndex index = GitRepositoryIndex.open(this.repository);
+		index.getMetadata(policy);
+		index.close();
+
+		assertTrue(Files.isRegularFile(this.indexFile));
+		Properties properties = new Properties();
+		try (InputStream is = Files.newInputStream(this.indexFile)) {
+			properties.load(is);
+		}
+		assertEquals(Files.getLastModifiedTime(policy).toMillis() + "\tPolicy\t1.2\turn:test:policy",
+				properties.getProperty("policy.xml"));
+	}
+
+	@Test
+	public void testIndexFileLoadedAndRebuilt() throws Exception {
+		Path policy = this.write("policy.xml", POLICY);
+		long lastModified = Files.getLastModifiedTime(policy).toMillis();
+		//
+		// An entry for the current last modified time is trusted without reading the file
+		//
+		Properties properties = new Properties();
+		properties.setProperty("policy.xml", lastModified + "\tPolicySet\t9\turn:test:indexed");
+		properties.setProperty("bad.xml", "not a number\tPolicy\t1\turn:test:bad");
+		properties.setProperty("short.xml", "1");
+		this.writeIndex(properties);
+
+		GitRepositoryIndex index = GitRepositoryIndex.open(this.repository);
+		try {
+			GitRepositoryIndex.Metadata metadata = index.getMetadata(policy);
+			assertEquals(GitRepositoryIndex.TYPE_POLICYSET, metadata.getType());
+			assertEquals("urn:test:indexed", metadata.getId());
+			assertEquals("9", metadata.getVersion());
+			//
+			// Once the file changes the entry is read again from the file
+			//
+			Files.setLastModifiedTime(policy, FileTime.fromMillis(lastModified + 10000));
+			metadata = index.getMetadata(policy);
+			assertEquals(GitRepositoryIndex.TYPE_POLICY, metadata.getType());
+			assertEquals("urn:test:policy", metadata.getId());
+			assertEquals("1.2", metadata.getVersion());
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testOpenAndClose() throws Exception {
+		GitRepositoryIndex index = GitRepositoryIndex.open(this.repository);
+		assertSame(index, GitRepositoryIndex.open(this.repository.resolve(".")));
+		index.close();
+		//
+		// Still open by the second caller
+		//
+		assertSame(index, GitRepositoryIndex.open(this.repository));
+		index.close();
+		index.close();
+		//
+		// Closing more often than opening does not close the next index
+		//
+		index.close();
+		GitRepositoryIndex reopened = GitRepositoryIndex.open(this.repository);
+		assertNotSame(index, reopened);
+		index.close();
+		assertSame(reopened, GitRepositoryIndex.open(this.repository));
+		reopened.close();
+		reopened.close();
+	}
+
+	@Test
+	public void testStatus() throws Exception {
+		Path policy = this.write("policy.xml", POLICY);
+		GitRepositoryIndex index = GitRepositoryIndex.open(this.repository);
+		try {
+			assertTrue(index.getStatus(policy).contains(GitRepositoryIndex.STATUS_UNTRACKED));
+			assertTrue(index.getStatus(this.repository).contains(GitRepositoryIndex.STATUS_UNTRACKED));
+
+			Git git = Git.open(this.repository.toFile());
+			try {
+				git.add().addFilepattern("policy.xml").call();
+			} finally {
+				git.getRepository().close();
+			}
+			index.invalidateStatus();
+			assertTrue(index.getStatus(policy).contains(GitRepositoryIndex.STATUS_ADDED));
+			assertTrue(index.getStatus(this.repository).isEmpty());
+		} finally {
+			index.close();
+		}
+	}
+}
@@ -30,6 +30,7 @@
  */
 package org.apache.openaz.xacml.rest;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -37,17 +38,34 @@ import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletConfig;
@@ -77,6 +95,8 @@ import org.apache.openaz.xacml.util.XACMLProperties;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Splitter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 /**
  * Servlet implementation class XacmlPapServlet
@@ -120,6 +140,37 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
     private static Heartbeat heartbeat = null;
     private static Thread heartbeatThread = null;
 
+    /*
+     * The bounded pool of threads that sends the updates to the PDPs and the notifications to the ACs.
+     */
+    private static ScheduledThreadPoolExecutor notifyExecutor = null;
+
+    /*
+     * The bounded pool of threads that does the heartbeats, kept apart from the notify pool so that
+     * connections to PDPs that are down cannot hold up the updates.
+     */
+    private static ScheduledThreadPoolExecutor heartbeatExecutor = null;
+
+    /*
+     * The PDPs waiting for an update to be sent. A burst of changes to a PDP or its group results in a single
+     * update carrying the latest configuration.
+     */
+    private static final ConcurrentMap<String, PDP> pendingPDPUpdates = new ConcurrentHashMap<String, PDP>();
+
+    /*
+     * Set while a notification to the ACs is scheduled but not yet started.
+     */
+    private static final AtomicBoolean pendingACNotification = new AtomicBoolean(false);
+
+    private static int updateDelay;
+    private static int updateTimeout;
+
+    /*
+     * The SHA-256 of the policy files, so unchanged policies are not read again each time a manifest is sent.
+     */
+    private static final ConcurrentMap<URI, PolicyHash> policyHashes =
+        new ConcurrentHashMap<URI, PolicyHash>();
+
     /**
      * @see HttpServlet#HttpServlet()
      */
@@ -142,6 +193,15 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
             //
             XACMLRest.loadXacmlProperties(null, null);
             //
+            // Create the pools of threads used to talk to the PDPs and ACs
+            //
+            int notifyThreads = getIntProperty(XACMLRestProperties.PROP_PAP_NOTIFY_THREADS, 16);
+            XACMLPapServlet.notifyExecutor = newExecutor("notify", notifyThreads);
+            int heartbeatThreads = getIntProperty(XACMLRestProperties.PROP_PAP_HEARTBEAT_THREADS, 8);
+            XACMLPapServlet.heartbeatExecutor = newExecutor("heartbeat", heartbeatThreads);
+            XACMLPapServlet.updateDelay = getIntProperty(XACMLRestProperties.PROP_PAP_UPDATE_DELAY, 250);
+            XACMLPapServlet.updateTimeout = getIntProperty(XACMLRestProperties.PROP_PAP_UPDATE_TIMEOUT, 60000);
+            //
             // Load our PAP engine, first create a factory
             //
             PAPEngineFactory factory = PAPEngineFactory.newInstance(XACMLProperties
@@ -194,6 +254,43 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
         }
     }
 
+    /**
+     * Gets an integer property, logging an invalid value and using the default instead so that one bad value
+     * does not keep the servlet from starting.
+     *
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is missing or invalid
+     * @return the value of the property
+     */
+    static int getIntProperty(String property, int defaultValue) {
+        String value = XACMLProperties.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.error("Invalid " + property + " '" + value + "', using " + defaultValue + ": " + e);
+            return defaultValue;
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newExecutor(final String name, int threads) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1),
+                                                                               new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "XACMLPapServlet-" + name + "-"
+                                              + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     /**
      * Thread used only during PAP startup to initiate change messages to all known PDPs. This must be on a
      * separate thread so that any GET requests from the PDPs during this update can be serviced.
@@ -237,6 +334,14 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                 logger.error(e);
             }
         }
+        if (XACMLPapServlet.heartbeatExecutor != null) {
+            XACMLPapServlet.heartbeatExecutor.shutdownNow();
+        }
+        if (XACMLPapServlet.notifyExecutor != null) {
+            XACMLPapServlet.notifyExecutor.shutdownNow();
+            XACMLPapServlet.pendingPDPUpdates.clear();
+            XACMLPapServlet.pendingACNotification.set(false);
+        }
     }
 
     /**
@@ -268,6 +373,14 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                 return;
             }
 
+            //
+            // Is this a PDP asking for the policies it does not have?
+            //
+            if ("delta".equals(request.getParameter("bundle"))) {
+                doPDPDeltaBundlePost(request, response);
+                return;
+            }
+
             //
             // Request is from a PDP.
             // It is coming up and asking for its config
@@ -344,7 +457,7 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                     // Put URL's into the properties in case the PDP needs to
                     // retrieve them.
                     //
-                    this.populatePolicyURL(request.getRequestURL(), policies);
+                    this.populatePolicyURL(request.getRequestURL(), policies, group);
                     //
                     // Copy the properties to the output stream
                     //
@@ -447,6 +560,13 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                 return;
             }
             //
+            // Do they want all of the group's policies at once?
+            //
+            if (request.getParameter("bundle") != null) {
+                doPDPBundleGet(request, response, group);
+                return;
+            }
+            //
             // Which policy do they want?
             //
             String policyId = request.getParameter("id");
@@ -485,6 +605,195 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
         }
     }
 
+    /**
+     * Sends all of the policies of a group to a PDP as one zip file, with an entry named by each policy id,
+     * written in policy id order straight to the response. The ETag of the bundle is computed from the
+     * SHA-256 of each policy with {@link XACMLRest#getPolicyBundleETag(Map)}, so that a request whose
+     * If-None-Match is still current gets a 304 without the bundle being built, and the PDP can verify the
+     * entries it receives.
+     *
+     * @param request
+     * @param response
+     * @param group
+     * @throws IOException
+     */
+    void doPDPBundleGet(HttpServletRequest request, HttpServletResponse response, PDPGroup group)
+        throws IOException {
+        Map<String, PDPPolicy> policies = new TreeMap<String, PDPPolicy>();
+        for (PDPPolicy policy : group.getPolicies()) {
+            policies.put(policy.getId(), policy);
+        }
+        Map<String, String> policyHashes = new TreeMap<String, String>();
+        try {
+            for (PDPPolicy policy : policies.values()) {
+                policyHashes.put(policy.getId(), getPolicyHash(policy));
+            }
+        } catch (PAPException e) {
+            String message = "Failed to bundle policies of group " + group.getId() + ": " + e;
+            logger.error(message, e);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, message);
+            return;
+        }
+        String etag = XACMLRest.getPolicyBundleETag(policyHashes);
+        response.setHeader("ETag", etag);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            logger.info("Policy bundle of group " + group.getId() + " not modified");
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        logger.info("Sending bundle of " + policies.size() + " policies of group " + group.getId());
+        response.setContentType("application/zip");
+        response.setStatus(HttpServletResponse.SC_OK);
+        try (OutputStream os = response.getOutputStream()) {
+            writePolicyBundle(policies, os);
+        } catch (PAPException e) {
+            //
+            // The response is already on its way, the PDP will find that it does not match its ETag
+            //
+            logger.error("Failed to send bundle of group " + group.getId() + ": " + e, e);
+        }
+    }
+
+    /**
+     * Sends a PDP the policies of its group whose content it does not have. The request body lists the
+     * SHA-256 hashes the PDP wants, one per line, as given by the &lt;PolicyId&gt;.hash properties of its
+     * configuration. The response is a zip file with one entry named by each hash, so a policy shared by
+     * several ids is sent once and the PDP can verify each entry against its name.
+     *
+     * @param request
+     * @param response
+     * @throws IOException
+     * @throws PAPException
+     */
+    private void doPDPDeltaBundlePost(HttpServletRequest request, HttpServletResponse response)
+        throws IOException, PAPException {
+        String id = this.getPDPID(request);
+        PDP pdp = this.papEngine.getPDP(id);
+        if (pdp == null) {
+            String message = "Unknown PDP: " + id;
+            logger.warn(message);
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+            return;
+        }
+        PDPGroup group = this.papEngine.getPDPGroup(pdp);
+        if (group == null) {
+            String message = "No group associated with pdp " + pdp.getId();
+            logger.warn(message);
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+            return;
+        }
+        this.doPDPDeltaBundlePost(request, response, group);
+    }
+
+    /**
+     * Sends the policies of the given group whose hashes are listed in the request body.
+     *
+     * @param request
+     * @param response
+     * @param group the PDP's group
+     * @throws IOException
+     * @throws PAPException
+     */
+    void doPDPDeltaBundlePost(HttpServletRequest request, HttpServletResponse response, PDPGroup group)
+        throws IOException, PAPException {
+        Set<String> wanted = new HashSet<String>();
+        try (Scanner scanner = new Scanner(request.getInputStream(), "UTF-8")) {
+            while (scanner.hasNext()) {
+                wanted.add(scanner.next());
+            }
+        }
+        Map<String, PDPPolicy> policies = new TreeMap<String, PDPPolicy>();
+        for (PDPPolicy policy : group.getPolicies()) {
+            String hash = getPolicyHash(policy);
+            if (wanted.contains(hash)) {
+                policies.put(hash, policy);
+            }
+        }
+        logger.info("Sending " + policies.size() + " of " + wanted.size() + " wanted policies of group "
+                    + group.getId());
+        response.setContentType("application/zip");
+        response.setStatus(HttpServletResponse.SC_OK);
+        try (OutputStream os = response.getOutputStream()) {
+            writePolicyBundle(policies, os);
+        }
+    }
+
+    /**
+     * Writes the given policies as a zip file to the given stream, with one entry for each key of the map in
+     * key order and a fixed entry time, so the same policies always produce the same bytes.
+     *
+     * @param policies the policies by entry name
+     * @param os the stream to write the zip file to
+     * @throws PAPException
+     * @throws IOException
+     */
+    private static void writePolicyBundle(Map<String, PDPPolicy> policies, OutputStream os)
+        throws PAPException, IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(os)) {
+            for (Map.Entry<String, PDPPolicy> policy : policies.entrySet()) {
+                ZipEntry entry = new ZipEntry(policy.getKey());
+                entry.setTime(0);
+                zip.putNextEntry(entry);
+                try (InputStream is = policy.getValue().getStream()) {
+                    IOUtils.copy(is, zip);
+                }
+                zip.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Gets the SHA-256 of a policy's content as a lower case hex string. The hash of a policy file is kept
+     * until the file's size or modification time changes.
+     *
+     * @param policy
+     * @return the hash of the policy
+     * @throws PAPException
+     * @throws IOException
+     */
+    private static String getPolicyHash(PDPPolicy policy) throws PAPException, IOException {
+        URI location = policy.getLocation();
+        File file = null;
+        if (location != null && "file".equals(location.getScheme())) {
+            file = new File(location);
+            PolicyHash policyHash = policyHashes.get(location);
+            if (policyHash != null && policyHash.lastModified == file.lastModified()
+                && policyHash.length == file.length()) {
+                return policyHash.hash;
+            }
+        }
+        long lastModified = file == null ? 0 : file.lastModified();
+        long length = file == null ? 0 : file.length();
+        Hasher hasher = Hashing.sha256().newHasher();
+        try (InputStream is = policy.getStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        }
+        String hash = hasher.hash().toString();
+        if (file != null) {
+            policyHashes.put(location, new PolicyHash(lastModified, length, hash));
+        }
+        return hash;
+    }
+
+    /**
+     * The SHA-256 of a policy file with the size and modification time it was computed for.
+     */
+    private static class PolicyHash {
+        private final long lastModified;
+        private final long length;
+        private final String hash;
+
+        public PolicyHash(long lastModified, long length, String hash) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
     protected String getPDPID(HttpServletRequest request) {
         String pdpURL = request.getHeader(XACMLRestProperties.PROP_PDP_HTTP_HEADER_ID);
         if (pdpURL == null || pdpURL.isEmpty()) {
@@ -532,7 +841,7 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
         return false;
     }
 
-    private void populatePolicyURL(StringBuffer urlPath, Properties policies) {
+    private void populatePolicyURL(StringBuffer urlPath, Properties policies, PDPGroup group) {
         String lists[] = new String[2];
         lists[0] = policies.getProperty(XACMLProperties.PROP_ROOTPOLICIES);
         lists[1] = policies.getProperty(XACMLProperties.PROP_REFERENCEDPOLICIES);
@@ -542,11 +851,25 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                     String url = urlPath + "?id=" + id;
                     logger.info("Policy URL for " + id + ": " + url);
                     policies.setProperty(id + ".url", url);
+                    populatePolicyHash(policies, group.getPolicy(id));
                 }
             }
         }
     }
 
+    static void populatePolicyHash(Properties policies, PDPPolicy policy) {
+        if (policy == null) {
+            return;
+        }
+        try {
+            policies.setProperty(policy.getId() + XACMLRestProperties.PROP_POLICY_HASH,
+                                 getPolicyHash(policy));
+        } catch (PAPException | IOException e) {
+            // without a hash the PDP pulls the policy by its URL
+            logger.warn("Failed to compute hash of policy " + policy.getId() + ": " + e);
+        }
+    }
+
     /**
      * @see HttpServlet#doPut(HttpServletRequest request, HttpServletResponse response)
      */
@@ -1137,21 +1460,23 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
     //
 
     /**
-     * Heartbeat with all known PDPs. Implementation note: The PDPs are contacted Sequentially, not in
-     * Parallel. If we did this in parallel using multiple threads we would simultaneously use - 1 thread and
-     * - 1 connection for EACH PDP. This could become a resource problem since we already use multiple threads
-     * and connections for updating the PDPs when user changes occur. Using separate threads can also make it
-     * tricky dealing with timeouts on PDPs that are non-responsive. The Sequential operation does a heartbeat
-     * request to each PDP one at a time. This has the flaw that any PDPs that do not respond will hold up the
-     * entire heartbeat sequence until they timeout. If there are a lot of non-responsive PDPs and the timeout
-     * is large-ish (the default is 20 seconds) it could take a long time to cycle through all of the PDPs.
-     * That means that this may not notice a PDP being down in a predictable time.
+     * Heartbeat with all known PDPs. Each cycle the heartbeat GETs of the PDPs that are due are submitted to
+     * the heartbeat executor at a random offset within the first quarter of the interval, so the PDPs are
+     * contacted in parallel by a bounded number of threads and are not all hit at the same instant. The
+     * heartbeat executor is separate from the one sending the updates. Each GET has a connect and read deadline of the heartbeat timeout, and the cycle waits at most that
+     * long past the last scheduled GET before cancelling the stragglers. PDPs that cannot be reached are
+     * retried with an exponential backoff, up to the configured maximum, so a set of dead PDPs does not hold
+     * up or crowd out the others.
      */
     private class Heartbeat implements Runnable {
         private PAPEngine papEngine;
         private Set<PDP> pdps = new HashSet<PDP>();
         private int heartbeatInterval;
         private int heartbeatTimeout;
+        private long heartbeatBackoffMax;
+        private final Map<String, URL> idToURLMap = new ConcurrentHashMap<String, URL>();
+        private final Map<String, Backoff> idToBackoffMap = new ConcurrentHashMap<String, Backoff>();
+        private final Random random = new Random();
 
         public volatile boolean isRunning = false;
 
@@ -1165,10 +1490,10 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
 
         public Heartbeat(PAPEngine engine) {
             this.papEngine = engine;
-            this.heartbeatInterval = Integer.parseInt(XACMLProperties
-                .getProperty(XACMLRestProperties.PROP_PAP_HEARTBEAT_INTERVAL, "10000"));
-            this.heartbeatTimeout = Integer.parseInt(XACMLProperties
-                .getProperty(XACMLRestProperties.PROP_PAP_HEARTBEAT_TIMEOUT, "10000"));
+            this.heartbeatInterval = getIntProperty(XACMLRestProperties.PROP_PAP_HEARTBEAT_INTERVAL, 10000);
+            this.heartbeatTimeout = getIntProperty(XACMLRestProperties.PROP_PAP_HEARTBEAT_TIMEOUT, 10000);
+            this.heartbeatBackoffMax = getIntProperty(XACMLRestProperties.PROP_PAP_HEARTBEAT_BACKOFF_MAX,
+                                                      300000);
         }
 
         @Override
@@ -1179,7 +1504,6 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
             synchronized (this) {
                 this.isRunning = true;
             }
-            HashMap<String, URL> idToURLMap = new HashMap<String, URL>();
             try {
                 while (this.isRunning()) {
                     // Wait the given time
@@ -1207,93 +1531,39 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                         break;
                     }
 
-                    // try to get the summary status from each PDP
-                    boolean changeSeen = false;
+                    // schedule the heartbeats of the PDPs that are due, with some jitter
+                    long now = System.currentTimeMillis();
+                    int jitter = Math.max(1, heartbeatInterval / 4);
+                    List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
                     for (PDP pdp : pdps) {
-                        //
-                        // Check for shutdown
-                        //
-                        if (!this.isRunning()) {
-                            logger.info("isRunning is false, getting out of loop.");
-                            break;
+                        Backoff backoff = this.idToBackoffMap.get(pdp.getId());
+                        if (backoff != null && backoff.nextAttempt > now) {
+                            continue;
                         }
-                        // the id of the PDP is its url (though we add a query parameter)
-                        URL pdpURL = idToURLMap.get(pdp.getId());
-                        if (pdpURL == null) {
-                            // haven't seen this PDP before
-                            String fullURLString = null;
-                            try {
-                                fullURLString = pdp.getId() + "?type=hb";
-                                pdpURL = new URL(fullURLString);
-                                idToURLMap.put(pdp.getId(), pdpURL);
-                            } catch (MalformedURLException e) {
-                                logger.error("PDP id '" + fullURLString + "' is not a valid URL: " + e, e);
-                                continue;
-                            }
-                        }
-
-                        // Do a GET with type HeartBeat
-                        String newStatus = "";
-
-                        HttpURLConnection connection = null;
                         try {
-
-                            //
-                            // Open up the connection
-                            //
-                            connection = (HttpURLConnection)pdpURL.openConnection();
-                            //
-                            // Setup our method and headers
-                            //
-                            connection.setRequestMethod("GET");
-                            connection.setConnectTimeout(heartbeatTimeout);
-                            //
-                            // Do the connect
-                            //
-                            connection.connect();
-                            if (connection.getResponseCode() == 204) {
-                                newStatus = connection
-                                    .getHeaderField(XACMLRestProperties.PROP_PDP_HTTP_HEADER_HB);
-                                if (logger.isDebugEnabled()) {
-                                    logger
-                                        .debug("Heartbeat '" + pdp.getId() + "' status='" + newStatus + "'");
-                                }
-                            } else {
-                                // anything else is an unexpected result
-                                newStatus = PDPStatus.Status.UNKNOWN.toString();
-                                logger.error("Heartbeat connect response code "
-                                             + connection.getResponseCode() + ": " + pdp.getId());
-                            }
-                        } catch (UnknownHostException e) {
-                            newStatus = PDPStatus.Status.NO_SUCH_HOST.toString();
-                            logger.error("Heartbeat '" + pdp.getId() + "' NO_SUCH_HOST");
-                        } catch (SocketTimeoutException e) {
-                            newStatus = PDPStatus.Status.CANNOT_CONNECT.toString();
-                            logger.error("Heartbeat '" + pdp.getId() + "' connection timeout: " + e);
-                        } catch (ConnectException e) {
-                            newStatus = PDPStatus.Status.CANNOT_CONNECT.toString();
-                            logger.error("Heartbeat '" + pdp.getId() + "' cannot connect: " + e);
-                        } catch (Exception e) {
-                            newStatus = PDPStatus.Status.UNKNOWN.toString();
-                            logger.error("Heartbeat '" + pdp.getId() + "' connect exception: " + e, e);
-                        } finally {
-                            // cleanup the connection
-                            connection.disconnect();
+                            futures.add(heartbeatExecutor.schedule(new HeartbeatCheck(pdp), random
+                                .nextInt(jitter), TimeUnit.MILLISECONDS));
+                        } catch (RejectedExecutionException e) {
+                            logger.info("Heartbeat executor is shut down, getting out of loop.");
+                            return;
                         }
+                    }
+                    this.idToBackoffMap.keySet().retainAll(getIds(pdps));
 
-                        if (!pdp.getStatus().getStatus().toString().equals(newStatus)) {
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("previous status='" + pdp.getStatus().getStatus()
-                                             + "'  new Status='" + newStatus + "'");
-                            }
-                            try {
-                                setPDPSummaryStatus(pdp, newStatus);
-                            } catch (PAPException e) {
-                                logger.error("Unable to set state for PDP '" + pdp.getId() + "': " + e, e);
+                    // wait for the results, giving each PDP its deadline
+                    boolean changeSeen = false;
+                    long deadline = System.currentTimeMillis() + jitter + heartbeatTimeout * 2L;
+                    for (Future<Boolean> future : futures) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        try {
+                            if (future.get(Math.max(remaining, 1), TimeUnit.MILLISECONDS)) {
+                                changeSeen = true;
                             }
-                            changeSeen = true;
+                        } catch (TimeoutException e) {
+                            future.cancel(true);
+                        } catch (ExecutionException e) {
+                            logger.error("Heartbeat failed: " + e.getCause(), e.getCause());
                         }
-
                     }
                     //
                     // Check for shutdown
@@ -1314,6 +1584,138 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                 this.terminate();
             }
         }
+
+        private Set<String> getIds(Set<PDP> pdpSet) {
+            Set<String> ids = new HashSet<String>();
+            for (PDP pdp : pdpSet) {
+                ids.add(pdp.getId());
+            }
+            return ids;
+        }
+
+        /**
+         * Records the outcome of a heartbeat and computes when the PDP should next be contacted.
+         */
+        private void recordAttempt(PDP pdp, String newStatus) {
+            if (PDPStatus.Status.CANNOT_CONNECT.toString().equals(newStatus)
+                || PDPStatus.Status.NO_SUCH_HOST.toString().equals(newStatus)) {
+                Backoff backoff = this.idToBackoffMap.get(pdp.getId());
+                int failures = (backoff == null ? 1 : Math.min(backoff.failures + 1, 30));
+                long delay = Math.min((long)heartbeatInterval << Math.min(failures - 1, 20),
+                                      heartbeatBackoffMax);
+                this.idToBackoffMap.put(pdp.getId(), new Backoff(failures, System.currentTimeMillis()
+                                                                            + delay));
+            } else {
+                this.idToBackoffMap.remove(pdp.getId());
+            }
+        }
+
+        /**
+         * Does one heartbeat GET to a PDP and updates its status. Returns true if the status changed.
+         */
+        private class HeartbeatCheck implements Callable<Boolean> {
+            private PDP pdp;
+
+            public HeartbeatCheck(PDP pdp) {
+                this.pdp = pdp;
+            }
+
+            @Override
+            public Boolean call() throws Exception {
+                // the id of the PDP is its url (though we add a query parameter)
+                URL pdpURL = idToURLMap.get(pdp.getId());
+                if (pdpURL == null) {
+                    // haven't seen this PDP before
+                    String fullURLString = null;
+                    try {
+                        fullURLString = pdp.getId() + "?type=hb";
+                        pdpURL = new URL(fullURLString);
+                        idToURLMap.put(pdp.getId(), pdpURL);
+                    } catch (MalformedURLException e) {
+                        logger.error("PDP id '" + fullURLString + "' is not a valid URL: " + e, e);
+                        return false;
+                    }
+                }
+
+                // Do a GET with type HeartBeat
+                String newStatus = "";
+
+                HttpURLConnection connection = null;
+                try {
+
+                    //
+                    // Open up the connection
+                    //
+                    connection = (HttpURLConnection)pdpURL.openConnection();
+                    //
+                    // Setup our method and headers
+                    //
+                    connection.setRequestMethod("GET");
+                    connection.setConnectTimeout(heartbeatTimeout);
+                    connection.setReadTimeout(heartbeatTimeout);
+                    //
+                    // Do the connect
+                    //
+                    connection.connect();
+                    if (connection.getResponseCode() == 204) {
+                        newStatus = connection.getHeaderField(XACMLRestProperties.PROP_PDP_HTTP_HEADER_HB);
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Heartbeat '" + pdp.getId() + "' status='" + newStatus + "'");
+                        }
+                    } else {
+                        // anything else is an unexpected result
+                        newStatus = PDPStatus.Status.UNKNOWN.toString();
+                        logger.error("Heartbeat connect response code " + connection.getResponseCode()
+                                     + ": " + pdp.getId());
+                    }
+                } catch (UnknownHostException e) {
+                    newStatus = PDPStatus.Status.NO_SUCH_HOST.toString();
+                    logger.error("Heartbeat '" + pdp.getId() + "' NO_SUCH_HOST");
+                } catch (SocketTimeoutException e) {
+                    newStatus = PDPStatus.Status.CANNOT_CONNECT.toString();
+                    logger.error("Heartbeat '" + pdp.getId() + "' connection timeout: " + e);
+                } catch (ConnectException e) {
+                    newStatus = PDPStatus.Status.CANNOT_CONNECT.toString();
+                    logger.error("Heartbeat '" + pdp.getId() + "' cannot connect: " + e);
+                } catch (Exception e) {
+                    newStatus = PDPStatus.Status.UNKNOWN.toString();
+                    logger.error("Heartbeat '" + pdp.getId() + "' connect exception: " + e, e);
+                } finally {
+                    // cleanup the connection
+                    if (connection != null) {
+                        connection.disconnect();
+                    }
+                }
+                recordAttempt(pdp, newStatus);
+
+                if (!pdp.getStatus().getStatus().toString().equals(newStatus)) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("previous status='" + pdp.getStatus().getStatus() + "'  new Status='"
+                                     + newStatus + "'");
+                    }
+                    try {
+                        setPDPSummaryStatus(pdp, newStatus);
+                    } catch (PAPException e) {
+                        logger.error("Unable to set state for PDP '" + pdp.getId() + "': " + e, e);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The number of consecutive failed heartbeats of a PDP and when it should next be contacted.
+     */
+    private static class Backoff {
+        private final int failures;
+        private final long nextAttempt;
+
+        public Backoff(int failures, long nextAttempt) {
+            this.failures = failures;
+            this.nextAttempt = nextAttempt;
+        }
     }
 
     //
@@ -1371,24 +1773,37 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
 
     @Override
     public void pdpChanged(PDP pdp) {
-        // kick off a thread to do an event notification for each PDP.
+        // schedule an event notification for each PDP on the notify executor.
         // This needs to be on a separate thread so that PDPs that do not respond (down, non-existent, etc)
         // do not block the PSP response to the AC, which would freeze the GUI until all PDPs sequentially
         // respond or time-out.
-        Thread t = new Thread(new UpdatePDPThread(pdp));
-        t.start();
+        // If an update for this PDP is already pending it will pick up the latest configuration, so there
+        // is no need to schedule another one.
+        if (pendingPDPUpdates.put(pdp.getId(), pdp) == null) {
+            try {
+                notifyExecutor.schedule(new UpdatePDPThread(pdp.getId()), updateDelay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pendingPDPUpdates.remove(pdp.getId());
+                logger.warn("Unable to schedule update of PDP '" + pdp.getId() + "': " + e);
+            }
+        }
     }
 
     private class UpdatePDPThread implements Runnable {
-        private PDP pdp;
+        private String pdpId;
 
         // remember which PDP to notify
-        public UpdatePDPThread(PDP pdp) {
-            this.pdp = pdp;
+        public UpdatePDPThread(String pdpId) {
+            this.pdpId = pdpId;
         }
 
         @Override
         public void run() {
+            // take the latest pending change, any changes after this point schedule another update
+            PDP pdp = pendingPDPUpdates.remove(this.pdpId);
+            if (pdp == null) {
+                return;
+            }
             // send the current configuration to one PDP
             HttpURLConnection connection = null;
             try {
@@ -1428,6 +1843,8 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                 // PLD - MUST be able to handle re-directs.
                 //
                 connection.setInstanceFollowRedirects(true);
+                connection.setConnectTimeout(updateTimeout);
+                connection.setReadTimeout(updateTimeout);
                 connection.setDoOutput(true);
                 // connection.setDoInput(true);
                 try (OutputStream os = connection.getOutputStream()) {
@@ -1452,6 +1869,7 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                         for (PDPPolicy policy : group.getPolicies()) {
                             policyLocations.put(policy.getId() + ".url", XACMLPapServlet.papURL + "?id="
                                                                          + policy.getId());
+                            populatePolicyHash(policyLocations, policy);
                         }
                         policyLocations.store(os, "");
                         group.getPipConfigProperties().store(os, "");
@@ -1488,7 +1906,9 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                 }
             } finally {
                 // cleanup the connection
-                connection.disconnect();
+                if (connection != null) {
+                    connection.disconnect();
+                }
 
                 // tell the AC to update it's status info
                 notifyAC();
@@ -1502,18 +1922,26 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
     //
 
     private void notifyAC() {
-        // kick off a thread to do one event notification for all registered ACs
+        // schedule one event notification for all registered ACs on the notify executor
         // This needs to be on a separate thread so that ACs can make calls back to PAP to get the updated
         // Group data
         // as part of processing this message on their end.
-        Thread t = new Thread(new NotifyACThread());
-        t.start();
+        // Notifications requested while one is already scheduled are covered by it.
+        if (pendingACNotification.compareAndSet(false, true)) {
+            try {
+                notifyExecutor.schedule(new NotifyACThread(), updateDelay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pendingACNotification.set(false);
+                logger.warn("Unable to schedule AC notification: " + e);
+            }
+        }
     }
 
     private class NotifyACThread implements Runnable {
 
         @Override
         public void run() {
+            pendingACNotification.set(false);
             List<String> disconnectedACs = new ArrayList<String>();
             // logger.debug("LIST SIZE="+adminConsoleURLStringList.size());
 
@@ -1557,6 +1985,8 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                     //
                     // TODO - is this needed for a PUT? seems better to leave in for now?
                     connection.setInstanceFollowRedirects(false);
+                    connection.setConnectTimeout(updateTimeout);
+                    connection.setReadTimeout(updateTimeout);
                     //
                     // Do not include any data in the PUT because this is just a
                     // notification to the AC.
@@ -1580,7 +2010,9 @@ public class XACMLPapServlet extends HttpServlet implements StdItemSetChangeList
                     disconnectedACs.add(acURL);
                 } finally {
                     // cleanup the connection
-                    connection.disconnect();
+                    if (connection != null) {
+                        connection.disconnect();
+                    }
                 }
             }
 
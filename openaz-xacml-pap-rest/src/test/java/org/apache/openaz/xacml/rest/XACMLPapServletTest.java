@@ -0,0 +1,307 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.openaz.xacml.api.pap.PDPGroup;
+import org.apache.openaz.xacml.api.pap.PDPPolicy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.hash.Hashing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class XACMLPapServletTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ByteArrayOutputStream responseContent;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private PDPGroup group;
+
+    @Before
+    public void before() throws Exception {
+        this.responseContent = new ByteArrayOutputStream();
+        this.request = mock(HttpServletRequest.class);
+        this.response = mock(HttpServletResponse.class);
+        when(this.response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                responseContent.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        Set<PDPPolicy> policies = new HashSet<PDPPolicy>();
+        policies.add(newPolicy("policy2", "<Policy 2/>"));
+        policies.add(newPolicy("policy1", "<Policy 1/>"));
+        this.group = mock(PDPGroup.class);
+        when(this.group.getId()).thenReturn("default");
+        when(this.group.getPolicies()).thenReturn(policies);
+    }
+
+    private static PDPPolicy newPolicy(String id, final String content) throws Exception {
+        PDPPolicy policy = mock(PDPPolicy.class);
+        when(policy.getId()).thenReturn(id);
+        when(policy.getStream()).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(InvocationOnMock invocation) {
+                return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        return policy;
+    }
+
+    private static String sha256(String content) {
+        return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+
+    private void readBundle(List<String> names, List<String> contents) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(this.responseContent
+            .toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                contents.add(IOUtils.toString(zip, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void setRequestContent(String content) throws IOException {
+        final InputStream is = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        when(this.request.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return is.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return false;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        });
+    }
+
+    @Test
+    public void testBundle() throws Exception {
+        new XACMLPapServlet().doPDPBundleGet(this.request, this.response, this.group);
+
+        Map<String, String> policyHashes = new LinkedHashMap<String, String>();
+        policyHashes.put("policy1", sha256("<Policy 1/>"));
+        policyHashes.put("policy2", sha256("<Policy 2/>"));
+        verify(this.response).setHeader("ETag", XACMLRest.getPolicyBundleETag(policyHashes));
+        verify(this.response).setContentType("application/zip");
+        verify(this.response).setStatus(HttpServletResponse.SC_OK);
+
+        List<String> names = new ArrayList<String>();
+        List<String> contents = new ArrayList<String>();
+        this.readBundle(names, contents);
+        assertEquals(2, names.size());
+        assertEquals("policy1", names.get(0));
+        assertEquals("<Policy 1/>", contents.get(0));
+        assertEquals("policy2", names.get(1));
+        assertEquals("<Policy 2/>", contents.get(1));
+    }
+
+    @Test
+    public void testBundleStable() throws Exception {
+        new XACMLPapServlet().doPDPBundleGet(this.request, this.response, this.group);
+        byte[] first = this.responseContent.toByteArray();
+        this.responseContent.reset();
+        new XACMLPapServlet().doPDPBundleGet(this.request, this.response, this.group);
+        assertArrayEquals(first, this.responseContent.toByteArray());
+    }
+
+    @Test
+    public void testBundleNotModified() throws Exception {
+        Map<String, String> policyHashes = new LinkedHashMap<String, String>();
+        policyHashes.put("policy1", sha256("<Policy 1/>"));
+        policyHashes.put("policy2", sha256("<Policy 2/>"));
+        String etag = XACMLRest.getPolicyBundleETag(policyHashes);
+        when(this.request.getHeader("If-None-Match")).thenReturn(etag);
+
+        new XACMLPapServlet().doPDPBundleGet(this.request, this.response, this.group);
+
+        verify(this.response).setHeader("ETag", etag);
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response, never()).getOutputStream();
+        assertEquals(0, this.responseContent.size());
+    }
+
+    @Test
+    public void testBundleModified() throws Exception {
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"stale\"");
+
+        new XACMLPapServlet().doPDPBundleGet(this.request, this.response, this.group);
+
+        verify(this.response).setStatus(HttpServletResponse.SC_OK);
+        verify(this.response, never()).sendError(anyInt(), any(String.class));
+    }
+
+    @Test
+    public void testDeltaBundle() throws Exception {
+        this.setRequestContent(sha256("<Policy 2/>") + "\n" + sha256("<Policy 3/>") + "\n");
+
+        new XACMLPapServlet().doPDPDeltaBundlePost(this.request, this.response, this.group);
+
+        verify(this.response).setContentType("application/zip");
+        verify(this.response).setStatus(HttpServletResponse.SC_OK);
+        List<String> names = new ArrayList<String>();
+        List<String> contents = new ArrayList<String>();
+        this.readBundle(names, contents);
+        assertEquals(1, names.size());
+        assertEquals(sha256("<Policy 2/>"), names.get(0));
+        assertEquals("<Policy 2/>", contents.get(0));
+    }
+
+    @Test
+    public void testDeltaBundleSharedContent() throws Exception {
+        this.group.getPolicies().add(newPolicy("policy3", "<Policy 1/>"));
+        this.setRequestContent(sha256("<Policy 1/>") + "\n");
+
+        new XACMLPapServlet().doPDPDeltaBundlePost(this.request, this.response, this.group);
+
+        List<String> names = new ArrayList<String>();
+        List<String> contents = new ArrayList<String>();
+        this.readBundle(names, contents);
+        assertEquals(1, names.size());
+        assertEquals(sha256("<Policy 1/>"), names.get(0));
+        assertEquals("<Policy 1/>", contents.get(0));
+    }
+
+    @Test
+    public void testPolicyHash() throws Exception {
+        Properties properties = new Properties();
+        XACMLPapServlet.populatePolicyHash(properties, newPolicy("policy1", "<Policy 1/>"));
+        XACMLPapServlet.populatePolicyHash(properties, null);
+
+        assertEquals(1, properties.size());
+        assertEquals(sha256("<Policy 1/>"),
+                     properties.getProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH));
+    }
+
+    @Test
+    public void testPolicyHashOfChangedFile() throws Exception {
+        final File file = this.temporaryFolder.newFile("policy1.xml");
+        Files.write(file.toPath(), "<Policy 1/>".getBytes(StandardCharsets.UTF_8));
+        PDPPolicy policy = mock(PDPPolicy.class);
+        when(policy.getId()).thenReturn("policy1");
+        when(policy.getLocation()).thenReturn(file.toURI());
+        when(policy.getStream()).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(InvocationOnMock invocation) throws IOException {
+                return new FileInputStream(file);
+            }
+        });
+        Properties properties = new Properties();
+        XACMLPapServlet.populatePolicyHash(properties, policy);
+        assertEquals(sha256("<Policy 1/>"),
+                     properties.getProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH));
+
+        // the cached hash is replaced once the file's size changes
+        Files.write(file.toPath(), "<Policy 1 changed/>".getBytes(StandardCharsets.UTF_8));
+        XACMLPapServlet.populatePolicyHash(properties, policy);
+        assertEquals(sha256("<Policy 1 changed/>"),
+                     properties.getProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH));
+    }
+
+    @Test
+    public void testPolicyHashFailure() throws Exception {
+        PDPPolicy policy = mock(PDPPolicy.class);
+        when(policy.getId()).thenReturn("policy1");
+        when(policy.getStream()).thenThrow(new IOException("unreadable"));
+        Properties properties = new Properties();
+
+        XACMLPapServlet.populatePolicyHash(properties, policy);
+
+        assertNull(properties.getProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH));
+    }
+
+    @Test
+    public void testGetIntProperty() {
+        String property = "xacml.rest.pap.test.value";
+        try {
+            assertEquals(7, XACMLPapServlet.getIntProperty(property, 7));
+            System.setProperty(property, " 42 ");
+            assertEquals(42, XACMLPapServlet.getIntProperty(property, 7));
+            System.setProperty(property, "many");
+            assertEquals(7, XACMLPapServlet.getIntProperty(property, 7));
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+}
@@ -30,19 +30,33 @@
  */
 package org.apache.openaz.xacml.rest;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
@@ -57,8 +71,11 @@ import org.apache.openaz.xacml.api.pip.PIPException;
 import org.apache.openaz.xacml.api.pip.PIPFinder;
 import org.apache.openaz.xacml.api.pip.PIPFinderFactory;
 import org.apache.openaz.xacml.pdp.policy.PolicyDef;
-import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
+import org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotException;
+import org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotReader;
+import org.apache.openaz.xacml.pdp.std.StdPolicyDefCache;
 import org.apache.openaz.xacml.pdp.std.StdPolicyFinderFactory;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
 import org.apache.openaz.xacml.std.pap.StdPDPPIPConfig;
 import org.apache.openaz.xacml.std.pap.StdPDPPolicy;
 import org.apache.openaz.xacml.std.pap.StdPDPStatus;
@@ -66,6 +83,9 @@ import org.apache.openaz.xacml.util.FactoryException;
 import org.apache.openaz.xacml.util.XACMLProperties;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 /**
  * Does the work for loading policy and PIP configurations sent from the PAP servlet.
@@ -73,6 +93,8 @@ import com.google.common.base.Splitter;
 public class XACMLPdpLoader {
     private static final Log logger = LogFactory.getLog(XACMLPdpLoader.class);
 
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
     public static synchronized PDPEngine loadEngine(StdPDPStatus status, Properties policyProperties,
                                                     Properties pipProperties) {
         logger.info("loadEngine: " + policyProperties + " " + pipProperties);
@@ -149,6 +171,7 @@ public class XACMLPdpLoader {
         //
         if (status.getStatus() == Status.LOAD_ERRORS) {
             logger.error("there were load errors");
+            StdPolicyDefCache.clear();
             return null;
         }
         //
@@ -186,6 +209,19 @@ public class XACMLPdpLoader {
         throws PAPException {
         Set<String> rootPolicies = XACMLProperties.getRootPolicyIDs(properties);
         Set<String> refPolicies = XACMLProperties.getReferencedPolicyIDs(properties);
+        //
+        // Parse the local policy files in parallel up front. The parsed policies are
+        // kept so the PDP engine does not have to parse them again, and files whose
+        // content has not changed since the last load are not parsed at all.
+        //
+        List<File> listFiles = getPolicyFiles(properties, rootPolicies, refPolicies);
+        int loadThreads = StdPolicyDefCache.getLoadThreads(XACMLProperties
+            .getProperty(OpenAZPDPProperties.PROP_POLICYFINDERFACTORY_LOADTHREADS));
+        boolean useSnapshot = Boolean.parseBoolean(XACMLProperties
+            .getProperty(XACMLRestProperties.PROP_PDP_POLICY_SNAPSHOT));
+        PolicySnapshotReader policySnapshot = useSnapshot ? openPolicySnapshot() : null;
+        int parseCount = StdPolicyDefCache.preload(listFiles, loadThreads, policySnapshot);
+        logger.info("Parsed " + parseCount + " new or changed policies of " + listFiles.size());
 
         for (String id : rootPolicies) {
             loadPolicy(properties, status, id, true);
@@ -196,6 +232,18 @@ public class XACMLPdpLoader {
         for (String id : refPolicies) {
             loadPolicy(properties, status, id, false);
         }
+        //
+        // Release the policies that are no longer part of the configuration
+        //
+        StdPolicyDefCache.retainAll(getPolicyFiles(properties, rootPolicies, refPolicies));
+
+        //
+        // Rewrite the snapshot if any policy had to be parsed or was removed
+        //
+        if (useSnapshot && status.getStatus() != Status.LOAD_ERRORS
+            && (policySnapshot == null || parseCount > 0 || !isCurrent(policySnapshot, listFiles))) {
+            writePolicySnapshot(listFiles);
+        }
 
         logger.info("Loaded " + status.getLoadedPolicies().size() + " policies, failed to load "
                     + status.getFailedPolicies().size() + " policies, "
@@ -206,6 +254,52 @@ public class XACMLPdpLoader {
         }
     }
 
+    private static List<File> getPolicyFiles(Properties properties, Set<String> rootPolicies,
+                                             Set<String> refPolicies) {
+        List<File> listFiles = new ArrayList<File>();
+        for (String id : Iterables.concat(rootPolicies, refPolicies)) {
+            String location = properties.getProperty(id + StdPolicyFinderFactory.PROP_FILE);
+            if (location != null) {
+                listFiles.add(new File(location));
+            }
+        }
+        return listFiles;
+    }
+
+    private static boolean isCurrent(PolicySnapshotReader policySnapshot, List<File> listFiles) {
+        Set<String> setIds = new HashSet<String>();
+        for (File file : listFiles) {
+            setIds.add(file.getAbsolutePath());
+        }
+        return setIds.containsAll(policySnapshot.getIds());
+    }
+
+    private static PolicySnapshotReader openPolicySnapshot() throws PAPException {
+        Path snapshot = getPolicySnapshot();
+        if (Files.notExists(snapshot)) {
+            return null;
+        }
+        try {
+            PolicySnapshotReader policySnapshot = PolicySnapshotReader.open(snapshot);
+            logger.info("Opened policy snapshot " + snapshot + " with " + policySnapshot.size() + " policies");
+            return policySnapshot;
+        } catch (IOException | PolicySnapshotException e) {
+            logger.warn("Ignoring policy snapshot " + snapshot + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writePolicySnapshot(List<File> listFiles) throws PAPException {
+        Path snapshot = getPolicySnapshot();
+        try {
+            int count = StdPolicyDefCache.writeSnapshot(listFiles, snapshot);
+            logger.info("Wrote " + count + " of " + listFiles.size() + " policies to policy snapshot "
+                        + snapshot);
+        } catch (IOException | PolicySnapshotException e) {
+            logger.error("Failed to write policy snapshot " + snapshot, e);
+        }
+    }
+
     public static synchronized void loadPolicy(Properties properties, StdPDPStatus status, String id,
                                                boolean isRoot) throws PAPException {
         PolicyDef policy = null;
@@ -240,9 +334,7 @@ public class XACMLPdpLoader {
                     // Now try to load
                     //
                     isFile = true;
-                    try (InputStream fis = Files.newInputStream(outFile)) {
-                        policy = DOMPolicyDef.load(fis);
-                    }
+                    policy = StdPolicyDefCache.load(outFile.toFile());
                     //
                     // Save it
                     //
@@ -251,9 +343,7 @@ public class XACMLPdpLoader {
             } else {
                 isFile = true;
                 locationURI = Paths.get(location).toUri();
-                try (InputStream is = Files.newInputStream(Paths.get(location))) {
-                    policy = DOMPolicyDef.load(is);
-                }
+                policy = StdPolicyDefCache.load(Paths.get(location).toFile());
             }
             if (policy != null) {
                 status.addLoadedPolicy(new StdPDPPolicy(id, isRoot, locationURI, properties));
@@ -337,6 +427,23 @@ public class XACMLPdpLoader {
         String[] lists = new String[2];
         lists[0] = props.getProperty(XACMLProperties.PROP_ROOTPOLICIES);
         lists[1] = props.getProperty(XACMLProperties.PROP_REFERENCEDPOLICIES);
+        //
+        // If more than one policy is missing, try to get them all from the PAP in one request.
+        // Policies the PAP sent a hash for are fetched by the hashes missing from the policy store,
+        // the others with the bundle of all the group's policies.
+        // Whatever the bundles do not provide is pulled from its URL below.
+        //
+        if (!"false".equalsIgnoreCase(XACMLProperties
+            .getProperty(XACMLRestProperties.PROP_PDP_POLICY_BUNDLE))) {
+            Set<String> missingHashes = getMissingHashes(props, lists);
+            if (missingHashes.size() > 1) {
+                downloadPolicyDelta(missingHashes);
+            }
+            Set<String> missingPolicies = getMissingPolicies(props, lists);
+            if (missingPolicies.size() > 1) {
+                downloadPolicyBundle(missingPolicies);
+            }
+        }
         for (String list : lists) {
             //
             // Check for a null or empty parameter
@@ -346,6 +453,16 @@ public class XACMLPdpLoader {
             }
             Iterable<String> policies = Splitter.on(',').trimResults().omitEmptyStrings().split(list);
             for (String policy : policies) {
+                //
+                // Policies with a hash live in the policy store
+                //
+                String hash = props.getProperty(policy + XACMLRestProperties.PROP_POLICY_HASH);
+                if (hash != null) {
+                    if (cachePolicyByHash(props, policy, hash)) {
+                        changed = true;
+                    }
+                    continue;
+                }
                 boolean policyExists = false;
 
                 // First look for ".file" property and verify the file exists
@@ -449,6 +566,347 @@ public class XACMLPdpLoader {
         return changed;
     }
 
+    private static Set<String> getMissingPolicies(Properties props, String[] lists) throws PAPException {
+        Set<String> missingPolicies = new HashSet<String>();
+        String configDir = getPDPConfig().toAbsolutePath().toString();
+        for (String list : lists) {
+            if (list == null || list.length() == 0) {
+                continue;
+            }
+            for (String policy : Splitter.on(',').trimResults().omitEmptyStrings().split(list)) {
+                if (props.getProperty(policy + XACMLRestProperties.PROP_POLICY_HASH) != null) {
+                    continue;
+                }
+                String propLocation = props.getProperty(policy + StdPolicyFinderFactory.PROP_FILE);
+                if ((propLocation == null || !Files.exists(Paths.get(propLocation)))
+                    && !Files.exists(Paths.get(configDir, policy))) {
+                    missingPolicies.add(policy);
+                }
+            }
+        }
+        return missingPolicies;
+    }
+
+    private static Set<String> getMissingHashes(Properties props, String[] lists) throws PAPException {
+        Set<String> missingHashes = new HashSet<String>();
+        Path store = getPolicyStore();
+        for (String list : lists) {
+            if (list == null || list.length() == 0) {
+                continue;
+            }
+            for (String policy : Splitter.on(',').trimResults().omitEmptyStrings().split(list)) {
+                String hash = props.getProperty(policy + XACMLRestProperties.PROP_POLICY_HASH);
+                if (hash != null && HASH_PATTERN.matcher(hash).matches()
+                    && !Files.exists(store.resolve(hash))) {
+                    missingHashes.add(hash);
+                }
+            }
+        }
+        return missingHashes;
+    }
+
+    /**
+     * Makes sure the policy with the given hash is in the policy store and points its ".file" property at
+     * it. A policy that is not in the store yet is taken from the file this PDP already has for it if the
+     * content matches, else it is pulled from its ".url" property.
+     *
+     * @param props
+     * @param policy
+     * @param hash
+     * @return true if the props object changed
+     * @throws PAPException
+     */
+    private static boolean cachePolicyByHash(Properties props, String policy, String hash)
+        throws PAPException {
+        if (!HASH_PATTERN.matcher(hash).matches()) {
+            logger.error("Policy " + policy + " has an invalid hash '" + hash + "'");
+            return false;
+        }
+        Path stored = getPolicyStore().resolve(hash);
+        if (!Files.exists(stored)) {
+            String propLocation = props.getProperty(policy + StdPolicyFinderFactory.PROP_FILE);
+            Path[] candidates = new Path[] {
+                propLocation == null ? null : Paths.get(propLocation),
+                Paths.get(getPDPConfig().toAbsolutePath().toString(), policy)
+            };
+            for (Path candidate : candidates) {
+                if (candidate != null && Files.exists(candidate)) {
+                    try (InputStream is = Files.newInputStream(candidate)) {
+                        if (storePolicy(is, hash)) {
+                            logger.info("Stored policy " + policy + " from " + candidate);
+                            break;
+                        }
+                    } catch (IOException e) {
+                        logger.warn("Failed to read policy file " + candidate + ": " + e);
+                    }
+                }
+            }
+        }
+        if (!Files.exists(stored)) {
+            String propLocation = props.getProperty(policy + StdPolicyFinderFactory.PROP_URL);
+            if (propLocation == null) {
+                logger.error("Policy " + policy + " does NOT exist and does NOT have a URL");
+                return false;
+            }
+            try {
+                URL url = new URL(propLocation);
+                logger.info("Pulling " + url.toString());
+                URLConnection urlConnection = url.openConnection();
+                urlConnection
+                    .setRequestProperty(XACMLRestProperties.PROP_PDP_HTTP_HEADER_ID,
+                                        XACMLProperties.getProperty(XACMLRestProperties.PROP_PDP_ID));
+                try (InputStream is = urlConnection.getInputStream()) {
+                    if (!storePolicy(is, hash)) {
+                        logger.error("Policy " + policy + " from URL " + propLocation
+                                     + " does not match its hash " + hash);
+                        return false;
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error while retrieving policy " + policy + " from URL " + propLocation
+                             + ", e=" + e);
+                return false;
+            }
+        }
+        String file = stored.toAbsolutePath().toString();
+        if (file.equals(props.getProperty(policy + StdPolicyFinderFactory.PROP_FILE))) {
+            return false;
+        }
+        props.setProperty(policy + StdPolicyFinderFactory.PROP_FILE, file);
+        return true;
+    }
+
+    /**
+     * Copies a policy into the policy store if its content has the given hash.
+     *
+     * @param is the content of the policy
+     * @param hash the SHA-256 of the policy's content
+     * @return true if the policy was stored, false if the content does not match the hash
+     * @throws IOException
+     * @throws PAPException
+     */
+    private static boolean storePolicy(InputStream is, String hash) throws IOException, PAPException {
+        Path store = getPolicyStore();
+        Path temp = Files.createTempFile(store, hash, ".tmp");
+        try {
+            String contentHash;
+            try (OutputStream os = Files.newOutputStream(temp)) {
+                contentHash = copyAndHash(is, os);
+            }
+            if (!hash.equals(contentHash)) {
+                return false;
+            }
+            Files.move(temp, store.resolve(hash), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Deletes the policies in the policy store that the given policy properties do not refer to with a
+     * "&lt;PolicyId&gt;.hash" property. Call it once the configuration these properties describe has been
+     * loaded and saved, so the store only keeps the content of the current configuration.
+     *
+     * @param props the policy properties of the current configuration
+     * @return the number of policies that were deleted
+     * @throws PAPException
+     */
+    public static synchronized int removeUnreferencedPolicies(Properties props) throws PAPException {
+        Set<String> referencedHashes = new HashSet<String>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.endsWith(XACMLRestProperties.PROP_POLICY_HASH)) {
+                referencedHashes.add(props.getProperty(name));
+            }
+        }
+        int count = 0;
+        Path store = getPolicyStore();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(store)) {
+            for (Path file : files) {
+                String hash = file.getFileName().toString();
+                if (HASH_PATTERN.matcher(hash).matches() && !referencedHashes.contains(hash)) {
+                    Files.deleteIfExists(file);
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to clean up policy store " + store + ": " + e, e);
+        }
+        if (count > 0) {
+            logger.info("Deleted " + count + " unreferenced policies from the policy store");
+        }
+        return count;
+    }
+
+    /**
+     * Downloads the policies with the given hashes from the PAP servlet into the policy store, as one zip
+     * file with an entry named by each hash. Each entry is verified against its name. Any failure is logged
+     * and leaves the policies to be pulled one by one.
+     *
+     * @param missingHashes the hashes of the policies that are not in the policy store
+     * @return the number of policies that were stored
+     * @throws PAPException
+     */
+    private static int downloadPolicyDelta(Set<String> missingHashes) throws PAPException {
+        String papURL = XACMLProperties.getProperty(XACMLRestProperties.PROP_PAP_URL);
+        if (papURL == null) {
+            return 0;
+        }
+        int count = 0;
+        try {
+            URL url = new URL(papURL + (papURL.indexOf('?') < 0 ? "?" : "&") + "bundle=delta");
+            logger.info("Pulling " + missingHashes.size() + " policies from " + url.toString());
+            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+            try {
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "text/plain");
+                connection.setRequestProperty(XACMLRestProperties.PROP_PDP_HTTP_HEADER_ID,
+                                              XACMLProperties.getProperty(XACMLRestProperties.PROP_PDP_ID));
+                connection.setDoOutput(true);
+                try (OutputStream os = connection.getOutputStream()) {
+                    for (String hash : missingHashes) {
+                        os.write((hash + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                int responseCode = connection.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    logger.warn("Policy delta not available: " + responseCode + " "
+                                + connection.getResponseMessage());
+                    return 0;
+                }
+                try (ZipInputStream zip = new ZipInputStream(connection.getInputStream())) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        String hash = entry.getName();
+                        if (!missingHashes.contains(hash)) {
+                            continue;
+                        }
+                        if (storePolicy(zip, hash)) {
+                            count++;
+                        } else {
+                            logger.error("Policy delta entry does not match its hash " + hash);
+                        }
+                    }
+                }
+                logger.info("Pulled " + count + " policies from policy delta");
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            logger.error("Error while retrieving policy delta: " + e, e);
+        }
+        return count;
+    }
+
+    /**
+     * Downloads the bundle of the PDP group's policies from the PAP servlet and unpacks the given missing
+     * policies into the config directory. The bundle is read as it arrives: the missing policies go to
+     * temporary files, and only replace the policy files once the SHA-256 of every entry matches the ETag the
+     * PAP computed with {@link XACMLRest#getPolicyBundleETag(Map)}. The request is not conditional: this is
+     * only called when policies are missing, and those must be downloaded even if the PAP's bundle has not
+     * changed since the last pull. Entries named outside of the config directory are rejected. Any failure is logged and leaves the policies to be pulled one by one.
+     *
+     * @param missingPolicies the ids of the policies that are not in the config directory
+     * @return the number of policies that were unpacked
+     * @throws PAPException
+     */
+    static int downloadPolicyBundle(Set<String> missingPolicies) throws PAPException {
+        String papURL = XACMLProperties.getProperty(XACMLRestProperties.PROP_PAP_URL);
+        if (papURL == null) {
+            return 0;
+        }
+        Path config = getPDPConfig().toAbsolutePath().normalize();
+        Map<String, Path> unpacked = new HashMap<String, Path>();
+        int count = 0;
+        try {
+            URL url = new URL(papURL + (papURL.indexOf('?') < 0 ? "?" : "&") + "bundle=all");
+            logger.info("Pulling policy bundle " + url.toString() + " for " + missingPolicies.size()
+                        + " policies");
+            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+            try {
+                connection.setRequestProperty(XACMLRestProperties.PROP_PDP_HTTP_HEADER_ID,
+                                              XACMLProperties.getProperty(XACMLRestProperties.PROP_PDP_ID));
+                int responseCode = connection.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    logger.warn("Policy bundle not available: " + responseCode + " "
+                                + connection.getResponseMessage());
+                    return 0;
+                }
+                String etag = connection.getHeaderField("ETag");
+                //
+                // Hash every entry, keeping the missing policies in temporary files
+                //
+                Map<String, String> policyHashes = new LinkedHashMap<String, String>();
+                try (ZipInputStream zip = new ZipInputStream(connection.getInputStream())) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        String policy = entry.getName();
+                        Path outFile = config.resolve(policy).normalize();
+                        if (!missingPolicies.contains(policy) || unpacked.containsKey(policy)) {
+                            policyHashes.put(policy, copyAndHash(zip, null));
+                        } else if (!config.equals(outFile.getParent())) {
+                            logger.error("Policy bundle entry '" + policy + "' is not a valid file name");
+                            policyHashes.put(policy, copyAndHash(zip, null));
+                        } else {
+                            Path temp = Files.createTempFile(config, "xacml.policy.bundle", ".tmp");
+                            unpacked.put(policy, temp);
+                            try (OutputStream os = Files.newOutputStream(temp)) {
+                                policyHashes.put(policy, copyAndHash(zip, os));
+                            }
+                        }
+                    }
+                }
+                if (etag == null || !etag.equals(XACMLRest.getPolicyBundleETag(policyHashes))) {
+                    logger.error("Policy bundle checksum does not match its ETag " + etag);
+                    return 0;
+                }
+                //
+                // Move the missing policies into place
+                //
+                for (Map.Entry<String, Path> policy : unpacked.entrySet()) {
+                    Files.move(policy.getValue(), config.resolve(policy.getKey()),
+                               StandardCopyOption.REPLACE_EXISTING);
+                    count++;
+                }
+                logger.info("Pulled " + count + " policies from policy bundle");
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            logger.error("Error while retrieving policy bundle: " + e, e);
+        } finally {
+            for (Path temp : unpacked.values()) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete " + temp + ": " + e);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies a stream while computing the SHA-256 of its content.
+     *
+     * @param is the stream to read
+     * @param os the stream to copy to, or null to only compute the hash
+     * @return the SHA-256 of the content as a lower case hex string
+     * @throws IOException
+     */
+    private static String copyAndHash(InputStream is, OutputStream os) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            hasher.putBytes(buffer, 0, read);
+            if (os != null) {
+                os.write(buffer, 0, read);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
     public static synchronized Path getPDPPolicyCache() throws PAPException {
         Path config = getPDPConfig();
         Path policyProperties = Paths.get(config.toAbsolutePath().toString(), "xacml.policy.properties");
@@ -469,6 +927,32 @@ public class XACMLPdpLoader {
         return policyProperties;
     }
 
+    /**
+     * Gets the directory the PDP keeps the policies it was sent a hash for in, with each file named by the
+     * SHA-256 of its content.
+     *
+     * @return the policy store directory
+     * @throws PAPException
+     */
+    public static synchronized Path getPolicyStore() throws PAPException {
+        Path store = Paths.get(getPDPConfig().toAbsolutePath().toString(), "policies");
+        if (Files.notExists(store)) {
+            try {
+                Files.createDirectories(store);
+            } catch (IOException e) {
+                logger.error("Failed to create policy store directory: " + store.toAbsolutePath().toString(),
+                             e);
+                throw new PAPException("Failed to create policy store directory: "
+                                       + store.toAbsolutePath().toString());
+            }
+        }
+        return store;
+    }
+
+    public static synchronized Path getPolicySnapshot() throws PAPException {
+        return Paths.get(getPDPConfig().toAbsolutePath().toString(), "xacml.policy.snapshot");
+    }
+
     public static synchronized Path getPIPConfig() throws PAPException {
         Path config = getPDPConfig();
         Path pipConfigProperties = Paths.get(config.toAbsolutePath().toString(), "xacml.pip.properties");
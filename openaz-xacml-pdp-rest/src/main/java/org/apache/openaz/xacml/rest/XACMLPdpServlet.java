@@ -37,10 +37,22 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Servlet;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -59,6 +71,9 @@ import org.apache.openaz.xacml.api.Response;
 import org.apache.openaz.xacml.api.pap.PDPStatus.Status;
 import org.apache.openaz.xacml.api.pdp.PDPEngine;
 import org.apache.openaz.xacml.api.pdp.PDPException;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfile;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfiler;
+import org.apache.openaz.xacml.pdp.trace.SamplingTraceEngine;
 import org.apache.openaz.xacml.std.dom.DOMRequest;
 import org.apache.openaz.xacml.std.dom.DOMResponse;
 import org.apache.openaz.xacml.std.json.JSONRequest;
@@ -83,11 +98,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @WebServlet(description = "Implements the XACML PDP RESTful API and client PAP API.", urlPatterns = {
     "/"
-}, loadOnStartup = 1, initParams = {
+}, loadOnStartup = 1, asyncSupported = true, initParams = {
                           @WebInitParam(name = "XACML_PROPERTIES_NAME", value = "xacml.pdp.properties", description = "The location of the PDP xacml.pdp.properties file holding configuration information.")
             })
 public class XACMLPdpServlet extends HttpServlet implements Runnable {
     private static final long serialVersionUID = 1L;
+    private static final long DEFAULT_ASYNC_TIMEOUT = 30000;
     //
     // Our application debug log
     //
@@ -104,12 +120,17 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
     private Thread registerThread = null;
     private XACMLPdpRegisterThread registerRunnable = null;
     //
-    // This is our PDP engine pointer. There is a synchronized lock used
+    // This is our PDP engine pointer. There is a read/write lock used
     // for access to the pointer. In case we are servicing PEP requests while
     // an update is occurring from the PAP.
     //
     private PDPEngine pdpEngine = null;
-    private static final Object pdpEngineLock = new Object();
+    private static final ReentrantReadWriteLock pdpEngineLock = new ReentrantReadWriteLock();
+    //
+    // The threads that run decisions when the servlet is asynchronous, else null.
+    //
+    private static ExecutorService decisionExecutor = null;
+    private static long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
     //
     // This is our PDP's status. What policies are loaded (or not) and
     // what PIP configurations are loaded (or not).
@@ -160,8 +181,26 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
         //
         PDPEngine engine = XACMLPdpLoader.loadEngine(XACMLPdpServlet.status, null, null);
         if (engine != null) {
-            synchronized (pdpEngineLock) {
+            pdpEngineLock.writeLock().lock();
+            try {
                 pdpEngine = engine;
+            } finally {
+                pdpEngineLock.writeLock().unlock();
+            }
+        }
+        //
+        // Are decisions to be taken off the container's threads?
+        //
+        if (Boolean.parseBoolean(XACMLProperties.getProperty(XACMLRestProperties.PROP_PDP_ASYNC))) {
+            XACMLPdpServlet.decisionExecutor = newDecisionExecutor(Integer.parseInt(XACMLProperties
+                .getProperty(XACMLRestProperties.PROP_PDP_ASYNC_THREADS, "64")));
+            try {
+                XACMLPdpServlet.asyncTimeout = Long.parseLong(XACMLProperties
+                    .getProperty(XACMLRestProperties.PROP_PDP_ASYNC_TIMEOUT,
+                                 Long.toString(DEFAULT_ASYNC_TIMEOUT)).trim());
+            } catch (NumberFormatException e) {
+                logger.error("Invalid " + XACMLRestProperties.PROP_PDP_ASYNC_TIMEOUT + ": " + e);
+                XACMLPdpServlet.asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
             }
         }
         //
@@ -180,6 +219,20 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
         this.configThread.start();
     }
 
+    private static ExecutorService newDecisionExecutor(int threads) {
+        return Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "XACMLPdpServlet-decide-"
+                                                     + this.threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     /**
      * @see Servlet#destroy()
      */
@@ -211,6 +264,13 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
         } catch (InterruptedException e) {
             logger.error(e);
         }
+        //
+        // Stop taking decisions
+        //
+        if (XACMLPdpServlet.decisionExecutor != null) {
+            XACMLPdpServlet.decisionExecutor.shutdown();
+            XACMLPdpServlet.decisionExecutor = null;
+        }
         logger.info("Destroyed.");
     }
 
@@ -348,7 +408,8 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
      * are Loaded LOADING_IN_PROGRESS - Currently loading a new policy set/pip configuration
      * LAST_UPDATE_FAILED - Need to track the items that failed during last update LOAD_FAILURE - ??? Need to
      * determine what information is sent and how 2. Configuration 3. Status return the StdPDPStatus object in
-     * the Response content
+     * the Response content 4. profile return the PolicyProfiler counters of each PolicySet, Policy and Rule,
+     * and reset them if the reset parameter is true
      *
      * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse response)
      */
@@ -394,8 +455,21 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
             }
             response.setStatus(HttpServletResponse.SC_OK);
 
+        } else if ("profile".equals(type)) {
+            // return the policy profiler counters as JSON, optionally starting over
+            PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+            List<PolicyProfile> profiles = policyProfiler.getProfiles();
+            if ("true".equals(request.getParameter("reset"))) {
+                policyProfiler.reset();
+            }
+            response.setContentType("application/json");
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.writeValue(response.getOutputStream(), profiles);
+            response.setStatus(HttpServletResponse.SC_OK);
+
         } else {
-            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "type not 'config' or 'hb'");
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "type not 'config', 'hb', 'Status' or 'profile'");
         }
         if (returnHB) {
             synchronized (pdpStatusLock) {
@@ -515,59 +589,187 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
             response.sendError(HttpServletResponse.SC_BAD_REQUEST, message);
             return;
         }
+        final boolean traceRequested = Boolean.parseBoolean(request
+            .getHeader(XACMLRestProperties.PROP_PDP_HTTP_HEADER_TRACE));
         //
-        // Run it
+        // Run it, on one of our decision threads if we are asynchronous
         //
-        try {
-            //
-            // Get the pointer to the PDP Engine
-            //
-            PDPEngine myEngine = null;
-            synchronized (pdpEngineLock) {
-                myEngine = this.pdpEngine;
+        if (XACMLPdpServlet.decisionExecutor != null) {
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(XACMLPdpServlet.asyncTimeout);
+            AsyncDecision asyncDecision = new AsyncDecision(this, asyncContext, pdpRequest,
+                                                            incomingRequestString, contentType, traceRequested);
+            asyncContext.addListener(asyncDecision);
+            try {
+                XACMLPdpServlet.decisionExecutor.execute(asyncDecision);
+            } catch (RejectedExecutionException e) {
+                logger.error("Decision rejected: " + e);
+                asyncDecision.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Decision rejected");
             }
-            if (myEngine == null) {
-                String message = "No engine loaded.";
-                logger.error(message);
-                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message);
+            return;
+        }
+        this.decide(pdpRequest, incomingRequestString, contentType, response, traceRequested);
+    }
+
+    /**
+     * A PEP request decided on one of the threads of the <code>decisionExecutor</code>. Whichever of the
+     * decision thread and the container's timeout gets to the request first answers it: a request that times
+     * out before its decision starts gets a 503 and is never decided, and a timeout during the decision waits
+     * for the decision thread to write the response and complete the request, so the two never write the
+     * same response.
+     */
+    static class AsyncDecision implements Runnable, AsyncListener {
+        private final XACMLPdpServlet servlet;
+        private final AsyncContext asyncContext;
+        private final Request pdpRequest;
+        private final String incomingRequestString;
+        private final ContentType contentType;
+        private final boolean traceRequested;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        AsyncDecision(XACMLPdpServlet servletIn, AsyncContext asyncContextIn, Request pdpRequestIn,
+                      String incomingRequestStringIn, ContentType contentTypeIn, boolean traceRequestedIn) {
+            this.servlet = servletIn;
+            this.asyncContext = asyncContextIn;
+            this.pdpRequest = pdpRequestIn;
+            this.incomingRequestString = incomingRequestStringIn;
+            this.contentType = contentTypeIn;
+            this.traceRequested = traceRequestedIn;
+        }
+
+        @Override
+        public void run() {
+            if (!this.started.compareAndSet(false, true)) {
+                // timed out while waiting for a thread
+                return;
+            }
+            try {
+                this.servlet.decide(this.pdpRequest, this.incomingRequestString, this.contentType,
+                                    (HttpServletResponse)this.asyncContext.getResponse(), this.traceRequested);
+            } catch (IOException e) {
+                logger.error("Failed to send response: " + e, e);
+            } finally {
+                try {
+                    this.asyncContext.complete();
+                } finally {
+                    this.finished.countDown();
+                }
+            }
+        }
+
+        /**
+         * Answers the request with an error if its decision has not started, and makes sure it never does.
+         *
+         * @param statusCode the HTTP status code to send
+         * @param message the message to send
+         * @return true if the request was answered, false if its decision had already started
+         * @throws IOException
+         */
+        boolean reject(int statusCode, String message) throws IOException {
+            if (!this.started.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                ((HttpServletResponse)this.asyncContext.getResponse()).sendError(statusCode, message);
+            } finally {
+                this.asyncContext.complete();
+            }
+            return true;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (this.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Decision timed out")) {
+                logger.error("Decision timed out after " + this.asyncContext.getTimeout() + "ms");
                 return;
             }
+            //
+            // The decision is running, so let it write its response and complete the request
+            //
+            try {
+                this.finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            logger.error("Asynchronous decision failed: " + event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Evaluates a parsed PEP request and writes the response. Decisions run concurrently under the read lock
+     * of the PDP engine, so a configuration change waits for the decisions in progress and is not seen in
+     * the middle of one.
+     *
+     * @param pdpRequest
+     * @param incomingRequestString
+     * @param contentType
+     * @param response
+     * @throws IOException
+     */
+    protected void decide(Request pdpRequest, String incomingRequestString, ContentType contentType,
+                          HttpServletResponse response) throws IOException {
+        this.decide(pdpRequest, incomingRequestString, contentType, response, false);
+    }
+
+    /**
+     * Evaluates a parsed PEP request and writes the response, asking the
+     * {@link org.apache.openaz.xacml.pdp.trace.SamplingTraceEngine} to trace the decision if the PEP set the
+     * {@link XACMLRestProperties#PROP_PDP_HTTP_HEADER_TRACE} header.
+     *
+     * @param pdpRequest
+     * @param incomingRequestString
+     * @param contentType
+     * @param response
+     * @param traceRequested
+     * @throws IOException
+     */
+    protected void decide(Request pdpRequest, String incomingRequestString, ContentType contentType,
+                          HttpServletResponse response, boolean traceRequested) throws IOException {
+        try {
             //
             // Send the request and save the response
             //
             long lTimeStart, lTimeEnd;
             Response pdpResponse = null;
 
-            // TODO - Make this unnecessary
-            // TODO It seems that the PDP Engine is not thread-safe, so when a configuration change occurs in
-            // the middle of processing
-            // TODO a PEP Request, that Request fails (it throws a NullPointerException in the decide()
-            // method).
-            // TODO Using synchronize will slow down processing of PEP requests, possibly by a significant
-            // amount.
-            // TODO Since configuration changes are rare, it would be A Very Good Thing if we could eliminate
-            // this sychronized block.
-            // TODO
-            // TODO This problem was found by starting one PDP then
-            // TODO RestLoadTest switching between 2 configurations, 1 second apart
-            // TODO both configurations contain the datarouter policy
-            // TODO both configurations already have all policies cached in the PDPs config directory
-            // TODO RestLoadTest started with the Datarouter test requests, 5 threads, no interval
-            // TODO With that configuration this code (without the synchronized) throws a NullPointerException
-            // TODO within a few seconds.
+            // A configuration change in the middle of processing a PEP Request makes the Request fail
+            // (it throws a NullPointerException in the decide() method), so the engine is used under the
+            // read lock and only replaced under the write lock. Decisions do not block each other.
             //
-            synchronized (pdpEngineLock) {
-                myEngine = this.pdpEngine;
-                try {
-                    lTimeStart = System.currentTimeMillis();
-                    pdpResponse = myEngine.decide(pdpRequest);
-                    lTimeEnd = System.currentTimeMillis();
-                } catch (PDPException e) {
-                    String message = "Exception during decide: " + e.getMessage();
+            pdpEngineLock.readLock().lock();
+            try {
+                PDPEngine myEngine = this.pdpEngine;
+                if (myEngine == null) {
+                    String message = "No engine loaded.";
                     logger.error(message);
                     response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message);
                     return;
                 }
+                lTimeStart = System.currentTimeMillis();
+                SamplingTraceEngine.setTraceRequested(traceRequested);
+                pdpResponse = myEngine.decide(pdpRequest);
+                lTimeEnd = System.currentTimeMillis();
+            } catch (PDPException e) {
+                String message = "Exception during decide: " + e.getMessage();
+                logger.error(message);
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message);
+                return;
+            } finally {
+                SamplingTraceEngine.setTraceRequested(false);
+                pdpEngineLock.readLock().unlock();
             }
             requestLogger.info(lTimeStart + "=" + incomingRequestString);
             if (logger.isDebugEnabled()) {
@@ -658,8 +860,13 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
                 // PDPEngine newEngine = XACMLPdpLoader.loadEngine(newStatus, request.policyProperties,
                 // request.pipConfigProperties);
                 if (newEngine != null) {
-                    synchronized (XACMLPdpServlet.pdpEngineLock) {
+                    XACMLPdpServlet.pdpEngineLock.writeLock().lock();
+                    try {
                         this.pdpEngine = newEngine;
+                        //
+                        // Drop the profiler counters of the policies we just replaced
+                        //
+                        PolicyProfiler.getInstance().prune();
                         try {
                             logger.info("Saving configuration.");
                             if (request.policyProperties != null) {
@@ -667,6 +874,7 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
                                     .getPDPPolicyCache())) {
                                     request.policyProperties.store(os, "");
                                 }
+                                XACMLPdpLoader.removeUnreferencedPolicies(request.policyProperties);
                             }
                             if (request.pipConfigProperties != null) {
                                 try (OutputStream os = Files.newOutputStream(XACMLPdpLoader.getPIPConfig())) {
@@ -680,6 +888,8 @@ public class XACMLPdpServlet extends HttpServlet implements Runnable {
                             newStatus.setStatus(Status.LOAD_ERRORS);
                             newStatus.addLoadWarning("Unable to save configuration: " + e.getMessage());
                         }
+                    } finally {
+                        XACMLPdpServlet.pdpEngineLock.writeLock().unlock();
                     }
                 } else {
                     newStatus.setStatus(Status.LAST_UPDATE_FAILED);
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.rest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.entity.ContentType;
+import org.apache.openaz.xacml.api.Request;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncDecisionTest {
+
+    private XACMLPdpServlet servlet;
+    private AsyncContext asyncContext;
+    private HttpServletResponse response;
+    private Request pdpRequest;
+    private XACMLPdpServlet.AsyncDecision asyncDecision;
+
+    @Before
+    public void before() {
+        this.servlet = mock(XACMLPdpServlet.class);
+        this.asyncContext = mock(AsyncContext.class);
+        this.response = mock(HttpServletResponse.class);
+        when(this.asyncContext.getResponse()).thenReturn(this.response);
+        this.pdpRequest = mock(Request.class);
+        this.asyncDecision = new XACMLPdpServlet.AsyncDecision(this.servlet, this.asyncContext, this.pdpRequest,
+                                                               "request", ContentType.APPLICATION_JSON, true);
+    }
+
+    @Test
+    public void testDecision() throws Exception {
+        this.asyncDecision.run();
+        verify(this.servlet).decide(this.pdpRequest, "request", ContentType.APPLICATION_JSON, this.response,
+                                    true);
+        verify(this.asyncContext).complete();
+
+        // a timeout after the decision leaves the response alone
+        this.asyncDecision.onTimeout(new AsyncEvent(this.asyncContext));
+        verify(this.response, never()).sendError(anyInt(), anyString());
+        verify(this.asyncContext).complete();
+    }
+
+    @Test
+    public void testTimeoutBeforeDecision() throws Exception {
+        this.asyncDecision.onTimeout(new AsyncEvent(this.asyncContext));
+        verify(this.response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Decision timed out");
+        verify(this.asyncContext).complete();
+
+        // the decision never runs once the request timed out
+        this.asyncDecision.run();
+        verify(this.servlet, never()).decide(any(Request.class), anyString(), any(ContentType.class),
+                                             any(HttpServletResponse.class), anyBoolean());
+        verify(this.asyncContext, times(1)).complete();
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        assertTrue(this.asyncDecision.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Decision rejected"));
+        verify(this.response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Decision rejected");
+        assertFalse(this.asyncDecision.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Decision rejected"));
+        verify(this.asyncContext, times(1)).complete();
+    }
+
+    @Test
+    public void testTimeoutDuringDecision() throws Exception {
+        final CountDownLatch deciding = new CountDownLatch(1);
+        final CountDownLatch decide = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                deciding.countDown();
+                decide.await();
+                return null;
+            }
+        }).when(this.servlet).decide(any(Request.class), anyString(), any(ContentType.class),
+                                     any(HttpServletResponse.class), anyBoolean());
+        Thread decisionThread = new Thread(this.asyncDecision);
+        decisionThread.start();
+        assertTrue(deciding.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        Thread timeoutThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    AsyncDecisionTest.this.asyncDecision
+                        .onTimeout(new AsyncEvent(AsyncDecisionTest.this.asyncContext));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                timedOut.countDown();
+            }
+        });
+        timeoutThread.start();
+
+        // the timeout waits for the decision to finish rather than answering the request itself
+        assertFalse(timedOut.await(200, TimeUnit.MILLISECONDS));
+        decide.countDown();
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        decisionThread.join(5000);
+
+        verify(this.response, never()).sendError(anyInt(), anyString());
+        verify(this.asyncContext, times(1)).complete();
+    }
+}
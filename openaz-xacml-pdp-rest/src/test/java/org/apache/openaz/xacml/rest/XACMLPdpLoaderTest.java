@@ -0,0 +1,284 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.openaz.xacml.pdp.std.StdPolicyFinderFactory;
+import org.apache.openaz.xacml.util.XACMLProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class XACMLPdpLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private Path config;
+    private int status;
+    private byte[] bundle;
+    private String etag;
+    private String ifNoneMatch;
+    private final List<String> requests = new ArrayList<String>();
+
+    @Before
+    public void before() throws IOException {
+        this.config = this.temporaryFolder.newFolder("config").toPath();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/pap/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                XACMLPdpLoaderTest.this.ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                XACMLPdpLoaderTest.this.requests.add(exchange.getRequestMethod() + " "
+                                                     + exchange.getRequestURI().getQuery() + " "
+                                                     + IOUtils.toString(exchange.getRequestBody(),
+                                                                        StandardCharsets.UTF_8));
+                if (XACMLPdpLoaderTest.this.etag != null) {
+                    exchange.getResponseHeaders().set("ETag", XACMLPdpLoaderTest.this.etag);
+                    // answer a conditional request the way the PAP servlet does
+                    if (XACMLPdpLoaderTest.this.etag.equals(XACMLPdpLoaderTest.this.ifNoneMatch)) {
+                        exchange.sendResponseHeaders(304, -1);
+                        exchange.close();
+                        return;
+                    }
+                }
+                if (XACMLPdpLoaderTest.this.status != 200) {
+                    exchange.sendResponseHeaders(XACMLPdpLoaderTest.this.status, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(XACMLPdpLoaderTest.this.bundle);
+                }
+            }
+        });
+        this.server.start();
+        System.setProperty(XACMLRestProperties.PROP_PAP_URL, "http://localhost:"
+                                                             + this.server.getAddress().getPort() + "/pap/");
+        System.setProperty(XACMLRestProperties.PROP_PDP_CONFIG, this.config.toString());
+        System.setProperty(XACMLRestProperties.PROP_PDP_ID, "http://localhost/pdp/");
+    }
+
+    @After
+    public void after() {
+        this.server.stop(0);
+        System.clearProperty(XACMLRestProperties.PROP_PAP_URL);
+        System.clearProperty(XACMLRestProperties.PROP_PDP_CONFIG);
+        System.clearProperty(XACMLRestProperties.PROP_PDP_ID);
+    }
+
+    /**
+     * Builds a bundle the way the PAP servlet does, and sets its ETag.
+     */
+    private void setBundle(String... namesAndContents) throws IOException {
+        Map<String, String> policyHashes = new LinkedHashMap<String, String>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+                policyHashes.put(namesAndContents[i], sha256(namesAndContents[i + 1]));
+            }
+        }
+        this.status = 200;
+        this.bundle = bytes.toByteArray();
+        this.etag = XACMLRest.getPolicyBundleETag(policyHashes);
+    }
+
+    private static String sha256(String content) {
+        return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+
+    private String readPolicy(String policy) throws IOException {
+        return new String(Files.readAllBytes(this.config.resolve(policy)), StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> setOf(String... policies) {
+        return new HashSet<String>(Arrays.asList(policies));
+    }
+
+    @Test
+    public void testDownloadPolicyBundle() throws Exception {
+        this.setBundle("policy1", "<Policy 1/>", "policy2", "<Policy 2/>", "policy3", "<Policy 3/>");
+
+        assertEquals(2, XACMLPdpLoader.downloadPolicyBundle(setOf("policy1", "policy3")));
+
+        assertEquals("<Policy 1/>", this.readPolicy("policy1"));
+        assertFalse(Files.exists(this.config.resolve("policy2")));
+        assertEquals("<Policy 3/>", this.readPolicy("policy3"));
+        assertNull(this.ifNoneMatch);
+        // no temporary files are left behind
+        assertEquals(2, this.config.toFile().list().length);
+    }
+
+    @Test
+    public void testUnchangedBundleWithMissingFiles() throws Exception {
+        this.setBundle("policy1", "<Policy 1/>", "policy2", "<Policy 2/>");
+        assertEquals(2, XACMLPdpLoader.downloadPolicyBundle(setOf("policy1", "policy2")));
+
+        // the PAP's bundle is unchanged, but the local files have gone
+        Files.delete(this.config.resolve("policy1"));
+        Files.delete(this.config.resolve("policy2"));
+        Files.write(this.config.resolve("xacml.policy.bundle.etag"), this.etag.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, XACMLPdpLoader.downloadPolicyBundle(setOf("policy1", "policy2")));
+        assertNull(this.ifNoneMatch);
+        assertEquals("<Policy 1/>", this.readPolicy("policy1"));
+        assertEquals("<Policy 2/>", this.readPolicy("policy2"));
+        assertEquals(2, this.requests.size());
+    }
+
+    @Test
+    public void testETagMismatch() throws Exception {
+        this.setBundle("policy1", "<Policy 1/>", "policy2", "<Policy 2/>");
+        String etagOther = this.etag;
+        this.setBundle("policy1", "<Policy 1 changed/>", "policy2", "<Policy 2/>");
+        this.etag = etagOther;
+
+        assertEquals(0, XACMLPdpLoader.downloadPolicyBundle(setOf("policy1", "policy2")));
+        assertEquals(0, this.config.toFile().list().length);
+    }
+
+    @Test
+    public void testRejectsEntriesOutsideConfig() throws Exception {
+        this.setBundle("../evil", "<Policy evil/>", "policy1", "<Policy 1/>", ".", "<Policy dot/>");
+
+        assertEquals(1, XACMLPdpLoader.downloadPolicyBundle(setOf("../evil", "policy1", ".")));
+
+        assertEquals("<Policy 1/>", this.readPolicy("policy1"));
+        assertFalse(Files.exists(this.config.resolveSibling("evil")));
+        assertTrue(Files.isDirectory(this.config));
+    }
+
+    @Test
+    public void testNotAvailable() throws Exception {
+        this.status = 404;
+        assertEquals(0, XACMLPdpLoader.downloadPolicyBundle(setOf("policy1", "policy2")));
+        assertEquals(0, this.config.toFile().list().length);
+    }
+
+    @Test
+    public void testCachePoliciesByHash() throws Exception {
+        String hash1 = sha256("<Policy 1/>");
+        String hash2 = sha256("<Policy 2/>");
+        this.setBundle(hash1, "<Policy 1/>", hash2, "<Policy 2/>");
+        Properties props = new Properties();
+        props.setProperty(XACMLProperties.PROP_ROOTPOLICIES, "policy1,policy2");
+        props.setProperty(XACMLProperties.PROP_REFERENCEDPOLICIES, "policy3");
+        props.setProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH, hash1);
+        props.setProperty("policy2" + XACMLRestProperties.PROP_POLICY_HASH, hash2);
+        // policy3 has the same content as policy1
+        props.setProperty("policy3" + XACMLRestProperties.PROP_POLICY_HASH, hash1);
+
+        assertTrue(XACMLPdpLoader.cachePolicies(props));
+
+        // one request for the two distinct hashes
+        assertEquals(1, this.requests.size());
+        String request = this.requests.get(0);
+        assertTrue(request.startsWith("POST bundle=delta "));
+        assertTrue(request.contains(hash1 + "\n"));
+        assertTrue(request.contains(hash2 + "\n"));
+        Path store = XACMLPdpLoader.getPolicyStore();
+        assertEquals(store.resolve(hash1).toString(),
+                     props.getProperty("policy1" + StdPolicyFinderFactory.PROP_FILE));
+        assertEquals(store.resolve(hash2).toString(),
+                     props.getProperty("policy2" + StdPolicyFinderFactory.PROP_FILE));
+        assertEquals(store.resolve(hash1).toString(),
+                     props.getProperty("policy3" + StdPolicyFinderFactory.PROP_FILE));
+        assertEquals("<Policy 2/>", this.readPolicy("policies/" + hash2));
+
+        // everything is in the store now
+        assertFalse(XACMLPdpLoader.cachePolicies(props));
+        assertEquals(1, this.requests.size());
+    }
+
+    @Test
+    public void testCachePoliciesRejectsWrongContent() throws Exception {
+        String hash1 = sha256("<Policy 1/>");
+        String hash2 = sha256("<Policy 2/>");
+        this.setBundle(hash1, "<Policy 1/>", hash2, "<Policy 2 tampered/>");
+        Properties props = new Properties();
+        props.setProperty(XACMLProperties.PROP_ROOTPOLICIES, "policy1,policy2");
+        props.setProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH, hash1);
+        props.setProperty("policy2" + XACMLRestProperties.PROP_POLICY_HASH, hash2);
+
+        XACMLPdpLoader.cachePolicies(props);
+
+        Path store = XACMLPdpLoader.getPolicyStore();
+        assertTrue(Files.exists(store.resolve(hash1)));
+        assertFalse(Files.exists(store.resolve(hash2)));
+        assertNull(props.getProperty("policy2" + StdPolicyFinderFactory.PROP_FILE));
+        assertEquals(1, store.toFile().list().length);
+    }
+
+    @Test
+    public void testRemoveUnreferencedPolicies() throws Exception {
+        String hash1 = sha256("<Policy 1/>");
+        String hash2 = sha256("<Policy 2/>");
+        Path store = XACMLPdpLoader.getPolicyStore();
+        Files.write(store.resolve(hash1), "<Policy 1/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(store.resolve(hash2), "<Policy 2/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(store.resolve("README"), "not a policy".getBytes(StandardCharsets.UTF_8));
+        Properties props = new Properties();
+        props.setProperty(XACMLProperties.PROP_ROOTPOLICIES, "policy1");
+        props.setProperty("policy1" + XACMLRestProperties.PROP_POLICY_HASH, hash1);
+
+        assertEquals(1, XACMLPdpLoader.removeUnreferencedPolicies(props));
+
+        assertTrue(Files.exists(store.resolve(hash1)));
+        assertFalse(Files.exists(store.resolve(hash2)));
+        assertTrue(Files.exists(store.resolve("README")));
+        assertEquals(0, XACMLPdpLoader.removeUnreferencedPolicies(props));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.openaz.xacml.api.Decision;
+import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfiler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class XACMLPdpServletTest {
+
+    private ByteArrayOutputStream responseContent;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Before
+    public void before() throws IOException {
+        this.responseContent = new ByteArrayOutputStream();
+        this.request = mock(HttpServletRequest.class);
+        when(this.request.getMethod()).thenReturn("GET");
+        when(this.request.getHeaderNames()).thenReturn(Collections.<String> emptyEnumeration());
+        when(this.request.getAttributeNames()).thenReturn(Collections.<String> emptyEnumeration());
+        this.response = mock(HttpServletResponse.class);
+        when(this.response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                responseContent.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        PolicyProfiler.getInstance().prune();
+    }
+
+    @After
+    public void after() {
+        PolicyProfiler.getInstance().prune();
+    }
+
+    @Test
+    public void testGetProfile() throws ServletException, IOException {
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        PolicyProfiler.Entry entry = policyProfiler.getEntry("Rule", "policy1", "rule1");
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.PERMIT));
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.PERMIT));
+
+        when(this.request.getParameter("type")).thenReturn("profile");
+        new XACMLPdpServlet().doGet(this.request, this.response);
+
+        verify(this.response).setContentType("application/json");
+        verify(this.response).setStatus(HttpServletResponse.SC_OK);
+        List<Map<String, Object>> profiles = parseProfiles();
+        assertEquals(1, profiles.size());
+        assertEquals("Rule", profiles.get(0).get("type"));
+        assertEquals("policy1", profiles.get(0).get("parentId"));
+        assertEquals("rule1", profiles.get(0).get("id"));
+        assertEquals(2, ((Number)profiles.get(0).get("count")).intValue());
+        assertEquals(2, ((Number)profiles.get(0).get("permit")).intValue());
+
+        // without reset the counters are kept
+        assertEquals(1, policyProfiler.getProfiles().size());
+    }
+
+    @Test
+    public void testGetProfileReset() throws ServletException, IOException {
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        PolicyProfiler.Entry entry = policyProfiler.getEntry("Policy", null, "policy1");
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.DENY));
+
+        when(this.request.getParameter("type")).thenReturn("profile");
+        when(this.request.getParameter("reset")).thenReturn("true");
+        new XACMLPdpServlet().doGet(this.request, this.response);
+
+        // the response has the counters from before the reset
+        List<Map<String, Object>> profiles = parseProfiles();
+        assertEquals(1, profiles.size());
+        assertEquals(1, ((Number)profiles.get(0).get("deny")).intValue());
+        assertTrue(policyProfiler.getProfiles().isEmpty());
+    }
+
+    @Test
+    public void testGetUnknownType() throws ServletException, IOException {
+        when(this.request.getParameter("type")).thenReturn("unknown");
+        new XACMLPdpServlet().doGet(this.request, this.response);
+
+        verify(this.response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), contains("'profile'"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> parseProfiles() throws IOException {
+        return new ObjectMapper().readValue(this.responseContent.toByteArray(), List.class);
+    }
+}
@@ -36,6 +36,13 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -49,6 +56,7 @@ import org.apache.openaz.xacml.api.XACML3;
 import org.apache.openaz.xacml.api.pdp.PDPEngine;
 import org.apache.openaz.xacml.api.pdp.PDPException;
 import org.apache.openaz.xacml.api.pdp.ScopeResolver;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
 import org.apache.openaz.xacml.api.trace.TraceEngine;
 import org.apache.openaz.xacml.api.trace.TraceEngineFactory;
 import org.apache.openaz.xacml.api.trace.Traceable;
@@ -57,6 +65,7 @@ import org.apache.openaz.xacml.pdp.eval.EvaluationContextFactory;
 import org.apache.openaz.xacml.pdp.eval.EvaluationException;
 import org.apache.openaz.xacml.pdp.policy.PolicyDef;
 import org.apache.openaz.xacml.pdp.policy.PolicyFinderResult;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
 import org.apache.openaz.xacml.std.StdIndividualDecisionRequestGenerator;
 import org.apache.openaz.xacml.std.StdMutableResponse;
 import org.apache.openaz.xacml.std.StdMutableResult;
@@ -65,6 +74,11 @@ import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.trace.StdTraceEvent;
 import org.apache.openaz.xacml.util.FactoryException;
+import org.apache.openaz.xacml.util.XACMLProperties;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 
 /**
  * ATTPDPEngine implements the {@link org.apache.openaz.xacml.api.pdp.PDPEngine} interface using the XACML 3.0
@@ -100,6 +114,7 @@ public class OpenAZPDPEngine implements PDPEngine, Traceable {
     private Decision defaultDecision = Decision.INDETERMINATE;
     private ScopeResolver scopeResolver;
     private TraceEngine traceEngine;
+    private boolean prefetchAttributes;
     private Log logger = LogFactory.getLog(this.getClass());
 
     protected TraceEngine getTraceEngine() {
@@ -130,6 +145,24 @@ public class OpenAZPDPEngine implements PDPEngine, Traceable {
         this.defaultDecision = defaultDecisionIn;
     }
 
+    /**
+     * Sets whether the attributes a root <code>PolicyDef</code> may need that are not in the request are
+     * retrieved concurrently once the root has been selected, rather than one at a time as they are
+     * evaluated. Prefetching is off by default: it may retrieve attributes that a combining algorithm would
+     * never have asked for, so it only pays off when the PIP engines are slow and most of the attributes are
+     * needed anyway.
+     *
+     * @param prefetchAttributesIn true to prefetch attributes, false to only retrieve them as they are
+     *            evaluated
+     */
+    public void setPrefetchAttributes(boolean prefetchAttributesIn) {
+        this.prefetchAttributes = prefetchAttributesIn;
+    }
+
+    public boolean getPrefetchAttributes() {
+        return this.prefetchAttributes;
+    }
+
     protected Result processRequest(EvaluationContext evaluationContext) {
         try {
             PolicyFinderResult<PolicyDef> policyFinderResult = evaluationContext.getRootPolicyDef();
@@ -154,6 +187,13 @@ public class OpenAZPDPEngine implements PDPEngine, Traceable {
                                                               "No applicable policy"));
                 }
             }
+            if (this.prefetchAttributes) {
+                Collection<PIPRequest> prefetch = evaluationContext.getAttributeDependencies(policyDefRoot)
+                    .getDecisionAttributes();
+                if (prefetch.size() > 1) {
+                    evaluationContext.prefetchAttributes(prefetch, PrefetchExecutorHolder.EXECUTOR);
+                }
+            }
             Result result = policyDefRoot.evaluate(evaluationContext);
             if (result.getStatus().isOk()) {
                 Collection<AttributeCategory> listRequestAttributesIncludeInResult = evaluationContext
@@ -272,6 +312,95 @@ public class OpenAZPDPEngine implements PDPEngine, Traceable {
         return stdResponse;
     }
 
+    @Override
+    public ListenableFuture<Response> decideAsync(Request pepRequest) {
+        return this.decideAsync(pepRequest, AsyncExecutorHolder.EXECUTOR);
+    }
+
+    @Override
+    public ListenableFuture<Response> decideAsync(final Request pepRequest, Executor executor) {
+        ListenableFutureTask<Response> task = ListenableFutureTask.create(new Callable<Response>() {
+            @Override
+            public Response call() throws PDPException {
+                return OpenAZPDPEngine.this.decide(pepRequest);
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            return Futures.immediateFailedFuture(new PDPException("Request rejected by executor", ex));
+        }
+        return task;
+    }
+
+    /**
+     * Holds the <code>Executor</code> <code>decideAsync</code> uses when none is given, a bounded pool of
+     * daemon threads shared by all <code>OpenAZPDPEngine</code>s and sized by
+     * {@link OpenAZPDPProperties#PROP_PDPENGINE_ASYNCTHREADS}. It is only created when first used.
+     */
+    static final class AsyncExecutorHolder {
+        static final ExecutorService EXECUTOR = newAsyncExecutor();
+
+        private static ExecutorService newAsyncExecutor() {
+            int threads = Runtime.getRuntime().availableProcessors();
+            try {
+                String value = XACMLProperties.getProperty(OpenAZPDPProperties.PROP_PDPENGINE_ASYNCTHREADS);
+                if (value != null) {
+                    threads = Integer.parseInt(value.trim());
+                }
+            } catch (NumberFormatException ex) {
+                LogFactory.getLog(OpenAZPDPEngine.class)
+                    .error("Invalid " + OpenAZPDPProperties.PROP_PDPENGINE_ASYNCTHREADS + ": " + ex);
+            }
+            return Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "pdp-decide-" + this.threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * Holds the <code>Executor</code> attributes are prefetched on, a bounded pool of daemon threads shared
+     * by all <code>OpenAZPDPEngine</code>s and sized by
+     * {@link OpenAZPDPProperties#PROP_PDPENGINE_PREFETCHTHREADS}. PIP calls mostly wait on I/O, so it defaults
+     * to more threads than there are processors.
+     */
+    private static final class PrefetchExecutorHolder {
+        private static final int DEFAULT_THREADS = 16;
+        private static final ExecutorService EXECUTOR = newPrefetchExecutor();
+
+        private static ExecutorService newPrefetchExecutor() {
+            int threads = DEFAULT_THREADS;
+            try {
+                String value = XACMLProperties
+                    .getProperty(OpenAZPDPProperties.PROP_PDPENGINE_PREFETCHTHREADS);
+                if (value != null) {
+                    threads = Integer.parseInt(value.trim());
+                }
+            } catch (NumberFormatException ex) {
+                LogFactory.getLog(OpenAZPDPEngine.class)
+                    .error("Invalid " + OpenAZPDPProperties.PROP_PDPENGINE_PREFETCHTHREADS + ": " + ex);
+            }
+            return Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "pdp-prefetch-"
+                                                         + this.threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
     @Override
     public Collection<URI> getProfiles() {
         return Collections.unmodifiableCollection(PROFILES);
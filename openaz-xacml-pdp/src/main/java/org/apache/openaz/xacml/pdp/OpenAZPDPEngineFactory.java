@@ -36,8 +36,13 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.openaz.xacml.api.pdp.PDPEngine;
 import org.apache.openaz.xacml.api.pdp.PDPEngineFactory;
+import org.apache.openaz.xacml.api.trace.TraceEngine;
+import org.apache.openaz.xacml.api.trace.TraceEngineFactory;
 import org.apache.openaz.xacml.pdp.eval.EvaluationContextFactory;
+import org.apache.openaz.xacml.pdp.trace.SamplingTraceEngine;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
 import org.apache.openaz.xacml.util.FactoryException;
+import org.apache.openaz.xacml.util.XACMLProperties;
 
 /**
  * OpenAZPDPEngineFactory extends {@link org.apache.openaz.xacml.api.pdp.PDPEngineFactory} by implementing the
@@ -57,7 +62,10 @@ public class OpenAZPDPEngineFactory extends PDPEngineFactory {
             this.logger.error("Null EvaluationContextFactory");
             throw new FactoryException("Null EvaluationContextFactory");
         }
-        return new OpenAZPDPEngine(evaluationContextFactory, this.getDefaultBehavior(), this.getScopeResolver());
+        OpenAZPDPEngine engine = new OpenAZPDPEngine(evaluationContextFactory, this.getDefaultBehavior(),
+                                                     this.getScopeResolver());
+        engine.setPrefetchAttributes(this.getPrefetchAttributes(null));
+        return this.wrapEngine(engine);
     }
 
     @Override
@@ -67,6 +75,32 @@ public class OpenAZPDPEngineFactory extends PDPEngineFactory {
             this.logger.error("Null EvaluationContextFactory");
             throw new FactoryException("Null EvaluationContextFactory");
         }
-        return new OpenAZPDPEngine(evaluationContextFactory, this.getDefaultBehavior(), this.getScopeResolver());
+        OpenAZPDPEngine engine = new OpenAZPDPEngine(evaluationContextFactory, this.getDefaultBehavior(),
+                                                     this.getScopeResolver());
+        engine.setPrefetchAttributes(this.getPrefetchAttributes(properties));
+        return this.wrapEngine(engine);
+    }
+
+    /**
+     * Wraps the given engine in a {@link TracingPDPEngine} if the configured <code>TraceEngine</code> is a
+     * {@link SamplingTraceEngine}, which needs to know where each decision starts and ends.
+     *
+     * @param engine the <code>OpenAZPDPEngine</code> to wrap
+     * @return the <code>PDPEngine</code> to use
+     * @throws FactoryException if the <code>TraceEngine</code> cannot be created
+     */
+    private PDPEngine wrapEngine(OpenAZPDPEngine engine) throws FactoryException {
+        TraceEngine traceEngine = TraceEngineFactory.newInstance().getTraceEngine();
+        if (traceEngine instanceof SamplingTraceEngine) {
+            return new TracingPDPEngine(engine, (SamplingTraceEngine)traceEngine);
+        }
+        return engine;
+    }
+
+    private boolean getPrefetchAttributes(Properties properties) {
+        String value = (properties == null
+            ? XACMLProperties.getProperty(OpenAZPDPProperties.PROP_PDPENGINE_PREFETCHATTRIBUTES)
+            : properties.getProperty(OpenAZPDPProperties.PROP_PDPENGINE_PREFETCHATTRIBUTES));
+        return value != null && Boolean.parseBoolean(value.trim());
     }
 }
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.api.pdp.PDPEngine;
+import org.apache.openaz.xacml.api.pdp.PDPException;
+import org.apache.openaz.xacml.pdp.trace.SamplingTraceEngine;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+/**
+ * TracingPDPEngine wraps the {@link PDPEngine} created by the {@link OpenAZPDPEngineFactory} when the
+ * configured <code>TraceEngine</code> is a {@link SamplingTraceEngine}, and brackets each decision with
+ * {@link SamplingTraceEngine#beginDecision(Request)} and {@link SamplingTraceEngine#endDecision(Response)}.
+ * A trace requested with {@link SamplingTraceEngine#setTraceRequested(boolean)} before
+ * <code>decideAsync</code> is carried over to the thread that makes the decision.
+ */
+class TracingPDPEngine implements PDPEngine {
+    private final PDPEngine pdpEngine;
+    private final SamplingTraceEngine samplingTraceEngine;
+
+    TracingPDPEngine(PDPEngine pdpEngineIn, SamplingTraceEngine samplingTraceEngineIn) {
+        this.pdpEngine = pdpEngineIn;
+        this.samplingTraceEngine = samplingTraceEngineIn;
+    }
+
+    PDPEngine getPDPEngine() {
+        return this.pdpEngine;
+    }
+
+    @Override
+    public Response decide(Request pepRequest) throws PDPException {
+        this.samplingTraceEngine.beginDecision(pepRequest);
+        Response response = null;
+        try {
+            response = this.pdpEngine.decide(pepRequest);
+            return response;
+        } finally {
+            this.samplingTraceEngine.endDecision(response);
+        }
+    }
+
+    @Override
+    public ListenableFuture<Response> decideAsync(Request pepRequest) {
+        return this.decideAsync(pepRequest, OpenAZPDPEngine.AsyncExecutorHolder.EXECUTOR);
+    }
+
+    @Override
+    public ListenableFuture<Response> decideAsync(final Request pepRequest, Executor executor) {
+        final boolean traceRequested = SamplingTraceEngine.isTraceRequested();
+        SamplingTraceEngine.setTraceRequested(false);
+        ListenableFutureTask<Response> task = ListenableFutureTask.create(new Callable<Response>() {
+            @Override
+            public Response call() throws PDPException {
+                SamplingTraceEngine.setTraceRequested(traceRequested);
+                try {
+                    return TracingPDPEngine.this.decide(pepRequest);
+                } finally {
+                    SamplingTraceEngine.setTraceRequested(false);
+                }
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            return Futures.immediateFailedFuture(new PDPException("Request rejected by executor", ex));
+        }
+        return task;
+    }
+
+    @Override
+    public Collection<URI> getProfiles() {
+        return this.pdpEngine.getProfiles();
+    }
+
+    @Override
+    public boolean hasProfile(URI uriProfile) {
+        return this.pdpEngine.hasProfile(uriProfile);
+    }
+}
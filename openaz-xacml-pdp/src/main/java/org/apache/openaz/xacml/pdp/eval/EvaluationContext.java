@@ -30,6 +30,9 @@
  */
 package org.apache.openaz.xacml.pdp.eval;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
 import org.apache.openaz.xacml.api.IdReferenceMatch;
 import org.apache.openaz.xacml.api.Request;
 import org.apache.openaz.xacml.api.pip.PIPException;
@@ -37,10 +40,15 @@ import org.apache.openaz.xacml.api.pip.PIPFinder;
 import org.apache.openaz.xacml.api.pip.PIPRequest;
 import org.apache.openaz.xacml.api.pip.PIPResponse;
 import org.apache.openaz.xacml.api.trace.TraceEngine;
+import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
+import org.apache.openaz.xacml.pdp.policy.FunctionArgumentPool;
 import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyAttributeDependencies;
 import org.apache.openaz.xacml.pdp.policy.PolicyDef;
 import org.apache.openaz.xacml.pdp.policy.PolicyFinderResult;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
 import org.apache.openaz.xacml.pdp.policy.PolicySet;
+import org.apache.openaz.xacml.pdp.policy.VariableDefinition;
 
 /**
  * EvaluationContext provides the interface that the PDP uses to evaluate its set of Policies and PolicySets
@@ -84,6 +92,25 @@ public interface EvaluationContext extends PIPFinder, TraceEngine {
      */
     PolicyFinderResult<PolicySet> getPolicySet(IdReferenceMatch idReferenceMatch);
 
+    /**
+     * Gets the {@link org.apache.openaz.xacml.pdp.policy.PolicyDef} the given
+     * {@link org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase} was resolved to by the policy store.
+     *
+     * @param policyIdReferenceBase the <code>PolicyIdReferenceBase</code> to get the referencee of
+     * @return the resolved <code>PolicyDef</code>, or null if the reference has to be looked up by its
+     *         <code>IdReferenceMatch</code>
+     */
+    PolicyDef getReferencee(PolicyIdReferenceBase<?> policyIdReferenceBase);
+
+    /**
+     * Gets the {@link org.apache.openaz.xacml.pdp.policy.PolicyAttributeDependencies} of the given
+     * <code>PolicyDef</code> from the policy store.
+     *
+     * @param policyDef the <code>PolicyDef</code> to analyze
+     * @return the <code>PolicyAttributeDependencies</code> of the <code>PolicyDef</code>
+     */
+    PolicyAttributeDependencies getAttributeDependencies(PolicyDef policyDef);
+
     /**
      * Gets the {@link org.apache.openaz.xacml.api.pip.PIPResponse} containing
      * {@link org.apache.openaz.xacml.api.Attribute}s that match the given
@@ -95,4 +122,65 @@ public interface EvaluationContext extends PIPFinder, TraceEngine {
      * @throws EvaluationException if there is an error retrieving the <code>Attribute</code>s
      */
     PIPResponse getAttributes(PIPRequest pipRequest) throws PIPException;
+
+    /**
+     * Gets the {@link org.apache.openaz.xacml.pdp.policy.ExpressionResult} previously recorded for the given
+     * {@link org.apache.openaz.xacml.pdp.policy.VariableDefinition} while evaluating this
+     * <code>EvaluationContext</code>.
+     *
+     * @param variableDefinition the <code>VariableDefinition</code> to look up
+     * @return the recorded <code>ExpressionResult</code> or null if the variable has not been evaluated yet
+     */
+    ExpressionResult getVariableResult(VariableDefinition variableDefinition);
+
+    /**
+     * Records the {@link org.apache.openaz.xacml.pdp.policy.ExpressionResult} of evaluating the given
+     * {@link org.apache.openaz.xacml.pdp.policy.VariableDefinition} so that later references to it in the
+     * same decision do not evaluate its <code>Expression</code> again.
+     *
+     * @param variableDefinition the evaluated <code>VariableDefinition</code>
+     * @param expressionResult the <code>ExpressionResult</code> of its <code>Expression</code>
+     */
+    void setVariableResult(VariableDefinition variableDefinition, ExpressionResult expressionResult);
+
+    /**
+     * Gets the bag {@link org.apache.openaz.xacml.pdp.policy.ExpressionResult} previously recorded for the
+     * request attributes matching the given {@link org.apache.openaz.xacml.api.pip.PIPRequest} while
+     * evaluating this <code>EvaluationContext</code>.
+     *
+     * @param pipRequest the <code>PIPRequest</code> to look up
+     * @return the recorded <code>ExpressionResult</code> or null if none has been recorded
+     */
+    ExpressionResult getAttributeBag(PIPRequest pipRequest);
+
+    /**
+     * Records the bag {@link org.apache.openaz.xacml.pdp.policy.ExpressionResult} built from the request
+     * attributes matching the given {@link org.apache.openaz.xacml.api.pip.PIPRequest}, so that later
+     * designators for the same attributes in the same decision share it instead of building a new
+     * <code>Bag</code>.
+     *
+     * @param pipRequest the <code>PIPRequest</code> the bag was built for
+     * @param expressionResult the <code>ExpressionResult</code> with the bag of attribute values
+     */
+    void setAttributeBag(PIPRequest pipRequest, ExpressionResult expressionResult);
+
+    /**
+     * Gets the {@link org.apache.openaz.xacml.pdp.policy.FunctionArgumentPool} used to pass arguments to
+     * {@link org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFixedArity} functions while evaluating this
+     * <code>EvaluationContext</code>.
+     *
+     * @return the <code>FunctionArgumentPool</code> or null if arguments should not be pooled
+     */
+    FunctionArgumentPool getFunctionArgumentPool();
+
+    /**
+     * Retrieves the attributes for the given {@link org.apache.openaz.xacml.api.pip.PIPRequest}s that are not
+     * in the request concurrently on the given <code>Executor</code> and keeps the results for later calls to
+     * <code>getAttributes</code>. Errors are not kept, so they are reported when the attribute is retrieved.
+     * Implementations that cannot prefetch may ignore this call.
+     *
+     * @param pipRequests the <code>Collection</code> of <code>PIPRequest</code>s to retrieve
+     * @param executor the <code>Executor</code> to retrieve them on
+     */
+    void prefetchAttributes(Collection<PIPRequest> pipRequests, Executor executor);
 }
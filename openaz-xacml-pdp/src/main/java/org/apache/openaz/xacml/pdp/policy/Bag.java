@@ -31,6 +31,7 @@
 package org.apache.openaz.xacml.pdp.policy;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -40,9 +41,12 @@ import org.apache.openaz.xacml.api.AttributeValue;
  * Bag represents a collection of XACML attribute values for the same attribute.
  */
 public class Bag {
-    public static final Bag EMPTY = new Bag();
+    /**
+     * A shared, empty <code>Bag</code>. Adding to it throws an <code>UnsupportedOperationException</code>.
+     */
+    public static final Bag EMPTY = new Bag(Collections.<AttributeValue<?>> emptyList());
 
-    private List<AttributeValue<?>> attributeValues = new ArrayList<AttributeValue<?>>();
+    private final List<AttributeValue<?>> attributeValues;
 
     /**
      * Gets the <code>List</code> of <code>AttributeValue</code>s for this <code>Bag</code>.
@@ -57,6 +61,23 @@ public class Bag {
      * Creates a new, empty <code>Bag</code>.
      */
     public Bag() {
+        this.attributeValues = new ArrayList<AttributeValue<?>>();
+    }
+
+    private Bag(List<AttributeValue<?>> attributeValuesIn) {
+        this.attributeValues = attributeValuesIn;
+    }
+
+    /**
+     * Creates a <code>Bag</code> that shares the given <code>List</code> of <code>AttributeValue</code>s
+     * instead of copying it. The <code>List</code> should be unmodifiable, so that adding to the
+     * <code>Bag</code> throws an <code>UnsupportedOperationException</code>.
+     *
+     * @param attributeValuesIn the <code>List</code> of <code>AttributeValue</code>s for the <code>Bag</code>
+     * @return a new <code>Bag</code> backed by the <code>List</code>
+     */
+    public static Bag newInstance(List<AttributeValue<?>> attributeValuesIn) {
+        return new Bag(attributeValuesIn);
     }
 
     /**
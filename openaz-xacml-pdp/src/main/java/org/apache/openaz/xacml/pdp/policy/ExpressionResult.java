@@ -35,12 +35,13 @@ import java.util.Iterator;
 import org.apache.openaz.xacml.api.AttributeValue;
 import org.apache.openaz.xacml.api.Status;
 import org.apache.openaz.xacml.std.StdStatus;
+import org.apache.openaz.xacml.std.datatypes.DataTypeBoolean;
 
 /**
  * ExpressionResult is the object returned by the <code>evaluate</code> method of {@link Expression} objects.
  */
 public abstract class ExpressionResult implements FunctionArgument {
-    private Status status;
+    private final Status status;
 
     /**
      * ExpressionResultError extends <code>ExpressionResult</code> to represent error results.
@@ -70,7 +71,7 @@ public abstract class ExpressionResult implements FunctionArgument {
      * ExpressionResultSingle extends <code>ExpressionResult</code> to represent results with a single value.
      */
     private static class ExpressionResultSingle extends ExpressionResult {
-        AttributeValue<?> attributeValue;
+        private final AttributeValue<?> attributeValue;
 
         public ExpressionResultSingle(AttributeValue<?> attributeValueIn) {
             super(StdStatus.STATUS_OK);
@@ -94,7 +95,7 @@ public abstract class ExpressionResult implements FunctionArgument {
     }
 
     private static class ExpressionResultBag extends ExpressionResult {
-        private Bag bag;
+        private final Bag bag;
 
         public ExpressionResultBag(Bag bagIn) {
             super(StdStatus.STATUS_OK);
@@ -143,6 +144,10 @@ public abstract class ExpressionResult implements FunctionArgument {
         }
     }
 
+    private static final ExpressionResult ER_EMPTY_BAG = new ExpressionResultEmptyBag();
+    private static final ExpressionResult ER_TRUE = new ExpressionResultSingle(DataTypeBoolean.AV_TRUE);
+    private static final ExpressionResult ER_FALSE = new ExpressionResultSingle(DataTypeBoolean.AV_FALSE);
+
     /**
      * Creates a new <code>ExpressionResult</code> with the given {@link org.apache.openaz.xacml.api.Status}.
      *
@@ -250,12 +255,23 @@ public abstract class ExpressionResult implements FunctionArgument {
     }
 
     /**
-     * Creates a new instance of the <code>ExpressionResult</code> class representing an empty bag of values.
+     * Gets the shared <code>ExpressionResult</code> representing an empty bag of values.
      *
      * @return the <code>ExpressionResult</code> representing the empty bag of values of the expression
      */
     public static ExpressionResult newEmpty() {
-        return new ExpressionResultEmptyBag();
+        return ER_EMPTY_BAG;
+    }
+
+    /**
+     * Gets the shared <code>ExpressionResult</code> for the given boolean value.
+     *
+     * @param value the boolean value
+     * @return the <code>ExpressionResult</code> with the XACML boolean <code>AttributeValue</code> for
+     *         <code>value</code>
+     */
+    public static ExpressionResult newBoolean(boolean value) {
+        return value ? ER_TRUE : ER_FALSE;
     }
 
     public static ExpressionResult newInstance(Status statusIn) {
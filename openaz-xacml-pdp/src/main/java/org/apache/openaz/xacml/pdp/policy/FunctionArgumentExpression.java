@@ -74,6 +74,17 @@ public class FunctionArgumentExpression implements FunctionArgument {
         this.policyDefaults = policyDefaultsIn;
     }
 
+    /**
+     * Re-initializes this <code>FunctionArgumentExpression</code> so that a {@link FunctionArgumentPool} can
+     * reuse it for another argument.
+     */
+    void reset(Expression expressionIn, EvaluationContext evaluationContextIn, PolicyDefaults policyDefaultsIn) {
+        this.expression = expressionIn;
+        this.evaluationContext = evaluationContextIn;
+        this.policyDefaults = policyDefaultsIn;
+        this.expressionResult = null;
+    }
+
     protected ExpressionResult getExpressionResult() {
         return this.expressionResult;
     }
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy;
+
+import java.util.Arrays;
+
+import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
+
+/**
+ * FunctionArgumentPool is a stack of reusable {@link FunctionArgumentExpression} slots owned by a single
+ * {@link org.apache.openaz.xacml.pdp.eval.EvaluationContext}. Nested <code>Apply</code> evaluations take
+ * slots above the ones of their caller and give them back in reverse order:
+ *
+ * <pre>
+ * int mark = pool.mark();
+ * try {
+ *     FunctionArgument argument = pool.acquire(expression, evaluationContext, policyDefaults);
+ *     ...
+ * } finally {
+ *     pool.release(mark);
+ * }
+ * </pre>
+ *
+ * A <code>FunctionArgumentPool</code> is not thread-safe.
+ */
+public final class FunctionArgumentPool {
+    private static final int INITIAL_SLOTS = 8;
+
+    private FunctionArgumentExpression[] slots = new FunctionArgumentExpression[INITIAL_SLOTS];
+    private int top;
+
+    /**
+     * Gets the current top of this <code>FunctionArgumentPool</code> to later pass to
+     * <code>release</code>.
+     *
+     * @return the current top of the stack
+     */
+    public int mark() {
+        return this.top;
+    }
+
+    /**
+     * Takes the next free slot and initializes it to lazily evaluate the given <code>Expression</code>.
+     *
+     * @param expression the <code>Expression</code> for the argument
+     * @param evaluationContext the <code>EvaluationContext</code> to evaluate it in
+     * @param policyDefaults the <code>PolicyDefaults</code> to evaluate it with
+     * @return the initialized <code>FunctionArgument</code>
+     */
+    public FunctionArgument acquire(Expression expression, EvaluationContext evaluationContext,
+                                    PolicyDefaults policyDefaults) {
+        if (this.top == this.slots.length) {
+            this.slots = Arrays.copyOf(this.slots, this.slots.length * 2);
+        }
+        FunctionArgumentExpression slot = this.slots[this.top];
+        if (slot == null) {
+            slot = new FunctionArgumentExpression();
+            this.slots[this.top] = slot;
+        }
+        this.top++;
+        slot.reset(expression, evaluationContext, policyDefaults);
+        return slot;
+    }
+
+    /**
+     * Gives back all of the slots taken since <code>mark</code> was returned by {@link #mark()}.
+     *
+     * @param mark the value returned by <code>mark</code>
+     */
+    public void release(int mark) {
+        while (this.top > mark) {
+            this.slots[--this.top].reset(null, null, null);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy;
+
+import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
+
+/**
+ * FunctionDefinitionFixedArity extends {@link FunctionDefinition} for functions that always take one or two
+ * arguments. {@link org.apache.openaz.xacml.pdp.policy.expressions.Apply} calls the fixed arity
+ * <code>evaluate</code> method with arguments taken from the {@link FunctionArgumentPool} of the
+ * <code>EvaluationContext</code>, so no argument <code>List</code> or per-argument objects are allocated.
+ * Implementations must not keep references to the arguments after <code>evaluate</code> returns.
+ */
+public interface FunctionDefinitionFixedArity extends FunctionDefinition {
+    /**
+     * Gets the number of arguments this <code>FunctionDefinitionFixedArity</code> takes.
+     *
+     * @return 1 or 2 if the fixed arity <code>evaluate</code> method may be used, else any other value
+     */
+    int getArity();
+
+    /**
+     * Evaluates this <code>FunctionDefinitionFixedArity</code> on the given {@link FunctionArgument}s.
+     *
+     * @param evaluationContext the {@link org.apache.openaz.xacml.pdp.eval.EvaluationContext} to use in the
+     *            evaluation
+     * @param argument0 the first <code>FunctionArgument</code>
+     * @param argument1 the second <code>FunctionArgument</code>, or null if the arity is 1
+     * @return an {@link ExpressionResult} with the results of the call
+     */
+    ExpressionResult evaluate(EvaluationContext evaluationContext, FunctionArgument argument0,
+                              FunctionArgument argument1);
+}
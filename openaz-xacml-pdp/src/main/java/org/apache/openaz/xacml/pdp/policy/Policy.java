@@ -43,6 +43,7 @@ import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
 import org.apache.openaz.xacml.pdp.eval.EvaluationException;
 import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
 import org.apache.openaz.xacml.pdp.eval.MatchResult;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfiler;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.trace.StdTraceEvent;
@@ -58,6 +59,7 @@ public class Policy extends PolicyDef {
     private List<Rule> rules = new ArrayList<Rule>();
     private List<CombiningElement<Rule>> combiningRules;
     private CombiningAlgorithm<Rule> ruleCombiningAlgorithm;
+    private PolicyProfiler.Entry profilerEntry;
 
     @Override
     protected boolean validateComponent() {
@@ -272,9 +274,31 @@ public class Policy extends PolicyDef {
 
     @Override
     public EvaluationResult evaluate(EvaluationContext evaluationContext) throws EvaluationException {
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        if (!policyProfiler.isEnabled()) {
+            return this.evaluatePolicy(evaluationContext);
+        }
+        if (this.profilerEntry == null || this.profilerEntry.isRemoved()) {
+            this.profilerEntry = policyProfiler.getEntry("Policy", null, this.getTraceId());
+        }
+        long startNanos = System.nanoTime();
+        long startPIPNanos = policyProfiler.getPIPNanos();
+        EvaluationResult evaluationResult = null;
+        try {
+            evaluationResult = this.evaluatePolicy(evaluationContext);
+            return evaluationResult;
+        } finally {
+            policyProfiler.record(this.profilerEntry, startNanos, startPIPNanos, evaluationResult);
+        }
+    }
+
+    private EvaluationResult evaluatePolicy(EvaluationContext evaluationContext) throws EvaluationException {
         /*
          * First check to see if we are valid. If not, return an error status immediately
          */
+        if (evaluationContext.isTracing()) {
+            evaluationContext.trace(new StdTraceEvent<Object>("Policy", this, null));
+        }
         if (!this.validate()) {
             return new EvaluationResult(new StdStatus(this.getStatusCode(), this.getStatusMessage()));
         }
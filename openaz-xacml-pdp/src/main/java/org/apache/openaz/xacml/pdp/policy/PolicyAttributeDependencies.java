@@ -0,0 +1,219 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.pdp.policy.expressions.Apply;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeDesignator;
+import org.apache.openaz.xacml.std.pip.StdPIPRequest;
+
+/**
+ * PolicyAttributeDependencies is the result of statically analyzing a {@link PolicyDef} for the
+ * {@link org.apache.openaz.xacml.pdp.policy.expressions.AttributeDesignator}s its evaluation may use. It is
+ * computed by the policy store once per <code>PolicyDef</code> and shared by all of the decisions that
+ * evaluate it.
+ * <p>
+ * Two sets of {@link org.apache.openaz.xacml.api.pip.PIPRequest}s are kept:
+ * <ul>
+ * <li>the attributes of every <code>AttributeDesignator</code> reachable from the <code>PolicyDef</code>,
+ * including those in obligation and advice expressions, and</li>
+ * <li>the attributes evaluation of the <code>PolicyDef</code> needs to reach a decision once its own
+ * <code>Target</code> has matched: the designators in the <code>Target</code>s, <code>Condition</code>s and
+ * <code>VariableDefinition</code>s below it.</li>
+ * </ul>
+ * References to other policies are only followed if they have been resolved by the policy store, and
+ * <code>AttributeSelector</code>s are not included since they depend on the request content.
+ */
+public final class PolicyAttributeDependencies {
+    private final Set<PIPRequest> attributes;
+    private final Set<PIPRequest> decisionAttributes;
+
+    private PolicyAttributeDependencies(Set<PIPRequest> attributesIn, Set<PIPRequest> decisionAttributesIn) {
+        this.attributes = Collections.unmodifiableSet(attributesIn);
+        this.decisionAttributes = Collections.unmodifiableSet(decisionAttributesIn);
+    }
+
+    /**
+     * Analyzes the given <code>PolicyDef</code>.
+     *
+     * @param policyDef the <code>PolicyDef</code> to analyze
+     * @param mapReferencees the <code>PolicyDef</code>s the references below the <code>PolicyDef</code> were
+     *            resolved to
+     * @return the <code>PolicyAttributeDependencies</code> of the <code>PolicyDef</code>
+     */
+    public static PolicyAttributeDependencies
+        newInstance(PolicyDef policyDef, Map<PolicyIdReferenceBase<?>, PolicyDef> mapReferencees) {
+        Analyzer analyzer = new Analyzer(mapReferencees);
+        analyzer.addPolicyDef(policyDef, false);
+        return new PolicyAttributeDependencies(analyzer.attributes, analyzer.decisionAttributes);
+    }
+
+    /**
+     * Gets the attributes of all of the <code>AttributeDesignator</code>s reachable from the
+     * <code>PolicyDef</code>.
+     *
+     * @return the <code>Set</code> of <code>PIPRequest</code>s
+     */
+    public Set<PIPRequest> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Gets the attributes the <code>PolicyDef</code> may need to reach a decision once its
+     * <code>Target</code> has matched. Attributes only used in its own <code>Target</code> or in obligation
+     * and advice expressions are not included.
+     *
+     * @return the <code>Set</code> of <code>PIPRequest</code>s
+     */
+    public Set<PIPRequest> getDecisionAttributes() {
+        return this.decisionAttributes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("{");
+        stringBuilder.append("attributes=");
+        stringBuilder.append(this.attributes.size());
+        stringBuilder.append(",decisionAttributes=");
+        stringBuilder.append(this.decisionAttributes);
+        stringBuilder.append('}');
+        return stringBuilder.toString();
+    }
+
+    private static final class Analyzer {
+        private final Map<PolicyIdReferenceBase<?>, PolicyDef> mapReferencees;
+        private final Set<PIPRequest> attributes = new LinkedHashSet<PIPRequest>();
+        private final Set<PIPRequest> decisionAttributes = new LinkedHashSet<PIPRequest>();
+        private final Set<PolicyDef> visited = Collections
+            .newSetFromMap(new IdentityHashMap<PolicyDef, Boolean>());
+
+        Analyzer(Map<PolicyIdReferenceBase<?>, PolicyDef> mapReferenceesIn) {
+            this.mapReferencees = mapReferenceesIn;
+        }
+
+        void addPolicyDef(PolicyDef policyDef, boolean decision) {
+            if (policyDef == null || !this.visited.add(policyDef)) {
+                return;
+            }
+            this.addTarget(policyDef.getTarget(), decision);
+            this.addObligationExpressions(policyDef.getObligationExpressions());
+            this.addAdviceExpressions(policyDef.getAdviceExpressions());
+            if (policyDef instanceof Policy) {
+                Policy policy = (Policy)policyDef;
+                Iterator<VariableDefinition> iterVariableDefinitions = policy.getVariableDefinitions();
+                while (iterVariableDefinitions != null && iterVariableDefinitions.hasNext()) {
+                    this.addExpression(iterVariableDefinitions.next().getExpression(), true);
+                }
+                Iterator<Rule> iterRules = policy.getRules();
+                while (iterRules != null && iterRules.hasNext()) {
+                    Rule rule = iterRules.next();
+                    this.addTarget(rule.getTarget(), true);
+                    if (rule.getCondition() != null) {
+                        this.addExpression(rule.getCondition().getExpression(), true);
+                    }
+                    this.addObligationExpressions(rule.getObligationExpressions());
+                    this.addAdviceExpressions(rule.getAdviceExpressions());
+                }
+            } else if (policyDef instanceof PolicySet) {
+                Iterator<PolicySetChild> iterChildren = ((PolicySet)policyDef).getChildren();
+                while (iterChildren != null && iterChildren.hasNext()) {
+                    PolicySetChild policySetChild = iterChildren.next();
+                    if (policySetChild instanceof PolicyDef) {
+                        this.addPolicyDef((PolicyDef)policySetChild, true);
+                    } else if (policySetChild instanceof PolicyIdReferenceBase) {
+                        PolicyIdReferenceBase<?> policyIdReference = (PolicyIdReferenceBase<?>)policySetChild;
+                        PolicyDef policyDefReferencee = this.mapReferencees.get(policyIdReference);
+                        if (policyDefReferencee == null) {
+                            policyDefReferencee = policyIdReference.getReferencee();
+                        }
+                        this.addPolicyDef(policyDefReferencee, true);
+                    }
+                }
+            }
+        }
+
+        void addTarget(Target target, boolean decision) {
+            if (target == null) {
+                return;
+            }
+            Iterator<AnyOf> iterAnyOfs = target.getAnyOfs();
+            while (iterAnyOfs != null && iterAnyOfs.hasNext()) {
+                Iterator<AllOf> iterAllOfs = iterAnyOfs.next().getAllOfs();
+                while (iterAllOfs != null && iterAllOfs.hasNext()) {
+                    Iterator<Match> iterMatches = iterAllOfs.next().getMatches();
+                    while (iterMatches != null && iterMatches.hasNext()) {
+                        this.addExpression(iterMatches.next().getAttributeRetrievalBase(), decision);
+                    }
+                }
+            }
+        }
+
+        void addObligationExpressions(Iterator<ObligationExpression> iterObligationExpressions) {
+            while (iterObligationExpressions != null && iterObligationExpressions.hasNext()) {
+                this.addAttributeAssignmentExpressions(iterObligationExpressions.next()
+                    .getAttributeAssignmentExpressions());
+            }
+        }
+
+        void addAdviceExpressions(Iterator<AdviceExpression> iterAdviceExpressions) {
+            while (iterAdviceExpressions != null && iterAdviceExpressions.hasNext()) {
+                this.addAttributeAssignmentExpressions(iterAdviceExpressions.next()
+                    .getAttributeAssignmentExpressions());
+            }
+        }
+
+        void addAttributeAssignmentExpressions(Iterator<AttributeAssignmentExpression> iterExpressions) {
+            while (iterExpressions != null && iterExpressions.hasNext()) {
+                this.addExpression(iterExpressions.next().getExpression(), false);
+            }
+        }
+
+        void addExpression(Expression expression, boolean decision) {
+            if (expression instanceof AttributeDesignator) {
+                AttributeDesignator attributeDesignator = (AttributeDesignator)expression;
+                if (attributeDesignator.getCategory() == null || attributeDesignator.getAttributeId() == null
+                    || attributeDesignator.getDataTypeId() == null) {
+                    return;
+                }
+                PIPRequest pipRequest = new StdPIPRequest(attributeDesignator.getCategory(),
+                                                          attributeDesignator.getAttributeId(),
+                                                          attributeDesignator.getDataTypeId(),
+                                                          attributeDesignator.getIssuer());
+                this.attributes.add(pipRequest);
+                if (decision) {
+                    this.decisionAttributes.add(pipRequest);
+                }
+            } else if (expression instanceof Apply) {
+                Iterator<Expression> iterArguments = ((Apply)expression).getArguments();
+                while (iterArguments.hasNext()) {
+                    this.addExpression(iterArguments.next(), decision);
+                }
+            }
+        }
+    }
+}
@@ -67,4 +67,23 @@ public interface PolicyFinder {
      */
     PolicyFinderResult<PolicySet> getPolicySet(IdReferenceMatch idReferenceMatch);
 
+    /**
+     * Gets the {@link PolicyDef} the given {@link PolicyIdReferenceBase} was resolved to when the policies of
+     * this <code>PolicyFinder</code> were loaded.
+     *
+     * @param policyIdReferenceBase the <code>PolicyIdReferenceBase</code> to get the referencee of
+     * @return the resolved <code>PolicyDef</code>, or null if the reference has to be looked up by its
+     *         <code>IdReferenceMatch</code>
+     */
+    PolicyDef getReferencee(PolicyIdReferenceBase<?> policyIdReferenceBase);
+
+    /**
+     * Gets the {@link PolicyAttributeDependencies} of the given {@link PolicyDef}, following the references
+     * resolved by this <code>PolicyFinder</code>.
+     *
+     * @param policyDef the <code>PolicyDef</code> to analyze
+     * @return the <code>PolicyAttributeDependencies</code> of the <code>PolicyDef</code>
+     */
+    PolicyAttributeDependencies getAttributeDependencies(PolicyDef policyDef);
+
 }
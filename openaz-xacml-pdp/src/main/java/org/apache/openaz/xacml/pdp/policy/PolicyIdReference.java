@@ -62,14 +62,19 @@ public class PolicyIdReference extends PolicyIdReferenceBase<Policy> {
 
     @Override
     protected Policy ensureReferencee(EvaluationContext evaluationContext) throws EvaluationException {
-        if (this.getReferencee() == null) {
+        Policy thisReferencee = this.getReferencee();
+        if (thisReferencee == null) {
+            PolicyDef policyDef = evaluationContext.getReferencee(this);
+            if (policyDef instanceof Policy) {
+                return (Policy)policyDef;
+            }
             PolicyFinderResult<Policy> policyFactoryResult = evaluationContext.getPolicy(this
                 .getIdReferenceMatch());
             if (policyFactoryResult.getStatus() == null || policyFactoryResult.getStatus().isOk()) {
-                this.setReferencee(policyFactoryResult.getPolicyDef());
+                thisReferencee = policyFactoryResult.getPolicyDef();
             }
         }
-        return this.getReferencee();
+        return thisReferencee;
     }
 
 }
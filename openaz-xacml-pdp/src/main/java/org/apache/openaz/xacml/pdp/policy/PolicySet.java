@@ -44,6 +44,7 @@ import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
 import org.apache.openaz.xacml.pdp.eval.EvaluationException;
 import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
 import org.apache.openaz.xacml.pdp.eval.MatchResult;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfiler;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.trace.StdTraceEvent;
@@ -57,6 +58,7 @@ public class PolicySet extends PolicyDef {
     private List<PolicySetChild> children;
     private List<CombiningElement<PolicySetChild>> combiningPolicies;
     private CombiningAlgorithm<PolicySetChild> combiningAlgorithm;
+    private PolicyProfiler.Entry profilerEntry;
 
     private void ensureChildren() {
         if (this.children == null) {
@@ -191,6 +193,25 @@ public class PolicySet extends PolicyDef {
 
     @Override
     public EvaluationResult evaluate(EvaluationContext evaluationContext) throws EvaluationException {
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        if (!policyProfiler.isEnabled()) {
+            return this.evaluatePolicySet(evaluationContext);
+        }
+        if (this.profilerEntry == null || this.profilerEntry.isRemoved()) {
+            this.profilerEntry = policyProfiler.getEntry("PolicySet", null, this.getTraceId());
+        }
+        long startNanos = System.nanoTime();
+        long startPIPNanos = policyProfiler.getPIPNanos();
+        EvaluationResult evaluationResult = null;
+        try {
+            evaluationResult = this.evaluatePolicySet(evaluationContext);
+            return evaluationResult;
+        } finally {
+            policyProfiler.record(this.profilerEntry, startNanos, startPIPNanos, evaluationResult);
+        }
+    }
+
+    private EvaluationResult evaluatePolicySet(EvaluationContext evaluationContext) throws EvaluationException {
         /*
          * First check to see if we are valid. If not, return an error status immediately
          */
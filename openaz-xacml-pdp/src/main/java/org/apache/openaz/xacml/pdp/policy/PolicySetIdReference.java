@@ -62,14 +62,19 @@ public class PolicySetIdReference extends PolicyIdReferenceBase<PolicySet> {
 
     @Override
     protected PolicySet ensureReferencee(EvaluationContext evaluationContext) throws EvaluationException {
-        if (this.getReferencee() == null) {
+        PolicySet thisReferencee = this.getReferencee();
+        if (thisReferencee == null) {
+            PolicyDef policyDef = evaluationContext.getReferencee(this);
+            if (policyDef instanceof PolicySet) {
+                return (PolicySet)policyDef;
+            }
             PolicyFinderResult<PolicySet> policyFactoryResult = evaluationContext.getPolicySet(this
                 .getIdReferenceMatch());
             if (policyFactoryResult.getStatus() == null || policyFactoryResult.getStatus().isOk()) {
-                this.setReferencee(policyFactoryResult.getPolicyDef());
+                thisReferencee = policyFactoryResult.getPolicyDef();
             }
         }
-        return this.getReferencee();
+        return thisReferencee;
     }
 
 }
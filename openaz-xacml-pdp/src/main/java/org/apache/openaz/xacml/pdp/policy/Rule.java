@@ -47,6 +47,7 @@ import org.apache.openaz.xacml.pdp.eval.EvaluationException;
 import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
 import org.apache.openaz.xacml.pdp.eval.MatchResult;
 import org.apache.openaz.xacml.pdp.eval.Matchable;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfiler;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.trace.StdTraceEvent;
@@ -66,6 +67,7 @@ public class Rule extends PolicyComponent implements Matchable, Evaluatable, Tra
     private Condition condition;
     private List<ObligationExpression> obligationExpressions = new ArrayList<ObligationExpression>();
     private List<AdviceExpression> adviceExpressions = new ArrayList<AdviceExpression>();
+    private PolicyProfiler.Entry profilerEntry;
 
     protected List<ObligationExpression> getObligationExpressionList() {
         return this.obligationExpressions;
@@ -182,6 +184,29 @@ public class Rule extends PolicyComponent implements Matchable, Evaluatable, Tra
 
     @Override
     public EvaluationResult evaluate(EvaluationContext evaluationContext) throws EvaluationException {
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        if (!policyProfiler.isEnabled()) {
+            return this.evaluateRule(evaluationContext);
+        }
+        if (this.profilerEntry == null || this.profilerEntry.isRemoved()) {
+            String policyId = (this.policy == null ? null : this.policy.getTraceId());
+            this.profilerEntry = policyProfiler.getEntry("Rule", policyId, this.getTraceId());
+        }
+        long startNanos = System.nanoTime();
+        long startPIPNanos = policyProfiler.getPIPNanos();
+        EvaluationResult evaluationResult = null;
+        try {
+            evaluationResult = this.evaluateRule(evaluationContext);
+            return evaluationResult;
+        } finally {
+            policyProfiler.record(this.profilerEntry, startNanos, startPIPNanos, evaluationResult);
+        }
+    }
+
+    private EvaluationResult evaluateRule(EvaluationContext evaluationContext) throws EvaluationException {
+        if (evaluationContext.isTracing()) {
+            evaluationContext.trace(new StdTraceEvent<Object>("Rule", this, null));
+        }
         if (!this.validate()) {
             return new EvaluationResult(new StdStatus(this.getStatusCode(), this.getStatusMessage()));
         }
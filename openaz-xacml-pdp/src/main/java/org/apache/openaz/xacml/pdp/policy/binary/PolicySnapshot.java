@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.TimeZone;
+
+import org.apache.openaz.xacml.std.datatypes.ISO8601DateTime;
+
+/**
+ * PolicySnapshot holds the constants shared by {@link PolicySnapshotWriter} and {@link PolicySnapshotReader}.
+ * A snapshot file consists of a header, a table of the <code>String</code>s used by the encoded policies, an
+ * index of entries and the encoded policies themselves:
+ *
+ * <pre>
+ * int     magic
+ * int     format version
+ * int     string count, then for each string: int length (-1 for null) and UTF-8 bytes
+ * int     entry count, then for each entry: int id string, 32 byte SHA-256 hash, int offset, int length
+ * byte[]  encoded policies
+ * </pre>
+ *
+ * Each entry is stored with the hash of the policy document it was built from so that a stale entry is never
+ * handed out. Literal string, integer, double, boolean and dateTime values are stored in binary form, so they
+ * are not parsed again when a policy is read; literals of the other data types are stored as their XACML
+ * string form.
+ */
+public class PolicySnapshot {
+    public static final int MAGIC = 0x4F415A53;
+    public static final int FORMAT_VERSION = 2;
+    public static final int HASH_LENGTH = 32;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte TAG_NULL = 0;
+    static final byte TAG_POLICY = 1;
+    static final byte TAG_POLICYSET = 2;
+    static final byte TAG_POLICYIDREFERENCE = 3;
+    static final byte TAG_POLICYSETIDREFERENCE = 4;
+    static final byte TAG_APPLY = 10;
+    static final byte TAG_ATTRIBUTEDESIGNATOR = 11;
+    static final byte TAG_ATTRIBUTESELECTOR = 12;
+    static final byte TAG_ATTRIBUTEVALUE = 13;
+    static final byte TAG_FUNCTION = 14;
+    static final byte TAG_VARIABLEREFERENCE = 15;
+
+    static final byte VALUE_STRINGFORM = 0;
+    static final byte VALUE_STRING = 1;
+    static final byte VALUE_INTEGER = 2;
+    static final byte VALUE_DOUBLE = 3;
+    static final byte VALUE_BOOLEAN = 4;
+    static final byte VALUE_DATETIME = 5;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    protected PolicySnapshot() {
+    }
+
+    /**
+     * Creates the dateTime value stored in a snapshot with the given fields.
+     *
+     * @param timeZoneId the <code>TimeZone</code> id, or null for a value without a time zone
+     * @return the new <code>ISO8601DateTime</code>
+     */
+    static ISO8601DateTime newDateTime(String timeZoneId, int year, int month, int day, int hour, int minute,
+                                       int second, int millisecond) {
+        return new ISO8601DateTime(timeZoneId == null ? null : TimeZone.getTimeZone(timeZoneId), year, month,
+                                   day, hour, minute, second, millisecond);
+    }
+
+    /**
+     * Computes the SHA-256 hash of the contents of the given <code>File</code>.
+     *
+     * @param file the <code>File</code> to hash
+     * @return the 32 byte hash of the file contents
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] hash(File file) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(HASH_ALGORITHM + " is not available", ex);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+            }
+        }
+        return messageDigest.digest();
+    }
+}
@@ -0,0 +1,645 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy.binary;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.DataType;
+import org.apache.openaz.xacml.api.DataTypeException;
+import org.apache.openaz.xacml.api.DataTypeFactory;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.VersionMatch;
+import org.apache.openaz.xacml.pdp.policy.AdviceExpression;
+import org.apache.openaz.xacml.pdp.policy.AllOf;
+import org.apache.openaz.xacml.pdp.policy.AnyOf;
+import org.apache.openaz.xacml.pdp.policy.AttributeAssignmentExpression;
+import org.apache.openaz.xacml.pdp.policy.CombinerParameter;
+import org.apache.openaz.xacml.pdp.policy.CombiningAlgorithm;
+import org.apache.openaz.xacml.pdp.policy.CombiningAlgorithmFactory;
+import org.apache.openaz.xacml.pdp.policy.Condition;
+import org.apache.openaz.xacml.pdp.policy.Expression;
+import org.apache.openaz.xacml.pdp.policy.Match;
+import org.apache.openaz.xacml.pdp.policy.ObligationExpression;
+import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.pdp.policy.PolicyDefaults;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReference;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
+import org.apache.openaz.xacml.pdp.policy.PolicyIssuer;
+import org.apache.openaz.xacml.pdp.policy.PolicySet;
+import org.apache.openaz.xacml.pdp.policy.PolicySetChild;
+import org.apache.openaz.xacml.pdp.policy.PolicySetIdReference;
+import org.apache.openaz.xacml.pdp.policy.Rule;
+import org.apache.openaz.xacml.pdp.policy.RuleEffect;
+import org.apache.openaz.xacml.pdp.policy.Target;
+import org.apache.openaz.xacml.pdp.policy.TargetedCombinerParameter;
+import org.apache.openaz.xacml.pdp.policy.VariableDefinition;
+import org.apache.openaz.xacml.pdp.policy.expressions.Apply;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeDesignator;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeRetrievalBase;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeSelector;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeValueExpression;
+import org.apache.openaz.xacml.pdp.policy.expressions.Function;
+import org.apache.openaz.xacml.pdp.policy.expressions.VariableReference;
+import org.apache.openaz.xacml.std.IdentifierImpl;
+import org.apache.openaz.xacml.std.StdAttribute;
+import org.apache.openaz.xacml.std.StdAttributeValue;
+import org.apache.openaz.xacml.std.StdIdReferenceMatch;
+import org.apache.openaz.xacml.std.StdVersion;
+import org.apache.openaz.xacml.std.StdVersionMatch;
+import org.apache.openaz.xacml.std.datatypes.ISO8601DateTime;
+import org.apache.openaz.xacml.util.FactoryException;
+
+/**
+ * PolicySnapshotReader decodes {@link org.apache.openaz.xacml.pdp.policy.PolicyDef}s from a snapshot written
+ * by {@link PolicySnapshotWriter}. The snapshot file is memory mapped and only the string table and index are
+ * decoded up front; each <code>PolicyDef</code> is decoded on request into a new object tree, so a
+ * <code>PolicySnapshotReader</code> may be shared between threads.
+ */
+public class PolicySnapshotReader {
+    private final ByteBuffer buffer;
+    private final int dataOffset;
+    private final String[] strings;
+    private final AtomicReferenceArray<Identifier> identifiers;
+    private final Map<String, Entry> mapEntries;
+    private final ConcurrentMap<Identifier, DataType<?>> mapDataTypes = new ConcurrentHashMap<Identifier, DataType<?>>();
+    private final DataTypeFactory dataTypeFactory;
+    private final CombiningAlgorithmFactory combiningAlgorithmFactory;
+
+    private static class Entry {
+        private final byte[] hash;
+        private final int offset;
+        private final int length;
+
+        Entry(byte[] hashIn, int offsetIn, int lengthIn) {
+            this.hash = hashIn;
+            this.offset = offsetIn;
+            this.length = lengthIn;
+        }
+    }
+
+    /**
+     * Creates a new <code>PolicySnapshotReader</code> over the given <code>ByteBuffer</code> holding a
+     * complete snapshot.
+     *
+     * @param bufferIn the <code>ByteBuffer</code> containing the snapshot
+     * @throws PolicySnapshotException if the buffer does not contain a valid snapshot
+     */
+    public PolicySnapshotReader(ByteBuffer bufferIn) throws PolicySnapshotException {
+        this.buffer = bufferIn.duplicate();
+        try {
+            this.dataTypeFactory = DataTypeFactory.newInstance();
+            this.combiningAlgorithmFactory = CombiningAlgorithmFactory.newInstance();
+        } catch (FactoryException ex) {
+            throw new PolicySnapshotException("Failed to get factories", ex);
+        }
+        ByteBuffer in = this.buffer.duplicate();
+        try {
+            if (in.getInt() != PolicySnapshot.MAGIC) {
+                throw new PolicySnapshotException("Not a policy snapshot");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != PolicySnapshot.FORMAT_VERSION) {
+                throw new PolicySnapshotException("Unsupported policy snapshot version " + formatVersion);
+            }
+            int stringCount = in.getInt();
+            this.strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int length = in.getInt();
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    in.get(bytes);
+                    this.strings[i] = new String(bytes, PolicySnapshot.UTF8);
+                }
+            }
+            this.identifiers = new AtomicReferenceArray<Identifier>(stringCount);
+            int entryCount = in.getInt();
+            Map<String, Entry> entries = new HashMap<String, Entry>();
+            for (int i = 0; i < entryCount; i++) {
+                String id = this.getString(in.getInt());
+                byte[] hash = new byte[PolicySnapshot.HASH_LENGTH];
+                in.get(hash);
+                entries.put(id, new Entry(hash, in.getInt(), in.getInt()));
+            }
+            this.mapEntries = Collections.unmodifiableMap(entries);
+            this.dataOffset = in.position();
+        } catch (BufferUnderflowException ex) {
+            throw new PolicySnapshotException("Truncated policy snapshot", ex);
+        }
+    }
+
+    /**
+     * Opens the snapshot file at the given <code>Path</code>.
+     *
+     * @param path the <code>Path</code> of the snapshot file
+     * @return a new <code>PolicySnapshotReader</code> for the file
+     * @throws IOException if the file cannot be read
+     * @throws PolicySnapshotException if the file is not a valid snapshot
+     */
+    public static PolicySnapshotReader open(Path path) throws IOException, PolicySnapshotException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new PolicySnapshotReader(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                            fileChannel.size()));
+        }
+    }
+
+    /**
+     * Gets the number of entries in this snapshot.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.mapEntries.size();
+    }
+
+    /**
+     * Gets the ids of the entries in this snapshot.
+     *
+     * @return the <code>Set</code> of entry ids
+     */
+    public Set<String> getIds() {
+        return this.mapEntries.keySet();
+    }
+
+    /**
+     * Decodes the <code>PolicyDef</code> stored under the given id if it was built from a policy document
+     * with the given hash.
+     *
+     * @param id the <code>String</code> id of the entry
+     * @param hash the hash of the current policy document
+     * @return a new <code>PolicyDef</code> or null if there is no entry for the id or the entry is stale
+     * @throws PolicySnapshotException if the entry cannot be decoded
+     */
+    public PolicyDef getPolicyDef(String id, byte[] hash) throws PolicySnapshotException {
+        Entry entry = this.mapEntries.get(id);
+        if (entry == null || !Arrays.equals(entry.hash, hash)) {
+            return null;
+        }
+        try {
+            ByteBuffer in = this.buffer.duplicate();
+            in.position(this.dataOffset + entry.offset);
+            in.limit(this.dataOffset + entry.offset + entry.length);
+            byte tag = in.get();
+            if (tag != PolicySnapshot.TAG_POLICY && tag != PolicySnapshot.TAG_POLICYSET) {
+                throw new PolicySnapshotException("Unexpected tag " + tag);
+            }
+            return this.readPolicyDef(in, tag, null, null);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new PolicySnapshotException("Corrupt policy snapshot entry " + id, ex);
+        }
+    }
+
+    private String getString(int index) {
+        return index < 0 ? null : this.strings[index];
+    }
+
+    private String readString(ByteBuffer in) {
+        return this.getString(in.getInt());
+    }
+
+    private Identifier readIdentifier(ByteBuffer in) {
+        int index = in.getInt();
+        String string = this.getString(index);
+        if (string == null) {
+            return null;
+        }
+        Identifier identifier = this.identifiers.get(index);
+        if (identifier == null) {
+            identifier = IdentifierImpl.intern(string);
+            this.identifiers.lazySet(index, identifier);
+        }
+        return identifier;
+    }
+
+    private RuleEffect readRuleEffect(ByteBuffer in) {
+        String name = this.readString(in);
+        return name == null ? null : RuleEffect.valueOf(name);
+    }
+
+    private static boolean readBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    private VersionMatch readVersionMatch(ByteBuffer in) throws PolicySnapshotException {
+        String versionMatch = this.readString(in);
+        if (versionMatch == null) {
+            return null;
+        }
+        try {
+            return StdVersionMatch.newInstance(versionMatch);
+        } catch (ParseException ex) {
+            throw new PolicySnapshotException("Invalid VersionMatch " + versionMatch, ex);
+        }
+    }
+
+    private PolicyDef readPolicyDef(ByteBuffer in, byte tag, PolicySet policySetParent,
+                                    PolicyDefaults policyDefaultsParent) throws PolicySnapshotException {
+        Policy policy = null;
+        PolicySet policySet = null;
+        PolicyDef policyDef;
+        if (tag == PolicySnapshot.TAG_POLICY) {
+            policyDef = policy = new Policy(policySetParent);
+        } else {
+            policyDef = policySet = new PolicySet(policySetParent);
+        }
+        policyDef.setIdentifier(this.readIdentifier(in));
+        String version = this.readString(in);
+        if (version != null) {
+            try {
+                policyDef.setVersion(StdVersion.newInstance(version));
+            } catch (ParseException ex) {
+                throw new PolicySnapshotException("Invalid Version " + version, ex);
+            }
+        }
+        policyDef.setDescription(this.readString(in));
+        policyDef.setPolicyIssuer(this.readPolicyIssuer(in));
+        if (readBoolean(in)) {
+            String xpathVersion = this.readString(in);
+            policyDef.setPolicyDefaults(new PolicyDefaults(xpathVersion == null ? null : URI
+                .create(xpathVersion), policyDefaultsParent));
+        } else {
+            policyDef.setPolicyDefaults(policyDefaultsParent);
+        }
+        policyDef.setTarget(this.readTarget(in));
+        List<CombinerParameter> listCombinerParameters = this.readCombinerParameters(in);
+        if (!listCombinerParameters.isEmpty()) {
+            policyDef.addCombinerParameters(listCombinerParameters);
+        }
+        if (readBoolean(in)) {
+            policyDef.setMaxDelegationDepth(in.getInt());
+        }
+        List<ObligationExpression> listObligationExpressions = this.readObligationExpressions(in, policy);
+        if (!listObligationExpressions.isEmpty()) {
+            policyDef.setObligationExpressions(listObligationExpressions);
+        }
+        List<AdviceExpression> listAdviceExpressions = this.readAdviceExpressions(in, policy);
+        if (!listAdviceExpressions.isEmpty()) {
+            policyDef.setAdviceExpressions(listAdviceExpressions);
+        }
+        if (policy != null) {
+            this.readPolicyBody(in, policy);
+        } else {
+            this.readPolicySetBody(in, policySet);
+        }
+        return policyDef;
+    }
+
+    private void readPolicyBody(ByteBuffer in, Policy policy) throws PolicySnapshotException {
+        Identifier identifierCombiningAlgorithm = this.readIdentifier(in);
+        if (identifierCombiningAlgorithm != null) {
+            CombiningAlgorithm<Rule> combiningAlgorithm = this.combiningAlgorithmFactory
+                .getRuleCombiningAlgorithm(identifierCombiningAlgorithm);
+            if (combiningAlgorithm == null) {
+                throw new PolicySnapshotException("Unknown rule combining algorithm "
+                                                  + identifierCombiningAlgorithm);
+            }
+            policy.setRuleCombiningAlgorithm(combiningAlgorithm);
+        }
+
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            TargetedCombinerParameter<String, Rule> ruleCombinerParameter = new TargetedCombinerParameter<String, Rule>();
+            ruleCombinerParameter.setTargetId(this.readString(in));
+            ruleCombinerParameter.setName(this.readString(in));
+            ruleCombinerParameter.setAttributeValue(this.readAttributeValue(in));
+            policy.addRuleCombinerParameter(ruleCombinerParameter);
+        }
+
+        count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            VariableDefinition variableDefinition = new VariableDefinition();
+            variableDefinition.setId(this.readString(in));
+            variableDefinition.setExpression(this.readExpression(in, policy));
+            policy.addVariableDefinition(variableDefinition);
+        }
+
+        count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            policy.addRule(this.readRule(in, policy));
+        }
+    }
+
+    private void readPolicySetBody(ByteBuffer in, PolicySet policySet) throws PolicySnapshotException {
+        Identifier identifierCombiningAlgorithm = this.readIdentifier(in);
+        if (identifierCombiningAlgorithm != null) {
+            CombiningAlgorithm<PolicySetChild> combiningAlgorithm = this.combiningAlgorithmFactory
+                .getPolicyCombiningAlgorithm(identifierCombiningAlgorithm);
+            if (combiningAlgorithm == null) {
+                throw new PolicySnapshotException("Unknown policy combining algorithm "
+                                                  + identifierCombiningAlgorithm);
+            }
+            policySet.setPolicyCombiningAlgorithm(combiningAlgorithm);
+        }
+
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            TargetedCombinerParameter<Identifier, PolicySetChild> policyCombinerParameter = new TargetedCombinerParameter<Identifier, PolicySetChild>();
+            policyCombinerParameter.setTargetId(this.readIdentifier(in));
+            policyCombinerParameter.setName(this.readString(in));
+            policyCombinerParameter.setAttributeValue(this.readAttributeValue(in));
+            policySet.addPolicyCombinerParameter(policyCombinerParameter);
+        }
+
+        count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            byte tag = in.get();
+            switch (tag) {
+            case PolicySnapshot.TAG_POLICY:
+            case PolicySnapshot.TAG_POLICYSET:
+                policySet.addChild(this.readPolicyDef(in, tag, policySet, policySet.getPolicyDefaults()));
+                break;
+            case PolicySnapshot.TAG_POLICYIDREFERENCE:
+                policySet.addChild(this.readIdReference(in, new PolicyIdReference(policySet)));
+                break;
+            case PolicySnapshot.TAG_POLICYSETIDREFERENCE:
+                policySet.addChild(this.readIdReference(in, new PolicySetIdReference(policySet)));
+                break;
+            default:
+                throw new PolicySnapshotException("Unexpected PolicySet child tag " + tag);
+            }
+        }
+    }
+
+    private <T extends PolicyIdReferenceBase<?>> T readIdReference(ByteBuffer in, T policyIdReference)
+        throws PolicySnapshotException {
+        Identifier identifier = this.readIdentifier(in);
+        VersionMatch version = this.readVersionMatch(in);
+        VersionMatch versionEarliest = this.readVersionMatch(in);
+        VersionMatch versionLatest = this.readVersionMatch(in);
+        policyIdReference.setIdReferenceMatch(new StdIdReferenceMatch(identifier, version, versionEarliest,
+                                                                      versionLatest));
+        return policyIdReference;
+    }
+
+    private PolicyIssuer readPolicyIssuer(ByteBuffer in) throws PolicySnapshotException {
+        if (!readBoolean(in)) {
+            return null;
+        }
+        PolicyIssuer policyIssuer = new PolicyIssuer();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            Identifier category = this.readIdentifier(in);
+            Identifier attributeId = this.readIdentifier(in);
+            String issuer = this.readString(in);
+            boolean includeInResults = readBoolean(in);
+            int valueCount = in.getInt();
+            List<AttributeValue<?>> listAttributeValues = new ArrayList<AttributeValue<?>>(valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                listAttributeValues.add(this.readAttributeValue(in));
+            }
+            Attribute attribute = new StdAttribute(category, attributeId, listAttributeValues, issuer,
+                                                   includeInResults);
+            policyIssuer.add(attribute);
+        }
+        return policyIssuer;
+    }
+
+    private Target readTarget(ByteBuffer in) throws PolicySnapshotException {
+        if (!readBoolean(in)) {
+            return null;
+        }
+        Target target = new Target();
+        int anyOfCount = in.getInt();
+        for (int i = 0; i < anyOfCount; i++) {
+            AnyOf anyOf = new AnyOf();
+            int allOfCount = in.getInt();
+            for (int j = 0; j < allOfCount; j++) {
+                AllOf allOf = new AllOf();
+                int matchCount = in.getInt();
+                for (int k = 0; k < matchCount; k++) {
+                    allOf.addMatch(this.readMatch(in));
+                }
+                anyOf.addAllOf(allOf);
+            }
+            target.addAnyOf(anyOf);
+        }
+        return target;
+    }
+
+    private Match readMatch(ByteBuffer in) throws PolicySnapshotException {
+        Match match = new Match();
+        match.setMatchId(this.readIdentifier(in));
+        match.setAttributeValue(this.readAttributeValue(in));
+        Expression expression = this.readExpression(in, null);
+        if (expression != null && !(expression instanceof AttributeRetrievalBase)) {
+            throw new PolicySnapshotException("Unexpected Match expression " + expression.getClass().getName());
+        }
+        match.setAttributeRetrievalBase((AttributeRetrievalBase)expression);
+        return match;
+    }
+
+    private Rule readRule(ByteBuffer in, Policy policy) throws PolicySnapshotException {
+        Rule rule = new Rule();
+        rule.setPolicy(policy);
+        rule.setRuleId(this.readString(in));
+        rule.setRuleEffect(this.readRuleEffect(in));
+        rule.setDescription(this.readString(in));
+        rule.setTarget(this.readTarget(in));
+        if (readBoolean(in)) {
+            rule.setCondition(new Condition(this.readExpression(in, policy)));
+        }
+        List<ObligationExpression> listObligationExpressions = this.readObligationExpressions(in, policy);
+        if (!listObligationExpressions.isEmpty()) {
+            rule.setObligationExpressions(listObligationExpressions);
+        }
+        List<AdviceExpression> listAdviceExpressions = this.readAdviceExpressions(in, policy);
+        if (!listAdviceExpressions.isEmpty()) {
+            rule.setAdviceExpressions(listAdviceExpressions);
+        }
+        return rule;
+    }
+
+    private List<CombinerParameter> readCombinerParameters(ByteBuffer in) throws PolicySnapshotException {
+        int count = in.getInt();
+        List<CombinerParameter> listCombinerParameters = new ArrayList<CombinerParameter>(count);
+        for (int i = 0; i < count; i++) {
+            CombinerParameter combinerParameter = new CombinerParameter();
+            combinerParameter.setName(this.readString(in));
+            combinerParameter.setAttributeValue(this.readAttributeValue(in));
+            listCombinerParameters.add(combinerParameter);
+        }
+        return listCombinerParameters;
+    }
+
+    private List<ObligationExpression> readObligationExpressions(ByteBuffer in, Policy policy)
+        throws PolicySnapshotException {
+        int count = in.getInt();
+        List<ObligationExpression> listObligationExpressions = new ArrayList<ObligationExpression>(count);
+        for (int i = 0; i < count; i++) {
+            ObligationExpression obligationExpression = new ObligationExpression();
+            obligationExpression.setObligationId(this.readIdentifier(in));
+            obligationExpression.setRuleEffect(this.readRuleEffect(in));
+            List<AttributeAssignmentExpression> listAttributeAssignmentExpressions = this
+                .readAttributeAssignmentExpressions(in, policy);
+            if (!listAttributeAssignmentExpressions.isEmpty()) {
+                obligationExpression.addAttributeAssignmentExpressions(listAttributeAssignmentExpressions);
+            }
+            listObligationExpressions.add(obligationExpression);
+        }
+        return listObligationExpressions;
+    }
+
+    private List<AdviceExpression> readAdviceExpressions(ByteBuffer in, Policy policy)
+        throws PolicySnapshotException {
+        int count = in.getInt();
+        List<AdviceExpression> listAdviceExpressions = new ArrayList<AdviceExpression>(count);
+        for (int i = 0; i < count; i++) {
+            AdviceExpression adviceExpression = new AdviceExpression();
+            adviceExpression.setAdviceId(this.readIdentifier(in));
+            adviceExpression.setAppliesTo(this.readRuleEffect(in));
+            List<AttributeAssignmentExpression> listAttributeAssignmentExpressions = this
+                .readAttributeAssignmentExpressions(in, policy);
+            if (!listAttributeAssignmentExpressions.isEmpty()) {
+                adviceExpression.addAttributeAssignmentExpressions(listAttributeAssignmentExpressions);
+            }
+            listAdviceExpressions.add(adviceExpression);
+        }
+        return listAdviceExpressions;
+    }
+
+    private List<AttributeAssignmentExpression> readAttributeAssignmentExpressions(ByteBuffer in, Policy policy)
+        throws PolicySnapshotException {
+        int count = in.getInt();
+        List<AttributeAssignmentExpression> listAttributeAssignmentExpressions = new ArrayList<AttributeAssignmentExpression>(
+                                                                                                                          count);
+        for (int i = 0; i < count; i++) {
+            AttributeAssignmentExpression attributeAssignmentExpression = new AttributeAssignmentExpression();
+            attributeAssignmentExpression.setCategory(this.readIdentifier(in));
+            attributeAssignmentExpression.setAttributeId(this.readIdentifier(in));
+            attributeAssignmentExpression.setIssuer(this.readString(in));
+            attributeAssignmentExpression.setExpression(this.readExpression(in, policy));
+            listAttributeAssignmentExpressions.add(attributeAssignmentExpression);
+        }
+        return listAttributeAssignmentExpressions;
+    }
+
+    private Expression readExpression(ByteBuffer in, Policy policy) throws PolicySnapshotException {
+        byte tag = in.get();
+        switch (tag) {
+        case PolicySnapshot.TAG_NULL:
+            return null;
+        case PolicySnapshot.TAG_APPLY:
+            Apply apply = new Apply();
+            apply.setFunctionId(this.readIdentifier(in));
+            apply.setDescription(this.readString(in));
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                apply.addArgument(this.readExpression(in, policy));
+            }
+            return apply;
+        case PolicySnapshot.TAG_ATTRIBUTEDESIGNATOR:
+            AttributeDesignator attributeDesignator = new AttributeDesignator();
+            this.readAttributeRetrievalBase(in, attributeDesignator);
+            attributeDesignator.setAttributeId(this.readIdentifier(in));
+            attributeDesignator.setIssuer(this.readString(in));
+            return attributeDesignator;
+        case PolicySnapshot.TAG_ATTRIBUTESELECTOR:
+            AttributeSelector attributeSelector = new AttributeSelector();
+            this.readAttributeRetrievalBase(in, attributeSelector);
+            attributeSelector.setContextSelectorId(this.readIdentifier(in));
+            attributeSelector.setPath(this.readString(in));
+            return attributeSelector;
+        case PolicySnapshot.TAG_ATTRIBUTEVALUE:
+            return new AttributeValueExpression(this.readAttributeValue(in));
+        case PolicySnapshot.TAG_FUNCTION:
+            return new Function(this.readIdentifier(in));
+        case PolicySnapshot.TAG_VARIABLEREFERENCE:
+            return new VariableReference(policy, this.readString(in));
+        default:
+            throw new PolicySnapshotException("Unexpected Expression tag " + tag);
+        }
+    }
+
+    private void readAttributeRetrievalBase(ByteBuffer in, AttributeRetrievalBase attributeRetrievalBase) {
+        attributeRetrievalBase.setCategory(this.readIdentifier(in));
+        attributeRetrievalBase.setDataTypeId(this.readIdentifier(in));
+        byte mustBePresent = in.get();
+        if (mustBePresent >= 0) {
+            attributeRetrievalBase.setMustBePresent(mustBePresent != 0);
+        }
+    }
+
+    private AttributeValue<?> readAttributeValue(ByteBuffer in) throws PolicySnapshotException {
+        if (!readBoolean(in)) {
+            return null;
+        }
+        Identifier dataTypeId = this.readIdentifier(in);
+        byte encoding = in.get();
+        switch (encoding) {
+        case PolicySnapshot.VALUE_STRINGFORM:
+            break;
+        case PolicySnapshot.VALUE_STRING:
+            return new StdAttributeValue<String>(dataTypeId, this.readString(in));
+        case PolicySnapshot.VALUE_INTEGER:
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            return new StdAttributeValue<BigInteger>(dataTypeId, new BigInteger(bytes));
+        case PolicySnapshot.VALUE_DOUBLE:
+            return new StdAttributeValue<Double>(dataTypeId, in.getDouble());
+        case PolicySnapshot.VALUE_BOOLEAN:
+            return new StdAttributeValue<Boolean>(dataTypeId, readBoolean(in));
+        case PolicySnapshot.VALUE_DATETIME:
+            return new StdAttributeValue<ISO8601DateTime>(dataTypeId,
+                                                          PolicySnapshot.newDateTime(this.readString(in),
+                                                                                     in.getInt(), in.get(),
+                                                                                     in.get(), in.get(),
+                                                                                     in.get(), in.get(),
+                                                                                     in.getShort()));
+        default:
+            throw new PolicySnapshotException("Unexpected AttributeValue encoding " + encoding);
+        }
+        String stringValue = this.readString(in);
+        DataType<?> dataType = this.mapDataTypes.get(dataTypeId);
+        if (dataType == null) {
+            dataType = this.dataTypeFactory.getDataType(dataTypeId);
+            if (dataType == null) {
+                throw new PolicySnapshotException("Unknown data type " + dataTypeId);
+            }
+            this.mapDataTypes.put(dataTypeId, dataType);
+        }
+        try {
+            return dataType.createAttributeValue(stringValue);
+        } catch (DataTypeException ex) {
+            throw new PolicySnapshotException("Invalid AttributeValue " + stringValue + " of type "
+                                              + dataTypeId, ex);
+        }
+    }
+}
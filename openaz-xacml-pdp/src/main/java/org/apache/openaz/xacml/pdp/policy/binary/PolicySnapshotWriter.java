@@ -0,0 +1,684 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.DataType;
+import org.apache.openaz.xacml.api.DataTypeException;
+import org.apache.openaz.xacml.api.DataTypeFactory;
+import org.apache.openaz.xacml.api.IdReferenceMatch;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.StatusCode;
+import org.apache.openaz.xacml.api.Version;
+import org.apache.openaz.xacml.api.VersionMatch;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.pdp.policy.AdviceExpression;
+import org.apache.openaz.xacml.pdp.policy.AllOf;
+import org.apache.openaz.xacml.pdp.policy.AnyOf;
+import org.apache.openaz.xacml.pdp.policy.AttributeAssignmentExpression;
+import org.apache.openaz.xacml.pdp.policy.CombinerParameter;
+import org.apache.openaz.xacml.pdp.policy.CombiningAlgorithm;
+import org.apache.openaz.xacml.pdp.policy.Condition;
+import org.apache.openaz.xacml.pdp.policy.Expression;
+import org.apache.openaz.xacml.pdp.policy.Match;
+import org.apache.openaz.xacml.pdp.policy.ObligationExpression;
+import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.pdp.policy.PolicyDefaults;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReference;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
+import org.apache.openaz.xacml.pdp.policy.PolicyIssuer;
+import org.apache.openaz.xacml.pdp.policy.PolicySet;
+import org.apache.openaz.xacml.pdp.policy.PolicySetChild;
+import org.apache.openaz.xacml.pdp.policy.PolicySetIdReference;
+import org.apache.openaz.xacml.pdp.policy.Rule;
+import org.apache.openaz.xacml.pdp.policy.RuleEffect;
+import org.apache.openaz.xacml.pdp.policy.Target;
+import org.apache.openaz.xacml.pdp.policy.TargetedCombinerParameter;
+import org.apache.openaz.xacml.pdp.policy.VariableDefinition;
+import org.apache.openaz.xacml.pdp.policy.expressions.Apply;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeDesignator;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeRetrievalBase;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeSelector;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeValueExpression;
+import org.apache.openaz.xacml.pdp.policy.expressions.Function;
+import org.apache.openaz.xacml.pdp.policy.expressions.VariableReference;
+import org.apache.openaz.xacml.std.StdStatusCode;
+import org.apache.openaz.xacml.std.datatypes.ISO8601DateTime;
+import org.apache.openaz.xacml.util.FactoryException;
+
+/**
+ * PolicySnapshotWriter encodes {@link org.apache.openaz.xacml.pdp.policy.PolicyDef}s into the binary snapshot
+ * format described by {@link PolicySnapshot}. Policy elements that cannot be represented faithfully (for
+ * example PolicyIssuer Content or XPath valued attributes) cause {@link #add(String, byte[], PolicyDef)} to
+ * fail so that the caller keeps loading that policy from its XACML document.
+ */
+public class PolicySnapshotWriter {
+    private final Map<String, Integer> mapStrings = new HashMap<String, Integer>();
+    private final List<String> listStrings = new ArrayList<String>();
+    private final Map<String, Entry> mapEntries = new LinkedHashMap<String, Entry>();
+    private final Map<Identifier, DataType<?>> mapDataTypes = new HashMap<Identifier, DataType<?>>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final DataTypeFactory dataTypeFactory;
+
+    private static class Entry {
+        private final byte[] hash;
+        private final int offset;
+        private final int length;
+
+        Entry(byte[] hashIn, int offsetIn, int lengthIn) {
+            this.hash = hashIn;
+            this.offset = offsetIn;
+            this.length = lengthIn;
+        }
+    }
+
+    public PolicySnapshotWriter() throws PolicySnapshotException {
+        try {
+            this.dataTypeFactory = DataTypeFactory.newInstance();
+        } catch (FactoryException ex) {
+            throw new PolicySnapshotException("Failed to get DataTypeFactory", ex);
+        }
+    }
+
+    /**
+     * Encodes the given <code>PolicyDef</code> and adds it to this snapshot under the given id.
+     *
+     * @param id the <code>String</code> id of the entry, usually the absolute path of the policy file
+     * @param hash the hash of the policy document as computed by {@link PolicySnapshot#hash(java.io.File)}
+     * @param policyDef the <code>PolicyDef</code> parsed from the policy document
+     * @throws PolicySnapshotException if the <code>PolicyDef</code> cannot be represented in a snapshot
+     */
+    public void add(String id, byte[] hash, PolicyDef policyDef) throws PolicySnapshotException {
+        if (id == null || policyDef == null) {
+            throw new PolicySnapshotException("Null id or PolicyDef");
+        }
+        if (hash == null || hash.length != PolicySnapshot.HASH_LENGTH) {
+            throw new PolicySnapshotException("Invalid hash for " + id);
+        }
+        if (this.mapEntries.containsKey(id)) {
+            throw new PolicySnapshotException("Duplicate entry " + id);
+        }
+        /*
+         * Encode into a scratch buffer first so that a failure part way through does not leave a partial
+         * entry or unused strings behind.
+         */
+        int stringCount = this.listStrings.size();
+        ByteArrayOutputStream entryData = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(entryData);
+            this.writePolicyDef(out, policyDef, null);
+            out.flush();
+        } catch (IOException ex) {
+            this.truncateStrings(stringCount);
+            throw new PolicySnapshotException("Failed to encode " + id, ex);
+        } catch (PolicySnapshotException ex) {
+            this.truncateStrings(stringCount);
+            throw new PolicySnapshotException("Cannot encode " + id + ": " + ex.getMessage(), ex);
+        }
+        this.getStringIndex(id);
+        this.mapEntries.put(id, new Entry(hash.clone(), this.data.size(), entryData.size()));
+        this.data.write(entryData.toByteArray(), 0, entryData.size());
+    }
+
+    /**
+     * Gets the number of entries added to this <code>PolicySnapshotWriter</code>.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.mapEntries.size();
+    }
+
+    /**
+     * Writes the snapshot to the given <code>Path</code>. The snapshot is written to a temporary file first and
+     * then moved into place so that readers never see a partially written snapshot.
+     *
+     * @param path the <code>Path</code> of the snapshot file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Path pathParent = path.toAbsolutePath().getParent();
+        Path pathTemp = Files.createTempFile(pathParent, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(pathTemp)) {
+                this.write(os);
+            }
+            Files.move(pathTemp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(pathTemp);
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given <code>OutputStream</code>.
+     *
+     * @param outputStream the <code>OutputStream</code> to write to
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(PolicySnapshot.MAGIC);
+        out.writeInt(PolicySnapshot.FORMAT_VERSION);
+        out.writeInt(this.listStrings.size());
+        for (String string : this.listStrings) {
+            if (string == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = string.getBytes(PolicySnapshot.UTF8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        out.writeInt(this.mapEntries.size());
+        for (Map.Entry<String, Entry> mapEntry : this.mapEntries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            out.writeInt(this.mapStrings.get(mapEntry.getKey()));
+            out.write(entry.hash);
+            out.writeInt(entry.offset);
+            out.writeInt(entry.length);
+        }
+        this.data.writeTo(out);
+        out.flush();
+    }
+
+    private void truncateStrings(int stringCount) {
+        while (this.listStrings.size() > stringCount) {
+            this.mapStrings.remove(this.listStrings.remove(this.listStrings.size() - 1));
+        }
+    }
+
+    private int getStringIndex(String string) {
+        Integer index = this.mapStrings.get(string);
+        if (index == null) {
+            index = this.listStrings.size();
+            this.mapStrings.put(string, index);
+            this.listStrings.add(string);
+        }
+        return index;
+    }
+
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeInt(this.getStringIndex(string));
+    }
+
+    private void writeIdentifier(DataOutputStream out, Identifier identifier) throws IOException {
+        this.writeString(out, identifier == null ? null : identifier.stringValue());
+    }
+
+    private void writeRuleEffect(DataOutputStream out, RuleEffect ruleEffect) throws IOException {
+        this.writeString(out, ruleEffect == null ? null : ruleEffect.name());
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean b) throws IOException {
+        out.writeByte(b == null ? -1 : b ? 1 : 0);
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        if (iterator == null || !iterator.hasNext()) {
+            return Collections.emptyList();
+        }
+        List<T> list = new ArrayList<T>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    private static void checkStatus(StatusCode statusCode, String statusMessage, String elementName)
+        throws PolicySnapshotException {
+        if (statusCode != null && !StdStatusCode.STATUS_CODE_OK.equals(statusCode)) {
+            throw new PolicySnapshotException(elementName + " has status " + statusCode
+                                              + (statusMessage == null ? "" : " " + statusMessage));
+        }
+    }
+
+    private void writePolicyDef(DataOutputStream out, PolicyDef policyDef, PolicyDefaults policyDefaultsParent)
+        throws IOException, PolicySnapshotException {
+        checkStatus(policyDef.getStatusCode(), policyDef.getStatusMessage(), "PolicyDef");
+        out.writeByte(policyDef instanceof Policy ? PolicySnapshot.TAG_POLICY : PolicySnapshot.TAG_POLICYSET);
+        this.writeIdentifier(out, policyDef.getIdentifier());
+        Version version = policyDef.getVersion();
+        this.writeString(out, version == null ? null : version.stringValue());
+        this.writeString(out, policyDef.getDescription());
+        this.writePolicyIssuer(out, policyDef.getPolicyIssuer());
+        PolicyDefaults policyDefaults = policyDef.getPolicyDefaults();
+        if (policyDefaults == null || policyDefaults == policyDefaultsParent) {
+            out.writeBoolean(false);
+        } else {
+            if (policyDefaults.getPolicyDefaultsParent() != policyDefaultsParent) {
+                throw new PolicySnapshotException("PolicyDefaults with an unexpected parent");
+            }
+            out.writeBoolean(true);
+            this.writeString(out, policyDefaults.getXPathVersion() == null ? null : policyDefaults
+                .getXPathVersion().toString());
+        }
+        this.writeTarget(out, policyDef.getTarget());
+        this.writeCombinerParameters(out, toList(policyDef.getCombinerParameters()));
+        Integer maxDelegationDepth = policyDef.getMaxDelegationDepth();
+        out.writeBoolean(maxDelegationDepth != null);
+        if (maxDelegationDepth != null) {
+            out.writeInt(maxDelegationDepth);
+        }
+        this.writeObligationExpressions(out, toList(policyDef.getObligationExpressions()));
+        this.writeAdviceExpressions(out, toList(policyDef.getAdviceExpressions()));
+        if (policyDef instanceof Policy) {
+            this.writePolicyBody(out, (Policy)policyDef);
+        } else {
+            this.writePolicySetBody(out, (PolicySet)policyDef);
+        }
+    }
+
+    private void writePolicyBody(DataOutputStream out, Policy policy) throws IOException,
+        PolicySnapshotException {
+        CombiningAlgorithm<Rule> combiningAlgorithm = policy.getRuleCombiningAlgorithm();
+        this.writeIdentifier(out, combiningAlgorithm == null ? null : combiningAlgorithm.getId());
+
+        List<TargetedCombinerParameter<String, Rule>> listRuleCombinerParameters = toList(policy
+            .getRuleCombinerParameters());
+        out.writeInt(listRuleCombinerParameters.size());
+        for (TargetedCombinerParameter<String, Rule> ruleCombinerParameter : listRuleCombinerParameters) {
+            checkStatus(ruleCombinerParameter.getStatusCode(), ruleCombinerParameter.getStatusMessage(),
+                        "RuleCombinerParameter");
+            this.writeString(out, ruleCombinerParameter.getTargetId());
+            this.writeString(out, ruleCombinerParameter.getName());
+            this.writeAttributeValue(out, ruleCombinerParameter.getAttributeValue());
+        }
+
+        List<VariableDefinition> listVariableDefinitions = toList(policy.getVariableDefinitions());
+        out.writeInt(listVariableDefinitions.size());
+        for (VariableDefinition variableDefinition : listVariableDefinitions) {
+            checkStatus(variableDefinition.getStatusCode(), variableDefinition.getStatusMessage(),
+                        "VariableDefinition");
+            this.writeString(out, variableDefinition.getId());
+            this.writeExpression(out, variableDefinition.getExpression());
+        }
+
+        List<Rule> listRules = toList(policy.getRules());
+        out.writeInt(listRules.size());
+        for (Rule rule : listRules) {
+            this.writeRule(out, rule);
+        }
+    }
+
+    private void writePolicySetBody(DataOutputStream out, PolicySet policySet) throws IOException,
+        PolicySnapshotException {
+        CombiningAlgorithm<PolicySetChild> combiningAlgorithm = policySet.getPolicyCombiningAlgorithm();
+        this.writeIdentifier(out, combiningAlgorithm == null ? null : combiningAlgorithm.getId());
+
+        List<TargetedCombinerParameter<Identifier, PolicySetChild>> listPolicyCombinerParameters = toList(policySet
+            .getPolicyCombinerParameters());
+        out.writeInt(listPolicyCombinerParameters.size());
+        for (TargetedCombinerParameter<Identifier, PolicySetChild> policyCombinerParameter : listPolicyCombinerParameters) {
+            checkStatus(policyCombinerParameter.getStatusCode(), policyCombinerParameter.getStatusMessage(),
+                        "PolicyCombinerParameter");
+            this.writeIdentifier(out, policyCombinerParameter.getTargetId());
+            this.writeString(out, policyCombinerParameter.getName());
+            this.writeAttributeValue(out, policyCombinerParameter.getAttributeValue());
+        }
+
+        List<PolicySetChild> listChildren = toList(policySet.getChildren());
+        out.writeInt(listChildren.size());
+        for (PolicySetChild policySetChild : listChildren) {
+            if (policySetChild instanceof PolicyDef) {
+                this.writePolicyDef(out, (PolicyDef)policySetChild, policySet.getPolicyDefaults());
+            } else if (policySetChild instanceof PolicyIdReference) {
+                out.writeByte(PolicySnapshot.TAG_POLICYIDREFERENCE);
+                this.writeIdReference(out, (PolicyIdReference)policySetChild);
+            } else if (policySetChild instanceof PolicySetIdReference) {
+                out.writeByte(PolicySnapshot.TAG_POLICYSETIDREFERENCE);
+                this.writeIdReference(out, (PolicySetIdReference)policySetChild);
+            } else {
+                throw new PolicySnapshotException("Unsupported PolicySet child "
+                                                  + policySetChild.getClass().getName());
+            }
+        }
+    }
+
+    private void writeIdReference(DataOutputStream out, PolicyIdReferenceBase<?> policyIdReference)
+        throws IOException, PolicySnapshotException {
+        checkStatus(policyIdReference.getStatusCode(), policyIdReference.getStatusMessage(), "IdReference");
+        IdReferenceMatch idReferenceMatch = policyIdReference.getIdReferenceMatch();
+        if (idReferenceMatch == null) {
+            throw new PolicySnapshotException("IdReference without an IdReferenceMatch");
+        }
+        this.writeIdentifier(out, idReferenceMatch.getId());
+        this.writeVersionMatch(out, idReferenceMatch.getVersion());
+        this.writeVersionMatch(out, idReferenceMatch.getEarliestVersion());
+        this.writeVersionMatch(out, idReferenceMatch.getLatestVersion());
+    }
+
+    private void writeVersionMatch(DataOutputStream out, VersionMatch versionMatch) throws IOException {
+        this.writeString(out, versionMatch == null ? null : versionMatch.getVersionMatch());
+    }
+
+    private void writePolicyIssuer(DataOutputStream out, PolicyIssuer policyIssuer) throws IOException,
+        PolicySnapshotException {
+        out.writeBoolean(policyIssuer != null);
+        if (policyIssuer == null) {
+            return;
+        }
+        checkStatus(policyIssuer.getStatusCode(), policyIssuer.getStatusMessage(), "PolicyIssuer");
+        if (policyIssuer.getContent() != null) {
+            throw new PolicySnapshotException("PolicyIssuer Content is not supported");
+        }
+        List<Attribute> listAttributes = toList(policyIssuer.getAttributes());
+        out.writeInt(listAttributes.size());
+        for (Attribute attribute : listAttributes) {
+            this.writeIdentifier(out, attribute.getCategory());
+            this.writeIdentifier(out, attribute.getAttributeId());
+            this.writeString(out, attribute.getIssuer());
+            out.writeBoolean(attribute.getIncludeInResults());
+            Collection<AttributeValue<?>> attributeValues = attribute.getValues();
+            out.writeInt(attributeValues == null ? 0 : attributeValues.size());
+            if (attributeValues != null) {
+                for (AttributeValue<?> attributeValue : attributeValues) {
+                    this.writeAttributeValue(out, attributeValue);
+                }
+            }
+        }
+    }
+
+    private void writeTarget(DataOutputStream out, Target target) throws IOException,
+        PolicySnapshotException {
+        out.writeBoolean(target != null);
+        if (target == null) {
+            return;
+        }
+        checkStatus(target.getStatusCode(), target.getStatusMessage(), "Target");
+        List<AnyOf> listAnyOfs = toList(target.getAnyOfs());
+        out.writeInt(listAnyOfs.size());
+        for (AnyOf anyOf : listAnyOfs) {
+            checkStatus(anyOf.getStatusCode(), anyOf.getStatusMessage(), "AnyOf");
+            List<AllOf> listAllOfs = toList(anyOf.getAllOfs());
+            out.writeInt(listAllOfs.size());
+            for (AllOf allOf : listAllOfs) {
+                checkStatus(allOf.getStatusCode(), allOf.getStatusMessage(), "AllOf");
+                List<Match> listMatches = toList(allOf.getMatches());
+                out.writeInt(listMatches.size());
+                for (Match match : listMatches) {
+                    this.writeMatch(out, match);
+                }
+            }
+        }
+    }
+
+    private void writeMatch(DataOutputStream out, Match match) throws IOException, PolicySnapshotException {
+        checkStatus(match.getStatusCode(), match.getStatusMessage(), "Match");
+        if (match.getPolicyDefaults() != null) {
+            throw new PolicySnapshotException("Match with PolicyDefaults is not supported");
+        }
+        this.writeIdentifier(out, match.getMatchId());
+        this.writeAttributeValue(out, match.getAttributeValue());
+        AttributeRetrievalBase attributeRetrievalBase = match.getAttributeRetrievalBase();
+        if (attributeRetrievalBase == null) {
+            out.writeByte(PolicySnapshot.TAG_NULL);
+        } else {
+            this.writeExpression(out, attributeRetrievalBase);
+        }
+    }
+
+    private void writeRule(DataOutputStream out, Rule rule) throws IOException, PolicySnapshotException {
+        checkStatus(rule.getStatusCode(), rule.getStatusMessage(), "Rule");
+        this.writeString(out, rule.getRuleId());
+        this.writeRuleEffect(out, rule.getRuleEffect());
+        this.writeString(out, rule.getDescription());
+        this.writeTarget(out, rule.getTarget());
+        Condition condition = rule.getCondition();
+        out.writeBoolean(condition != null);
+        if (condition != null) {
+            checkStatus(condition.getStatusCode(), condition.getStatusMessage(), "Condition");
+            this.writeExpression(out, condition.getExpression());
+        }
+        this.writeObligationExpressions(out, toList(rule.getObligationExpressions()));
+        this.writeAdviceExpressions(out, toList(rule.getAdviceExpressions()));
+    }
+
+    private void writeCombinerParameters(DataOutputStream out, List<CombinerParameter> listCombinerParameters)
+        throws IOException, PolicySnapshotException {
+        out.writeInt(listCombinerParameters.size());
+        for (CombinerParameter combinerParameter : listCombinerParameters) {
+            checkStatus(combinerParameter.getStatusCode(), combinerParameter.getStatusMessage(),
+                        "CombinerParameter");
+            this.writeString(out, combinerParameter.getName());
+            this.writeAttributeValue(out, combinerParameter.getAttributeValue());
+        }
+    }
+
+    private void writeObligationExpressions(DataOutputStream out,
+                                            List<ObligationExpression> listObligationExpressions)
+        throws IOException, PolicySnapshotException {
+        out.writeInt(listObligationExpressions.size());
+        for (ObligationExpression obligationExpression : listObligationExpressions) {
+            checkStatus(obligationExpression.getStatusCode(), obligationExpression.getStatusMessage(),
+                        "ObligationExpression");
+            this.writeIdentifier(out, obligationExpression.getObligationId());
+            this.writeRuleEffect(out, obligationExpression.getRuleEffect());
+            this.writeAttributeAssignmentExpressions(out, toList(obligationExpression
+                .getAttributeAssignmentExpressions()));
+        }
+    }
+
+    private void writeAdviceExpressions(DataOutputStream out, List<AdviceExpression> listAdviceExpressions)
+        throws IOException, PolicySnapshotException {
+        out.writeInt(listAdviceExpressions.size());
+        for (AdviceExpression adviceExpression : listAdviceExpressions) {
+            checkStatus(adviceExpression.getStatusCode(), adviceExpression.getStatusMessage(),
+                        "AdviceExpression");
+            this.writeIdentifier(out, adviceExpression.getAdviceId());
+            this.writeRuleEffect(out, adviceExpression.getAppliesTo());
+            this.writeAttributeAssignmentExpressions(out, toList(adviceExpression
+                .getAttributeAssignmentExpressions()));
+        }
+    }
+
+    private void writeAttributeAssignmentExpressions(DataOutputStream out,
+                                                     List<AttributeAssignmentExpression> listAttributeAssignmentExpressions)
+        throws IOException, PolicySnapshotException {
+        out.writeInt(listAttributeAssignmentExpressions.size());
+        for (AttributeAssignmentExpression attributeAssignmentExpression : listAttributeAssignmentExpressions) {
+            checkStatus(attributeAssignmentExpression.getStatusCode(),
+                        attributeAssignmentExpression.getStatusMessage(), "AttributeAssignmentExpression");
+            this.writeIdentifier(out, attributeAssignmentExpression.getCategory());
+            this.writeIdentifier(out, attributeAssignmentExpression.getAttributeId());
+            this.writeString(out, attributeAssignmentExpression.getIssuer());
+            this.writeExpression(out, attributeAssignmentExpression.getExpression());
+        }
+    }
+
+    private void writeExpression(DataOutputStream out, Expression expression) throws IOException,
+        PolicySnapshotException {
+        if (expression == null) {
+            out.writeByte(PolicySnapshot.TAG_NULL);
+            return;
+        }
+        checkStatus(expression.getStatusCode(), expression.getStatusMessage(), "Expression");
+        if (expression instanceof Apply) {
+            Apply apply = (Apply)expression;
+            out.writeByte(PolicySnapshot.TAG_APPLY);
+            this.writeIdentifier(out, apply.getFunctionId());
+            this.writeString(out, apply.getDescription());
+            List<Expression> listArguments = toList(apply.getArguments());
+            out.writeInt(listArguments.size());
+            for (Expression argument : listArguments) {
+                this.writeExpression(out, argument);
+            }
+        } else if (expression instanceof AttributeDesignator) {
+            AttributeDesignator attributeDesignator = (AttributeDesignator)expression;
+            out.writeByte(PolicySnapshot.TAG_ATTRIBUTEDESIGNATOR);
+            this.writeAttributeRetrievalBase(out, attributeDesignator);
+            this.writeIdentifier(out, attributeDesignator.getAttributeId());
+            this.writeString(out, attributeDesignator.getIssuer());
+        } else if (expression instanceof AttributeSelector) {
+            AttributeSelector attributeSelector = (AttributeSelector)expression;
+            out.writeByte(PolicySnapshot.TAG_ATTRIBUTESELECTOR);
+            this.writeAttributeRetrievalBase(out, attributeSelector);
+            this.writeIdentifier(out, attributeSelector.getContextSelectorId());
+            this.writeString(out, attributeSelector.getPath());
+        } else if (expression instanceof AttributeValueExpression) {
+            out.writeByte(PolicySnapshot.TAG_ATTRIBUTEVALUE);
+            this.writeAttributeValue(out, ((AttributeValueExpression)expression).getAttributeValue());
+        } else if (expression instanceof Function) {
+            out.writeByte(PolicySnapshot.TAG_FUNCTION);
+            this.writeIdentifier(out, ((Function)expression).getFunctionId());
+        } else if (expression instanceof VariableReference) {
+            out.writeByte(PolicySnapshot.TAG_VARIABLEREFERENCE);
+            this.writeString(out, ((VariableReference)expression).getVariableId());
+        } else {
+            throw new PolicySnapshotException("Unsupported Expression " + expression.getClass().getName());
+        }
+    }
+
+    private void writeAttributeRetrievalBase(DataOutputStream out, AttributeRetrievalBase attributeRetrievalBase)
+        throws IOException {
+        this.writeIdentifier(out, attributeRetrievalBase.getCategory());
+        this.writeIdentifier(out, attributeRetrievalBase.getDataTypeId());
+        writeBoolean(out, attributeRetrievalBase.getMustBePresent());
+    }
+
+    /**
+     * Attribute values are stored as their data type and either a binary form (see
+     * {@link PolicySnapshot}) or their XACML string form. A value is only written in string form if
+     * converting the string back yields an equal value.
+     */
+    private void writeAttributeValue(DataOutputStream out, AttributeValue<?> attributeValue)
+        throws IOException, PolicySnapshotException {
+        out.writeBoolean(attributeValue != null);
+        if (attributeValue == null) {
+            return;
+        }
+        Identifier dataTypeId = attributeValue.getDataTypeId();
+        if (dataTypeId == null || XACML3.ID_DATATYPE_XPATHEXPRESSION.equals(dataTypeId)
+            || attributeValue.getXPathCategory() != null) {
+            throw new PolicySnapshotException("AttributeValue of type " + dataTypeId + " is not supported");
+        }
+        DataType<?> dataType = this.mapDataTypes.get(dataTypeId);
+        if (dataType == null) {
+            dataType = this.dataTypeFactory.getDataType(dataTypeId);
+            if (dataType == null) {
+                throw new PolicySnapshotException("Unknown data type " + dataTypeId);
+            }
+            this.mapDataTypes.put(dataTypeId, dataType);
+        }
+        Object value = attributeValue.getValue();
+        byte encoding = getEncoding(dataTypeId, value);
+        String stringValue = null;
+        if (encoding == PolicySnapshot.VALUE_STRINGFORM) {
+            try {
+                stringValue = toStringValue(dataType, value);
+                if (!attributeValue.equals(dataType.createAttributeValue(stringValue))) {
+                    throw new PolicySnapshotException("AttributeValue " + stringValue + " of type " + dataTypeId
+                                                      + " does not round trip");
+                }
+            } catch (DataTypeException ex) {
+                throw new PolicySnapshotException("Cannot convert AttributeValue of type " + dataTypeId, ex);
+            }
+        }
+        this.writeIdentifier(out, dataTypeId);
+        out.writeByte(encoding);
+        switch (encoding) {
+        case PolicySnapshot.VALUE_STRING:
+            this.writeString(out, (String)value);
+            break;
+        case PolicySnapshot.VALUE_INTEGER:
+            byte[] bytes = ((BigInteger)value).toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            break;
+        case PolicySnapshot.VALUE_DOUBLE:
+            out.writeDouble((Double)value);
+            break;
+        case PolicySnapshot.VALUE_BOOLEAN:
+            writeBoolean(out, (Boolean)value);
+            break;
+        case PolicySnapshot.VALUE_DATETIME:
+            ISO8601DateTime dateTime = (ISO8601DateTime)value;
+            this.writeString(out, getTimeZoneId(dateTime));
+            out.writeInt(dateTime.getYear());
+            out.writeByte(dateTime.getMonth());
+            out.writeByte(dateTime.getDay());
+            out.writeByte(dateTime.getHour());
+            out.writeByte(dateTime.getMinute());
+            out.writeByte(dateTime.getSecond());
+            out.writeShort(dateTime.getMillisecond());
+            break;
+        default:
+            this.writeString(out, stringValue);
+            break;
+        }
+    }
+
+    /**
+     * Gets the encoding of a literal value: its binary form if it has one of the common data types and
+     * decoding it yields an equal value, otherwise its string form.
+     */
+    private static byte getEncoding(Identifier dataTypeId, Object value) {
+        if (XACML3.ID_DATATYPE_STRING.equals(dataTypeId) && value instanceof String) {
+            return PolicySnapshot.VALUE_STRING;
+        } else if (XACML3.ID_DATATYPE_INTEGER.equals(dataTypeId) && value instanceof BigInteger) {
+            return PolicySnapshot.VALUE_INTEGER;
+        } else if (XACML3.ID_DATATYPE_DOUBLE.equals(dataTypeId) && value instanceof Double) {
+            return PolicySnapshot.VALUE_DOUBLE;
+        } else if (XACML3.ID_DATATYPE_BOOLEAN.equals(dataTypeId) && value instanceof Boolean) {
+            return PolicySnapshot.VALUE_BOOLEAN;
+        } else if (XACML3.ID_DATATYPE_DATETIME.equals(dataTypeId) && value instanceof ISO8601DateTime) {
+            ISO8601DateTime dateTime = (ISO8601DateTime)value;
+            try {
+                if (dateTime.equals(PolicySnapshot.newDateTime(getTimeZoneId(dateTime), dateTime.getYear(),
+                                                               dateTime.getMonth(), dateTime.getDay(),
+                                                               dateTime.getHour(), dateTime.getMinute(),
+                                                               dateTime.getSecond(),
+                                                               dateTime.getMillisecond()))) {
+                    return PolicySnapshot.VALUE_DATETIME;
+                }
+            } catch (IllegalArgumentException ex) { //NOPMD
+                // stored in string form
+            }
+        }
+        return PolicySnapshot.VALUE_STRINGFORM;
+    }
+
+    private static String getTimeZoneId(ISO8601DateTime dateTime) {
+        return dateTime.getHasTimeZone() ? dateTime.getCalendar().getTimeZone().getID() : null;
+    }
+
+    private static <T> String toStringValue(DataType<T> dataType, Object value) throws DataTypeException {
+        return dataType.toStringValue(dataType.convert(value));
+    }
+}
@@ -95,7 +95,7 @@ public class DOMAdviceExpression extends AdviceExpression {
 
             domAdviceExpression.setAdviceId(DOMUtil.getIdentifierAttribute(elementAdviceExpression,
                                                                            XACML3.ATTRIBUTE_ADVICEID,
-                                                                           !bLenient));
+                                                                           !bLenient, true));
 
             String string = DOMUtil.getStringAttribute(elementAdviceExpression, XACML3.ATTRIBUTE_APPLIESTO,
                                                        !bLenient);
@@ -89,7 +89,7 @@ public class DOMApply extends Apply {
             }
 
             domApply.setFunctionId(DOMUtil.getIdentifierAttribute(elementApply, XACML3.ATTRIBUTE_FUNCTIONID,
-                                                                  !bLenient));
+                                                                  !bLenient, true));
         } catch (DOMStructureException ex) {
             domApply.setStatus(StdStatusCode.STATUS_CODE_SYNTAX_ERROR, ex.getMessage());
             if (DOMProperties.throwsExceptions()) {
@@ -86,7 +86,7 @@ public class DOMAttributeAssignmentExpression extends AttributeAssignmentExpress
                 .getIdentifierAttribute(elementAttributeAssignmentExpression, XACML3.ATTRIBUTE_ATTRIBUTEID,
                                         !bLenient));
             if ((identifier = DOMUtil.getIdentifierAttribute(elementAttributeAssignmentExpression,
-                                                             XACML3.ATTRIBUTE_CATEGORY)) != null) {
+                                                             XACML3.ATTRIBUTE_CATEGORY, false, true)) != null) {
                 domAttributeAssignmentExpression.setCategory(identifier);
             }
 
@@ -116,7 +116,7 @@ public class DOMAttributeAssignmentExpression extends AttributeAssignmentExpress
              * DataType="">string</AttributeAssignmentExpression> pattern
              */
             Identifier identifier = DOMUtil.getIdentifierAttribute(elementAttributeAssignmentExpression,
-                                                                   XACML3.ATTRIBUTE_DATATYPE);
+                                                                   XACML3.ATTRIBUTE_DATATYPE, false, true);
             String textContent = elementAttributeAssignmentExpression.getTextContent();
             if (textContent != null) {
                 textContent = textContent.trim();
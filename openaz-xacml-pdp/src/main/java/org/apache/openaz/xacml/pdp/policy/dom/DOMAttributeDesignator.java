@@ -68,12 +68,12 @@ public class DOMAttributeDesignator extends AttributeDesignator {
         try {
             domAttributeDesignator.setCategory(DOMUtil.getIdentifierAttribute(elementAttributeDesignator,
                                                                               XACML3.ATTRIBUTE_CATEGORY,
-                                                                              !bLenient));
+                                                                              !bLenient, true));
             domAttributeDesignator.setAttributeId(DOMUtil
                 .getIdentifierAttribute(elementAttributeDesignator, XACML3.ATTRIBUTE_ATTRIBUTEID, !bLenient));
             domAttributeDesignator.setDataTypeId(DOMUtil.getIdentifierAttribute(elementAttributeDesignator,
                                                                                 XACML3.ATTRIBUTE_DATATYPE,
-                                                                                !bLenient));
+                                                                                !bLenient, true));
 
             String string;
             if ((string = DOMUtil.getStringAttribute(elementAttributeDesignator, XACML3.ATTRIBUTE_ISSUER)) != null) {
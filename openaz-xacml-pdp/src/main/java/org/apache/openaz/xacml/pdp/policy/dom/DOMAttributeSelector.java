@@ -69,11 +69,11 @@ public class DOMAttributeSelector extends AttributeSelector {
         try {
             domAttributeSelector.setCategory(DOMUtil.getIdentifierAttribute(elementAttributeSelector,
                                                                             XACML3.ATTRIBUTE_CATEGORY,
-                                                                            !bLenient));
+                                                                            !bLenient, true));
 
             Identifier identifier;
             if ((identifier = DOMUtil.getIdentifierAttribute(elementAttributeSelector,
-                                                             XACML3.ATTRIBUTE_CONTEXTSELECTORID)) != null) {
+                                                             XACML3.ATTRIBUTE_CONTEXTSELECTORID, false, true)) != null) {
                 domAttributeSelector.setContextSelectorId(identifier);
             }
 
@@ -81,7 +81,7 @@ public class DOMAttributeSelector extends AttributeSelector {
                                                                     XACML3.ATTRIBUTE_PATH, !bLenient));
             domAttributeSelector.setDataTypeId(DOMUtil.getIdentifierAttribute(elementAttributeSelector,
                                                                               XACML3.ATTRIBUTE_DATATYPE,
-                                                                              !bLenient));
+                                                                              !bLenient, true));
             Boolean mustBePresent = DOMUtil.getBooleanAttribute(elementAttributeSelector,
                                                                 XACML3.ATTRIBUTE_MUSTBEPRESENT, !bLenient);
             if (mustBePresent != null) {
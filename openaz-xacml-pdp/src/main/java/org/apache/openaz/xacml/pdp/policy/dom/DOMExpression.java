@@ -96,7 +96,7 @@ public abstract class DOMExpression extends Expression {
                 return new AttributeValueExpression(attributeValue);
             } else if (elementExpression.getLocalName().equals(XACML3.ELEMENT_FUNCTION)) {
                 return new Function(DOMUtil.getIdentifierAttribute(elementExpression,
-                                                                   XACML3.ATTRIBUTE_FUNCTIONID));
+                                                                   XACML3.ATTRIBUTE_FUNCTIONID, false, true));
             } else if (elementExpression.getLocalName().equals(XACML3.ELEMENT_VARIABLEREFERENCE)) {
                 return new VariableReference(policy, DOMUtil.getStringAttribute(elementExpression,
                                                                                 XACML3.ATTRIBUTE_VARIABLEID));
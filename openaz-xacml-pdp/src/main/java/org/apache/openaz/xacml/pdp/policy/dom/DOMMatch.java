@@ -112,7 +112,7 @@ public class DOMMatch extends Match {
             }
 
             domMatch.setMatchId(DOMUtil.getIdentifierAttribute(elementMatch, XACML3.ATTRIBUTE_MATCHID,
-                                                               !bLenient));
+                                                               !bLenient, true));
 
         } catch (DOMStructureException ex) {
             domMatch.setStatus(StdStatusCode.STATUS_CODE_SYNTAX_ERROR, ex.getMessage());
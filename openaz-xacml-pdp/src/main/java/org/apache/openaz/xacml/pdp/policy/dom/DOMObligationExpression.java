@@ -96,7 +96,7 @@ public class DOMObligationExpression extends ObligationExpression {
 
             domObligationExpression
                 .setObligationId(DOMUtil.getIdentifierAttribute(elementObligationExpression,
-                                                                XACML3.ATTRIBUTE_OBLIGATIONID, !bLenient));
+                                                                XACML3.ATTRIBUTE_OBLIGATIONID, !bLenient, true));
 
             String string = DOMUtil.getStringAttribute(elementObligationExpression,
                                                        XACML3.ATTRIBUTE_FULFILLON, !bLenient);
@@ -162,12 +162,12 @@ public class DOMPolicy {
                 }
             }
             domPolicy.setIdentifier(DOMUtil.getIdentifierAttribute(elementPolicy, XACML3.ATTRIBUTE_POLICYID,
-                                                                   !bLenient));
+                                                                   !bLenient, true));
             domPolicy.setVersion(DOMUtil.getVersionAttribute(elementPolicy, XACML3.ATTRIBUTE_VERSION,
                                                              !bLenient));
 
             identifier = DOMUtil.getIdentifierAttribute(elementPolicy, XACML3.ATTRIBUTE_RULECOMBININGALGID,
-                                                        !bLenient);
+                                                        !bLenient, true);
             CombiningAlgorithm<Rule> combiningAlgorithmRule = null;
             try {
                 combiningAlgorithmRule = CombiningAlgorithmFactory.newInstance()
@@ -292,7 +292,7 @@ public class DOMPolicy {
                                                    XACML3.ID_RULE_DENY_OVERRIDES, logger) || result;
 
         Identifier identifier = DOMUtil.getIdentifierAttribute(elementPolicy,
-                                                               XACML3.ATTRIBUTE_RULECOMBININGALGID);
+                                                               XACML3.ATTRIBUTE_RULECOMBININGALGID, false, true);
         CombiningAlgorithm<Rule> combiningAlgorithmRule = null;
         try {
             combiningAlgorithmRule = CombiningAlgorithmFactory.newInstance()
@@ -187,7 +187,7 @@ public class DOMPolicySet {
                                                                 !bLenient));
 
             identifier = DOMUtil.getIdentifierAttribute(elementPolicySet,
-                                                        XACML3.ATTRIBUTE_POLICYCOMBININGALGID, !bLenient);
+                                                        XACML3.ATTRIBUTE_POLICYCOMBININGALGID, !bLenient, true);
             CombiningAlgorithm<PolicySetChild> combiningAlgorithm = null;
             try {
                 combiningAlgorithm = CombiningAlgorithmFactory.newInstance()
@@ -334,7 +334,7 @@ public class DOMPolicySet {
                                                    XACML3.ID_POLICY_DENY_OVERRIDES, logger) || result;
 
         Identifier identifier = DOMUtil.getIdentifierAttribute(elementPolicySet,
-                                                               XACML3.ATTRIBUTE_POLICYCOMBININGALGID);
+                                                               XACML3.ATTRIBUTE_POLICYCOMBININGALGID, false, true);
         CombiningAlgorithm<PolicySetChild> combiningAlgorithm = null;
         try {
             combiningAlgorithm = CombiningAlgorithmFactory.newInstance()
@@ -43,8 +43,10 @@ import org.apache.openaz.xacml.pdp.policy.Expression;
 import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
 import org.apache.openaz.xacml.pdp.policy.FunctionArgument;
 import org.apache.openaz.xacml.pdp.policy.FunctionArgumentExpression;
+import org.apache.openaz.xacml.pdp.policy.FunctionArgumentPool;
 import org.apache.openaz.xacml.pdp.policy.FunctionDefinition;
 import org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFactory;
+import org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFixedArity;
 import org.apache.openaz.xacml.pdp.policy.PolicyDefaults;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
@@ -164,17 +166,43 @@ public class Apply extends Expression {
         }
 
         /*
-         * Get all of the arguments and convert them into FunctionArgument objects.
+         * Fixed arity functions get their arguments from the pool of the EvaluationContext.
          */
-        List<FunctionArgument> listFunctionArguments = new ArrayList<FunctionArgument>();
-        Iterator<Expression> iterExpressionArguments = this.getArguments();
-        if (iterExpressionArguments != null) {
-            while (iterExpressionArguments.hasNext()) {
-                listFunctionArguments.add(new FunctionArgumentExpression(iterExpressionArguments.next(),
-                                                                         evaluationContext, policyDefaults));
+        List<Expression> listExpressionArguments = this.getArgumentList();
+        if (thisFunctionDefinition instanceof FunctionDefinitionFixedArity) {
+            FunctionDefinitionFixedArity functionDefinitionFixedArity =
+                (FunctionDefinitionFixedArity)thisFunctionDefinition;
+            int arity = functionDefinitionFixedArity.getArity();
+            FunctionArgumentPool functionArgumentPool = evaluationContext.getFunctionArgumentPool();
+            if ((arity == 1 || arity == 2) && arity == listExpressionArguments.size()
+                && functionArgumentPool != null) {
+                int mark = functionArgumentPool.mark();
+                try {
+                    FunctionArgument argument0 = functionArgumentPool.acquire(listExpressionArguments.get(0),
+                                                                              evaluationContext,
+                                                                              policyDefaults);
+                    FunctionArgument argument1 = null;
+                    if (arity == 2) {
+                        argument1 = functionArgumentPool.acquire(listExpressionArguments.get(1),
+                                                                 evaluationContext, policyDefaults);
+                    }
+                    return functionDefinitionFixedArity.evaluate(evaluationContext, argument0, argument1);
+                } finally {
+                    functionArgumentPool.release(mark);
+                }
             }
         }
 
+        /*
+         * Get all of the arguments and convert them into FunctionArgument objects.
+         */
+        List<FunctionArgument> listFunctionArguments = new ArrayList<FunctionArgument>(
+            listExpressionArguments.size());
+        for (Expression expression : listExpressionArguments) {
+            listFunctionArguments.add(new FunctionArgumentExpression(expression, evaluationContext,
+                                                                     policyDefaults));
+        }
+
         /*
          * Apply the FunctionDefinition to the arguments
          */
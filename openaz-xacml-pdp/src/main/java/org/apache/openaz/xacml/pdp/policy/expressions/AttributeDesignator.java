@@ -52,6 +52,7 @@ import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.StdStatusDetail;
 import org.apache.openaz.xacml.std.pip.StdPIPRequest;
+import org.apache.openaz.xacml.std.pip.engines.RequestAttributeIndex.IndexedPIPResponse;
 
 /**
  * AttributeDesignator extends {@link org.apache.openaz.xacml.pdp.policy.expression.AttributeRetrievalBase}
@@ -194,6 +195,20 @@ public class AttributeDesignator extends AttributeRetrievalBase {
             return ExpressionResult.newInstance(pipStatus);
         }
 
+        /*
+         * Attributes from the request come from its index already grouped by data type and issuer, so the
+         * bag of their values is built once per decision and shared by every designator that asks for them
+         */
+        if (pipResponse instanceof IndexedPIPResponse) {
+            ExpressionResult expressionResult = evaluationContext.getAttributeBag(pipRequest);
+            if (expressionResult == null) {
+                expressionResult = ExpressionResult.newBag(Bag.newInstance(((IndexedPIPResponse)pipResponse)
+                    .getAttributeValues()));
+                evaluationContext.setAttributeBag(pipRequest, expressionResult);
+            }
+            return expressionResult;
+        }
+
         /*
          * See if there were any results
          */
@@ -119,7 +119,15 @@ public class VariableReference extends Expression implements Traceable {
             return ER_SE_NO_EXPRESSION;
         }
 
-        ExpressionResult result = expression.evaluate(evaluationContext, policyDefaults);
+        /*
+         * A variable evaluates to the same result everywhere it is referenced within one decision, so only the
+         * first reference evaluates the Expression.
+         */
+        ExpressionResult result = evaluationContext.getVariableResult(variableDefinition);
+        if (result == null) {
+            result = expression.evaluate(evaluationContext, policyDefaults);
+            evaluationContext.setVariableResult(variableDefinition, result);
+        }
 
         if (evaluationContext.isTracing()) {
             evaluationContext.trace(new StdTraceEvent<ExpressionResult>("Variable", this, result));
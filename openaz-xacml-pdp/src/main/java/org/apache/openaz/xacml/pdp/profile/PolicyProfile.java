@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.profile;
+
+/**
+ * PolicyProfile is a snapshot of the {@link PolicyProfiler} counters of one PolicySet, Policy or Rule.
+ */
+public class PolicyProfile {
+    private final String type;
+    private final String parentId;
+    private final String id;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+    private final long pipMicros;
+    private final long notApplicable;
+    private final long permit;
+    private final long deny;
+    private final long indeterminate;
+
+    public PolicyProfile(String typeIn, String parentIdIn, String idIn, long countIn, long totalMicrosIn,
+                         long maxMicrosIn, long pipMicrosIn, long notApplicableIn, long permitIn, long denyIn,
+                         long indeterminateIn) {
+        this.type = typeIn;
+        this.parentId = parentIdIn;
+        this.id = idIn;
+        this.count = countIn;
+        this.totalMicros = totalMicrosIn;
+        this.maxMicros = maxMicrosIn;
+        this.pipMicros = pipMicrosIn;
+        this.notApplicable = notApplicableIn;
+        this.permit = permitIn;
+        this.deny = denyIn;
+        this.indeterminate = indeterminateIn;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public String getParentId() {
+        return this.parentId;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getTotalMicros() {
+        return this.totalMicros;
+    }
+
+    public long getMaxMicros() {
+        return this.maxMicros;
+    }
+
+    public long getPipMicros() {
+        return this.pipMicros;
+    }
+
+    public long getNotApplicable() {
+        return this.notApplicable;
+    }
+
+    public long getPermit() {
+        return this.permit;
+    }
+
+    public long getDeny() {
+        return this.deny;
+    }
+
+    public long getIndeterminate() {
+        return this.indeterminate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("{");
+        stringBuilder.append("type=").append(this.type);
+        if (this.parentId != null) {
+            stringBuilder.append(",parentId=").append(this.parentId);
+        }
+        stringBuilder.append(",id=").append(this.id);
+        stringBuilder.append(",count=").append(this.count);
+        stringBuilder.append(",totalMicros=").append(this.totalMicros);
+        stringBuilder.append(",maxMicros=").append(this.maxMicros);
+        stringBuilder.append(",pipMicros=").append(this.pipMicros);
+        stringBuilder.append(",notApplicable=").append(this.notApplicable);
+        stringBuilder.append(",permit=").append(this.permit);
+        stringBuilder.append(",deny=").append(this.deny);
+        stringBuilder.append(",indeterminate=").append(this.indeterminate);
+        stringBuilder.append('}');
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.openaz.xacml.api.Decision;
+import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
+import org.apache.openaz.xacml.util.XACMLProperties;
+
+/**
+ * PolicyProfiler accumulates, for each PolicySet, Policy and Rule, the number of times it was evaluated, the
+ * total and maximum time of its evaluations, the time of those evaluations spent waiting on PIPs, and the
+ * number of each kind of decision it returned. Times include the evaluation of the children of an element.
+ * <p>
+ * The counters of an element are striped by thread and padded to a cache line per stripe, so that
+ * concurrent decisions update them without locks or contention. When the profiler is disabled, which is
+ * the default unless {@link OpenAZPDPProperties#PROP_PROFILER_ENABLED} is true, the policy elements only
+ * check {@link #isEnabled()}.
+ */
+public class PolicyProfiler {
+    private static final int FIELD_COUNT = 0;
+    private static final int FIELD_TOTAL_NANOS = 1;
+    private static final int FIELD_PIP_NANOS = 2;
+    private static final int FIELD_NOTAPPLICABLE = 3;
+    private static final int FIELD_PERMIT = 4;
+    private static final int FIELD_DENY = 5;
+    private static final int FIELD_INDETERMINATE = 6;
+    private static final int FIELD_COUNT_PER_STRIPE = 8;
+
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime()
+        .availableProcessors() * 2 - 1) << 1);
+
+    private static volatile PolicyProfiler policyProfiler;
+
+    private volatile boolean enabled;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ThreadLocal<long[]> pipNanos = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * The counters for one PolicySet, Policy or Rule. Policy elements look their <code>Entry</code> up with
+     * {@link PolicyProfiler#getEntry(String, String, String)} and keep it until it is removed by
+     * {@link PolicyProfiler#prune()}.
+     */
+    public static final class Entry {
+        private final String type;
+        private final String parentId;
+        private final String id;
+        private final AtomicLongArray counters = new AtomicLongArray(STRIPES * FIELD_COUNT_PER_STRIPE);
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile boolean removed;
+
+        Entry(String typeIn, String parentIdIn, String idIn) {
+            this.type = typeIn;
+            this.parentId = parentIdIn;
+            this.id = idIn;
+        }
+
+        /**
+         * Determines whether this <code>Entry</code> was removed from its <code>PolicyProfiler</code>, in
+         * which case the policy element must look its <code>Entry</code> up again.
+         *
+         * @return true if this <code>Entry</code> no longer collects counters
+         */
+        public boolean isRemoved() {
+            return this.removed;
+        }
+
+        void record(long nanos, long pipNanosIn, Decision decision) {
+            int base = ((int)Thread.currentThread().getId() & (STRIPES - 1)) * FIELD_COUNT_PER_STRIPE;
+            this.counters.incrementAndGet(base + FIELD_COUNT);
+            this.counters.addAndGet(base + FIELD_TOTAL_NANOS, nanos);
+            if (pipNanosIn > 0) {
+                this.counters.addAndGet(base + FIELD_PIP_NANOS, pipNanosIn);
+            }
+            this.counters.incrementAndGet(base + getDecisionField(decision));
+            long max = this.maxNanos.get();
+            while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+                max = this.maxNanos.get();
+            }
+        }
+
+        long sum(int field) {
+            long sum = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                sum += this.counters.get(stripe * FIELD_COUNT_PER_STRIPE + field);
+            }
+            return sum;
+        }
+
+        void reset() {
+            for (int i = 0; i < this.counters.length(); i++) {
+                this.counters.set(i, 0);
+            }
+            this.maxNanos.set(0);
+        }
+    }
+
+    /**
+     * Creates a new <code>PolicyProfiler</code>.
+     *
+     * @param enabledIn true to profile evaluations
+     */
+    public PolicyProfiler(boolean enabledIn) {
+        this.enabled = enabledIn;
+    }
+
+    /**
+     * Gets the <code>PolicyProfiler</code> the PDP records into, enabled by the
+     * {@link OpenAZPDPProperties#PROP_PROFILER_ENABLED} property the first time it is used.
+     *
+     * @return the shared <code>PolicyProfiler</code>
+     */
+    public static PolicyProfiler getInstance() {
+        if (policyProfiler == null) {
+            synchronized (PolicyProfiler.class) {
+                if (policyProfiler == null) {
+                    policyProfiler = new PolicyProfiler(Boolean.parseBoolean(XACMLProperties
+                        .getProperty(OpenAZPDPProperties.PROP_PROFILER_ENABLED, "false")));
+                }
+            }
+        }
+        return policyProfiler;
+    }
+
+    private static int getDecisionField(Decision decision) {
+        if (decision == null) {
+            return FIELD_INDETERMINATE;
+        }
+        switch (decision) {
+        case PERMIT:
+            return FIELD_PERMIT;
+        case DENY:
+            return FIELD_DENY;
+        case NOTAPPLICABLE:
+            return FIELD_NOTAPPLICABLE;
+        default:
+            return FIELD_INDETERMINATE;
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabledIn) {
+        this.enabled = enabledIn;
+    }
+
+    /**
+     * Gets the <code>Entry</code> for the policy element of the given type and identifier, creating it if
+     * needed.
+     *
+     * @param type the type of the policy element, <code>PolicySet</code>, <code>Policy</code> or
+     *            <code>Rule</code>
+     * @param parentId the identifier of the policy element containing it, or null if its identifier is
+     *            unique on its own. Rule identifiers are only unique within their Policy.
+     * @param id the identifier of the policy element
+     * @return the <code>Entry</code> for the policy element
+     */
+    public Entry getEntry(String type, String parentId, String id) {
+        String key = (parentId == null ? type + ":" + id : type + ":" + parentId + ":" + id);
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            Entry entryNew = new Entry(type, parentId, id);
+            entry = this.entries.putIfAbsent(key, entryNew);
+            if (entry == null) {
+                entry = entryNew;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Gets the time the calling thread has spent waiting on PIPs so far, to pass to <code>record</code>.
+     *
+     * @return the PIP time of the calling thread in nanoseconds
+     */
+    public long getPIPNanos() {
+        return this.pipNanos.get()[0];
+    }
+
+    /**
+     * Adds to the time the calling thread has spent waiting on PIPs.
+     *
+     * @param nanos the time of a PIP call in nanoseconds
+     */
+    public void addPIPNanos(long nanos) {
+        this.pipNanos.get()[0] += nanos;
+    }
+
+    /**
+     * Records an evaluation of a policy element.
+     *
+     * @param entry the <code>Entry</code> of the policy element
+     * @param startNanos the <code>System.nanoTime()</code> the evaluation started at
+     * @param startPIPNanos the value of {@link #getPIPNanos()} when the evaluation started
+     * @param evaluationResult the <code>EvaluationResult</code> of the evaluation, or null if it failed
+     */
+    public void record(Entry entry, long startNanos, long startPIPNanos, EvaluationResult evaluationResult) {
+        entry.record(System.nanoTime() - startNanos, this.getPIPNanos() - startPIPNanos,
+                     evaluationResult == null ? null : evaluationResult.getDecision());
+    }
+
+    /**
+     * Gets a snapshot of the counters of every policy element evaluated since the last reset, sorted by
+     * decreasing total time.
+     *
+     * @return a <code>List</code> of {@link PolicyProfile}s
+     */
+    public List<PolicyProfile> getProfiles() {
+        List<PolicyProfile> profiles = new ArrayList<PolicyProfile>();
+        for (Entry entry : this.entries.values()) {
+            long count = entry.sum(FIELD_COUNT);
+            if (count > 0) {
+                profiles.add(new PolicyProfile(entry.type, entry.parentId, entry.id, count,
+                                               entry.sum(FIELD_TOTAL_NANOS) / 1000, entry.maxNanos.get() / 1000,
+                                               entry.sum(FIELD_PIP_NANOS) / 1000, entry.sum(FIELD_NOTAPPLICABLE),
+                                               entry.sum(FIELD_PERMIT), entry.sum(FIELD_DENY),
+                                               entry.sum(FIELD_INDETERMINATE)));
+            }
+        }
+        Collections.sort(profiles, new Comparator<PolicyProfile>() {
+            @Override
+            public int compare(PolicyProfile profile1, PolicyProfile profile2) {
+                return Long.compare(profile2.getTotalMicros(), profile1.getTotalMicros());
+            }
+        });
+        return profiles;
+    }
+
+    /**
+     * Sets the counters of every policy element back to 0.
+     */
+    public void reset() {
+        for (Entry entry : this.entries.values()) {
+            entry.reset();
+        }
+    }
+
+    /**
+     * Removes the entries of every policy element, so that the entries of policy elements that are no longer
+     * loaded do not accumulate over policy reloads. Policy elements that are still loaded look their entries
+     * up again, starting from 0, the next time they are evaluated.
+     */
+    public void prune() {
+        Iterator<Entry> iterEntries = this.entries.values().iterator();
+        while (iterEntries.hasNext()) {
+            Entry entry = iterEntries.next();
+            entry.removed = true;
+            iterEntries.remove();
+        }
+    }
+}
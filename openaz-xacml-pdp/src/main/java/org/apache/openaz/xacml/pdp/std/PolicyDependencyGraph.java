@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.std;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openaz.xacml.api.IdReferenceMatch;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+
+/**
+ * PolicyDependencyGraph records which {@link org.apache.openaz.xacml.pdp.policy.PolicyDef}s each
+ * <code>PolicyDef</code> refers to through its PolicyIdReference and PolicySetIdReference elements, as
+ * resolved by the {@link StdPolicyFinder} when it was loaded. It also records the references that could not
+ * be resolved and the ones that lead back to the <code>PolicyDef</code> they are in. <code>PolicyDef</code>s
+ * are compared by identity. A <code>PolicyDependencyGraph</code> is not modified after it is built.
+ */
+public class PolicyDependencyGraph {
+    private final Map<PolicyDef, List<PolicyDef>> mapReferences = new IdentityHashMap<PolicyDef, List<PolicyDef>>();
+    private final Map<PolicyDef, List<PolicyDef>> mapReferencedBy = new IdentityHashMap<PolicyDef, List<PolicyDef>>();
+    private final List<IdReferenceMatch> listUnresolved = new ArrayList<IdReferenceMatch>();
+    private final List<IdReferenceMatch> listCircular = new ArrayList<IdReferenceMatch>();
+
+    private static void add(Map<PolicyDef, List<PolicyDef>> map, PolicyDef key, PolicyDef value) {
+        List<PolicyDef> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<PolicyDef>(2);
+            map.put(key, list);
+        }
+        for (PolicyDef policyDef : list) {
+            if (policyDef == value) {
+                return;
+            }
+        }
+        list.add(value);
+    }
+
+    void addReference(PolicyDef policyDef, PolicyDef policyDefReferencee) {
+        add(this.mapReferences, policyDef, policyDefReferencee);
+        add(this.mapReferencedBy, policyDefReferencee, policyDef);
+    }
+
+    void addUnresolved(IdReferenceMatch idReferenceMatch) {
+        this.listUnresolved.add(idReferenceMatch);
+    }
+
+    void addCircular(IdReferenceMatch idReferenceMatch) {
+        this.listCircular.add(idReferenceMatch);
+    }
+
+    /**
+     * Gets the <code>PolicyDef</code>s the given <code>PolicyDef</code> refers to directly.
+     *
+     * @param policyDef the referring <code>PolicyDef</code>
+     * @return the <code>Collection</code> of referenced <code>PolicyDef</code>s, empty if there are none
+     */
+    public Collection<PolicyDef> getReferences(PolicyDef policyDef) {
+        List<PolicyDef> list = this.mapReferences.get(policyDef);
+        return list == null ? Collections.<PolicyDef> emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the <code>PolicyDef</code>s that refer directly to the given <code>PolicyDef</code>.
+     *
+     * @param policyDef the referenced <code>PolicyDef</code>
+     * @return the <code>Collection</code> of referring <code>PolicyDef</code>s, empty if there are none
+     */
+    public Collection<PolicyDef> getReferencedBy(PolicyDef policyDef) {
+        List<PolicyDef> list = this.mapReferencedBy.get(policyDef);
+        return list == null ? Collections.<PolicyDef> emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the <code>IdReferenceMatch</code>es of the references that did not match any loaded policy.
+     *
+     * @return the <code>Collection</code> of unresolved <code>IdReferenceMatch</code>es
+     */
+    public Collection<IdReferenceMatch> getUnresolvedReferences() {
+        return Collections.unmodifiableList(this.listUnresolved);
+    }
+
+    /**
+     * Gets the <code>IdReferenceMatch</code>es of the references that refer back to a <code>PolicyDef</code>
+     * they are contained in, directly or through other references.
+     *
+     * @return the <code>Collection</code> of circular <code>IdReferenceMatch</code>es
+     */
+    public Collection<IdReferenceMatch> getCircularReferences() {
+        return Collections.unmodifiableList(this.listCircular);
+    }
+}
@@ -30,7 +30,12 @@
  */
 package org.apache.openaz.xacml.pdp.std;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,13 +50,20 @@ import org.apache.openaz.xacml.api.trace.TraceEngine;
 import org.apache.openaz.xacml.api.trace.TraceEngineFactory;
 import org.apache.openaz.xacml.api.trace.TraceEvent;
 import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
+import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
+import org.apache.openaz.xacml.pdp.policy.FunctionArgumentPool;
 import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyAttributeDependencies;
 import org.apache.openaz.xacml.pdp.policy.PolicyDef;
 import org.apache.openaz.xacml.pdp.policy.PolicyFinder;
 import org.apache.openaz.xacml.pdp.policy.PolicyFinderResult;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
 import org.apache.openaz.xacml.pdp.policy.PolicySet;
+import org.apache.openaz.xacml.pdp.policy.VariableDefinition;
+import org.apache.openaz.xacml.pdp.profile.PolicyProfiler;
 import org.apache.openaz.xacml.std.pip.engines.RequestEngine;
 import org.apache.openaz.xacml.std.pip.finders.RequestFinder;
+import org.apache.openaz.xacml.std.trace.StdTraceEvent;
 import org.apache.openaz.xacml.util.FactoryException;
 
 /**
@@ -59,11 +71,25 @@ import org.apache.openaz.xacml.util.FactoryException;
  * using default factories to load the XACML policies, and get the PIP engines.
  */
 public class StdEvaluationContext implements EvaluationContext {
+    /*
+     * Variable results are kept in small parallel arrays that are searched by identity, which is cheaper than
+     * a map for the handful of variables a typical decision evaluates. Past MAX_VARIABLE_SLOTS they move to an
+     * IdentityHashMap.
+     */
+    private static final int INITIAL_VARIABLE_SLOTS = 4;
+    private static final int MAX_VARIABLE_SLOTS = 32;
+
     private Log logger = LogFactory.getLog(this.getClass());
     private Request request;
     private RequestFinder requestFinder;
     private PolicyFinder policyFinder;
     private TraceEngine traceEngine;
+    private VariableDefinition[] variableDefinitions;
+    private ExpressionResult[] variableResults;
+    private int variableCount;
+    private Map<VariableDefinition, ExpressionResult> mapVariableResults;
+    private Map<PIPRequest, ExpressionResult> mapAttributeBags;
+    private FunctionArgumentPool functionArgumentPool;
 
     /**
      * Creates a new <code>StdEvaluationContext</code> with the given
@@ -108,7 +134,26 @@ public class StdEvaluationContext implements EvaluationContext {
 
     @Override
     public PIPResponse getAttributes(PIPRequest pipRequest) throws PIPException {
-        return this.requestFinder.getAttributes(pipRequest, null);
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        boolean tracing = this.isTracing();
+        if (!tracing && !policyProfiler.isEnabled()) {
+            return this.requestFinder.getAttributes(pipRequest, null);
+        }
+        if (tracing) {
+            this.trace(new StdTraceEvent<PIPRequest>("Attributes Request", pipRequest));
+        }
+        long startNanos = System.nanoTime();
+        try {
+            PIPResponse pipResponse = this.requestFinder.getAttributes(pipRequest, null);
+            if (tracing) {
+                this.trace(new StdTraceEvent<PIPResponse>("Attributes Response", pipResponse));
+            }
+            return pipResponse;
+        } finally {
+            if (policyProfiler.isEnabled()) {
+                policyProfiler.addPIPNanos(System.nanoTime() - startNanos);
+            }
+        }
     }
 
     @Override
@@ -137,6 +182,16 @@ public class StdEvaluationContext implements EvaluationContext {
         return this.policyFinder.getPolicySet(idReferenceMatch);
     }
 
+    @Override
+    public PolicyDef getReferencee(PolicyIdReferenceBase<?> policyIdReferenceBase) {
+        return this.policyFinder.getReferencee(policyIdReferenceBase);
+    }
+
+    @Override
+    public PolicyAttributeDependencies getAttributeDependencies(PolicyDef policyDef) {
+        return this.policyFinder.getAttributeDependencies(policyDef);
+    }
+
     @Override
     public void trace(TraceEvent<?> traceEvent) {
         if (this.traceEngine != null) {
@@ -164,4 +219,84 @@ public class StdEvaluationContext implements EvaluationContext {
     public Collection<PIPEngine> getPIPEngines() {
         return this.requestFinder.getPIPEngines();
     }
+
+    @Override
+    public ExpressionResult getVariableResult(VariableDefinition variableDefinition) {
+        if (this.mapVariableResults != null) {
+            return this.mapVariableResults.get(variableDefinition);
+        }
+        for (int i = 0; i < this.variableCount; i++) {
+            if (this.variableDefinitions[i] == variableDefinition) {
+                return this.variableResults[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void setVariableResult(VariableDefinition variableDefinition, ExpressionResult expressionResult) {
+        if (this.mapVariableResults != null) {
+            this.mapVariableResults.put(variableDefinition, expressionResult);
+            return;
+        }
+        for (int i = 0; i < this.variableCount; i++) {
+            if (this.variableDefinitions[i] == variableDefinition) {
+                this.variableResults[i] = expressionResult;
+                return;
+            }
+        }
+        if (this.variableDefinitions == null) {
+            this.variableDefinitions = new VariableDefinition[INITIAL_VARIABLE_SLOTS];
+            this.variableResults = new ExpressionResult[INITIAL_VARIABLE_SLOTS];
+        } else if (this.variableCount == this.variableDefinitions.length) {
+            if (this.variableCount >= MAX_VARIABLE_SLOTS) {
+                this.mapVariableResults = new IdentityHashMap<VariableDefinition, ExpressionResult>();
+                for (int i = 0; i < this.variableCount; i++) {
+                    this.mapVariableResults.put(this.variableDefinitions[i], this.variableResults[i]);
+                }
+                this.mapVariableResults.put(variableDefinition, expressionResult);
+                this.variableDefinitions = null;
+                this.variableResults = null;
+                this.variableCount = 0;
+                return;
+            }
+            this.variableDefinitions = Arrays.copyOf(this.variableDefinitions, this.variableCount * 2);
+            this.variableResults = Arrays.copyOf(this.variableResults, this.variableCount * 2);
+        }
+        this.variableDefinitions[this.variableCount] = variableDefinition;
+        this.variableResults[this.variableCount] = expressionResult;
+        this.variableCount++;
+    }
+
+    @Override
+    public ExpressionResult getAttributeBag(PIPRequest pipRequest) {
+        return this.mapAttributeBags == null ? null : this.mapAttributeBags.get(pipRequest);
+    }
+
+    @Override
+    public void setAttributeBag(PIPRequest pipRequest, ExpressionResult expressionResult) {
+        if (this.mapAttributeBags == null) {
+            this.mapAttributeBags = new HashMap<PIPRequest, ExpressionResult>();
+        }
+        this.mapAttributeBags.put(pipRequest, expressionResult);
+    }
+
+    @Override
+    public FunctionArgumentPool getFunctionArgumentPool() {
+        if (this.functionArgumentPool == null) {
+            this.functionArgumentPool = new FunctionArgumentPool();
+        }
+        return this.functionArgumentPool;
+    }
+
+    @Override
+    public void prefetchAttributes(Collection<PIPRequest> pipRequests, Executor executor) {
+        if (!this.isTracing()) {
+            this.requestFinder.prefetchAttributes(pipRequests, executor);
+            return;
+        }
+        this.trace(new StdTraceEvent<Object>("Prefetch Request", null));
+        this.requestFinder.prefetchAttributes(pipRequests, executor);
+        this.trace(new StdTraceEvent<Object>("Prefetch Response", null));
+    }
 }
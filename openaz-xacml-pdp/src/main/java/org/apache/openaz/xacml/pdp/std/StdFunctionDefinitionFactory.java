@@ -47,7 +47,7 @@ import org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFactory;
  */
 public class StdFunctionDefinitionFactory extends FunctionDefinitionFactory {
     private static Map<Identifier, FunctionDefinition> mapFunctionDefinitions = new HashMap<Identifier, FunctionDefinition>();
-    private static boolean needMapInit = true;
+    private static volatile boolean needMapInit = true;
 
     private static void register(FunctionDefinition functionDefinition) {
         mapFunctionDefinitions.put(functionDefinition.getId(), functionDefinition);
@@ -57,7 +57,6 @@ public class StdFunctionDefinitionFactory extends FunctionDefinitionFactory {
         if (needMapInit) {
             synchronized (mapFunctionDefinitions) {
                 if (needMapInit) {
-                    needMapInit = false;
                     Field[] declaredFields = StdFunctions.class.getDeclaredFields();
                     for (Field field : declaredFields) {
                         if (Modifier.isStatic(field.getModifiers())
@@ -71,6 +70,7 @@ public class StdFunctionDefinitionFactory extends FunctionDefinitionFactory {
                             }
                         }
                     }
+                    needMapInit = false;
                 }
             }
         }
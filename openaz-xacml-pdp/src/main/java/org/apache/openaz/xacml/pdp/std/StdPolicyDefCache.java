@@ -0,0 +1,380 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.std;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
+import org.apache.openaz.xacml.pdp.policy.PolicySet;
+import org.apache.openaz.xacml.pdp.policy.PolicySetChild;
+import org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshot;
+import org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotException;
+import org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotReader;
+import org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotWriter;
+import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
+import org.apache.openaz.xacml.std.dom.DOMStructureException;
+
+/**
+ * StdPolicyDefCache holds {@link org.apache.openaz.xacml.pdp.policy.PolicyDef}s that have already been parsed
+ * from policy files so that a policy validated by a loader does not have to be parsed a second time by the
+ * {@link StdPolicyFinderFactory}. Entries are keyed by the absolute path of the file and are only handed out
+ * while the file's content is unchanged.
+ * <p>
+ * <code>PolicyDef</code>s that contain no PolicyIdReference or PolicySetIdReference elements do not depend on
+ * the {@link org.apache.openaz.xacml.pdp.policy.PolicyFinder} that holds them, so they stay in the cache after
+ * being taken. When a new policy configuration is loaded only added or changed files are parsed and every
+ * unchanged reference free <code>PolicyDef</code> is shared with the new PDP engine.
+ */
+public class StdPolicyDefCache {
+    private static final Log logger = LogFactory.getLog(StdPolicyDefCache.class);
+
+    private static final ConcurrentMap<String, CachedPolicyDef> mapPolicyDefs = new ConcurrentHashMap<String, CachedPolicyDef>();
+
+    private static class CachedPolicyDef {
+        private final long lastModified;
+        private final long length;
+        private final byte[] hash;
+        private final PolicyDef policyDef;
+        private final boolean shareable;
+
+        CachedPolicyDef(File file, byte[] hashIn, PolicyDef policyDefIn) {
+            this(file, hashIn, policyDefIn, !hasIdReferences(policyDefIn));
+        }
+
+        CachedPolicyDef(File file, byte[] hashIn, PolicyDef policyDefIn, boolean shareableIn) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.hash = hashIn;
+            this.policyDef = policyDefIn;
+            this.shareable = shareableIn;
+        }
+
+        boolean isUnmodified(File file) {
+            return this.lastModified == file.lastModified() && this.length == file.length();
+        }
+    }
+
+    protected StdPolicyDefCache() {
+    }
+
+    private static String getKey(File file) {
+        return file.getAbsolutePath();
+    }
+
+    private static byte[] hash(File file) {
+        try {
+            return PolicySnapshot.hash(file);
+        } catch (IOException ex) {
+            logger.debug("Failed to hash " + file + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Determines whether the given <code>PolicyDef</code> contains any references to other policies.
+     *
+     * @param policyDef the <code>PolicyDef</code> to check
+     * @return true if the <code>PolicyDef</code> contains a PolicyIdReference or PolicySetIdReference
+     */
+    public static boolean hasIdReferences(PolicyDef policyDef) {
+        if (policyDef instanceof PolicySet) {
+            Iterator<PolicySetChild> iterChildren = ((PolicySet)policyDef).getChildren();
+            if (iterChildren != null) {
+                while (iterChildren.hasNext()) {
+                    PolicySetChild policySetChild = iterChildren.next();
+                    if (policySetChild instanceof PolicyIdReferenceBase
+                        || policySetChild instanceof PolicyDef && hasIdReferences((PolicyDef)policySetChild)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the current cached entry for the given <code>File</code>. An entry whose file was rewritten with
+     * the same content is refreshed rather than discarded.
+     */
+    private static CachedPolicyDef getCurrent(File file) {
+        String key = getKey(file);
+        CachedPolicyDef cachedPolicyDef = mapPolicyDefs.get(key);
+        if (cachedPolicyDef == null) {
+            return null;
+        }
+        if (cachedPolicyDef.isUnmodified(file)) {
+            return cachedPolicyDef;
+        }
+        if (cachedPolicyDef.hash != null && cachedPolicyDef.length == file.length()
+            && Arrays.equals(cachedPolicyDef.hash, hash(file))) {
+            CachedPolicyDef cachedPolicyDefRefreshed = new CachedPolicyDef(file, cachedPolicyDef.hash,
+                                                                           cachedPolicyDef.policyDef,
+                                                                           cachedPolicyDef.shareable);
+            return mapPolicyDefs.replace(key, cachedPolicyDef, cachedPolicyDefRefreshed)
+                ? cachedPolicyDefRefreshed : null;
+        }
+        mapPolicyDefs.remove(key, cachedPolicyDef);
+        return null;
+    }
+
+    private static PolicyDef parse(File file) throws DOMStructureException {
+        byte[] hash = hash(file);
+        PolicyDef policyDef = DOMPolicyDef.load(file);
+        if (policyDef != null) {
+            mapPolicyDefs.put(getKey(file), new CachedPolicyDef(file, hash, policyDef));
+        }
+        return policyDef;
+    }
+
+    /**
+     * Gets the <code>PolicyDef</code> for the given <code>File</code>, parsing the file only if there is no
+     * current cached copy. The parsed <code>PolicyDef</code> remains in the cache.
+     *
+     * @param file the <code>File</code> containing the XACML Policy or PolicySet
+     * @return the <code>PolicyDef</code> for the given <code>File</code>
+     * @throws DOMStructureException if there is an error parsing the file
+     */
+    public static PolicyDef load(File file) throws DOMStructureException {
+        CachedPolicyDef cachedPolicyDef = getCurrent(file);
+        if (cachedPolicyDef != null) {
+            return cachedPolicyDef.policyDef;
+        }
+        return parse(file);
+    }
+
+    /**
+     * Gets the <code>PolicyDef</code> for the given <code>File</code> for use by a
+     * {@link org.apache.openaz.xacml.pdp.policy.PolicyFinder}. If there is no current cached copy the file is
+     * parsed without being cached. A <code>PolicyDef</code> with references caches the targets of its
+     * references, so it is removed from the cache and never given to another <code>PolicyFinder</code>. A
+     * reference free <code>PolicyDef</code> stays in the cache so it can be shared with the next
+     * <code>PolicyFinder</code>.
+     *
+     * @param file the <code>File</code> containing the XACML Policy or PolicySet
+     * @return the <code>PolicyDef</code> for the given <code>File</code>
+     * @throws DOMStructureException if there is an error parsing the file
+     */
+    public static PolicyDef take(File file) throws DOMStructureException {
+        CachedPolicyDef cachedPolicyDef = getCurrent(file);
+        if (cachedPolicyDef != null
+            && (cachedPolicyDef.shareable || mapPolicyDefs.remove(getKey(file), cachedPolicyDef))) {
+            return cachedPolicyDef.policyDef;
+        }
+        return DOMPolicyDef.load(file);
+    }
+
+    /**
+     * Parses the given <code>File</code>s into the cache in parallel. Files with a current cached copy are not
+     * parsed again. Files that cannot be parsed are skipped so that the caller can report the error when it
+     * loads them.
+     *
+     * @param files the <code>Collection</code> of <code>File</code>s to parse
+     * @param threads the number of loader threads to use
+     * @return the number of files that were parsed
+     */
+    public static int preload(Collection<File> files, int threads) {
+        return preload(files, threads, null);
+    }
+
+    /**
+     * Loads the given <code>File</code>s into the cache in parallel. Files with a current cached copy are not
+     * loaded again, the others are decoded from the given
+     * {@link org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotReader} when it holds an entry for the
+     * current contents of the file and parsed otherwise. Files that cannot be parsed are skipped so that the
+     * caller can report the error when it loads them.
+     *
+     * @param files the <code>Collection</code> of <code>File</code>s to load
+     * @param threads the number of loader threads to use
+     * @param policySnapshot the <code>PolicySnapshotReader</code> to decode policies from, may be null
+     * @return the number of files that were parsed
+     */
+    public static int preload(Collection<File> files, int threads, final PolicySnapshotReader policySnapshot) {
+        if (files == null || files.isEmpty()) {
+            return 0;
+        }
+        final AtomicInteger parseCount = new AtomicInteger();
+        ExecutorService executorService = newExecutorService(Math.min(threads, files.size()));
+        try {
+            List<Future<PolicyDef>> listFutures = new ArrayList<Future<PolicyDef>>(files.size());
+            for (final File file : files) {
+                listFutures.add(executorService.submit(new Callable<PolicyDef>() {
+                    @Override
+                    public PolicyDef call() throws Exception {
+                        CachedPolicyDef cachedPolicyDef = getCurrent(file);
+                        if (cachedPolicyDef != null) {
+                            return cachedPolicyDef.policyDef;
+                        }
+                        PolicyDef policyDef = null;
+                        if (policySnapshot != null) {
+                            policyDef = loadFromSnapshot(file, policySnapshot);
+                        }
+                        if (policyDef == null) {
+                            parseCount.incrementAndGet();
+                            policyDef = parse(file);
+                        }
+                        return policyDef;
+                    }
+                }));
+            }
+            for (Future<PolicyDef> future : listFutures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    logger.debug("Preloading policy failed: " + ex.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdown();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Parsed " + parseCount.get() + " of " + files.size() + " policies");
+        }
+        return parseCount.get();
+    }
+
+    private static PolicyDef loadFromSnapshot(File file, PolicySnapshotReader policySnapshot) {
+        try {
+            byte[] hash = PolicySnapshot.hash(file);
+            PolicyDef policyDef = policySnapshot.getPolicyDef(getKey(file), hash);
+            if (policyDef != null) {
+                mapPolicyDefs.put(getKey(file), new CachedPolicyDef(file, hash, policyDef));
+            }
+            return policyDef;
+        } catch (IOException | PolicySnapshotException ex) {
+            logger.warn("Failed to load " + file + " from policy snapshot: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a {@link org.apache.openaz.xacml.pdp.policy.binary.PolicySnapshotWriter} snapshot of the current
+     * cached <code>PolicyDef</code>s for the given <code>File</code>s. Files that are not cached or whose
+     * policies cannot be represented in a snapshot are left out and will be parsed on the next load.
+     *
+     * @param files the <code>Collection</code> of <code>File</code>s to include in the snapshot
+     * @param path the <code>Path</code> of the snapshot file
+     * @return the number of policies written to the snapshot
+     * @throws IOException if the snapshot cannot be written
+     * @throws PolicySnapshotException if the snapshot writer cannot be created
+     */
+    public static int writeSnapshot(Collection<File> files, Path path) throws IOException,
+        PolicySnapshotException {
+        PolicySnapshotWriter policySnapshotWriter = new PolicySnapshotWriter();
+        for (File file : files) {
+            CachedPolicyDef cachedPolicyDef = getCurrent(file);
+            if (cachedPolicyDef == null || cachedPolicyDef.hash == null) {
+                continue;
+            }
+            try {
+                policySnapshotWriter.add(getKey(file), cachedPolicyDef.hash, cachedPolicyDef.policyDef);
+            } catch (PolicySnapshotException ex) {
+                logger.debug(ex.getMessage());
+            }
+        }
+        policySnapshotWriter.write(path);
+        return policySnapshotWriter.size();
+    }
+
+    /**
+     * Removes the cached <code>PolicyDef</code>s for every file that is not in the given
+     * <code>Collection</code>, so that policies dropped from the configuration are released.
+     *
+     * @param files the <code>Collection</code> of <code>File</code>s that are still in use
+     */
+    public static void retainAll(Collection<File> files) {
+        Set<String> setKeys = new HashSet<String>();
+        for (File file : files) {
+            setKeys.add(getKey(file));
+        }
+        mapPolicyDefs.keySet().retainAll(setKeys);
+    }
+
+    /**
+     * Removes all cached <code>PolicyDef</code>s.
+     */
+    public static void clear() {
+        mapPolicyDefs.clear();
+    }
+
+    /**
+     * Gets the number of threads to use for loading policies from the value of the
+     * {@link org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties#PROP_POLICYFINDERFACTORY_LOADTHREADS}
+     * property, defaulting to the number of available processors.
+     *
+     * @param value the <code>String</code> value of the property, may be null
+     * @return the number of loader threads, at least 1
+     */
+    public static int getLoadThreads(String value) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (value != null) {
+            try {
+                threads = Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                logger.error("Invalid " + OpenAZPDPProperties.PROP_POLICYFINDERFACTORY_LOADTHREADS + " \""
+                             + value + "\"");
+            }
+        }
+        return Math.max(threads, 1);
+    }
+
+    /**
+     * Creates a bounded <code>ExecutorService</code> of daemon threads for parsing policies.
+     *
+     * @param threads the number of loader threads
+     * @return a new <code>ExecutorService</code>
+     */
+    public static ExecutorService newExecutorService(int threads) {
+        return Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "policy-loader-" + this.threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -36,10 +36,24 @@ import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,18 +64,24 @@ import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
 import org.apache.openaz.xacml.pdp.eval.EvaluationException;
 import org.apache.openaz.xacml.pdp.eval.MatchResult;
 import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyAttributeDependencies;
 import org.apache.openaz.xacml.pdp.policy.PolicyDef;
 import org.apache.openaz.xacml.pdp.policy.PolicyFinder;
 import org.apache.openaz.xacml.pdp.policy.PolicyFinderResult;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReference;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
 import org.apache.openaz.xacml.pdp.policy.PolicySet;
 import org.apache.openaz.xacml.pdp.policy.PolicySetChild;
+import org.apache.openaz.xacml.pdp.policy.PolicySetIdReference;
 import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 
 /**
  * StdPolicyFinder implements the {@link org.apache.openaz.xacml.pdp.policy.PolicyFinder} interface to look
- * up policies by their internal ID or an externally visible ID.
+ * up policies by their internal ID or an externally visible ID. The loaded <code>PolicyDef</code>s are kept
+ * in an immutable snapshot that updates replace as a whole, so a single <code>StdPolicyFinder</code> can be
+ * shared by any number of threads and lookups never lock.
  */
 public class StdPolicyFinder implements PolicyFinder {
     private static final PolicyFinderResult<PolicyDef> PFR_MULTIPLE = new StdPolicyFinderResult<PolicyDef>(
@@ -90,9 +110,86 @@ public class StdPolicyFinder implements PolicyFinder {
                                                                                                                                 StdStatusCode.STATUS_CODE_PROCESSING_ERROR,
                                                                                                                                 "Not a policy set"));
 
+    /*
+     * Remote PolicyDefs are kept for the life of the StdPolicyFinder, up to this many URIs. The least
+     * recently used ones are dropped and loaded again if they are needed.
+     */
+    private static final int MAX_REMOTE_POLICY_DEFS = 128;
+
     private Log logger = LogFactory.getLog(this.getClass());
-    private List<PolicyDef> listRoots = new ArrayList<PolicyDef>();
-    private Map<Identifier, List<PolicyDef>> mapPolicies = new HashMap<Identifier, List<PolicyDef>>();
+    private volatile PolicyStore policyStore;
+    private volatile List<Future<PolicyDef>> listPendingPolicyDefs;
+    private final Map<URI, Future<PolicyDef>> mapRemotePolicyDefs = new LinkedHashMap<URI, Future<PolicyDef>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<URI, Future<PolicyDef>> eldest) {
+            return this.size() > MAX_REMOTE_POLICY_DEFS;
+        }
+    };
+
+    /**
+     * LoaderExecutorHolder holds the daemon threads remote <code>PolicyDef</code>s are loaded on, so that
+     * neither a decision nor the thread resolving references runs the load itself.
+     */
+    private static final class LoaderExecutorHolder {
+        private static final int THREADS = 4;
+        private static final ExecutorService EXECUTOR = newLoaderExecutor();
+
+        private static ExecutorService newLoaderExecutor() {
+            return Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "pdp-policy-loader-"
+                                                         + this.threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * PolicyStore is an immutable snapshot of the root and referenced <code>PolicyDef</code>s of a
+     * <code>StdPolicyFinder</code>, together with the results of the reference lookups made against it and
+     * the <code>PolicyDef</code> each PolicyIdReference and PolicySetIdReference was resolved to. The resolved
+     * references are kept here rather than set on the references themselves, since a
+     * <code>PolicySet</code> is shared by every snapshot it is part of.
+     * Updates copy the current <code>PolicyStore</code>, change the copy and publish it through the volatile
+     * <code>policyStore</code> field, so readers only ever see complete snapshots.
+     */
+    private static final class PolicyStore {
+        private final List<PolicyDef> listRoots;
+        private final Map<Identifier, List<PolicyDef>> mapPolicies;
+        private final ConcurrentMap<IdReferenceMatch, PolicyFinderResult<Policy>> mapPolicyResults = new ConcurrentHashMap<IdReferenceMatch, PolicyFinderResult<Policy>>();
+        private final ConcurrentMap<IdReferenceMatch, PolicyFinderResult<PolicySet>> mapPolicySetResults = new ConcurrentHashMap<IdReferenceMatch, PolicyFinderResult<PolicySet>>();
+        private final ConcurrentMap<PolicyDef, PolicyAttributeDependencies> mapAttributeDependencies = new ConcurrentHashMap<PolicyDef, PolicyAttributeDependencies>();
+        private Map<PolicyIdReferenceBase<?>, PolicyDef> mapReferencees = Collections.emptyMap();
+        private PolicyDependencyGraph policyDependencyGraph;
+
+        PolicyStore(List<PolicyDef> listRootsIn, Map<Identifier, List<PolicyDef>> mapPoliciesIn) {
+            this.listRoots = Collections.unmodifiableList(new ArrayList<PolicyDef>(listRootsIn));
+            Map<Identifier, List<PolicyDef>> mapPoliciesCopy = new HashMap<Identifier, List<PolicyDef>>();
+            for (Map.Entry<Identifier, List<PolicyDef>> entry : mapPoliciesIn.entrySet()) {
+                mapPoliciesCopy.put(entry.getKey(),
+                                    Collections.unmodifiableList(new ArrayList<PolicyDef>(entry.getValue())));
+            }
+            this.mapPolicies = Collections.unmodifiableMap(mapPoliciesCopy);
+        }
+
+        /**
+         * Gets a mutable copy of the policy map of this <code>PolicyStore</code> to build the next one from.
+         */
+        Map<Identifier, List<PolicyDef>> copyPolicyMap() {
+            Map<Identifier, List<PolicyDef>> mapPoliciesCopy = new HashMap<Identifier, List<PolicyDef>>();
+            for (Map.Entry<Identifier, List<PolicyDef>> entry : this.mapPolicies.entrySet()) {
+                mapPoliciesCopy.put(entry.getKey(), new ArrayList<PolicyDef>(entry.getValue()));
+            }
+            return mapPoliciesCopy;
+        }
+    }
 
     public static class StdPolicyFinderException extends Exception {
         private static final long serialVersionUID = -8969282995787463288L;
@@ -106,21 +203,22 @@ public class StdPolicyFinder implements PolicyFinder {
         }
     }
 
-    private void storeInPolicyMap(PolicyDef policyDef) {
-        List<PolicyDef> listPolicyDefs = this.mapPolicies.get(policyDef.getIdentifier());
+    private static void storeInPolicyMap(Map<Identifier, List<PolicyDef>> mapPolicies, PolicyDef policyDef) {
+        List<PolicyDef> listPolicyDefs = mapPolicies.get(policyDef.getIdentifier());
         if (listPolicyDefs == null) {
             listPolicyDefs = new ArrayList<PolicyDef>();
-            this.mapPolicies.put(policyDef.getIdentifier(), listPolicyDefs);
+            mapPolicies.put(policyDef.getIdentifier(), listPolicyDefs);
         }
         listPolicyDefs.add(policyDef);
     }
 
-    private <T extends PolicyDef> List<T> getFromPolicyMap(IdReferenceMatch idReferenceMatch,
+    private <T extends PolicyDef> List<T> getFromPolicyMap(Map<Identifier, List<PolicyDef>> mapPolicies,
+                                                           IdReferenceMatch idReferenceMatch,
                                                            Class<T> classPolicyDef) {
         /*
          * Get all of the PolicyDefs for the Identifier in the reference match
          */
-        List<PolicyDef> listPolicyDefForId = this.mapPolicies.get(idReferenceMatch.getId());
+        List<PolicyDef> listPolicyDefForId = mapPolicies.get(idReferenceMatch.getId());
         if (listPolicyDefForId == null) {
             return null;
         }
@@ -196,16 +294,113 @@ public class StdPolicyFinder implements PolicyFinder {
         }
     }
 
+    /**
+     * Gets the <code>Future</code> for the <code>PolicyDef</code> at the given <code>URI</code>, starting to
+     * load it on the loader threads if it is not already loaded or loading.
+     */
+    private Future<PolicyDef> getRemotePolicyDef(final URI uri) {
+        FutureTask<PolicyDef> futureTaskNew;
+        synchronized (this.mapRemotePolicyDefs) {
+            Future<PolicyDef> future = this.mapRemotePolicyDefs.get(uri);
+            if (future != null) {
+                return future;
+            }
+            futureTaskNew = new FutureTask<PolicyDef>(new Callable<PolicyDef>() {
+                @Override
+                public PolicyDef call() throws StdPolicyFinderException {
+                    return StdPolicyFinder.this.loadPolicyDefFromURI(uri);
+                }
+            });
+            this.mapRemotePolicyDefs.put(uri, futureTaskNew);
+        }
+        LoaderExecutorHolder.EXECUTOR.execute(futureTaskNew);
+        return futureTaskNew;
+    }
+
+    /**
+     * Gets the <code>PolicyDef</code> at the given <code>URI</code>, loading it only once however many threads
+     * ask for it. A failed load is forgotten so that it is tried again the next time.
+     */
+    private PolicyDef loadRemotePolicyDef(URI uri) throws StdPolicyFinderException {
+        Future<PolicyDef> future = this.getRemotePolicyDef(uri);
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            synchronized (this.mapRemotePolicyDefs) {
+                if (this.mapRemotePolicyDefs.get(uri) == future) {
+                    this.mapRemotePolicyDefs.remove(uri);
+                }
+            }
+            if (ex.getCause() instanceof StdPolicyFinderException) {
+                throw (StdPolicyFinderException)ex.getCause();
+            }
+            throw new StdPolicyFinderException("Exception loading policy def from \"" + uri.toString()
+                                               + "\": " + ex.getCause().getMessage(), ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StdPolicyFinderException("Interrupted loading policy def from \"" + uri.toString()
+                                               + "\"");
+        }
+    }
+
+    /**
+     * Waits for any referenced <code>PolicyDef</code>s that were still loading when this
+     * <code>StdPolicyFinder</code> was created and publishes a new <code>PolicyStore</code> with them.
+     */
+    private void resolvePendingPolicyDefs() {
+        if (this.listPendingPolicyDefs == null) {
+            return;
+        }
+        synchronized (this) {
+            List<Future<PolicyDef>> listPending = this.listPendingPolicyDefs;
+            if (listPending == null) {
+                return;
+            }
+            PolicyStore policyStoreCurrent = this.policyStore;
+            Map<Identifier, List<PolicyDef>> mapPoliciesNew = policyStoreCurrent.copyPolicyMap();
+            for (Future<PolicyDef> futurePolicyDef : listPending) {
+                try {
+                    PolicyDef policyDef = futurePolicyDef.get();
+                    if (policyDef != null) {
+                        storeInPolicyMap(mapPoliciesNew, policyDef);
+                    }
+                } catch (ExecutionException ex) {
+                    this.logger.error("Error loading referenced policy: " + ex.getCause().getMessage(),
+                                      ex.getCause());
+                } catch (InterruptedException ex) {
+                    this.logger.error("Interrupted waiting for referenced policies");
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            this.publish(new PolicyStore(policyStoreCurrent.listRoots, mapPoliciesNew));
+            this.listPendingPolicyDefs = null;
+        }
+    }
+
+    /**
+     * Resolves the references in the given <code>PolicyStore</code>, analyzes the attribute dependencies of
+     * its roots and makes it the current one.
+     */
+    private void publish(PolicyStore policyStoreNew) {
+        this.resolveReferences(policyStoreNew);
+        for (PolicyDef policyDef : policyStoreNew.listRoots) {
+            this.getAttributeDependencies(policyStoreNew, policyDef);
+        }
+        this.policyStore = policyStoreNew;
+    }
+
     /**
      * Looks up the given {@link org.apache.openaz.xacml.api.Identifier} in the map first. If not found, and
-     * the <code>Identifier</code> contains a URL, then attempts to retrieve the document from the URL and
-     * caches it.
+     * the <code>Identifier</code> contains a URL, then attempts to retrieve the document from the URL through
+     * the remote loader cache.
      *
      * @param idReferenceMatch the <code>IdReferenceMatch</code> to look up
      * @return a <code>PolicyFinderResult</code> with the requested <code>Policy</code> or an error status
      */
-    private PolicyFinderResult<Policy> lookupPolicyByIdentifier(IdReferenceMatch idReferenceMatch) {
-        List<Policy> listCachedPolicies = this.getFromPolicyMap(idReferenceMatch, Policy.class);
+    private PolicyFinderResult<Policy> lookupPolicyByIdentifier(PolicyStore policyStoreIn,
+                                                                  IdReferenceMatch idReferenceMatch) {
+        List<Policy> listCachedPolicies = this.getFromPolicyMap(policyStoreIn.mapPolicies, idReferenceMatch, Policy.class);
         if (listCachedPolicies == null) {
             Identifier id = idReferenceMatch.getId();
             if (id != null) {
@@ -213,7 +408,7 @@ public class StdPolicyFinder implements PolicyFinder {
                 if (uri != null && uri.isAbsolute()) {
                     PolicyDef policyDef = null;
                     try {
-                        policyDef = this.loadPolicyDefFromURI(uri);
+                        policyDef = this.loadRemotePolicyDef(uri);
                     } catch (StdPolicyFinderException ex) {
                         return new StdPolicyFinderResult<Policy>(
                                                                  new StdStatus(
@@ -222,10 +417,6 @@ public class StdPolicyFinder implements PolicyFinder {
                     }
                     if (policyDef != null) {
                         if (policyDef instanceof Policy) {
-                            List<PolicyDef> listPolicyDefs = new ArrayList<PolicyDef>();
-                            listPolicyDefs.add(policyDef);
-                            this.mapPolicies.put(id, listPolicyDefs);
-                            this.mapPolicies.put(policyDef.getIdentifier(), listPolicyDefs);
                             return new StdPolicyFinderResult<Policy>((Policy)policyDef);
                         } else {
                             return PFR_NOT_A_POLICY;
@@ -245,14 +436,15 @@ public class StdPolicyFinder implements PolicyFinder {
 
     /**
      * Looks up the given {@link org.apache.openaz.xacml.api.Identifier} in the map first. If not found, and
-     * the <code>Identifier</code> contains a URL, then attempts to retrieve the document from the URL and
-     * caches it.
+     * the <code>Identifier</code> contains a URL, then attempts to retrieve the document from the URL through
+     * the remote loader cache.
      *
      * @param idReferenceMatch the <code>IdReferenceMatch</code> to look up
      * @return a <code>PolicyFinderResult</code> with the requested <code>PolicySet</code> or an error status
      */
-    private PolicyFinderResult<PolicySet> lookupPolicySetByIdentifier(IdReferenceMatch idReferenceMatch) {
-        List<PolicySet> listCachedPolicySets = this.getFromPolicyMap(idReferenceMatch, PolicySet.class);
+    private PolicyFinderResult<PolicySet> lookupPolicySetByIdentifier(PolicyStore policyStoreIn,
+                                                                  IdReferenceMatch idReferenceMatch) {
+        List<PolicySet> listCachedPolicySets = this.getFromPolicyMap(policyStoreIn.mapPolicies, idReferenceMatch, PolicySet.class);
         if (listCachedPolicySets == null) {
             Identifier id = idReferenceMatch.getId();
             if (id != null) {
@@ -260,7 +452,7 @@ public class StdPolicyFinder implements PolicyFinder {
                 if (uri != null && uri.isAbsolute()) {
                     PolicyDef policyDef = null;
                     try {
-                        policyDef = this.loadPolicyDefFromURI(uri);
+                        policyDef = this.loadRemotePolicyDef(uri);
                     } catch (StdPolicyFinderException ex) {
                         return new StdPolicyFinderResult<PolicySet>(
                                                                     new StdStatus(
@@ -269,10 +461,6 @@ public class StdPolicyFinder implements PolicyFinder {
                     }
                     if (policyDef != null) {
                         if (policyDef instanceof PolicySet) {
-                            List<PolicyDef> listPolicyDefs = new ArrayList<PolicyDef>();
-                            listPolicyDefs.add(policyDef);
-                            this.mapPolicies.put(id, listPolicyDefs);
-                            this.mapPolicies.put(policyDef.getIdentifier(), listPolicyDefs);
                             return new StdPolicyFinderResult<PolicySet>((PolicySet)policyDef);
                         } else {
                             return PFR_NOT_A_POLICYSET;
@@ -290,21 +478,166 @@ public class StdPolicyFinder implements PolicyFinder {
         }
     }
 
+    private static boolean isCacheable(PolicyFinderResult<?> policyFinderResult) {
+        return policyFinderResult.getStatus() == null || policyFinderResult.getStatus().isOk()
+               || policyFinderResult == PFR_POLICY_NOT_FOUND || policyFinderResult == PFR_NOT_A_POLICY
+               || policyFinderResult == PFR_POLICYSET_NOT_FOUND || policyFinderResult == PFR_NOT_A_POLICYSET;
+    }
+
     /**
-     * Adds the given <code>PolicyDef</code> to the map of loaded <code>PolicyDef</code>s and adds its child
-     * <code>PolicyDef</code>s recursively.
+     * Gets the result of looking up the given <code>IdReferenceMatch</code> as a <code>Policy</code> in the
+     * given <code>PolicyStore</code>, including the version constraint resolution, from the results of
+     * earlier lookups.
+     */
+    private PolicyFinderResult<Policy> findPolicy(PolicyStore policyStoreIn, IdReferenceMatch idReferenceMatch) {
+        PolicyFinderResult<Policy> policyFinderResult = policyStoreIn.mapPolicyResults.get(idReferenceMatch);
+        if (policyFinderResult == null) {
+            policyFinderResult = this.lookupPolicyByIdentifier(policyStoreIn, idReferenceMatch);
+            if (isCacheable(policyFinderResult)) {
+                policyStoreIn.mapPolicyResults.put(idReferenceMatch, policyFinderResult);
+            }
+        }
+        return policyFinderResult;
+    }
+
+    /**
+     * Gets the result of looking up the given <code>IdReferenceMatch</code> as a <code>PolicySet</code> in
+     * the given <code>PolicyStore</code>, including the version constraint resolution, from the results of
+     * earlier lookups.
+     */
+    private PolicyFinderResult<PolicySet> findPolicySet(PolicyStore policyStoreIn, IdReferenceMatch idReferenceMatch) {
+        PolicyFinderResult<PolicySet> policyFinderResult = policyStoreIn.mapPolicySetResults.get(idReferenceMatch);
+        if (policyFinderResult == null) {
+            policyFinderResult = this.lookupPolicySetByIdentifier(policyStoreIn, idReferenceMatch);
+            if (isCacheable(policyFinderResult)) {
+                policyStoreIn.mapPolicySetResults.put(idReferenceMatch, policyFinderResult);
+            }
+        }
+        return policyFinderResult;
+    }
+
+    /**
+     * Resolves every PolicyIdReference and PolicySetIdReference that can be reached from the root
+     * <code>PolicyDef</code>s of the given <code>PolicyStore</code> into its map of referencees, so that none
+     * of them has to be looked up while a request is evaluated, and records them in a new
+     * {@link PolicyDependencyGraph}.
+     */
+    private void resolveReferences(PolicyStore policyStoreIn) {
+        PolicyDependencyGraph policyDependencyGraphNew = new PolicyDependencyGraph();
+        Map<PolicyIdReferenceBase<?>, PolicyDef> mapReferenceesNew = new IdentityHashMap<PolicyIdReferenceBase<?>, PolicyDef>();
+        Set<PolicyDef> setResolved = Collections.newSetFromMap(new IdentityHashMap<PolicyDef, Boolean>());
+        for (PolicyDef policyDef : policyStoreIn.listRoots) {
+            this.resolveReferences(policyStoreIn, policyDef, policyDependencyGraphNew, mapReferenceesNew,
+                                   setResolved, new ArrayList<PolicyDef>());
+        }
+        for (IdReferenceMatch idReferenceMatch : policyDependencyGraphNew.getUnresolvedReferences()) {
+            this.logger.warn("Unresolved policy reference " + idReferenceMatch);
+        }
+        for (IdReferenceMatch idReferenceMatch : policyDependencyGraphNew.getCircularReferences()) {
+            this.logger.error("Circular policy reference " + idReferenceMatch);
+        }
+        policyStoreIn.mapReferencees = Collections.unmodifiableMap(mapReferenceesNew);
+        policyStoreIn.policyDependencyGraph = policyDependencyGraphNew;
+    }
+
+    private void resolveReferences(PolicyStore policyStoreIn, PolicyDef policyDef, //NOPMD
+                                   PolicyDependencyGraph policyDependencyGraphNew,
+                                   Map<PolicyIdReferenceBase<?>, PolicyDef> mapReferenceesNew,
+                                   Set<PolicyDef> setResolved, List<PolicyDef> listPath) {
+        if (!(policyDef instanceof PolicySet) || setResolved.contains(policyDef)) {
+            return;
+        }
+        listPath.add(policyDef);
+        this.prefetchRemotePolicyDefs(policyStoreIn, (PolicySet)policyDef);
+        Iterator<PolicySetChild> iterChildren = ((PolicySet)policyDef).getChildren();
+        while (iterChildren != null && iterChildren.hasNext()) {
+            PolicySetChild policySetChild = iterChildren.next();
+            if (policySetChild instanceof PolicyIdReference) {
+                PolicyIdReference policyIdReference = (PolicyIdReference)policySetChild;
+                PolicyFinderResult<Policy> policyFinderResult = this
+                    .findPolicy(policyStoreIn, policyIdReference.getIdReferenceMatch());
+                Policy policy = policyFinderResult.getPolicyDef();
+                if (policy == null) {
+                    policyDependencyGraphNew.addUnresolved(policyIdReference.getIdReferenceMatch());
+                } else {
+                    mapReferenceesNew.put(policyIdReference, policy);
+                    policyDependencyGraphNew.addReference(policyDef, policy);
+                }
+            } else if (policySetChild instanceof PolicySetIdReference) {
+                PolicySetIdReference policySetIdReference = (PolicySetIdReference)policySetChild;
+                PolicyFinderResult<PolicySet> policyFinderResult = this
+                    .findPolicySet(policyStoreIn, policySetIdReference.getIdReferenceMatch());
+                PolicySet policySet = policyFinderResult.getPolicyDef();
+                if (policySet == null) {
+                    policyDependencyGraphNew.addUnresolved(policySetIdReference.getIdReferenceMatch());
+                } else {
+                    mapReferenceesNew.put(policySetIdReference, policySet);
+                    policyDependencyGraphNew.addReference(policyDef, policySet);
+                    if (containsIdentical(listPath, policySet)) {
+                        policyDependencyGraphNew.addCircular(policySetIdReference.getIdReferenceMatch());
+                    } else {
+                        this.resolveReferences(policyStoreIn, policySet, policyDependencyGraphNew,
+                                               mapReferenceesNew, setResolved, listPath);
+                    }
+                }
+            } else if (policySetChild instanceof PolicyDef) {
+                this.resolveReferences(policyStoreIn, (PolicyDef)policySetChild, policyDependencyGraphNew,
+                                       mapReferenceesNew, setResolved, listPath);
+            }
+        }
+        listPath.remove(listPath.size() - 1);
+        setResolved.add(policyDef);
+    }
+
+    /**
+     * Starts loading the remote <code>PolicyDef</code>s that the references among the children of the given
+     * <code>PolicySet</code> may resolve to, so that they load in parallel while the references are resolved
+     * one after the other.
+     */
+    private void prefetchRemotePolicyDefs(PolicyStore policyStoreIn, PolicySet policySet) {
+        Iterator<PolicySetChild> iterChildren = policySet.getChildren();
+        while (iterChildren != null && iterChildren.hasNext()) {
+            PolicySetChild policySetChild = iterChildren.next();
+            if (!(policySetChild instanceof PolicyIdReferenceBase)) {
+                continue;
+            }
+            IdReferenceMatch idReferenceMatch = ((PolicyIdReferenceBase<?>)policySetChild)
+                .getIdReferenceMatch();
+            Identifier id = idReferenceMatch == null ? null : idReferenceMatch.getId();
+            if (id != null && !policyStoreIn.mapPolicies.containsKey(id)) {
+                URI uri = id.getUri();
+                if (uri != null && uri.isAbsolute()) {
+                    this.getRemotePolicyDef(uri);
+                }
+            }
+        }
+    }
+
+    private static boolean containsIdentical(List<PolicyDef> listPolicyDefs, PolicyDef policyDef) {
+        for (PolicyDef policyDefPath : listPolicyDefs) {
+            if (policyDefPath == policyDef) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given <code>PolicyDef</code> to the given map of loaded <code>PolicyDef</code>s and adds its
+     * child <code>PolicyDef</code>s recursively.
      *
+     * @param mapPolicies the map of loaded <code>PolicyDef</code>s to add to
      * @param policyDef the <code>PolicyDef</code> to add
      */
-    private void updatePolicyMap(PolicyDef policyDef) {
-        this.storeInPolicyMap(policyDef);
+    private static void updatePolicyMap(Map<Identifier, List<PolicyDef>> mapPolicies, PolicyDef policyDef) {
+        storeInPolicyMap(mapPolicies, policyDef);
         if (policyDef instanceof PolicySet) {
             Iterator<PolicySetChild> iterChildren = ((PolicySet)policyDef).getChildren();
             if (iterChildren != null) {
                 while (iterChildren.hasNext()) {
                     PolicySetChild policySetChild = iterChildren.next();
                     if (policySetChild instanceof PolicyDef) {
-                        this.updatePolicyMap((PolicyDef)policySetChild);
+                        updatePolicyMap(mapPolicies, (PolicyDef)policySetChild);
                     }
                 }
             }
@@ -312,17 +645,44 @@ public class StdPolicyFinder implements PolicyFinder {
     }
 
     public StdPolicyFinder(Collection<PolicyDef> listRootPolicies, Collection<PolicyDef> referencedPolicyDefs) {
+        this(listRootPolicies, referencedPolicyDefs, null);
+    }
+
+    /**
+     * Creates a new <code>StdPolicyFinder</code> with the given root <code>PolicyDef</code>s and referenced
+     * <code>PolicyDef</code>s, some of which may still be loading. The references in the root
+     * <code>PolicyDef</code>s are resolved right away if nothing is pending. Otherwise pending
+     * <code>PolicyDef</code>s are waited for, and the references resolved, the first time a
+     * <code>Policy</code> or <code>PolicySet</code> is looked up by reference, so root policies that do not
+     * use references can be evaluated right away.
+     *
+     * @param listRootPolicies the <code>Collection</code> of root <code>PolicyDef</code>s
+     * @param referencedPolicyDefs the <code>Collection</code> of loaded referenced <code>PolicyDef</code>s
+     * @param pendingPolicyDefs the <code>Collection</code> of <code>Future</code>s for referenced
+     *            <code>PolicyDef</code>s that are still loading
+     */
+    public StdPolicyFinder(Collection<PolicyDef> listRootPolicies, Collection<PolicyDef> referencedPolicyDefs,
+                           Collection<Future<PolicyDef>> pendingPolicyDefs) {
+        List<PolicyDef> listRoots = new ArrayList<PolicyDef>();
+        Map<Identifier, List<PolicyDef>> mapPolicies = new HashMap<Identifier, List<PolicyDef>>();
         if (listRootPolicies != null) {
             for (PolicyDef policyDef : listRootPolicies) {
-                this.listRoots.add(policyDef);
-                this.updatePolicyMap(policyDef);
+                listRoots.add(policyDef);
+                updatePolicyMap(mapPolicies, policyDef);
             }
         }
         if (referencedPolicyDefs != null) {
             for (PolicyDef policyDef : referencedPolicyDefs) {
-                this.storeInPolicyMap(policyDef);
+                storeInPolicyMap(mapPolicies, policyDef);
             }
         }
+        PolicyStore policyStoreNew = new PolicyStore(listRoots, mapPolicies);
+        if (pendingPolicyDefs != null && pendingPolicyDefs.size() > 0) {
+            this.listPendingPolicyDefs = new ArrayList<Future<PolicyDef>>(pendingPolicyDefs);
+            this.policyStore = policyStoreNew;
+        } else {
+            this.publish(policyStoreNew);
+        }
     }
 
     /**
@@ -331,22 +691,25 @@ public class StdPolicyFinder implements PolicyFinder {
      * @param rootPolicyDef the <code>PolicyDef</code> acting as the root element
      */
     public StdPolicyFinder(PolicyDef rootPolicyDef, Collection<PolicyDef> referencedPolicyDefs) {
+        List<PolicyDef> listRoots = new ArrayList<PolicyDef>();
+        Map<Identifier, List<PolicyDef>> mapPolicies = new HashMap<Identifier, List<PolicyDef>>();
         if (rootPolicyDef != null) {
-            this.listRoots.add(rootPolicyDef);
-            this.updatePolicyMap(rootPolicyDef);
+            listRoots.add(rootPolicyDef);
+            updatePolicyMap(mapPolicies, rootPolicyDef);
         }
 
         if (referencedPolicyDefs != null) {
             for (PolicyDef policyDef : referencedPolicyDefs) {
-                this.storeInPolicyMap(policyDef);
+                storeInPolicyMap(mapPolicies, policyDef);
             }
         }
+        this.publish(new PolicyStore(listRoots, mapPolicies));
     }
 
     @Override
     public PolicyFinderResult<PolicyDef> getRootPolicyDef(EvaluationContext evaluationContext) {
         PolicyDef policyDefFirstMatch = null;
-        Iterator<PolicyDef> iterRootPolicies = this.listRoots.iterator();
+        Iterator<PolicyDef> iterRootPolicies = this.policyStore.listRoots.iterator();
         PolicyFinderResult<PolicyDef> firstIndeterminate = null;
         while (iterRootPolicies.hasNext()) {
             PolicyDef policyDef = iterRootPolicies.next();
@@ -392,15 +755,59 @@ public class StdPolicyFinder implements PolicyFinder {
 
     @Override
     public PolicyFinderResult<Policy> getPolicy(IdReferenceMatch idReferenceMatch) {
-        return this.lookupPolicyByIdentifier(idReferenceMatch);
+        this.resolvePendingPolicyDefs();
+        return this.findPolicy(this.policyStore, idReferenceMatch);
     }
 
     @Override
     public PolicyFinderResult<PolicySet> getPolicySet(IdReferenceMatch idReferenceMatch) {
-        return this.lookupPolicySetByIdentifier(idReferenceMatch);
+        this.resolvePendingPolicyDefs();
+        return this.findPolicySet(this.policyStore, idReferenceMatch);
+    }
+
+    @Override
+    public PolicyDef getReferencee(PolicyIdReferenceBase<?> policyIdReferenceBase) {
+        return this.policyStore.mapReferencees.get(policyIdReferenceBase);
     }
 
-    public void addReferencedPolicy(PolicyDef policyDef) {
-        this.updatePolicyMap(policyDef);
+    @Override
+    public PolicyAttributeDependencies getAttributeDependencies(PolicyDef policyDef) {
+        return this.getAttributeDependencies(this.policyStore, policyDef);
+    }
+
+    private PolicyAttributeDependencies getAttributeDependencies(PolicyStore policyStoreIn, //NOPMD
+                                                                 PolicyDef policyDef) {
+        PolicyAttributeDependencies policyAttributeDependencies = policyStoreIn.mapAttributeDependencies
+            .get(policyDef);
+        if (policyAttributeDependencies == null) {
+            policyAttributeDependencies = PolicyAttributeDependencies.newInstance(policyDef,
+                                                                                  policyStoreIn.mapReferencees);
+            policyStoreIn.mapAttributeDependencies.put(policyDef, policyAttributeDependencies);
+        }
+        return policyAttributeDependencies;
+    }
+
+    /**
+     * Gets the {@link PolicyDependencyGraph} of the references resolved from the root <code>PolicyDef</code>s.
+     *
+     * @return the <code>PolicyDependencyGraph</code>
+     */
+    public PolicyDependencyGraph getPolicyDependencyGraph() {
+        this.resolvePendingPolicyDefs();
+        return this.policyStore.policyDependencyGraph;
+    }
+
+    /**
+     * Adds the given <code>PolicyDef</code> and its child <code>PolicyDef</code>s to the ones references can
+     * be resolved to. Lookups that are already running keep using the previous snapshot.
+     *
+     * @param policyDef the <code>PolicyDef</code> to add
+     */
+    public synchronized void addReferencedPolicy(PolicyDef policyDef) {
+        this.resolvePendingPolicyDefs();
+        PolicyStore policyStoreCurrent = this.policyStore;
+        Map<Identifier, List<PolicyDef>> mapPoliciesNew = policyStoreCurrent.copyPolicyMap();
+        updatePolicyMap(mapPoliciesNew, policyDef);
+        this.publish(new PolicyStore(policyStoreCurrent.listRoots, mapPoliciesNew));
     }
 }
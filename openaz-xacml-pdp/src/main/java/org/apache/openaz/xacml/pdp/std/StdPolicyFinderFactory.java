@@ -41,6 +41,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -68,7 +72,9 @@ import com.google.common.base.Splitter;
  * StdPolicyFinderFactory extends {@link org.apache.openaz.xacml.pdp.policy.PolicyFinderFactory} with the
  * <code>getPolicyFinder</code> method to get a single instance of the {@link StdPolicyFinder}. The root
  * {@link org.apache.openaz.xacml.pdp.policy.PolicyDef} is loaded from a file whose name is specified as a
- * system property or in the $java.home/lib/xacml.properties property set.
+ * system property or in the $java.home/lib/xacml.properties property set. Policies are parsed in parallel on a
+ * bounded pool of loader threads, and policies already parsed by a loader are taken from the
+ * {@link StdPolicyDefCache} rather than parsed again.
  */
 public class StdPolicyFinderFactory extends PolicyFinderFactory {
     public static final String PROP_FILE = ".file";
@@ -77,6 +83,7 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
     private Log logger = LogFactory.getLog(this.getClass());
     private List<PolicyDef> rootPolicies;
     private List<PolicyDef> referencedPolicies;
+    private List<Future<PolicyDef>> pendingReferencedPolicies;
     private boolean needsInit = true;
 
     /**
@@ -98,7 +105,7 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
             } else {
                 try {
                     this.logger.info("Loading policy file " + fileLocation);
-                    PolicyDef policyDef = DOMPolicyDef.load(fileLocation);
+                    PolicyDef policyDef = StdPolicyDefCache.take(fileLocation);
                     if (policyDef != null) {
                         return policyDef;
                     }
@@ -141,15 +148,24 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
         return null;
     }
 
+    private ExecutorService newExecutorService(Properties properties) {
+        return StdPolicyDefCache.newExecutorService(StdPolicyDefCache.getLoadThreads(properties
+            .getProperty(OpenAZPDPProperties.PROP_POLICYFINDERFACTORY_LOADTHREADS)));
+    }
+
     /**
      * Finds the identifiers for all of the policies referenced by the given property name in the
-     * <code>XACMLProperties</code> and loads them using the requested loading method.
+     * <code>XACMLProperties</code> and submits them to the given <code>ExecutorService</code> to be loaded
+     * using the requested loading method.
      *
      * @param propertyName the <code>String</code> name of the property containing the list of policy
      *            identifiers
-     * @return a <code>List</code> of <code>PolicyDef</code>s loaded from the given property name
+     * @param executorService the <code>ExecutorService</code> to load the policies on
+     * @return a <code>List</code> of <code>Future</code>s for the <code>PolicyDef</code>s, in the order they
+     *         are listed in the property
      */
-    protected List<PolicyDef> getPolicyDefs(String propertyName, Properties properties) {
+    protected List<Future<PolicyDef>> submitPolicyDefs(String propertyName, final Properties properties,
+                                                       ExecutorService executorService) {
         String policyIds = properties.getProperty(propertyName);
         if (policyIds == null || policyIds.length() == 0) {
             return null;
@@ -160,18 +176,83 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
             return null;
         }
 
+        List<Future<PolicyDef>> listFutures = new ArrayList<Future<PolicyDef>>();
+        for (final String policyId : policyIdArray) {
+            listFutures.add(executorService.submit(new Callable<PolicyDef>() {
+                @Override
+                public PolicyDef call() {
+                    return loadPolicyDef(policyId, properties);
+                }
+            }));
+        }
+        return listFutures;
+    }
+
+    /**
+     * Waits for the given <code>Future</code>s and collects the <code>PolicyDef</code>s that were loaded.
+     *
+     * @param listFutures the <code>List</code> of <code>Future</code>s returned by
+     *            <code>submitPolicyDefs</code>
+     * @return a <code>List</code> of the loaded <code>PolicyDef</code>s
+     */
+    protected List<PolicyDef> collectPolicyDefs(List<Future<PolicyDef>> listFutures) {
+        if (listFutures == null) {
+            return null;
+        }
         List<PolicyDef> listPolicyDefs = new ArrayList<PolicyDef>();
-        for (String policyId : policyIdArray) {
-            PolicyDef policyDef = this.loadPolicyDef(policyId, properties);
-            if (policyDef != null) {
-                listPolicyDefs.add(policyDef);
+        for (Future<PolicyDef> future : listFutures) {
+            try {
+                PolicyDef policyDef = future.get();
+                if (policyDef != null) {
+                    listPolicyDefs.add(policyDef);
+                }
+            } catch (ExecutionException ex) {
+                this.logger.error("Error loading policy: " + ex.getCause().getMessage(), ex.getCause());
+            } catch (InterruptedException ex) {
+                this.logger.error("Interrupted loading policies");
+                Thread.currentThread().interrupt();
+                break;
             }
         }
         return listPolicyDefs;
     }
 
+    /**
+     * Finds the identifiers for all of the policies referenced by the given property name in the
+     * <code>XACMLProperties</code> and loads them using the requested loading method.
+     *
+     * @param propertyName the <code>String</code> name of the property containing the list of policy
+     *            identifiers
+     * @return a <code>List</code> of <code>PolicyDef</code>s loaded from the given property name
+     */
+    protected List<PolicyDef> getPolicyDefs(String propertyName, Properties properties) {
+        ExecutorService executorService = this.newExecutorService(properties);
+        try {
+            return this.collectPolicyDefs(this.submitPolicyDefs(propertyName, properties, executorService));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     protected synchronized void init(Properties properties) {
         if (this.needsInit) {
+            //
+            // Start loading the root and referenced policies in parallel
+            //
+            ExecutorService executorService = this.newExecutorService(properties);
+            List<Future<PolicyDef>> listRootFutures;
+            List<Future<PolicyDef>> listReferencedFutures;
+            try {
+                listRootFutures = this.submitPolicyDefs(XACMLProperties.PROP_ROOTPOLICIES, properties,
+                                                        executorService);
+                listReferencedFutures = this.submitPolicyDefs(XACMLProperties.PROP_REFERENCEDPOLICIES,
+                                                              properties, executorService);
+            } finally {
+                //
+                // Already submitted policies still get loaded
+                //
+                executorService.shutdown();
+            }
             //
             // Check for property that combines root policies into one policyset
             //
@@ -199,7 +280,7 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
                     //
                     // Load all our root policies
                     //
-                    for (PolicyDef policy : this.getPolicyDefs(XACMLProperties.PROP_ROOTPOLICIES, properties)) {
+                    for (PolicyDef policy : this.collectPolicyDefs(listRootFutures)) {
                         root.addChild(policy);
                     }
                     //
@@ -211,10 +292,19 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
                     logger.error("Failed to load Combining Algorithm Factory: " + e.getLocalizedMessage());
                 }
             } else {
-                this.rootPolicies = this.getPolicyDefs(XACMLProperties.PROP_ROOTPOLICIES, properties);
+                this.rootPolicies = this.collectPolicyDefs(listRootFutures);
             }
 
-            this.referencedPolicies = this.getPolicyDefs(XACMLProperties.PROP_REFERENCEDPOLICIES, properties);
+            //
+            // Referenced policies may be left to finish loading in the background, in which case the
+            // PolicyFinder waits for them the first time a reference is looked up.
+            //
+            if (Boolean.parseBoolean(properties
+                .getProperty(OpenAZPDPProperties.PROP_POLICYFINDERFACTORY_LAZYREFERENCEDPOLICIES, "false"))) {
+                this.pendingReferencedPolicies = listReferencedFutures;
+            } else {
+                this.referencedPolicies = this.collectPolicyDefs(listReferencedFutures);
+            }
             this.needsInit = false;
         }
     }
@@ -229,12 +319,12 @@ public class StdPolicyFinderFactory extends PolicyFinderFactory {
         } catch (IOException e) {
             throw new FactoryException(e);
         }
-        return new StdPolicyFinder(this.rootPolicies, this.referencedPolicies);
+        return new StdPolicyFinder(this.rootPolicies, this.referencedPolicies, this.pendingReferencedPolicies);
     }
 
     @Override
     public PolicyFinder getPolicyFinder(Properties properties) throws FactoryException {
         this.init(properties);
-        return new StdPolicyFinder(this.rootPolicies, this.referencedPolicies);
+        return new StdPolicyFinder(this.rootPolicies, this.referencedPolicies, this.pendingReferencedPolicies);
     }
 }
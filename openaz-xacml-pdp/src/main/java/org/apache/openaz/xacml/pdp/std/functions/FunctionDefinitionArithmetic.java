@@ -34,7 +34,6 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.openaz.xacml.api.AttributeValue;
 import org.apache.openaz.xacml.api.DataType;
 import org.apache.openaz.xacml.api.Identifier;
 import org.apache.openaz.xacml.api.Status;
@@ -42,6 +41,7 @@ import org.apache.openaz.xacml.api.XACML;
 import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
 import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
 import org.apache.openaz.xacml.pdp.policy.FunctionArgument;
+import org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFixedArity;
 import org.apache.openaz.xacml.std.StdAttributeValue;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
@@ -60,7 +60,8 @@ import org.apache.openaz.xacml.std.datatypes.DataTypes;
  *
  * @param <T> the java class for the data type of the function arguments
  */
-public class FunctionDefinitionArithmetic<T extends Number> extends FunctionDefinitionHomogeneousSimple<T, T> {
+public class FunctionDefinitionArithmetic<T extends Number> extends FunctionDefinitionHomogeneousSimple<T, T>
+    implements FunctionDefinitionFixedArity {
 
     /**
      * List of arithmetic operations.
@@ -79,10 +80,6 @@ public class FunctionDefinitionArithmetic<T extends Number> extends FunctionDefi
     // operation to be used in this instance of the Arightmetic class
     private final OPERATION operation;
 
-    // result variables used by all functions, one for each type
-    private AttributeValue<BigInteger> integerResult;
-    private AttributeValue<Double> doubleResult;
-
     /**
      * Constructor
      *
@@ -111,145 +108,155 @@ public class FunctionDefinitionArithmetic<T extends Number> extends FunctionDefi
             return ExpressionResult.newError(getFunctionStatus(status));
         }
 
-        /*
-         * Now perform the requested operation.
-         */
-        ExpressionResult expressionResult = null;
+        return this.compute(convertedArguments.get(0),
+                            (convertedArguments.size() > 1 ? convertedArguments.get(1) : null));
+    }
+
+    @Override
+    public ExpressionResult evaluate(EvaluationContext evaluationContext, FunctionArgument argument0,
+                                     FunctionArgument argument1) {
+        T value0 = this.convertSimpleArgument(argument0);
+        T value1 = null;
+        if (value0 != null && argument1 != null) {
+            value1 = this.convertSimpleArgument(argument1);
+        }
+        if (value0 == null || argument1 != null && value1 == null) {
+            List<FunctionArgument> arguments = new ArrayList<FunctionArgument>(2);
+            arguments.add(argument0);
+            if (argument1 != null) {
+                arguments.add(argument1);
+            }
+            return this.evaluate(evaluationContext, arguments);
+        }
+        return this.compute(value0, value1);
+    }
+
+    private ExpressionResult divideByZero(Object value0, Object value1) {
+        return ExpressionResult.newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR, this
+            .getShortFunctionId() + " Divide by 0 error: " + value0.toString() + ", " + value1.toString()));
+    }
+
+    /*
+     * Results of the primitive long operations in this range are shared, so the common small counts and
+     * offsets in policies do not allocate a BigInteger and an AttributeValue for every evaluation.
+     */
+    private static final int SMALL_INTEGER_MIN = -128;
+    private static final int SMALL_INTEGER_MAX = 1023;
+    private static final ExpressionResult[] SMALL_INTEGER_RESULTS = new ExpressionResult[SMALL_INTEGER_MAX
+                                                                                         - SMALL_INTEGER_MIN
+                                                                                         + 1];
+    static {
+        for (int i = SMALL_INTEGER_MIN; i <= SMALL_INTEGER_MAX; i++) {
+            SMALL_INTEGER_RESULTS[i - SMALL_INTEGER_MIN] = newInteger(BigInteger.valueOf(i));
+        }
+    }
+
+    private static ExpressionResult newInteger(long value) {
+        if (value >= SMALL_INTEGER_MIN && value <= SMALL_INTEGER_MAX) {
+            return SMALL_INTEGER_RESULTS[(int)value - SMALL_INTEGER_MIN];
+        }
+        return newInteger(BigInteger.valueOf(value));
+    }
 
+    private static ExpressionResult newInteger(BigInteger value) { //NOPMD
+        return ExpressionResult.newSingle(new StdAttributeValue<BigInteger>(XACML.ID_DATATYPE_INTEGER, value));
+    }
+
+    private static ExpressionResult newDouble(double value) {
+        return ExpressionResult.newSingle(new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE, value));
+    }
+
+    /**
+     * Performs the operation on the converted argument values. <code>Double</code> operations are done on
+     * primitive <code>double</code>s, and integer operations whose operands and result fit in a
+     * <code>long</code> are done on primitive <code>long</code>s. Small integer results are shared rather
+     * than allocated.
+     *
+     * @param value0 the first argument value
+     * @param value1 the second argument value, or null for the single argument operations
+     * @return the <code>ExpressionResult</code> of the operation
+     */
+    private ExpressionResult compute(T value0, T value1) {
         try {
-            switch (operation) {
-            case ADD:
-                if (this.getDataType() == DataTypes.DT_INTEGER) {
-                    integerResult = new StdAttributeValue<BigInteger>(XACML.ID_DATATYPE_INTEGER,
-                                                                      ((BigInteger)convertedArguments.get(0))
-                                                                          .add((BigInteger)convertedArguments
-                                                                              .get(1)));
-                    expressionResult = ExpressionResult.newSingle(integerResult);
-                } else {
-                    doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                                 (Double)convertedArguments.get(0)
-                                                                     + (Double)convertedArguments.get(1));
-                    expressionResult = ExpressionResult.newSingle(doubleResult);
-                }
-                break;
-            case SUBTRACT:
-                if (this.getDataType() == DataTypes.DT_INTEGER) {
-                    integerResult = new StdAttributeValue<BigInteger>(
-                                                                      XACML.ID_DATATYPE_INTEGER,
-                                                                      ((BigInteger)convertedArguments.get(0))
-                                                                          .subtract((BigInteger)convertedArguments
-                                                                              .get(1)));
-                    expressionResult = ExpressionResult.newSingle(integerResult);
-                } else {
-                    doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                                 (Double)convertedArguments.get(0)
-                                                                     - (Double)convertedArguments.get(1));
-                    expressionResult = ExpressionResult.newSingle(doubleResult);
-                }
-                break;
-            case MULTIPLY:
-                if (this.getDataType() == DataTypes.DT_INTEGER) {
-                    integerResult = new StdAttributeValue<BigInteger>(
-                                                                      XACML.ID_DATATYPE_INTEGER,
-                                                                      ((BigInteger)convertedArguments.get(0))
-                                                                          .multiply((BigInteger)convertedArguments
-                                                                              .get(1)));
-                    expressionResult = ExpressionResult.newSingle(integerResult);
-                } else {
-                    doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                                 (Double)convertedArguments.get(0)
-                                                                     * (Double)convertedArguments.get(1));
-                    expressionResult = ExpressionResult.newSingle(doubleResult);
-                }
-                break;
-            case DIVIDE:
-                if (this.getDataType() == DataTypes.DT_INTEGER) {
-                    if (((BigInteger)convertedArguments.get(1)).equals(BigInteger.ZERO)) {
-                        return ExpressionResult
-                            .newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR,
-                                                    this.getShortFunctionId() + " Divide by 0 error: "
-                                                        + arguments.get(0).getValue().getValue().toString()
-                                                        + ", "
-                                                        + arguments.get(1).getValue().getValue().toString()));
+            if (this.getDataType() == DataTypes.DT_INTEGER) {
+                BigInteger integer0 = (BigInteger)value0;
+                BigInteger integer1 = (BigInteger)value1;
+                switch (operation) {
+                case ADD:
+                    if (integer0.bitLength() < 63 && integer1.bitLength() < 63) {
+                        return newInteger(integer0.longValue() + integer1.longValue());
                     }
-                    integerResult = new StdAttributeValue<BigInteger>(
-                                                                      XACML.ID_DATATYPE_INTEGER,
-                                                                      ((BigInteger)convertedArguments.get(0))
-                                                                          .divide((BigInteger)convertedArguments
-                                                                              .get(1)));
-                    expressionResult = ExpressionResult.newSingle(integerResult);
-                } else {
-                    if ((Double)convertedArguments.get(1) == 0) {
-                        return ExpressionResult
-                            .newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR,
-                                                    this.getShortFunctionId() + " Divide by 0 error: "
-                                                        + arguments.get(0).getValue().getValue().toString()
-                                                        + ", "
-                                                        + arguments.get(1).getValue().getValue().toString()));
+                    return newInteger(integer0.add(integer1));
+                case SUBTRACT:
+                    if (integer0.bitLength() < 63 && integer1.bitLength() < 63) {
+                        return newInteger(integer0.longValue() - integer1.longValue());
                     }
-                    doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                                 (Double)convertedArguments.get(0)
-                                                                     / (Double)convertedArguments.get(1));
-                    expressionResult = ExpressionResult.newSingle(doubleResult);
-                }
-                break;
-            case MOD:
-                if (((BigInteger)convertedArguments.get(1)).equals(BigInteger.ZERO)) {
-                    return ExpressionResult
-                        .newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR,
-                                                this.getShortFunctionId() + " Divide by 0 error: "
-                                                    + arguments.get(0).getValue().getValue().toString()
-                                                    + ", "
-                                                    + arguments.get(1).getValue().getValue().toString()));
+                    return newInteger(integer0.subtract(integer1));
+                case MULTIPLY:
+                    if (integer0.bitLength() < 32 && integer1.bitLength() < 32) {
+                        return newInteger(integer0.longValue() * integer1.longValue());
+                    }
+                    return newInteger(integer0.multiply(integer1));
+                case DIVIDE:
+                    if (integer1.signum() == 0) {
+                        return this.divideByZero(integer0, integer1);
+                    }
+                    if (integer0.bitLength() < 63 && integer1.bitLength() < 63) {
+                        return newInteger(integer0.longValue() / integer1.longValue());
+                    }
+                    return newInteger(integer0.divide(integer1));
+                case MOD:
+                    if (integer1.signum() == 0) {
+                        return this.divideByZero(integer0, integer1);
+                    }
+                    if (integer0.bitLength() < 63 && integer1.bitLength() < 63) {
+                        return newInteger(integer0.longValue() % integer1.longValue());
+                    }
+                    return newInteger(integer0.remainder(integer1));
+                case ABS:
+                    return newInteger(integer0.abs());
+                default:
+                    break;
                 }
-                integerResult = new StdAttributeValue<BigInteger>(
-                                                                  XACML.ID_DATATYPE_INTEGER,
-                                                                  ((BigInteger)convertedArguments.get(0))
-                                                                      .remainder((BigInteger)convertedArguments
-                                                                          .get(1)));
-                expressionResult = ExpressionResult.newSingle(integerResult);
-                break;
-            case ABS:
-                if (this.getDataType() == DataTypes.DT_INTEGER) {
-                    integerResult = new StdAttributeValue<BigInteger>(XACML.ID_DATATYPE_INTEGER,
-                                                                      ((BigInteger)convertedArguments.get(0))
-                                                                          .abs());
-                    expressionResult = ExpressionResult.newSingle(integerResult);
-                } else {
-                    doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                                 Math.abs((Double)convertedArguments.get(0)));
-                    expressionResult = ExpressionResult.newSingle(doubleResult);
+            } else {
+                double double0 = ((Double)value0).doubleValue();
+                switch (operation) {
+                case ADD:
+                    return newDouble(double0 + ((Double)value1).doubleValue());
+                case SUBTRACT:
+                    return newDouble(double0 - ((Double)value1).doubleValue());
+                case MULTIPLY:
+                    return newDouble(double0 * ((Double)value1).doubleValue());
+                case DIVIDE:
+                    double double1 = ((Double)value1).doubleValue();
+                    if (double1 == 0) {
+                        return this.divideByZero(value0, value1);
+                    }
+                    return newDouble(double0 / double1);
+                case ABS:
+                    return newDouble(Math.abs(double0));
+                case ROUND:
+                    return newDouble(Math.round(double0));
+                case FLOOR:
+                    return newDouble(Math.floor(double0));
+                default:
+                    break;
                 }
-                break;
-            case ROUND:
-                doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                             (double)(Math.round((Double)convertedArguments
-                                                                 .get(0))));
-                expressionResult = ExpressionResult.newSingle(doubleResult);
-                break;
-            case FLOOR:
-                doubleResult = new StdAttributeValue<Double>(XACML.ID_DATATYPE_DOUBLE,
-                                                             Math.floor((Double)convertedArguments.get(0)));
-                expressionResult = ExpressionResult.newSingle(doubleResult);
-                break;
             }
         } catch (Exception e) {
             String message = e.getMessage();
             if (e.getCause() != null) {
                 message = e.getCause().getMessage();
             }
-            String args = arguments.get(0).getValue().toString();
-            if (arguments.size() > 1) {
-                args += ", " + arguments.get(1).getValue().toString();
+            String args = String.valueOf(value0);
+            if (value1 != null) {
+                args += ", " + value1;
             }
-            expressionResult = ExpressionResult
-                .newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR, this.getShortFunctionId()
-                                                                                    + " " + message
-                                                                                    + " args: " + args + " "
-                                                                                    + e.getMessage()));
+            return ExpressionResult.newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR, this
+                .getShortFunctionId() + " " + message + " args: " + args + " " + e.getMessage()));
         }
-
-        return expressionResult;
+        return ExpressionResult.newError(new StdStatus(StdStatusCode.STATUS_CODE_PROCESSING_ERROR, this
+            .getShortFunctionId() + " ENUM did not cover case of " + operation));
     }
 
 }
@@ -36,7 +36,6 @@ import org.apache.openaz.xacml.api.Status;
 import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
 import org.apache.openaz.xacml.pdp.policy.FunctionDefinition;
 import org.apache.openaz.xacml.std.StdStatus;
-import org.apache.openaz.xacml.std.datatypes.DataTypeBoolean;
 
 /**
  * /** FunctionDefinitionBase provides a common base for
@@ -86,8 +85,8 @@ public abstract class FunctionDefinitionBase<O, I> implements FunctionDefinition
      * For functions that return a Boolean result we create a single instance of the True/False return values
      * that they can share
      */
-    protected static final ExpressionResult ER_TRUE = ExpressionResult.newSingle(DataTypeBoolean.AV_TRUE);
-    protected static final ExpressionResult ER_FALSE = ExpressionResult.newSingle(DataTypeBoolean.AV_FALSE);
+    protected static final ExpressionResult ER_TRUE = ExpressionResult.newBoolean(true);
+    protected static final ExpressionResult ER_FALSE = ExpressionResult.newBoolean(false);
 
     /**
      * Creates a new <code>FunctionDefinitionBase</code> with the
@@ -30,7 +30,9 @@
  */
 package org.apache.openaz.xacml.pdp.std.functions;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.openaz.xacml.api.DataType;
@@ -39,6 +41,7 @@ import org.apache.openaz.xacml.api.Status;
 import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
 import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
 import org.apache.openaz.xacml.pdp.policy.FunctionArgument;
+import org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFixedArity;
 import org.apache.openaz.xacml.std.StdStatus;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.datatypes.DataTypes;
@@ -55,7 +58,7 @@ import org.apache.openaz.xacml.std.datatypes.DataTypes;
  * @param <I> the java class for the data type of the function Input arguments
  */
 public class FunctionDefinitionComparison<I extends Comparable<I>> extends
-    FunctionDefinitionHomogeneousSimple<Boolean, I> {
+    FunctionDefinitionHomogeneousSimple<Boolean, I> implements FunctionDefinitionFixedArity {
 
     /**
      * List of comparison operations.
@@ -94,9 +97,41 @@ public class FunctionDefinitionComparison<I extends Comparable<I>> extends
             return ExpressionResult.newError(getFunctionStatus(status));
         }
 
+        return this.compare(convertedArguments.get(0), convertedArguments.get(1));
+    }
+
+    @Override
+    public ExpressionResult evaluate(EvaluationContext evaluationContext, FunctionArgument argument0,
+                                     FunctionArgument argument1) {
+        I value0 = this.convertSimpleArgument(argument0);
+        I value1 = (value0 == null ? null : this.convertSimpleArgument(argument1));
+        if (value1 == null) {
+            return this.evaluate(evaluationContext, Arrays.asList(argument0, argument1));
+        }
+        return this.compare(value0, value1);
+    }
+
+    /**
+     * Compares two converted argument values. <code>Double</code>s and <code>BigInteger</code>s that fit in
+     * a <code>long</code> are compared as primitives.
+     */
+    private int compareValues(I value0, I value1) {
+        if (value0 instanceof Double && value1 instanceof Double) {
+            return Double.compare(((Double)value0).doubleValue(), ((Double)value1).doubleValue());
+        } else if (value0 instanceof BigInteger && value1 instanceof BigInteger
+                   && ((BigInteger)value0).bitLength() < 64 && ((BigInteger)value1).bitLength() < 64) {
+            long long0 = ((BigInteger)value0).longValue();
+            long long1 = ((BigInteger)value1).longValue();
+            return long0 < long1 ? -1 : long0 == long1 ? 0 : 1;
+        } else {
+            return value0.compareTo(value1);
+        }
+    }
+
+    private ExpressionResult compare(I value0, I value1) {
         int compareResult;
         try {
-            compareResult = convertedArguments.get(0).compareTo(convertedArguments.get(1));
+            compareResult = this.compareValues(value0, value1);
         } catch (Exception e) {
             String message = e.getMessage();
             if (e.getCause() != null) {
@@ -31,6 +31,7 @@
 package org.apache.openaz.xacml.pdp.std.functions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.openaz.xacml.api.DataType;
@@ -39,6 +40,7 @@ import org.apache.openaz.xacml.api.Status;
 import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
 import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
 import org.apache.openaz.xacml.pdp.policy.FunctionArgument;
+import org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFixedArity;
 import org.apache.openaz.xacml.std.StdStatusCode;
 import org.apache.openaz.xacml.std.datatypes.DataTypes;
 
@@ -53,7 +55,8 @@ import org.apache.openaz.xacml.std.datatypes.DataTypes;
  *
  * @param <I> the java class for the data type of the function Input arguments
  */
-public class FunctionDefinitionEquality<I> extends FunctionDefinitionHomogeneousSimple<Boolean, I> {
+public class FunctionDefinitionEquality<I> extends FunctionDefinitionHomogeneousSimple<Boolean, I> implements
+    FunctionDefinitionFixedArity {
 
     /**
      * Determines if the two <code>T</code> values are equal using the java <code>equals</code> method.
@@ -93,4 +96,15 @@ public class FunctionDefinitionEquality<I> extends FunctionDefinitionHomogeneous
         }
     }
 
+    @Override
+    public ExpressionResult evaluate(EvaluationContext evaluationContext, FunctionArgument argument0,
+                                     FunctionArgument argument1) {
+        I value0 = this.convertSimpleArgument(argument0);
+        I value1 = (value0 == null ? null : this.convertSimpleArgument(argument1));
+        if (value1 == null) {
+            return this.evaluate(evaluationContext, Arrays.asList(argument0, argument1));
+        }
+        return ExpressionResult.newBoolean(this.isEqual(value0, value1));
+    }
+
 }
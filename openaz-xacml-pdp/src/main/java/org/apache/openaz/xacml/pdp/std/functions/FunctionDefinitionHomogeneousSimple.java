@@ -32,6 +32,7 @@ package org.apache.openaz.xacml.pdp.std.functions;
 
 import java.util.List;
 
+import org.apache.openaz.xacml.api.AttributeValue;
 import org.apache.openaz.xacml.api.DataType;
 import org.apache.openaz.xacml.api.Identifier;
 import org.apache.openaz.xacml.api.Status;
@@ -90,6 +91,40 @@ public abstract class FunctionDefinitionHomogeneousSimple<O, I> extends Function
         return this.numArgs;
     }
 
+    /**
+     * Gets the number of arguments for use by
+     * {@link org.apache.openaz.xacml.pdp.policy.FunctionDefinitionFixedArity} implementations.
+     *
+     * @return the number of arguments, or -1 if the number of arguments is variable
+     */
+    public int getArity() {
+        return this.numArgs == null ? -1 : this.numArgs;
+    }
+
+    /**
+     * Converts a single, non-bag <code>FunctionArgument</code> to the argument data type without allocating a
+     * {@link ConvertedArgument}. If the argument is not valid null is returned, and the caller should use
+     * <code>validateArguments</code> to get the error <code>Status</code>.
+     *
+     * @param functionArgument the <code>FunctionArgument</code> to convert
+     * @return the converted value or null if the argument is not valid
+     */
+    protected I convertSimpleArgument(FunctionArgument functionArgument) {
+        if (functionArgument == null || !functionArgument.isOk() || functionArgument.isBag()) {
+            return null;
+        }
+        AttributeValue<?> attributeValue = functionArgument.getValue();
+        if (attributeValue == null || attributeValue.getValue() == null
+            || !attributeValue.getDataTypeId().equals(this.getDataTypeArgs().getId())) {
+            return null;
+        }
+        try {
+            return this.getDataTypeArgs().convert(attributeValue.getValue());
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
     /**
      * Validates the given <code>List</code> of <code>FunctionArgument</code>s has the correct count and
      * <code>DataType</code> and evaluates expressions. This combines both the argument list length check and
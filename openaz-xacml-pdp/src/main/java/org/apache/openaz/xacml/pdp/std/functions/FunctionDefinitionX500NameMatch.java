@@ -86,20 +86,18 @@ public class FunctionDefinitionX500NameMatch extends
          * that the first sequence must exactly match the END of the second sequence.
          */
 
-        String[] searchFor = convertedArguments.get(0).getName().split(",");
-        String[] searchIn = convertedArguments.get(1).getName().split(",");
+        List<String> searchFor = DataTypes.DT_X500NAME.getRelativeDistinguishedNames(convertedArguments
+            .get(0));
+        List<String> searchIn = DataTypes.DT_X500NAME.getRelativeDistinguishedNames(convertedArguments.get(1));
 
         // if first is bigger than 2nd there is no way we can match
-        if (searchFor.length > searchIn.length) {
+        if (searchFor.size() > searchIn.size()) {
             return ER_FALSE;
         }
 
         // start from back-end of both lists - everything should match up to the length of the input
-        for (int i = 0; i < searchFor.length; i++) {
-            String searchForTerm = searchFor[searchFor.length - i - 1];
-            String searchInTerm = searchIn[searchIn.length - i - 1];
-            if (searchForTerm == null || searchInTerm == null
-                || !searchForTerm.trim().equals(searchInTerm.trim())) {
+        for (int i = 1; i <= searchFor.size(); i++) {
+            if (!searchFor.get(searchFor.size() - i).equals(searchIn.get(searchIn.size() - i))) {
                 return ER_FALSE;
             }
         }
@@ -0,0 +1,205 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.trace;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openaz.xacml.api.Decision;
+import org.apache.openaz.xacml.api.trace.Traceable;
+import org.apache.openaz.xacml.pdp.eval.MatchResult;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * DecisionTrace holds the events recorded by the {@link SamplingTraceEngine} for one decision and turns them
+ * into JSON on the export thread. Each policy set, policy, rule and attribute retrieval becomes a span that
+ * starts at its first event and ends at its last one.
+ */
+class DecisionTrace {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final long startTime;
+    private final long durationNanos;
+    private final String reason;
+    private final String decisions;
+    private final boolean truncated;
+    private final long[] times;
+    private final byte[] types;
+    private final byte[] outcomes;
+    private final Object[] references;
+
+    private static final class Span {
+        private final String type;
+        private final String id;
+        private final long start;
+        private long end;
+        private byte match = SamplingTraceEngine.OUTCOME_NONE;
+        private byte condition = SamplingTraceEngine.OUTCOME_NONE;
+        private byte decision = SamplingTraceEngine.OUTCOME_NONE;
+
+        Span(String typeIn, String idIn, long startIn) {
+            this.type = typeIn;
+            this.id = idIn;
+            this.start = startIn;
+            this.end = startIn;
+        }
+    }
+
+    DecisionTrace(long startTimeIn, long durationNanosIn, String reasonIn, String decisionsIn,
+                  boolean truncatedIn, long[] timesIn, byte[] typesIn, byte[] outcomesIn,
+                  Object[] referencesIn) {
+        this.startTime = startTimeIn;
+        this.durationNanos = durationNanosIn;
+        this.reason = reasonIn;
+        this.decisions = decisionsIn;
+        this.truncated = truncatedIn;
+        this.times = timesIn;
+        this.types = typesIn;
+        this.outcomes = outcomesIn;
+        this.references = referencesIn;
+    }
+
+    private List<Span> getSpans() {
+        List<Span> spans = new ArrayList<Span>();
+        Map<Object, Span> openSpans = new IdentityHashMap<Object, Span>();
+        Deque<Span> pipSpans = new ArrayDeque<Span>();
+        for (int i = 0; i < this.types.length; i++) {
+            long time = this.times[i];
+            Object reference = this.references[i];
+            Span span;
+            switch (this.types[i]) {
+            case SamplingTraceEngine.EVENT_POLICYSET:
+            case SamplingTraceEngine.EVENT_POLICY:
+            case SamplingTraceEngine.EVENT_RULE:
+                if (reference instanceof Traceable) {
+                    span = new Span(getSpanType(this.types[i]), ((Traceable)reference).getTraceId(), time);
+                    openSpans.put(reference, span);
+                    spans.add(span);
+                }
+                break;
+            case SamplingTraceEngine.EVENT_MATCH:
+            case SamplingTraceEngine.EVENT_CONDITION:
+            case SamplingTraceEngine.EVENT_RESULT:
+            case SamplingTraceEngine.EVENT_VARIABLE:
+                span = openSpans.get(reference);
+                if (span != null) {
+                    span.end = time;
+                    if (this.types[i] == SamplingTraceEngine.EVENT_MATCH) {
+                        span.match = this.outcomes[i];
+                    } else if (this.types[i] == SamplingTraceEngine.EVENT_CONDITION) {
+                        span.condition = this.outcomes[i];
+                    } else if (this.types[i] == SamplingTraceEngine.EVENT_RESULT) {
+                        span.decision = this.outcomes[i];
+                    }
+                }
+                break;
+            case SamplingTraceEngine.EVENT_ATTRIBUTES_REQUEST:
+            case SamplingTraceEngine.EVENT_PREFETCH_REQUEST:
+                span = new Span(this.types[i] == SamplingTraceEngine.EVENT_PREFETCH_REQUEST ? "prefetch" : "pip",
+                                SamplingTraceEngine.getPIPRequestId(reference), time);
+                pipSpans.push(span);
+                spans.add(span);
+                break;
+            case SamplingTraceEngine.EVENT_ATTRIBUTES_RESPONSE:
+            case SamplingTraceEngine.EVENT_PREFETCH_RESPONSE:
+                span = pipSpans.poll();
+                if (span != null) {
+                    span.end = time;
+                    span.condition = this.outcomes[i];
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return spans;
+    }
+
+    private static String getSpanType(byte type) {
+        switch (type) {
+        case SamplingTraceEngine.EVENT_POLICYSET:
+            return "policySet";
+        case SamplingTraceEngine.EVENT_POLICY:
+            return "policy";
+        default:
+            return "rule";
+        }
+    }
+
+    /**
+     * Formats this <code>DecisionTrace</code> as a single line of JSON.
+     *
+     * @return the JSON <code>String</code>
+     */
+    String toJSON() {
+        StringWriter stringWriter = new StringWriter();
+        try {
+            JsonGenerator jsonGenerator = jsonFactory.createGenerator(stringWriter);
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeNumberField("time", this.startTime);
+            jsonGenerator.writeStringField("reason", this.reason);
+            jsonGenerator.writeNumberField("durationMicros", this.durationNanos / 1000);
+            jsonGenerator.writeStringField("decisions", this.decisions);
+            jsonGenerator.writeBooleanField("truncated", this.truncated);
+            jsonGenerator.writeArrayFieldStart("spans");
+            for (Span span : this.getSpans()) {
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeStringField("type", span.type);
+                if (span.id != null) {
+                    jsonGenerator.writeStringField("id", span.id);
+                }
+                jsonGenerator.writeNumberField("startMicros", span.start / 1000);
+                jsonGenerator.writeNumberField("durationMicros", (span.end - span.start) / 1000);
+                if (span.match >= 0) {
+                    jsonGenerator.writeStringField("match", MatchResult.MatchCode.values()[span.match].name());
+                }
+                if (span.condition == SamplingTraceEngine.OUTCOME_INDETERMINATE) {
+                    jsonGenerator.writeStringField(getConditionField(span), "Indeterminate");
+                } else if (span.condition >= 0) {
+                    jsonGenerator.writeBooleanField(getConditionField(span),
+                                                    span.condition == SamplingTraceEngine.OUTCOME_TRUE);
+                }
+                if (span.decision >= 0) {
+                    jsonGenerator.writeStringField("decision", Decision.values()[span.decision].toString());
+                }
+                jsonGenerator.writeEndObject();
+            }
+            jsonGenerator.writeEndArray();
+            jsonGenerator.writeEndObject();
+            jsonGenerator.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return stringWriter.toString();
+    }
+
+    private static String getConditionField(Span span) {
+        return "rule".equals(span.type) ? "condition" : "found";
+    }
+}
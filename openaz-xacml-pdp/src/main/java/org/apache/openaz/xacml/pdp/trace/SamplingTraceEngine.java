@@ -0,0 +1,434 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.trace;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.RequestAttributes;
+import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.api.Result;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.api.pip.PIPResponse;
+import org.apache.openaz.xacml.api.trace.TraceEngine;
+import org.apache.openaz.xacml.api.trace.TraceEvent;
+import org.apache.openaz.xacml.pdp.eval.MatchResult;
+import org.apache.openaz.xacml.pdp.policy.ExpressionResultBoolean;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
+import org.apache.openaz.xacml.util.XACMLProperties;
+
+/**
+ * SamplingTraceEngine implements the {@link org.apache.openaz.xacml.api.trace.TraceEngine} interface to trace
+ * a sample of the decisions of the PDP with little overhead, so that it can be left on in production where
+ * the {@link org.apache.openaz.xacml.std.trace.LoggingTraceEngine} cannot.
+ * <p>
+ * A decision is traced if:
+ * <ul>
+ * <li>the request has the environment attribute {@link OpenAZPDPProperties#ID_ATTRIBUTE_TRACE} set to true,</li>
+ * <li>the caller asked for it with {@link #setTraceRequested(boolean)}, which the PDP servlet does for the
+ * <code>X-XACML-Trace</code> header, or</li>
+ * <li>it is one of every {@link OpenAZPDPProperties#PROP_TRACEENGINE_SAMPLERATE} decisions.</li>
+ * </ul>
+ * <code>isTracing</code> is false outside of traced decisions, so the PDP does not build any
+ * <code>TraceEvent</code>s for the others. The events of a traced decision are recorded without formatting,
+ * as a timestamp, an event type, an outcome code and a reference to the policy element or
+ * <code>PIPRequest</code>, into a ring buffer owned by the evaluating thread. When the decision completes its
+ * events are copied out and exported as a line of JSON to the <code>xacml.trace</code> log by a background
+ * thread, with the start and duration of each policy set, policy, rule and attribute retrieval.
+ * <p>
+ * The {@link org.apache.openaz.xacml.pdp.OpenAZPDPEngineFactory} wraps the engines it creates so that each
+ * decision is bracketed with {@link #beginDecision(Request)} and {@link #endDecision(Response)}.
+ */
+public class SamplingTraceEngine implements TraceEngine {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    static final byte EVENT_POLICYSET = 1;
+    static final byte EVENT_POLICY = 2;
+    static final byte EVENT_RULE = 3;
+    static final byte EVENT_MATCH = 4;
+    static final byte EVENT_CONDITION = 5;
+    static final byte EVENT_RESULT = 6;
+    static final byte EVENT_VARIABLE = 7;
+    static final byte EVENT_ATTRIBUTES_REQUEST = 8;
+    static final byte EVENT_ATTRIBUTES_RESPONSE = 9;
+    static final byte EVENT_PREFETCH_REQUEST = 10;
+    static final byte EVENT_PREFETCH_RESPONSE = 11;
+
+    static final byte OUTCOME_NONE = -1;
+    static final byte OUTCOME_FALSE = 0;
+    static final byte OUTCOME_TRUE = 1;
+    static final byte OUTCOME_INDETERMINATE = 2;
+
+    private static final Log logger = LogFactory.getLog(SamplingTraceEngine.class);
+    private static final Log traceLogger = LogFactory.getLog("xacml.trace");
+    private static final ThreadLocal<Boolean> traceRequested = new ThreadLocal<Boolean>();
+    private static volatile SamplingTraceEngine samplingTraceEngine;
+
+    private final int sampleRate;
+    private final int bufferSize;
+    private final AtomicLong decisionCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final BlockingQueue<DecisionTrace> exportQueue;
+    private final ThreadLocal<TraceBuffer> traceBuffers = new ThreadLocal<TraceBuffer>() {
+        @Override
+        protected TraceBuffer initialValue() {
+            return new TraceBuffer(SamplingTraceEngine.this.bufferSize);
+        }
+    };
+
+    /**
+     * The per-thread ring buffer the events of the current decision are recorded in. If a decision has more
+     * events than fit, the oldest are overwritten and the trace is marked as truncated.
+     */
+    private static final class TraceBuffer {
+        private final long[] times;
+        private final byte[] types;
+        private final byte[] outcomes;
+        private final Object[] references;
+        private final int mask;
+        private long count;
+        private long first;
+        private int depth;
+        private boolean active;
+        private String reason;
+        private long startTime;
+        private long startNanos;
+
+        TraceBuffer(int size) {
+            int capacity = Integer.highestOneBit(Math.max(size, 16) - 1) << 1;
+            this.times = new long[capacity];
+            this.types = new byte[capacity];
+            this.outcomes = new byte[capacity];
+            this.references = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void record(byte type, byte outcome, Object reference) {
+            int index = (int)(this.count & this.mask);
+            this.times[index] = System.nanoTime();
+            this.types[index] = type;
+            this.outcomes[index] = outcome;
+            this.references[index] = reference;
+            this.count++;
+        }
+    }
+
+    /**
+     * Creates a new <code>SamplingTraceEngine</code>.
+     *
+     * @param sampleRateIn trace one of every <code>sampleRateIn</code> decisions, or only the decisions that
+     *            ask for it if 0 or less
+     * @param bufferSizeIn the number of events each thread can hold for its current decision
+     * @param queueSize the number of completed traces that may wait to be exported before new ones are
+     *            dropped
+     */
+    public SamplingTraceEngine(int sampleRateIn, int bufferSizeIn, int queueSize) {
+        this.sampleRate = sampleRateIn;
+        this.bufferSize = bufferSizeIn;
+        this.exportQueue = new ArrayBlockingQueue<DecisionTrace>(Math.max(queueSize, 1));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                SamplingTraceEngine.this.exportTraces();
+            }
+        }, "SamplingTraceEngine-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the shared instance of the <code>SamplingTraceEngine</code>, configured from the
+     * {@link org.apache.openaz.xacml.util.XACMLProperties} the first time it is used.
+     *
+     * @return the shared instance of the <code>SamplingTraceEngine</code>
+     */
+    public static SamplingTraceEngine newInstance() {
+        if (samplingTraceEngine == null) {
+            synchronized (SamplingTraceEngine.class) {
+                if (samplingTraceEngine == null) {
+                    samplingTraceEngine = new SamplingTraceEngine(
+                                              getIntProperty(OpenAZPDPProperties.PROP_TRACEENGINE_SAMPLERATE, 0),
+                                              getIntProperty(OpenAZPDPProperties.PROP_TRACEENGINE_BUFFERSIZE,
+                                                             DEFAULT_BUFFER_SIZE),
+                                              getIntProperty(OpenAZPDPProperties.PROP_TRACEENGINE_QUEUESIZE,
+                                                             DEFAULT_QUEUE_SIZE));
+                }
+            }
+        }
+        return samplingTraceEngine;
+    }
+
+    private static int getIntProperty(String propertyName, int defaultValue) {
+        String value = XACMLProperties.getProperty(propertyName);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            logger.error("Invalid " + propertyName + ": " + ex);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Asks for the next decision made on the calling thread to be traced, or withdraws the request.
+     *
+     * @param requested true to trace the next decision, false to clear a previous request
+     */
+    public static void setTraceRequested(boolean requested) {
+        if (requested) {
+            traceRequested.set(Boolean.TRUE);
+        } else {
+            traceRequested.remove();
+        }
+    }
+
+    /**
+     * Determines whether the next decision made on the calling thread was asked to be traced.
+     *
+     * @return true if {@link #setTraceRequested(boolean)} asked for the next decision to be traced
+     */
+    public static boolean isTraceRequested() {
+        return traceRequested.get() != null;
+    }
+
+    /**
+     * Gets the number of completed traces that were dropped because the export queue was full.
+     *
+     * @return the number of dropped traces
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * Starts a decision on the calling thread and decides whether it is traced.
+     *
+     * @param request the <code>Request</code> being decided
+     * @return true if the decision is traced
+     */
+    public boolean beginDecision(Request request) {
+        TraceBuffer traceBuffer = this.traceBuffers.get();
+        if (traceBuffer.depth++ > 0) {
+            return traceBuffer.active;
+        }
+        String reason = null;
+        if (traceRequested.get() != null) {
+            traceRequested.remove();
+            reason = "requested";
+        } else if (hasTraceAttribute(request)) {
+            reason = "attribute";
+        } else if (this.sampleRate > 0 && this.decisionCount.incrementAndGet() % this.sampleRate == 0) {
+            reason = "sampled";
+        }
+        if (reason != null) {
+            traceBuffer.active = true;
+            traceBuffer.reason = reason;
+            traceBuffer.first = traceBuffer.count;
+            traceBuffer.startTime = System.currentTimeMillis();
+            traceBuffer.startNanos = System.nanoTime();
+        }
+        return traceBuffer.active;
+    }
+
+    /**
+     * Ends the decision on the calling thread, and queues its trace for export if it was traced.
+     *
+     * @param response the <code>Response</code> to the decision, or null if it failed
+     */
+    public void endDecision(Response response) {
+        TraceBuffer traceBuffer = this.traceBuffers.get();
+        if (traceBuffer.depth == 0 || --traceBuffer.depth > 0 || !traceBuffer.active) {
+            return;
+        }
+        traceBuffer.active = false;
+        long durationNanos = System.nanoTime() - traceBuffer.startNanos;
+        long recorded = traceBuffer.count - traceBuffer.first;
+        int length = (int)Math.min(recorded, traceBuffer.times.length);
+        long[] times = new long[length];
+        byte[] types = new byte[length];
+        byte[] outcomes = new byte[length];
+        Object[] references = new Object[length];
+        for (int i = 0; i < length; i++) {
+            int index = (int)((traceBuffer.count - length + i) & traceBuffer.mask);
+            times[i] = traceBuffer.times[index] - traceBuffer.startNanos;
+            types[i] = traceBuffer.types[index];
+            outcomes[i] = traceBuffer.outcomes[index];
+            references[i] = traceBuffer.references[index];
+        }
+        Arrays.fill(traceBuffer.references, null);
+
+        StringBuilder decisions = new StringBuilder();
+        if (response != null) {
+            for (Result result : response.getResults()) {
+                if (decisions.length() > 0) {
+                    decisions.append(',');
+                }
+                decisions.append(result.getDecision());
+            }
+        }
+        DecisionTrace decisionTrace = new DecisionTrace(traceBuffer.startTime, durationNanos, traceBuffer.reason,
+                                                        decisions.toString(), recorded > length, times, types,
+                                                        outcomes, references);
+        if (!this.exportQueue.offer(decisionTrace)) {
+            this.droppedCount.incrementAndGet();
+        }
+    }
+
+    private static boolean hasTraceAttribute(Request request) {
+        if (request == null) {
+            return false;
+        }
+        Iterator<RequestAttributes> iterRequestAttributes = request
+            .getRequestAttributes(XACML3.ID_ATTRIBUTE_CATEGORY_ENVIRONMENT);
+        while (iterRequestAttributes != null && iterRequestAttributes.hasNext()) {
+            Iterator<Attribute> iterAttributes = iterRequestAttributes.next()
+                .getAttributes(OpenAZPDPProperties.ID_ATTRIBUTE_TRACE);
+            while (iterAttributes != null && iterAttributes.hasNext()) {
+                for (AttributeValue<?> attributeValue : iterAttributes.next().getValues()) {
+                    Object value = attributeValue.getValue();
+                    if (Boolean.TRUE.equals(value) || "true".equals(value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void trace(TraceEvent<?> traceEvent) {
+        TraceBuffer traceBuffer = this.traceBuffers.get();
+        if (!traceBuffer.active) {
+            return;
+        }
+        String message = traceEvent.getMessage();
+        Object value = traceEvent.getValue();
+        if (message == null) {
+            return;
+        }
+        switch (message) {
+        case "PolicySet":
+            traceBuffer.record(EVENT_POLICYSET, OUTCOME_NONE, traceEvent.getCause());
+            break;
+        case "Policy":
+            traceBuffer.record(EVENT_POLICY, OUTCOME_NONE, traceEvent.getCause());
+            break;
+        case "Rule":
+            traceBuffer.record(EVENT_RULE, OUTCOME_NONE, traceEvent.getCause());
+            break;
+        case "Match":
+            traceBuffer.record(EVENT_MATCH, value instanceof MatchResult
+                ? (byte)((MatchResult)value).getMatchCode().ordinal() : OUTCOME_NONE, traceEvent.getCause());
+            break;
+        case "Condition":
+            traceBuffer.record(EVENT_CONDITION, getOutcome(value), traceEvent.getCause());
+            break;
+        case "Result":
+            traceBuffer.record(EVENT_RESULT, value instanceof Result && ((Result)value).getDecision() != null
+                ? (byte)((Result)value).getDecision().ordinal() : OUTCOME_NONE, traceEvent.getCause());
+            break;
+        case "Variable":
+            traceBuffer.record(EVENT_VARIABLE, OUTCOME_NONE, traceEvent.getCause());
+            break;
+        case "Attributes Request":
+            traceBuffer.record(EVENT_ATTRIBUTES_REQUEST, OUTCOME_NONE, value);
+            break;
+        case "Attributes Response":
+            traceBuffer.record(EVENT_ATTRIBUTES_RESPONSE, getOutcome(value), null);
+            break;
+        case "Prefetch Request":
+            traceBuffer.record(EVENT_PREFETCH_REQUEST, OUTCOME_NONE, value);
+            break;
+        case "Prefetch Response":
+            traceBuffer.record(EVENT_PREFETCH_RESPONSE, OUTCOME_NONE, null);
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static byte getOutcome(Object value) {
+        if (value instanceof ExpressionResultBoolean) {
+            ExpressionResultBoolean expressionResultBoolean = (ExpressionResultBoolean)value;
+            if (!expressionResultBoolean.isOk()) {
+                return OUTCOME_INDETERMINATE;
+            }
+            return expressionResultBoolean.isTrue() ? OUTCOME_TRUE : OUTCOME_FALSE;
+        } else if (value instanceof PIPResponse) {
+            PIPResponse pipResponse = (PIPResponse)value;
+            if (pipResponse.getStatus() != null && !pipResponse.getStatus().isOk()) {
+                return OUTCOME_INDETERMINATE;
+            }
+            return pipResponse.getAttributes().isEmpty() ? OUTCOME_FALSE : OUTCOME_TRUE;
+        }
+        return OUTCOME_NONE;
+    }
+
+    @Override
+    public boolean isTracing() {
+        return this.traceBuffers.get().active;
+    }
+
+    /**
+     * Exports a completed decision trace. The default implementation writes it to the
+     * <code>xacml.trace</code> log at the info level.
+     *
+     * @param json the decision trace as a <code>String</code> of JSON
+     */
+    protected void export(String json) {
+        traceLogger.info(json);
+    }
+
+    private void exportTraces() {
+        while (true) {
+            DecisionTrace decisionTrace;
+            try {
+                decisionTrace = this.exportQueue.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            try {
+                this.export(decisionTrace.toJSON());
+            } catch (RuntimeException ex) {
+                logger.error("Failed to export decision trace: " + ex, ex);
+            }
+        }
+    }
+
+    static String getPIPRequestId(Object reference) {
+        if (reference instanceof PIPRequest) {
+            return ((PIPRequest)reference).getAttributeId().stringValue();
+        }
+        return null;
+    }
+}
@@ -40,8 +40,18 @@ public class OpenAZPDPProperties extends XACMLProperties {
     public static final String PROP_FUNCTIONDEFINITIONFACTORY = "xacml.openaz.functionDefinitionFactory";
     public static final String PROP_POLICYFINDERFACTORY = "xacml.openaz.policyFinderFactory";
     public static final String PROP_POLICYFINDERFACTORY_COMBINEROOTPOLICIES = "xacml.openaz.policyFinderFactory.combineRootPolicies";
+    public static final String PROP_POLICYFINDERFACTORY_LOADTHREADS = "xacml.openaz.policyFinderFactory.loadThreads";
+    public static final String PROP_POLICYFINDERFACTORY_LAZYREFERENCEDPOLICIES = "xacml.openaz.policyFinderFactory.lazyReferencedPolicies";
+    public static final String PROP_PDPENGINE_ASYNCTHREADS = "xacml.openaz.pdpEngine.asyncThreads";
+    public static final String PROP_PDPENGINE_PREFETCHATTRIBUTES = "xacml.openaz.pdpEngine.prefetchAttributes";
+    public static final String PROP_PDPENGINE_PREFETCHTHREADS = "xacml.openaz.pdpEngine.prefetchThreads";
+    public static final String PROP_TRACEENGINE_SAMPLERATE = "xacml.openaz.traceEngine.sampleRate";
+    public static final String PROP_TRACEENGINE_BUFFERSIZE = "xacml.openaz.traceEngine.bufferSize";
+    public static final String PROP_TRACEENGINE_QUEUESIZE = "xacml.openaz.traceEngine.queueSize";
+    public static final String PROP_PROFILER_ENABLED = "xacml.openaz.profiler.enabled";
 
-    public static final Identifier ID_POLICY_COMBINEDPERMITOVERRIDES = new IdentifierImpl("urn:org:apache:openaz:xacml:3.0:policy-combining-algorithm:combined-permit-overrides");
+    public static final Identifier ID_POLICY_COMBINEDPERMITOVERRIDES = IdentifierImpl.intern("urn:org:apache:openaz:xacml:3.0:policy-combining-algorithm:combined-permit-overrides");
+    public static final Identifier ID_ATTRIBUTE_TRACE = IdentifierImpl.intern("urn:org:apache:openaz:xacml:3.0:environment:trace");
 
     protected OpenAZPDPProperties() {
     }
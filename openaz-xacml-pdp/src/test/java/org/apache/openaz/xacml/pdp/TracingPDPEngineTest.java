@@ -0,0 +1,117 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.api.pdp.PDPEngine;
+import org.apache.openaz.xacml.api.pdp.PDPException;
+import org.apache.openaz.xacml.pdp.trace.SamplingTraceEngine;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TracingPDPEngineTest {
+
+    @After
+    public void after() {
+        SamplingTraceEngine.setTraceRequested(false);
+    }
+
+    /**
+     * Builds a <code>PDPEngine</code> that records, for each decision, whether it was being traced.
+     */
+    private static PDPEngine newPDPEngine(final SamplingTraceEngine traceEngine, final Response response,
+                                          final List<Boolean> tracing) throws PDPException {
+        PDPEngine pdpEngine = mock(PDPEngine.class);
+        when(pdpEngine.decide(any(Request.class))).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                tracing.add(traceEngine.isTracing());
+                return response;
+            }
+        });
+        return pdpEngine;
+    }
+
+    @Test
+    public void testDecide() throws PDPException {
+        SamplingTraceEngine traceEngine = new SamplingTraceEngine(2, 64, 16);
+        Response response = mock(Response.class);
+        List<Boolean> tracing = new ArrayList<Boolean>();
+        TracingPDPEngine tracingPDPEngine = new TracingPDPEngine(newPDPEngine(traceEngine, response, tracing),
+                                                                 traceEngine);
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(response, tracingPDPEngine.decide(mock(Request.class)));
+            assertFalse(traceEngine.isTracing());
+        }
+        assertEquals(4, tracing.size());
+        assertEquals(2, countTraced(tracing));
+    }
+
+    @Test
+    public void testDecideAsyncTraceRequested() throws Exception {
+        SamplingTraceEngine traceEngine = new SamplingTraceEngine(0, 64, 16);
+        Response response = mock(Response.class);
+        List<Boolean> tracing = new ArrayList<Boolean>();
+        TracingPDPEngine tracingPDPEngine = new TracingPDPEngine(newPDPEngine(traceEngine, response, tracing),
+                                                                 traceEngine);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SamplingTraceEngine.setTraceRequested(true);
+            assertSame(response, tracingPDPEngine.decideAsync(mock(Request.class), executor)
+                .get(5, TimeUnit.SECONDS));
+            // the request moved to the decision thread, and does not leak into its next decision
+            assertFalse(SamplingTraceEngine.isTraceRequested());
+            tracingPDPEngine.decideAsync(mock(Request.class), executor).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2, tracing.size());
+        assertEquals(Boolean.TRUE, tracing.get(0));
+        assertEquals(Boolean.FALSE, tracing.get(1));
+    }
+
+    private static int countTraced(List<Boolean> tracing) {
+        int traced = 0;
+        for (Boolean isTracing : tracing) {
+            if (isTracing) {
+                traced++;
+            }
+        }
+        return traced;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
+import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
+import org.apache.openaz.xacml.pdp.std.StdEvaluationContext;
+import org.apache.openaz.xacml.std.StdAttributeValue;
+import org.apache.openaz.xacml.std.StdMutableAttribute;
+import org.apache.openaz.xacml.std.StdMutableRequest;
+import org.apache.openaz.xacml.std.StdMutableRequestAttributes;
+import org.apache.openaz.xacml.std.StdStatusCode;
+import org.apache.openaz.xacml.std.trace.NullTraceEngine;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that designators for the same request attributes share one bag per decision.
+ */
+public class AttributeDesignatorTest {
+
+    private static final Identifier SUBJECT = XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT;
+
+    private StdMutableRequest request;
+
+    @Before
+    public void before() {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        attributes.add(new StdMutableAttribute(SUBJECT, XACML3.ID_SUBJECT_SUBJECT_ID, Arrays
+            .<AttributeValue<?>> asList(new StdAttributeValue<String>(XACML3.ID_DATATYPE_STRING, "alice"),
+                                        new StdAttributeValue<BigInteger>(XACML3.ID_DATATYPE_INTEGER,
+                                                                          BigInteger.ONE)), null, false));
+        this.request = new StdMutableRequest();
+        this.request.add(new StdMutableRequestAttributes(SUBJECT, attributes, null, null));
+    }
+
+    private EvaluationContext newEvaluationContext() {
+        return new StdEvaluationContext(this.request, null, null, NullTraceEngine.newInstance());
+    }
+
+    private static AttributeDesignator newDesignator(Identifier dataTypeId, boolean mustBePresent) {
+        AttributeDesignator attributeDesignator = new AttributeDesignator(StdStatusCode.STATUS_CODE_OK);
+        attributeDesignator.setCategory(SUBJECT);
+        attributeDesignator.setAttributeId(XACML3.ID_SUBJECT_SUBJECT_ID);
+        attributeDesignator.setDataTypeId(dataTypeId);
+        attributeDesignator.setMustBePresent(mustBePresent);
+        return attributeDesignator;
+    }
+
+    @Test
+    public void testSharedBag() throws Exception {
+        EvaluationContext evaluationContext = this.newEvaluationContext();
+        ExpressionResult first = newDesignator(XACML3.ID_DATATYPE_STRING, false)
+            .evaluate(evaluationContext, null);
+        ExpressionResult second = newDesignator(XACML3.ID_DATATYPE_STRING, true)
+            .evaluate(evaluationContext, null);
+
+        assertTrue(first.isBag());
+        assertEquals(1, first.getBag().size());
+        assertEquals("alice", first.getBag().getAttributeValues().next().getValue());
+        assertSame(first, second);
+
+        // each decision builds its own
+        assertNotSame(first, newDesignator(XACML3.ID_DATATYPE_STRING, false)
+            .evaluate(this.newEvaluationContext(), null));
+    }
+
+    @Test
+    public void testDataTypes() throws Exception {
+        EvaluationContext evaluationContext = this.newEvaluationContext();
+        ExpressionResult integers = newDesignator(XACML3.ID_DATATYPE_INTEGER, false)
+            .evaluate(evaluationContext, null);
+        assertEquals(1, integers.getBag().size());
+        assertEquals(BigInteger.ONE, integers.getBag().getAttributeValues().next().getValue());
+
+        ExpressionResult booleans = newDesignator(XACML3.ID_DATATYPE_BOOLEAN, true)
+            .evaluate(evaluationContext, null);
+        assertFalse(booleans.isOk());
+        assertEquals(StdStatusCode.STATUS_CODE_MISSING_ATTRIBUTE, booleans.getStatus().getStatusCode());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.profile;
+
+import java.util.List;
+
+import org.apache.openaz.xacml.api.Decision;
+import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
+import org.apache.openaz.xacml.pdp.eval.EvaluationException;
+import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
+import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.Rule;
+import org.apache.openaz.xacml.std.IdentifierImpl;
+import org.apache.openaz.xacml.std.StdStatusCode;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PolicyProfilerTest {
+
+    @After
+    public void after() {
+        PolicyProfiler.getInstance().setEnabled(false);
+        PolicyProfiler.getInstance().prune();
+    }
+
+    @Test
+    public void testRecord() {
+        PolicyProfiler policyProfiler = new PolicyProfiler(true);
+        PolicyProfiler.Entry entry = policyProfiler.getEntry("Policy", null, "policy1");
+        assertSame(entry, policyProfiler.getEntry("Policy", null, "policy1"));
+        assertTrue(policyProfiler.getProfiles().isEmpty());
+
+        long startNanos = System.nanoTime();
+        long startPIPNanos = policyProfiler.getPIPNanos();
+        policyProfiler.addPIPNanos(5000);
+        policyProfiler.record(entry, startNanos, startPIPNanos, new EvaluationResult(Decision.PERMIT));
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.DENY));
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(), null);
+
+        List<PolicyProfile> profiles = policyProfiler.getProfiles();
+        assertEquals(1, profiles.size());
+        PolicyProfile profile = profiles.get(0);
+        assertEquals("Policy", profile.getType());
+        assertNull(profile.getParentId());
+        assertEquals("policy1", profile.getId());
+        assertEquals(3, profile.getCount());
+        assertEquals(1, profile.getPermit());
+        assertEquals(1, profile.getDeny());
+        assertEquals(1, profile.getIndeterminate());
+        assertEquals(0, profile.getNotApplicable());
+        assertEquals(5, profile.getPipMicros());
+        assertTrue(profile.getTotalMicros() >= profile.getPipMicros());
+        assertTrue(profile.getMaxMicros() <= profile.getTotalMicros());
+    }
+
+    @Test
+    public void testReset() {
+        PolicyProfiler policyProfiler = new PolicyProfiler(true);
+        PolicyProfiler.Entry entry = policyProfiler.getEntry("PolicySet", null, "policySet1");
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.NOTAPPLICABLE));
+        assertEquals(1, policyProfiler.getProfiles().size());
+
+        policyProfiler.reset();
+        assertTrue(policyProfiler.getProfiles().isEmpty());
+        assertFalse(entry.isRemoved());
+        assertSame(entry, policyProfiler.getEntry("PolicySet", null, "policySet1"));
+
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.NOTAPPLICABLE));
+        assertEquals(1, policyProfiler.getProfiles().get(0).getCount());
+    }
+
+    @Test
+    public void testPrune() {
+        PolicyProfiler policyProfiler = new PolicyProfiler(true);
+        PolicyProfiler.Entry entry = policyProfiler.getEntry("Policy", null, "policy1");
+        policyProfiler.record(entry, System.nanoTime(), policyProfiler.getPIPNanos(),
+                              new EvaluationResult(Decision.PERMIT));
+
+        policyProfiler.prune();
+        assertTrue(entry.isRemoved());
+        assertTrue(policyProfiler.getProfiles().isEmpty());
+        assertNotSame(entry, policyProfiler.getEntry("Policy", null, "policy1"));
+    }
+
+    @Test
+    public void testRuleKeyIncludesPolicy() throws EvaluationException {
+        PolicyProfiler policyProfiler = PolicyProfiler.getInstance();
+        policyProfiler.prune();
+        policyProfiler.setEnabled(true);
+        EvaluationContext evaluationContext = mock(EvaluationContext.class);
+
+        Rule rule1 = newRule("policy1", "rule1");
+        Rule rule2 = newRule("policy2", "rule1");
+        rule1.evaluate(evaluationContext);
+        rule2.evaluate(evaluationContext);
+        rule2.evaluate(evaluationContext);
+
+        List<PolicyProfile> profiles = policyProfiler.getProfiles();
+        assertEquals(2, profiles.size());
+        for (PolicyProfile profile : profiles) {
+            assertEquals("Rule", profile.getType());
+            assertEquals("rule1", profile.getId());
+            assertEquals("policy1".equals(profile.getParentId()) ? 1 : 2, profile.getCount());
+        }
+
+        // Rules look their entries up again after a prune
+        policyProfiler.prune();
+        rule1.evaluate(evaluationContext);
+        profiles = policyProfiler.getProfiles();
+        assertEquals(1, profiles.size());
+        assertEquals("policy1", profiles.get(0).getParentId());
+        assertEquals(1, profiles.get(0).getCount());
+    }
+
+    private static Rule newRule(String policyId, String ruleId) {
+        Policy policy = new Policy();
+        policy.setIdentifier(new IdentifierImpl(policyId));
+        Rule rule = new Rule(StdStatusCode.STATUS_CODE_SYNTAX_ERROR, "not evaluated");
+        rule.setPolicy(policy);
+        rule.setRuleId(ruleId);
+        return rule;
+    }
+}
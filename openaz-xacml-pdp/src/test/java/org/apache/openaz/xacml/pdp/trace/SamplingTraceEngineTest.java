@@ -0,0 +1,205 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.trace;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.Decision;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.api.Result;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.api.trace.Traceable;
+import org.apache.openaz.xacml.pdp.eval.EvaluationResult;
+import org.apache.openaz.xacml.pdp.eval.MatchResult;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
+import org.apache.openaz.xacml.std.StdAttributeValue;
+import org.apache.openaz.xacml.std.StdMutableAttribute;
+import org.apache.openaz.xacml.std.StdMutableRequest;
+import org.apache.openaz.xacml.std.StdMutableRequestAttributes;
+import org.apache.openaz.xacml.std.trace.StdTraceEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SamplingTraceEngineTest {
+
+    /**
+     * Collects the exported traces instead of logging them.
+     */
+    private static class CollectingTraceEngine extends SamplingTraceEngine {
+        private final BlockingQueue<String> traces = new LinkedBlockingQueue<String>();
+
+        CollectingTraceEngine(int sampleRate) {
+            super(sampleRate, 64, 16);
+        }
+
+        @Override
+        protected void export(String json) {
+            this.traces.add(json);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> nextTrace() throws Exception {
+            String json = this.traces.poll(5, TimeUnit.SECONDS);
+            return json == null ? null : new ObjectMapper().readValue(json, Map.class);
+        }
+    }
+
+    @After
+    public void after() {
+        SamplingTraceEngine.setTraceRequested(false);
+    }
+
+    @Test
+    public void testSampleRate() throws Exception {
+        CollectingTraceEngine traceEngine = new CollectingTraceEngine(3);
+        int traced = 0;
+        for (int i = 0; i < 9; i++) {
+            if (traceEngine.beginDecision(null)) {
+                assertTrue(traceEngine.isTracing());
+                traced++;
+            } else {
+                assertFalse(traceEngine.isTracing());
+            }
+            traceEngine.endDecision(null);
+            assertFalse(traceEngine.isTracing());
+        }
+        assertEquals(3, traced);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("sampled", traceEngine.nextTrace().get("reason"));
+        }
+    }
+
+    @Test
+    public void testNotSampled() throws Exception {
+        CollectingTraceEngine traceEngine = new CollectingTraceEngine(0);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(traceEngine.beginDecision(null));
+            traceEngine.endDecision(null);
+        }
+        assertNull(traceEngine.traces.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testTraceRequested() throws Exception {
+        CollectingTraceEngine traceEngine = new CollectingTraceEngine(0);
+        SamplingTraceEngine.setTraceRequested(true);
+        assertTrue(SamplingTraceEngine.isTraceRequested());
+        assertTrue(traceEngine.beginDecision(null));
+        traceEngine.endDecision(null);
+
+        // the request only applies to the next decision
+        assertFalse(SamplingTraceEngine.isTraceRequested());
+        assertFalse(traceEngine.beginDecision(null));
+        traceEngine.endDecision(null);
+
+        assertEquals("requested", traceEngine.nextTrace().get("reason"));
+        assertNull(traceEngine.traces.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testTraceAttribute() throws Exception {
+        CollectingTraceEngine traceEngine = new CollectingTraceEngine(0);
+        StdMutableRequest request = new StdMutableRequest();
+        request.add(new StdMutableRequestAttributes(XACML3.ID_ATTRIBUTE_CATEGORY_ENVIRONMENT, Collections
+            .<Attribute> singletonList(new StdMutableAttribute(XACML3.ID_ATTRIBUTE_CATEGORY_ENVIRONMENT,
+                                                               OpenAZPDPProperties.ID_ATTRIBUTE_TRACE,
+                                                               new StdAttributeValue<Boolean>(
+                                                                   XACML3.ID_DATATYPE_BOOLEAN, true))),
+                                                    null, null));
+        assertTrue(traceEngine.beginDecision(request));
+        traceEngine.endDecision(null);
+        assertEquals("attribute", traceEngine.nextTrace().get("reason"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJSON() throws Exception {
+        CollectingTraceEngine traceEngine = new CollectingTraceEngine(1);
+        Traceable policy = newTraceable("policy1");
+        Traceable rule = newTraceable("rule1");
+        Result result = mock(Result.class);
+        when(result.getDecision()).thenReturn(Decision.PERMIT);
+        Response response = mock(Response.class);
+        when(response.getResults()).thenReturn(Collections.singletonList(result));
+
+        assertTrue(traceEngine.beginDecision(mock(Request.class)));
+        traceEngine.trace(new StdTraceEvent<Object>("Policy", policy, null));
+        traceEngine.trace(new StdTraceEvent<MatchResult>("Match", policy, MatchResult.MM_MATCH));
+        traceEngine.trace(new StdTraceEvent<Object>("Rule", rule, null));
+        traceEngine.trace(new StdTraceEvent<MatchResult>("Match", rule, MatchResult.MM_NOMATCH));
+        traceEngine.trace(new StdTraceEvent<Result>("Result", rule,
+                                                    new EvaluationResult(Decision.NOTAPPLICABLE)));
+        traceEngine.trace(new StdTraceEvent<Result>("Result", policy,
+                                                    new EvaluationResult(Decision.PERMIT)));
+        // events the sampling engine does not record
+        traceEngine.trace(new StdTraceEvent<Object>("Input Request", policy, null));
+        traceEngine.endDecision(response);
+
+        Map<String, Object> trace = traceEngine.nextTrace();
+        assertEquals("sampled", trace.get("reason"));
+        assertEquals("Permit", trace.get("decisions"));
+        assertEquals(Boolean.FALSE, trace.get("truncated"));
+        List<Map<String, Object>> spans = (List<Map<String, Object>>)trace.get("spans");
+        assertEquals(2, spans.size());
+        assertEquals("policy", spans.get(0).get("type"));
+        assertEquals("policy1", spans.get(0).get("id"));
+        assertEquals("MATCH", spans.get(0).get("match"));
+        assertEquals("Permit", spans.get(0).get("decision"));
+        assertEquals("rule", spans.get(1).get("type"));
+        assertEquals("rule1", spans.get(1).get("id"));
+        assertEquals("NOMATCH", spans.get(1).get("match"));
+        assertEquals("NotApplicable", spans.get(1).get("decision"));
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        CollectingTraceEngine traceEngine = new CollectingTraceEngine(1);
+        Traceable rule = newTraceable("rule1");
+        assertTrue(traceEngine.beginDecision(null));
+        for (int i = 0; i < 100; i++) {
+            traceEngine.trace(new StdTraceEvent<Object>("Rule", rule, null));
+        }
+        traceEngine.endDecision(null);
+        assertEquals(Boolean.TRUE, traceEngine.nextTrace().get("truncated"));
+    }
+
+    private static Traceable newTraceable(String id) {
+        Traceable traceable = mock(Traceable.class);
+        when(traceable.getTraceId()).thenReturn(id);
+        return traceable;
+    }
+}
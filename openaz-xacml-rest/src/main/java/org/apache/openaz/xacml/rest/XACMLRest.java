@@ -31,6 +31,7 @@
 package org.apache.openaz.xacml.rest;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Properties;
@@ -43,6 +44,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.openaz.xacml.util.XACMLProperties;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
 /**
  * This static class is used by both the PDP and PAP servlet's. It contains some common static functions and
  * objects used by both the servlet's.
@@ -214,4 +218,21 @@ public class XACMLRest {
             logger.debug("Request URL:" + request.getRequestURL());
         }
     }
+
+    /**
+     * Computes the ETag of a bundle of policies from the SHA-256 of each policy's content rather than from
+     * the bytes of the bundle, so that the PAP servlet can answer a conditional request without building the
+     * bundle, and the PDP servlet can verify a bundle from the entries it unpacked.
+     *
+     * @param policyHashes the SHA-256 of each entry's content by entry name, in the order of the entries
+     * @return the quoted ETag of the bundle
+     */
+    public static String getPolicyBundleETag(Map<String, String> policyHashes) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (Map.Entry<String, String> policyHash : policyHashes.entrySet()) {
+            hasher.putString(policyHash.getKey(), StandardCharsets.UTF_8).putByte((byte)0);
+            hasher.putString(policyHash.getValue(), StandardCharsets.UTF_8).putByte((byte)0);
+        }
+        return "\"" + hasher.hash().toString() + "\"";
+    }
 }
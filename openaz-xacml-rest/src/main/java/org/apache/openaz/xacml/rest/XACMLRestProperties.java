@@ -65,6 +65,36 @@ public class XACMLRestProperties extends XACMLProperties {
      * Max content length accepted for an incoming POST XML/JSON request. Default is 32767 bytes.
      */
     public static final String PROP_PDP_MAX_CONTENT = "xacml.rest.pdp.maxcontent";
+    /**
+     * Set this property to true if the PDP servlet should keep a binary snapshot of its parsed policies in its
+     * configuration directory and load unchanged policies from it on restart. Default is false.
+     */
+    public static final String PROP_PDP_POLICY_SNAPSHOT = "xacml.rest.pdp.policySnapshot";
+    /**
+     * Set this property to false if the PDP servlet should not download all of its missing policies as a
+     * single bundle from the PAP servlet, but GET each one from its URL instead. Default is true.
+     */
+    public static final String PROP_PDP_POLICY_BUNDLE = "xacml.rest.pdp.policyBundle";
+    /**
+     * Set this property to true if the PDP servlet should process PEP requests asynchronously, running the
+     * decisions on its own pool of threads instead of the container's request threads. Default is false.
+     */
+    public static final String PROP_PDP_ASYNC = "xacml.rest.pdp.async";
+    /**
+     * The number of threads the PDP servlet runs decisions on when it is asynchronous. Default is 64.
+     */
+    public static final String PROP_PDP_ASYNC_THREADS = "xacml.rest.pdp.async.threads";
+    /**
+     * The number of milliseconds an asynchronous PEP request may wait for its decision before the PDP servlet
+     * answers it with 503 Service Unavailable. Default is 30000.
+     */
+    public static final String PROP_PDP_ASYNC_TIMEOUT = "xacml.rest.pdp.async.timeout";
+    /**
+     * Suffix of the policy property the PAP servlet sends with the SHA-256 of a policy's content, eg.
+     * &lt;PolicyId&gt;.hash. A PDP keeps its policies in a store named by this hash and only downloads the
+     * ones it does not already have.
+     */
+    public static final String PROP_POLICY_HASH = ".hash";
     /**
      * Custom HTTP header used by PDP to send the value of the PROP_PDP_ID
      */
@@ -73,6 +103,10 @@ public class XACMLRestProperties extends XACMLProperties {
      * Custom HHTP header used by PDP to send its heartbeat value.
      */
     public static final String PROP_PDP_HTTP_HEADER_HB = "X-XACML-PDP-HB";
+    /**
+     * Custom HTTP header a PEP sets to true to have the PDP trace the decision for its request.
+     */
+    public static final String PROP_PDP_HTTP_HEADER_TRACE = "X-XACML-Trace";
     /**
      * The URL of the PAP servlet. Used by PDP servlet's to communicate. Because administrators can set
      * whatever context they want to run the PAP servlet, it isn't easy to determine a return URL for the PAP
@@ -92,6 +126,27 @@ public class XACMLRestProperties extends XACMLProperties {
      * Timeout value used by the PAP servlet when trying to check the heartbeat of a PDP node.
      */
     public static final String PROP_PAP_HEARTBEAT_TIMEOUT = "xacml.rest.pap.heartbeat.timeout";
+    /**
+     * The maximum time the PAP servlet waits between heartbeat requests to a PDP node it cannot reach.
+     */
+    public static final String PROP_PAP_HEARTBEAT_BACKOFF_MAX = "xacml.rest.pap.heartbeat.backoff.max";
+    /**
+     * The number of threads the PAP servlet uses for heartbeats.
+     */
+    public static final String PROP_PAP_HEARTBEAT_THREADS = "xacml.rest.pap.heartbeat.threads";
+    /**
+     * The number of threads the PAP servlet uses for PDP updates and Admin Console notifications.
+     */
+    public static final String PROP_PAP_NOTIFY_THREADS = "xacml.rest.pap.notify.threads";
+    /**
+     * The time the PAP servlet waits before sending an update to a PDP node, so that bursts of changes are
+     * sent as a single update.
+     */
+    public static final String PROP_PAP_UPDATE_DELAY = "xacml.rest.pap.update.delay";
+    /**
+     * Timeout value used by the PAP servlet when sending an update to a PDP node or an Admin Console.
+     */
+    public static final String PROP_PAP_UPDATE_TIMEOUT = "xacml.rest.pap.update.timeout";
     /*
      * Local path to where the GIT repository exists. Eg. /opt/app/xacml/repository
      */
@@ -126,6 +181,11 @@ public class XACMLRestProperties extends XACMLProperties {
      * @see #PROP_ADMIN_USER_NAME for more information.
      */
     public static final String PROP_ADMIN_USER_EMAIL = "xacml.rest.admin.user.email";
+    /**
+     * The number of seconds the Admin Console caches each authorization decision for a user, action and
+     * resource. 0 disables the cache.
+     */
+    public static final String PROP_ADMIN_AUTHORIZATION_CACHE_TTL = "xacml.rest.admin.authorization.cache.ttl";
     /**
      * Directory path containing sub-directories where the Subscriber servlet puts files sent through data
      * feeds.
@@ -0,0 +1,142 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
+import org.apache.openaz.xacml.pdp.std.StdPolicyFinder;
+import org.apache.openaz.xacml.std.IdentifierImpl;
+import org.apache.openaz.xacml.std.pip.StdPIPRequest;
+import org.junit.Test;
+
+/**
+ * Checks which attributes the static analysis of a policy set finds, and which of them are needed to reach a
+ * decision once the policy set's own target has matched.
+ */
+public class PolicyAttributeDependenciesTest {
+
+    private static final String NAMESPACE = "xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\"";
+
+    private static final String POLICY_SET = "<PolicySet " + NAMESPACE
+        + " PolicySetId=\"urn:test:root\" Version=\"1.0\""
+        + " PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:deny-overrides\">"
+        + "<Target>" + match("urn:oasis:names:tc:xacml:3.0:attribute-category:action",
+                             "urn:oasis:names:tc:xacml:1.0:action:action-id") + "</Target>"
+        + "<Policy PolicyId=\"urn:test:policy\" Version=\"1.0\""
+        + " RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+        + "<Target>" + match("urn:oasis:names:tc:xacml:3.0:attribute-category:resource",
+                             "urn:oasis:names:tc:xacml:1.0:resource:resource-id") + "</Target>"
+        + "<VariableDefinition VariableId=\"department\">"
+        + "<Apply FunctionId=\"urn:oasis:names:tc:xacml:1.0:function:string-one-and-only\">"
+        + designator("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", "urn:test:department")
+        + "</Apply></VariableDefinition>"
+        + "<Rule RuleId=\"urn:test:rule\" Effect=\"Permit\">" + condition("urn:test:role")
+        + "<ObligationExpressions>"
+        + "<ObligationExpression ObligationId=\"urn:test:obligation\" FulfillOn=\"Permit\">"
+        + "<AttributeAssignmentExpression AttributeId=\"urn:test:audit\">"
+        + designator("urn:oasis:names:tc:xacml:3.0:attribute-category:environment", "urn:test:audit")
+        + "</AttributeAssignmentExpression></ObligationExpression></ObligationExpressions>"
+        + "</Rule></Policy>"
+        + "<PolicyIdReference>urn:test:referenced</PolicyIdReference>"
+        + "</PolicySet>";
+
+    private static final String POLICY_REFERENCED = "<Policy " + NAMESPACE
+        + " PolicyId=\"urn:test:referenced\" Version=\"1.0\""
+        + " RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+        + "<Target/><Rule RuleId=\"urn:test:rule\" Effect=\"Permit\">" + condition("urn:test:clearance")
+        + "</Rule></Policy>";
+
+    private static String designator(String category, String attributeId) {
+        return "<AttributeDesignator AttributeId=\"" + attributeId + "\" Category=\"" + category
+               + "\" DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/>";
+    }
+
+    private static String match(String category, String attributeId) {
+        return "<AnyOf><AllOf><Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\">"
+               + "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">test</AttributeValue>"
+               + designator(category, attributeId) + "</Match></AllOf></AnyOf>";
+    }
+
+    private static String condition(String attributeId) {
+        return "<Condition><Apply FunctionId=\"urn:oasis:names:tc:xacml:1.0:function:string-is-in\">"
+               + "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">test</AttributeValue>"
+               + designator("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", attributeId)
+               + "</Apply></Condition>";
+    }
+
+    private static PolicyDef load(String xml) throws Exception {
+        return DOMPolicyDef.load(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static PIPRequest newPIPRequest(Identifier category, String attributeId) {
+        return new StdPIPRequest(category, new IdentifierImpl(attributeId), XACML3.ID_DATATYPE_STRING);
+    }
+
+    private static Set<PIPRequest> newSet(PIPRequest... pipRequests) {
+        return new LinkedHashSet<PIPRequest>(Arrays.asList(pipRequests));
+    }
+
+    @Test
+    public void testAnalyze() throws Exception {
+        PolicyDef policyDefRoot = load(POLICY_SET);
+        PolicyDef policyDefReferenced = load(POLICY_REFERENCED);
+
+        PIPRequest action = newPIPRequest(XACML3.ID_ATTRIBUTE_CATEGORY_ACTION,
+                                          "urn:oasis:names:tc:xacml:1.0:action:action-id");
+        PIPRequest resource = newPIPRequest(XACML3.ID_ATTRIBUTE_CATEGORY_RESOURCE,
+                                            "urn:oasis:names:tc:xacml:1.0:resource:resource-id");
+        PIPRequest department = newPIPRequest(XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT,
+                                              "urn:test:department");
+        PIPRequest role = newPIPRequest(XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT, "urn:test:role");
+        PIPRequest audit = newPIPRequest(XACML3.ID_ATTRIBUTE_CATEGORY_ENVIRONMENT, "urn:test:audit");
+        PIPRequest clearance = newPIPRequest(XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT,
+                                             "urn:test:clearance");
+
+        // unresolved references are not followed
+        PolicyAttributeDependencies policyAttributeDependencies = PolicyAttributeDependencies
+            .newInstance(policyDefRoot, Collections.<PolicyIdReferenceBase<?>, PolicyDef> emptyMap());
+        assertEquals(newSet(action, resource, department, role, audit),
+                     policyAttributeDependencies.getAttributes());
+        assertEquals(newSet(resource, department, role), policyAttributeDependencies.getDecisionAttributes());
+
+        // the policy finder follows the references it resolved, and analyzes each root only once
+        StdPolicyFinder policyFinder = new StdPolicyFinder(policyDefRoot,
+                                                           Collections.singletonList(policyDefReferenced));
+        policyAttributeDependencies = policyFinder.getAttributeDependencies(policyDefRoot);
+        assertEquals(newSet(action, resource, department, role, audit, clearance),
+                     policyAttributeDependencies.getAttributes());
+        assertEquals(newSet(resource, department, role, clearance),
+                     policyAttributeDependencies.getDecisionAttributes());
+        assertSame(policyAttributeDependencies, policyFinder.getAttributeDependencies(policyDefRoot));
+    }
+}
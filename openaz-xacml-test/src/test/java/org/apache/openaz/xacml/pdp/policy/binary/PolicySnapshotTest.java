@@ -0,0 +1,182 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.pdp.policy.Expression;
+import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.pdp.policy.Rule;
+import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
+import org.apache.openaz.xacml.pdp.policy.expressions.Apply;
+import org.apache.openaz.xacml.pdp.policy.expressions.AttributeValueExpression;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Writes the conformance test policies to a snapshot, reads them back and checks that each decoded
+ * <code>PolicyDef</code> has the same text representation as the one parsed from XML.
+ */
+public class PolicySnapshotTest {
+
+    private static final String CONFORMANCE_DIRECTORY_PATH = "src/test/resources/testsets/conformance/xacml3.0-ct-v.0.4";
+
+    @org.junit.Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testConformancePolicies() throws Exception {
+        File[] policyFiles = new File(CONFORMANCE_DIRECTORY_PATH).listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith("Policy.xml");
+            }
+        });
+        assertNotNull(policyFiles);
+
+        PolicySnapshotWriter policySnapshotWriter = new PolicySnapshotWriter();
+        Map<String, PolicyDef> mapPolicyDefs = new LinkedHashMap<String, PolicyDef>();
+        for (File file : policyFiles) {
+            PolicyDef policyDef;
+            try {
+                policyDef = DOMPolicyDef.load(file);
+            } catch (Exception e) {
+                // some conformance policies are deliberately invalid
+                continue;
+            }
+            try {
+                policySnapshotWriter.add(file.getName(), PolicySnapshot.hash(file), policyDef);
+                mapPolicyDefs.put(file.getName(), policyDef);
+            } catch (PolicySnapshotException e) {
+                // not every policy can be represented in a snapshot
+            }
+        }
+        assertTrue(mapPolicyDefs.size() > policyFiles.length / 2);
+        assertEquals(mapPolicyDefs.size(), policySnapshotWriter.size());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        policySnapshotWriter.write(outputStream);
+        PolicySnapshotReader policySnapshotReader = new PolicySnapshotReader(ByteBuffer.wrap(outputStream
+            .toByteArray()));
+        assertEquals(mapPolicyDefs.size(), policySnapshotReader.size());
+
+        for (Map.Entry<String, PolicyDef> entry : mapPolicyDefs.entrySet()) {
+            File file = new File(CONFORMANCE_DIRECTORY_PATH, entry.getKey());
+            PolicyDef policyDef = policySnapshotReader.getPolicyDef(entry.getKey(), PolicySnapshot.hash(file));
+            assertNotNull(entry.getKey(), policyDef);
+            assertEquals(entry.getKey(), entry.getValue().toString(), policyDef.toString());
+        }
+
+        // a stale hash must not return an entry
+        String id = mapPolicyDefs.keySet().iterator().next();
+        assertNull(policySnapshotReader.getPolicyDef(id, new byte[PolicySnapshot.HASH_LENGTH]));
+        assertNull(policySnapshotReader.getPolicyDef("missing", new byte[PolicySnapshot.HASH_LENGTH]));
+    }
+
+    private static String literal(String dataType, String value) {
+        return "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#" + dataType + "\">" + value
+               + "</AttributeValue>";
+    }
+
+    @Test
+    public void testLiterals() throws Exception {
+        String[][] literals = {
+            {"string", "a string"}, {"string", ""}, {"integer", "-42"},
+            {"integer", "123456789012345678901234567890"}, {"double", "-1.5E-3"}, {"double", "INF"},
+            {"boolean", "true"}, {"boolean", "false"}, {"dateTime", "2002-05-30T09:30:10.500+05:30"},
+            {"dateTime", "1056-11-05T19:08:12-14:30"}, {"dateTime", "2016-02-29T00:00:00Z"},
+            {"dateTime", "2002-05-30T09:30:10"},
+            {"date", "2002-05-30"}, {"anyURI", "http://example.com/"}
+        };
+        StringBuilder policy = new StringBuilder();
+        policy.append("<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"literals\"")
+            .append(" Version=\"1.0\"")
+            .append(" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:1.0:rule-combining-algorithm:deny-overrides\">")
+            .append("<Target/><Rule RuleId=\"rule\" Effect=\"Permit\"><Target/><Condition>")
+            .append("<Apply FunctionId=\"urn:oasis:names:tc:xacml:1.0:function:and\">");
+        for (String[] literal : literals) {
+            String function = "urn:oasis:names:tc:xacml:1.0:function:" + literal[0] + "-equal";
+            policy.append("<Apply FunctionId=\"").append(function).append("\">")
+                .append(literal(literal[0], literal[1])).append(literal(literal[0], literal[1]))
+                .append("</Apply>");
+        }
+        policy.append("</Apply></Condition></Rule></Policy>");
+        File file = this.folder.newFile("literals.xml");
+        Files.write(file.toPath(), policy.toString().getBytes(PolicySnapshot.UTF8));
+        PolicyDef policyDef = DOMPolicyDef.load(file);
+
+        PolicySnapshotWriter policySnapshotWriter = new PolicySnapshotWriter();
+        policySnapshotWriter.add(file.getName(), PolicySnapshot.hash(file), policyDef);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        policySnapshotWriter.write(outputStream);
+        PolicySnapshotReader policySnapshotReader = new PolicySnapshotReader(ByteBuffer.wrap(outputStream
+            .toByteArray()));
+
+        // only the literals without a binary form are kept in the string table
+        String snapshot = new String(outputStream.toByteArray(), PolicySnapshot.UTF8);
+        for (String[] literal : literals) {
+            boolean binary = !"date".equals(literal[0]) && !"anyURI".equals(literal[0]);
+            if (!"string".equals(literal[0])) {
+                assertEquals(literal[1], !binary, snapshot.contains(literal[1]));
+            }
+        }
+
+        PolicyDef decoded = policySnapshotReader.getPolicyDef(file.getName(), PolicySnapshot.hash(file));
+        assertNotNull(decoded);
+        assertEquals(policyDef.toString(), decoded.toString());
+
+        Iterator<Expression> expected = getArguments(policyDef);
+        Iterator<Expression> actual = getArguments(decoded);
+        for (String[] literal : literals) {
+            Apply applyExpected = (Apply)expected.next();
+            Apply applyActual = (Apply)actual.next();
+            AttributeValue<?> attributeValue = getAttributeValue(applyActual);
+            assertEquals(literal[1], getAttributeValue(applyExpected), attributeValue);
+            assertEquals(literal[1], getAttributeValue(applyExpected).getValue().getClass(),
+                         attributeValue.getValue().getClass());
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    private static Iterator<Expression> getArguments(PolicyDef policyDef) {
+        Rule rule = ((Policy)policyDef).getRules().next();
+        return ((Apply)rule.getCondition().getExpression()).getArguments();
+    }
+
+    private static AttributeValue<?> getAttributeValue(Apply apply) {
+        return ((AttributeValueExpression)apply.getArguments().next()).getAttributeValue();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.policy.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.pdp.eval.EvaluationContext;
+import org.apache.openaz.xacml.pdp.eval.EvaluationException;
+import org.apache.openaz.xacml.pdp.policy.Expression;
+import org.apache.openaz.xacml.pdp.policy.ExpressionResult;
+import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyDefaults;
+import org.apache.openaz.xacml.pdp.policy.VariableDefinition;
+import org.apache.openaz.xacml.pdp.std.StdEvaluationContext;
+import org.apache.openaz.xacml.std.StdAttributeValue;
+import org.apache.openaz.xacml.std.StdMutableRequest;
+import org.junit.Test;
+
+/**
+ * Tests that a <code>VariableReference</code> evaluates its <code>VariableDefinition</code> once per
+ * <code>EvaluationContext</code>.
+ */
+public class VariableReferenceTest {
+
+    /**
+     * An <code>Expression</code> that counts how often it is evaluated.
+     */
+    private static class CountingExpression extends Expression {
+        private final boolean value;
+        private int evaluations;
+
+        CountingExpression(boolean valueIn) {
+            this.value = valueIn;
+        }
+
+        @Override
+        public ExpressionResult evaluate(EvaluationContext evaluationContext, PolicyDefaults policyDefaults)
+            throws EvaluationException {
+            this.evaluations++;
+            // a new result each time, so that the tests can tell the evaluations apart
+            return ExpressionResult.newSingle(new StdAttributeValue<Boolean>(XACML3.ID_DATATYPE_BOOLEAN,
+                                                                             this.value));
+        }
+
+        @Override
+        protected boolean validateComponent() {
+            return true;
+        }
+    }
+
+    private static CountingExpression addVariable(Policy policy, String variableId, boolean value) {
+        CountingExpression expression = new CountingExpression(value);
+        VariableDefinition variableDefinition = new VariableDefinition();
+        variableDefinition.setId(variableId);
+        variableDefinition.setExpression(expression);
+        policy.addVariableDefinition(variableDefinition);
+        return expression;
+    }
+
+    private static EvaluationContext newEvaluationContext() {
+        return new StdEvaluationContext(new StdMutableRequest(), null, null);
+    }
+
+    @Test
+    public void testEvaluatedOnce() throws EvaluationException {
+        Policy policy = new Policy();
+        CountingExpression expression = addVariable(policy, "variable", true);
+        VariableReference reference1 = new VariableReference(policy, "variable");
+        VariableReference reference2 = new VariableReference(policy, "variable");
+
+        EvaluationContext evaluationContext = newEvaluationContext();
+        ExpressionResult result = reference1.evaluate(evaluationContext, null);
+        assertTrue(result.isOk());
+        assertSame(result, reference2.evaluate(evaluationContext, null));
+        assertSame(result, reference1.evaluate(evaluationContext, null));
+        assertEquals(1, expression.evaluations);
+
+        /*
+         * The next individual request of a multi-request gets its own EvaluationContext and evaluates the
+         * variable again
+         */
+        EvaluationContext evaluationContextNext = newEvaluationContext();
+        assertNull(evaluationContextNext.getVariableResult(policy.getVariableDefinition("variable")));
+        ExpressionResult resultNext = reference2.evaluate(evaluationContextNext, null);
+        assertTrue(resultNext.isOk());
+        assertNotSame(result, resultNext);
+        assertEquals(2, expression.evaluations);
+        assertSame(result, reference1.evaluate(evaluationContext, null));
+        assertSame(resultNext, reference1.evaluate(evaluationContextNext, null));
+        assertEquals(2, expression.evaluations);
+    }
+
+    @Test
+    public void testManyVariables() throws EvaluationException {
+        Policy policy = new Policy();
+        List<CountingExpression> expressions = new ArrayList<CountingExpression>();
+        List<VariableReference> references = new ArrayList<VariableReference>();
+        List<ExpressionResult> results = new ArrayList<ExpressionResult>();
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            expressions.add(addVariable(policy, "variable" + i, i % 2 == 0));
+            references.add(new VariableReference(policy, "variable" + i));
+        }
+
+        /*
+         * Evaluate enough variables to move the results from the slots to the map, checking the earlier ones
+         * after each new one
+         */
+        EvaluationContext evaluationContext = newEvaluationContext();
+        for (int i = 0; i < count; i++) {
+            results.add(references.get(i).evaluate(evaluationContext, null));
+            for (int j = 0; j <= i; j++) {
+                VariableDefinition variableDefinition = policy.getVariableDefinition("variable" + j);
+                assertSame(results.get(j), evaluationContext.getVariableResult(variableDefinition));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            assertSame(results.get(i), references.get(i).evaluate(evaluationContext, null));
+            assertEquals(1, expressions.get(i).evaluations);
+            assertEquals(i % 2 == 0, results.get(i).getValue().getValue());
+        }
+    }
+}
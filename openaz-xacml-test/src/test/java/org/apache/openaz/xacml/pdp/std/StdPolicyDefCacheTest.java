@@ -0,0 +1,117 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.util.XACMLProperties;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that unchanged reference free policies are shared across reloads while changed policies and policies
+ * with references are parsed again.
+ */
+public class StdPolicyDefCacheTest {
+
+    private static final String CONFORMANCE_DIRECTORY_PATH = "src/test/resources/testsets/conformance/xacml3.0-ct-v.0.4";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void after() {
+        StdPolicyDefCache.clear();
+    }
+
+    private File copyPolicy(String name, String target) throws Exception {
+        File file = new File(this.temporaryFolder.getRoot(), target);
+        Files.copy(new File(CONFORMANCE_DIRECTORY_PATH, name).toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        File filePolicy = this.copyPolicy("IIA001Policy.xml", "policy1");
+        File filePolicySet = this.copyPolicy("IIE001Policy.xml", "policy2");
+
+        assertEquals(2, StdPolicyDefCache.preload(Arrays.asList(filePolicy, filePolicySet), 2));
+        assertFalse(StdPolicyDefCache.hasIdReferences(StdPolicyDefCache.load(filePolicy)));
+        assertTrue(StdPolicyDefCache.hasIdReferences(StdPolicyDefCache.load(filePolicySet)));
+
+        PolicyDef policyDef = StdPolicyDefCache.take(filePolicy);
+        PolicyDef policySetDef = StdPolicyDefCache.take(filePolicySet);
+
+        // a reload of the same configuration only parses the policy with references
+        assertEquals(1, StdPolicyDefCache.preload(Arrays.asList(filePolicy, filePolicySet), 2));
+        assertSame(policyDef, StdPolicyDefCache.take(filePolicy));
+        assertNotSame(policySetDef, StdPolicyDefCache.take(filePolicySet));
+
+        // rewriting a file with the same content keeps the shared policy
+        assertTrue(filePolicy.setLastModified(filePolicy.lastModified() - 10000));
+        assertSame(policyDef, StdPolicyDefCache.take(filePolicy));
+
+        // a changed file is parsed again
+        this.copyPolicy("IIA002Policy.xml", "policy1");
+        assertTrue(filePolicy.setLastModified(filePolicy.lastModified() + 10000));
+        assertEquals(1, StdPolicyDefCache.preload(Collections.singletonList(filePolicy), 1));
+        assertNotSame(policyDef, StdPolicyDefCache.take(filePolicy));
+
+        // policies dropped from the configuration are released
+        StdPolicyDefCache.retainAll(Collections.<File> emptyList());
+        assertEquals(1, StdPolicyDefCache.preload(Collections.singletonList(filePolicy), 1));
+    }
+
+    @Test
+    public void testSeparateConfigurations() throws Exception {
+        File filePolicy1 = this.copyPolicy("IIA001Policy.xml", "policy1");
+        File filePolicy2 = this.copyPolicy("IIA002Policy.xml", "policy2");
+        Properties properties1 = new Properties();
+        properties1.setProperty(XACMLProperties.PROP_ROOTPOLICIES, "p1");
+        properties1.setProperty("p1" + StdPolicyFinderFactory.PROP_FILE, filePolicy1.getAbsolutePath());
+        Properties properties2 = new Properties();
+        properties2.setProperty(XACMLProperties.PROP_ROOTPOLICIES, "p2");
+        properties2.setProperty("p2" + StdPolicyFinderFactory.PROP_FILE, filePolicy2.getAbsolutePath());
+
+        // an engine built for another configuration in the same JVM does not evict the first one's policies
+        assertEquals(2, StdPolicyDefCache.preload(Arrays.asList(filePolicy1, filePolicy2), 2));
+        new StdPolicyFinderFactory().getPolicyFinder(properties1);
+        new StdPolicyFinderFactory().getPolicyFinder(properties2);
+        assertEquals(0, StdPolicyDefCache.preload(Arrays.asList(filePolicy1, filePolicy2), 2));
+        new StdPolicyFinderFactory().getPolicyFinder(properties1);
+        assertEquals(0, StdPolicyDefCache.preload(Arrays.asList(filePolicy1, filePolicy2), 2));
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.openaz.xacml.api.Decision;
+import org.apache.openaz.xacml.api.IdReferenceMatch;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.pdp.policy.Policy;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.pdp.policy.PolicyFinderResult;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReference;
+import org.apache.openaz.xacml.pdp.policy.PolicyIdReferenceBase;
+import org.apache.openaz.xacml.pdp.policy.PolicySet;
+import org.apache.openaz.xacml.pdp.policy.PolicySetChild;
+import org.apache.openaz.xacml.pdp.policy.PolicySetIdReference;
+import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
+import org.apache.openaz.xacml.std.IdentifierImpl;
+import org.apache.openaz.xacml.std.StdIdReferenceMatch;
+import org.apache.openaz.xacml.std.StdVersion;
+import org.apache.openaz.xacml.std.StdVersionMatch;
+import org.apache.openaz.xacml.std.dom.DOMRequest;
+import org.junit.Test;
+
+/**
+ * Checks how a <code>StdPolicyFinder</code> resolves references, and that adding referenced policies publishes a
+ * new snapshot without changing the policies that decisions in progress, or other finders sharing the same
+ * policies, are using.
+ */
+public class StdPolicyFinderTest {
+
+    private static final String CONFORMANCE_DIRECTORY_PATH = "src/test/resources/testsets/conformance/xacml3.0-ct-v.0.4";
+
+    private static final int THREADS = 4;
+
+    private static PolicyDef loadPolicyDef(String name) throws Exception {
+        return DOMPolicyDef.load(new File(CONFORMANCE_DIRECTORY_PATH, name));
+    }
+
+    private static IdReferenceMatch newIdReferenceMatch(String id, String versionMatch) throws Exception {
+        return new StdIdReferenceMatch(new IdentifierImpl(id), versionMatch == null
+            ? null : StdVersionMatch.newInstance(versionMatch), null, null);
+    }
+
+    private static Policy newPolicy(String id, String version) throws Exception {
+        Policy policy = new Policy();
+        policy.setIdentifier(new IdentifierImpl(id));
+        policy.setVersion(StdVersion.newInstance(version));
+        return policy;
+    }
+
+    private static PolicySet newPolicySet(String id, PolicySetChild... children) throws Exception {
+        PolicySet policySet = new PolicySet();
+        policySet.setIdentifier(new IdentifierImpl(id));
+        policySet.setVersion(StdVersion.newInstance("1.0"));
+        policySet.setChildren(Arrays.asList(children));
+        return policySet;
+    }
+
+    private static PolicyIdReference newPolicyIdReference(String id, String versionMatch) throws Exception {
+        PolicyIdReference policyIdReference = new PolicyIdReference();
+        policyIdReference.setIdReferenceMatch(newIdReferenceMatch(id, versionMatch));
+        return policyIdReference;
+    }
+
+    private static PolicySetIdReference newPolicySetIdReference(String id) throws Exception {
+        PolicySetIdReference policySetIdReference = new PolicySetIdReference();
+        policySetIdReference.setIdReferenceMatch(newIdReferenceMatch(id, null));
+        return policySetIdReference;
+    }
+
+    private static Decision decide(StdPolicyFinder policyFinder, PolicyDef policyDefRoot, Request request)
+        throws Exception {
+        return policyDefRoot.evaluate(new StdEvaluationContext(request, policyFinder, null)).getDecision();
+    }
+
+    @Test
+    public void testAddReferencedPolicyDuringDecide() throws Exception {
+        final Request request = DOMRequest.load(new File(CONFORMANCE_DIRECTORY_PATH, "IIE001Request.xml"));
+        final PolicyDef policyDefRoot = loadPolicyDef("IIE001Policy.xml");
+        List<PolicyDef> listReferenced = Collections.singletonList(loadPolicyDef("IIE001PolicySetId1.xml"));
+        final StdPolicyFinder policyFinder = new StdPolicyFinder(policyDefRoot, listReferenced);
+        final StdPolicyFinder policyFinderShared = new StdPolicyFinder(policyDefRoot, listReferenced);
+
+        // IIE001 needs both referenced policies to be permitted
+        final Decision decisionMissing = decide(policyFinder, policyDefRoot, request);
+        assertEquals(Decision.INDETERMINATE, decisionMissing);
+        assertEquals(1, policyFinder.getPolicyDependencyGraph().getUnresolvedReferences().size());
+
+        final AtomicBoolean added = new AtomicBoolean();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(THREADS);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        List<Future<Void>> listFutures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < THREADS; i++) {
+            listFutures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    started.countDown();
+                    while (!stop.get()) {
+                        boolean addedBefore = added.get();
+                        Decision decision = decide(policyFinder, policyDefRoot, request);
+                        if (addedBefore) {
+                            assertEquals(Decision.PERMIT, decision);
+                        } else {
+                            assertTrue(decision == decisionMissing || decision == Decision.PERMIT);
+                        }
+                        assertEquals(decisionMissing, decide(policyFinderShared, policyDefRoot, request));
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            policyFinder.addReferencedPolicy(loadPolicyDef("IIE001Policyid1.xml"));
+            added.set(true);
+            Thread.sleep(100);
+        } finally {
+            stop.set(true);
+            executorService.shutdown();
+        }
+        for (Future<Void> future : listFutures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(Decision.PERMIT, decide(policyFinder, policyDefRoot, request));
+        assertEquals(0, policyFinder.getPolicyDependencyGraph().getUnresolvedReferences().size());
+        assertEquals(decisionMissing, decide(policyFinderShared, policyDefRoot, request));
+
+        // the references themselves are left alone, each finder keeps its own referencees
+        Iterator<PolicySetChild> iterChildren = ((PolicySet)policyDefRoot).getChildren();
+        while (iterChildren.hasNext()) {
+            PolicyIdReferenceBase<?> policyIdReference = (PolicyIdReferenceBase<?>)iterChildren.next();
+            assertNull(policyIdReference.getReferencee());
+            assertNotNull(policyFinder.getReferencee(policyIdReference));
+            if (policyIdReference instanceof PolicyIdReference) {
+                assertNull(policyFinderShared.getReferencee(policyIdReference));
+            } else {
+                assertSame(policyFinder.getReferencee(policyIdReference),
+                           policyFinderShared.getReferencee(policyIdReference));
+            }
+        }
+    }
+
+    @Test
+    public void testDependencyGraph() throws Exception {
+        Policy policy1 = newPolicy("urn:test:policy1", "1.0");
+        Policy policy2 = newPolicy("urn:test:policy2", "1.0");
+        PolicySet policySet1 = newPolicySet("urn:test:policyset1",
+                                            newPolicyIdReference("urn:test:policy2", null),
+                                            newPolicyIdReference("urn:test:missing", null));
+        PolicySet policySetRoot = newPolicySet("urn:test:root", newPolicyIdReference("urn:test:policy1", null),
+                                               newPolicySetIdReference("urn:test:policyset1"));
+        StdPolicyFinder policyFinder = new StdPolicyFinder(policySetRoot, Arrays
+            .<PolicyDef> asList(policy1, policy2, policySet1));
+
+        PolicyDependencyGraph policyDependencyGraph = policyFinder.getPolicyDependencyGraph();
+        assertEquals(Arrays.<PolicyDef> asList(policy1, policySet1),
+                     new ArrayList<PolicyDef>(policyDependencyGraph.getReferences(policySetRoot)));
+        assertEquals(Collections.<PolicyDef> singletonList(policy2),
+                     new ArrayList<PolicyDef>(policyDependencyGraph.getReferences(policySet1)));
+        assertEquals(Collections.<PolicyDef> singletonList(policySet1),
+                     new ArrayList<PolicyDef>(policyDependencyGraph.getReferencedBy(policy2)));
+        assertTrue(policyDependencyGraph.getReferences(policy2).isEmpty());
+        assertEquals(Collections.singletonList(newIdReferenceMatch("urn:test:missing", null)),
+                     new ArrayList<IdReferenceMatch>(policyDependencyGraph.getUnresolvedReferences()));
+        assertTrue(policyDependencyGraph.getCircularReferences().isEmpty());
+    }
+
+    @Test
+    public void testVersionConstraints() throws Exception {
+        Policy policy10 = newPolicy("urn:test:policy", "1.0");
+        Policy policy20 = newPolicy("urn:test:policy", "2.0");
+        Policy policy21 = newPolicy("urn:test:policy", "2.1");
+        PolicyIdReference policyIdReference = newPolicyIdReference("urn:test:policy", "2.*");
+        PolicySet policySetRoot = newPolicySet("urn:test:root", policyIdReference);
+        StdPolicyFinder policyFinder = new StdPolicyFinder(policySetRoot, Arrays
+            .<PolicyDef> asList(policy10, policy21, policy20));
+
+        assertSame(policy21, policyFinder.getReferencee(policyIdReference));
+        assertSame(policy10, policyFinder.getPolicy(newIdReferenceMatch("urn:test:policy", "1.*"))
+            .getPolicyDef());
+        assertSame(policy21, policyFinder.getPolicy(newIdReferenceMatch("urn:test:policy", null))
+            .getPolicyDef());
+
+        // matching the same constraints again reuses the result of the first lookup
+        PolicyFinderResult<Policy> policyFinderResult = policyFinder
+            .getPolicy(newIdReferenceMatch("urn:test:policy", "2.*"));
+        assertSame(policy21, policyFinderResult.getPolicyDef());
+        assertSame(policyFinderResult, policyFinder.getPolicy(newIdReferenceMatch("urn:test:policy", "2.*")));
+        assertNull(policyFinder.getPolicy(newIdReferenceMatch("urn:test:policy", "3.*")).getPolicyDef());
+        assertNull(policyFinder.getPolicySet(newIdReferenceMatch("urn:test:policy", "2.*")).getPolicyDef());
+
+        // a newer version added later is only seen by the new snapshot
+        Policy policy22 = newPolicy("urn:test:policy", "2.2");
+        policyFinder.addReferencedPolicy(policy22);
+        assertSame(policy22, policyFinder.getReferencee(policyIdReference));
+        assertSame(policy22, policyFinder.getPolicy(newIdReferenceMatch("urn:test:policy", "2.*"))
+            .getPolicyDef());
+    }
+
+    @Test
+    public void testCircularReferences() throws Exception {
+        PolicySetIdReference policySetIdReferenceRoot = newPolicySetIdReference("urn:test:root");
+        PolicySet policySet1 = newPolicySet("urn:test:policyset1", policySetIdReferenceRoot);
+        PolicySet policySetRoot = newPolicySet("urn:test:root", newPolicySetIdReference("urn:test:policyset1"));
+        StdPolicyFinder policyFinder = new StdPolicyFinder(policySetRoot,
+                                                           Collections.<PolicyDef> singletonList(policySet1));
+
+        PolicyDependencyGraph policyDependencyGraph = policyFinder.getPolicyDependencyGraph();
+        assertEquals(Collections.singletonList(policySetIdReferenceRoot.getIdReferenceMatch()),
+                     new ArrayList<IdReferenceMatch>(policyDependencyGraph.getCircularReferences()));
+        assertTrue(policyDependencyGraph.getUnresolvedReferences().isEmpty());
+        assertEquals(Collections.<PolicyDef> singletonList(policySetRoot),
+                     new ArrayList<PolicyDef>(policyDependencyGraph.getReferences(policySet1)));
+        assertSame(policySetRoot, policyFinder.getReferencee(policySetIdReferenceRoot));
+    }
+}
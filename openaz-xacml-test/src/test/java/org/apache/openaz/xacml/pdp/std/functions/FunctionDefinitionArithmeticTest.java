@@ -32,6 +32,7 @@ package org.apache.openaz.xacml.pdp.std.functions;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -104,6 +105,63 @@ public class FunctionDefinitionArithmeticTest {
 
     }
 
+    @Test
+    public void testFixedArity() {
+        FunctionArgumentAttributeValue attrSmall = null;
+        FunctionArgumentAttributeValue attrLarge = null;
+        FunctionArgumentAttributeValue attrNegative = null;
+        FunctionArgumentAttributeValue attrZero = null;
+        FunctionArgumentAttributeValue attrBadType = null;
+        try {
+            attrSmall = new FunctionArgumentAttributeValue(DataTypes.DT_INTEGER.createAttributeValue(7));
+            attrLarge = new FunctionArgumentAttributeValue(DataTypes.DT_INTEGER
+                .createAttributeValue(new BigInteger("9223372036854775807")));
+            attrNegative = new FunctionArgumentAttributeValue(DataTypes.DT_INTEGER.createAttributeValue(-3));
+            attrZero = new FunctionArgumentAttributeValue(DataTypes.DT_INTEGER.createAttributeValue(0));
+            attrBadType = new FunctionArgumentAttributeValue(DataTypes.DT_DOUBLE.createAttributeValue(1.1));
+        } catch (Exception e) {
+            fail("creating attributes e=" + e);
+        }
+
+        FunctionDefinitionArithmetic<?> fdAdd = (FunctionDefinitionArithmetic<?>)StdFunctions.FD_INTEGER_ADD;
+        FunctionDefinitionArithmetic<?> fdMultiply = (FunctionDefinitionArithmetic<?>)StdFunctions.FD_INTEGER_MULTIPLY;
+        FunctionDefinitionArithmetic<?> fdMod = (FunctionDefinitionArithmetic<?>)StdFunctions.FD_INTEGER_MOD;
+        FunctionDefinitionArithmetic<?> fdAbs = (FunctionDefinitionArithmetic<?>)StdFunctions.FD_INTEGER_ABS;
+        assertEquals(2, fdAdd.getArity());
+        assertEquals(1, fdAbs.getArity());
+
+        ExpressionResult res = fdAdd.evaluate(null, attrSmall, attrNegative);
+        assertTrue(res.isOk());
+        assertEquals(new BigInteger("4"), res.getValue().getValue());
+        // small results are shared
+        assertSame(res, fdAdd.evaluate(null, attrSmall, attrNegative));
+
+        // results that do not fit in a long
+        res = fdAdd.evaluate(null, attrLarge, attrSmall);
+        assertTrue(res.isOk());
+        assertEquals(new BigInteger("9223372036854775814"), res.getValue().getValue());
+        res = fdMultiply.evaluate(null, attrLarge, attrNegative);
+        assertTrue(res.isOk());
+        assertEquals(new BigInteger("-27670116110564327421"), res.getValue().getValue());
+
+        res = fdMod.evaluate(null, attrNegative, attrSmall);
+        assertTrue(res.isOk());
+        assertEquals(new BigInteger("-3"), res.getValue().getValue());
+
+        res = fdAbs.evaluate(null, attrNegative, null);
+        assertTrue(res.isOk());
+        assertEquals(new BigInteger("3"), res.getValue().getValue());
+
+        // errors are the same as with the argument list
+        res = fdMod.evaluate(null, attrSmall, attrZero);
+        assertFalse(res.isOk());
+        assertEquals("function:integer-mod Divide by 0 error: 7, 0", res.getStatus().getStatusMessage());
+        res = fdAdd.evaluate(null, attrSmall, attrBadType);
+        assertFalse(res.isOk());
+        assertEquals("function:integer-add Expected data type 'integer' saw 'double' at arg index 1", res
+            .getStatus().getStatusMessage());
+    }
+
     @Test
     public void testDouble_add() {
 
@@ -0,0 +1,182 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * LatencyReport collects the decision times of each test of a test run, which may be recorded from any
+ * number of threads, and reports their percentiles. The 90th percentile of each test can be saved as a
+ * baseline file and later runs compared against it, so that tests whose latency regressed are flagged. The
+ * baseline file is a properties file of test names and nanoseconds:
+ *
+ * <pre>
+ * IIA001=41250
+ * IIA002=39875
+ * </pre>
+ */
+public class LatencyReport {
+    /**
+     * The fraction a test's 90th percentile may grow over the baseline before it is flagged.
+     */
+    public static final double DEFAULT_TOLERANCE = 0.25;
+    /**
+     * Growth below this many nanoseconds is never flagged, since it is within the noise of a single run.
+     */
+    public static final long MIN_REGRESSION_NANOS = 50000;
+
+    /**
+     * Samples holds the decision times of a single test.
+     */
+    private static class Samples {
+        private long[] nanos = new long[16];
+        private int size;
+
+        synchronized void add(long time) {
+            if (this.size == this.nanos.length) {
+                this.nanos = Arrays.copyOf(this.nanos, this.size * 2);
+            }
+            this.nanos[this.size++] = time;
+        }
+
+        synchronized long[] sorted() {
+            long[] sortedNanos = Arrays.copyOf(this.nanos, this.size);
+            Arrays.sort(sortedNanos);
+            return sortedNanos;
+        }
+    }
+
+    private final ConcurrentMap<String, Samples> mapSamples = new ConcurrentSkipListMap<String, Samples>();
+
+    static long percentile(long[] sortedNanos, int percent) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int)Math.ceil(percent / 100.0 * sortedNanos.length);
+        return sortedNanos[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Records one decision time of the given test.
+     *
+     * @param testName the name of the test
+     * @param nanos the decision time in nanoseconds
+     */
+    public void record(String testName, long nanos) {
+        Samples samples = this.mapSamples.get(testName);
+        if (samples == null) {
+            Samples samplesNew = new Samples();
+            samples = this.mapSamples.putIfAbsent(testName, samplesNew);
+            if (samples == null) {
+                samples = samplesNew;
+            }
+        }
+        samples.add(nanos);
+    }
+
+    /**
+     * Prints the number of samples and the 50th, 90th and 99th percentile and maximum decision times, in
+     * microseconds, of each test as CSV lines.
+     *
+     * @param writer the <code>PrintWriter</code> to print to
+     */
+    public void print(PrintWriter writer) {
+        writer.println("Test,Samples,P50(us),P90(us),P99(us),Max(us)");
+        for (Map.Entry<String, Samples> entry : this.mapSamples.entrySet()) {
+            long[] sortedNanos = entry.getValue().sorted();
+            if (sortedNanos.length == 0) {
+                continue;
+            }
+            writer.printf("%s,%d,%d,%d,%d,%d\n", entry.getKey(), sortedNanos.length,
+                          percentile(sortedNanos, 50) / 1000, percentile(sortedNanos, 90) / 1000,
+                          percentile(sortedNanos, 99) / 1000, sortedNanos[sortedNanos.length - 1] / 1000);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Gets the 90th percentile decision time of each test as a baseline.
+     *
+     * @return a <code>Properties</code> from test names to nanoseconds
+     */
+    public Properties getBaseline() {
+        Properties baseline = new Properties();
+        for (Map.Entry<String, Samples> entry : this.mapSamples.entrySet()) {
+            baseline.setProperty(entry.getKey(), Long.toString(percentile(entry.getValue().sorted(), 90)));
+        }
+        return baseline;
+    }
+
+    /**
+     * Compares the 90th percentile decision time of each test against the given baseline.
+     *
+     * @param baseline the baseline from an earlier run
+     * @param tolerance the fraction a test may grow over its baseline before it is flagged
+     * @return a description of each test that regressed
+     */
+    public List<String> getRegressions(Properties baseline, double tolerance) {
+        List<String> listRegressions = new ArrayList<String>();
+        for (Map.Entry<String, Samples> entry : this.mapSamples.entrySet()) {
+            String baselineNanos = baseline.getProperty(entry.getKey());
+            if (baselineNanos == null) {
+                continue;
+            }
+            long expected;
+            try {
+                expected = Long.parseLong(baselineNanos.trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            long actual = percentile(entry.getValue().sorted(), 90);
+            if (actual - expected > MIN_REGRESSION_NANOS && actual > expected * (1 + tolerance)) {
+                listRegressions.add(entry.getKey() + ": P90 " + actual / 1000 + "us, baseline "
+                                    + expected / 1000 + "us");
+            }
+        }
+        return listRegressions;
+    }
+
+    public static Properties loadBaseline(Path path) throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream is = Files.newInputStream(path)) {
+            baseline.load(is);
+        }
+        return baseline;
+    }
+
+    public void saveBaseline(Path path) throws IOException {
+        try (OutputStream os = Files.newOutputStream(path)) {
+            this.getBaseline().store(os, "P90 decision time in nanoseconds");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the percentiles and the regressions against a baseline of a <code>LatencyReport</code>.
+ */
+public class LatencyReportTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void record(LatencyReport latencyReport, String testName, long nanos, int count) {
+        for (int i = 0; i < count; i++) {
+            latencyReport.record(testName, nanos);
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        long[] sortedNanos = new long[100];
+        for (int i = 0; i < sortedNanos.length; i++) {
+            sortedNanos[i] = i + 1;
+        }
+        assertEquals(1, LatencyReport.percentile(sortedNanos, 0));
+        assertEquals(50, LatencyReport.percentile(sortedNanos, 50));
+        assertEquals(90, LatencyReport.percentile(sortedNanos, 90));
+        assertEquals(99, LatencyReport.percentile(sortedNanos, 99));
+        assertEquals(100, LatencyReport.percentile(sortedNanos, 100));
+        assertEquals(7, LatencyReport.percentile(new long[] {
+            7
+        }, 90));
+        assertEquals(0, LatencyReport.percentile(new long[0], 90));
+    }
+
+    @Test
+    public void testBaseline() throws Exception {
+        LatencyReport latencyReport = new LatencyReport();
+        for (int i = 1; i <= 10; i++) {
+            latencyReport.record("test1", i * 1000L);
+        }
+        record(latencyReport, "test2", 5000, 3);
+
+        Path path = this.temporaryFolder.getRoot().toPath().resolve("baseline.properties");
+        latencyReport.saveBaseline(path);
+        Properties baseline = LatencyReport.loadBaseline(path);
+
+        assertEquals(2, baseline.size());
+        assertEquals("9000", baseline.getProperty("test1"));
+        assertEquals("5000", baseline.getProperty("test2"));
+        assertTrue(latencyReport.getRegressions(baseline, LatencyReport.DEFAULT_TOLERANCE).isEmpty());
+    }
+
+    @Test
+    public void testRegressions() {
+        LatencyReport latencyReport = new LatencyReport();
+        record(latencyReport, "doubled", 200000, 10);
+        record(latencyReport, "withinTolerance", 120000, 10);
+        record(latencyReport, "withinNoise", 140000, 10);
+        record(latencyReport, "faster", 50000, 10);
+        record(latencyReport, "new", 900000, 10);
+        record(latencyReport, "invalid", 900000, 10);
+        Properties baseline = new Properties();
+        baseline.setProperty("doubled", "100000");
+        baseline.setProperty("withinTolerance", "100000");
+        baseline.setProperty("withinNoise", "100000");
+        baseline.setProperty("faster", "100000");
+        baseline.setProperty("invalid", "fast");
+
+        List<String> listRegressions = latencyReport.getRegressions(baseline, 0.25);
+        assertEquals(1, listRegressions.size());
+        assertEquals("doubled: P90 200us, baseline 100us", listRegressions.get(0));
+
+        // a 40% growth is over a 10% tolerance but not over the minimum growth
+        assertEquals(1, latencyReport.getRegressions(baseline, 0.1).size());
+        // a 100% tolerance lets everything pass
+        assertTrue(latencyReport.getRegressions(baseline, 1.0).isEmpty());
+    }
+}
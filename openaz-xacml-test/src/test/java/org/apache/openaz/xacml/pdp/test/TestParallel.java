@@ -0,0 +1,286 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.MalformedURLException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.util.FactoryException;
+
+import com.google.common.base.Splitter;
+
+/**
+ * TestParallel runs the requests of a test directory concurrently on a single shared PDP engine. Each request
+ * is first decided once on its own, and every concurrent decision must return the same response, which
+ * checks that the engine is thread-safe. The latency percentiles of each request file are then reported and
+ * may be compared against a baseline saved by an earlier run. For example:
+ *
+ * <pre>
+ * -dir testsets/algorithms/combinedPermitOverrides -threads 8 -iterations 200 -saveBaseline baseline.properties
+ * -dir testsets/algorithms/combinedPermitOverrides -threads 8 -iterations 200 -baseline baseline.properties
+ * </pre>
+ *
+ * The requests of more directories are mixed into the same run on the same engine with -with, as long as
+ * their xacml.properties configure the engine the same way as the one of -dir. Each of the testsets in this
+ * module has its own policies, so they cannot all share one engine; they are run one directory at a time.
+ * Generated requests are skipped, since the generators are read sequentially. The conformance tests have a
+ * PDP engine per test and are run concurrently by {@link org.apache.openaz.xacml.pdp.test.conformance.Conformance}
+ * with the --threads option.
+ */
+public class TestParallel extends TestBase {
+    private static final Log logger = LogFactory.getLog(TestParallel.class);
+
+    public static final String OPTION_THREADS = "threads";
+    public static final String OPTION_ITERATIONS = "iterations";
+    public static final String OPTION_BASELINE = "baseline";
+    public static final String OPTION_SAVEBASELINE = "saveBaseline";
+    public static final String OPTION_TOLERANCE = "tolerance";
+    public static final String OPTION_WITH = "with";
+
+    static {
+        options.addOption(new Option(OPTION_THREADS, true, "Number of concurrent client threads. Default is 8."));
+        options.addOption(new Option(OPTION_ITERATIONS, true,
+                                     "Number of times each request is decided per run. Default is 100."));
+        options.addOption(new Option(OPTION_BASELINE, true,
+                                     "Baseline file to flag the requests whose latency regressed."));
+        options.addOption(new Option(OPTION_SAVEBASELINE, true, "File to save the latencies of the run to."));
+        options.addOption(new Option(OPTION_TOLERANCE, true,
+                                     "Percent a request's P90 latency may grow over the baseline. Default is 25."));
+        options.addOption(new Option(OPTION_WITH, true,
+                                     "Comma-separated list of more test directories to decide on the same engine."));
+    }
+
+    protected int threads;
+    protected int iterations;
+    protected Path baseline;
+    protected Path saveBaseline;
+    protected double tolerance;
+    protected List<String> withDirectories;
+
+    public TestParallel(String[] args) throws ParseException, MalformedURLException, HelpException {
+        super(args);
+    }
+
+    @Override
+    protected void parseCommands(String[] args) throws ParseException, MalformedURLException, HelpException {
+        //
+        // Have our parent class parse its options out
+        //
+        super.parseCommands(args);
+        //
+        // Parse our own options
+        //
+        CommandLine cl = new DefaultParser().parse(options, args);
+        this.threads = Integer.parseInt(cl.getOptionValue(OPTION_THREADS, "8"));
+        this.iterations = Integer.parseInt(cl.getOptionValue(OPTION_ITERATIONS, "100"));
+        if (cl.hasOption(OPTION_BASELINE)) {
+            this.baseline = Paths.get(cl.getOptionValue(OPTION_BASELINE));
+        }
+        if (cl.hasOption(OPTION_SAVEBASELINE)) {
+            this.saveBaseline = Paths.get(cl.getOptionValue(OPTION_SAVEBASELINE));
+        }
+        this.tolerance = Double.parseDouble(cl.getOptionValue(OPTION_TOLERANCE, "25")) / 100;
+        // set here rather than by an initializer, since this is called from the super constructor
+        this.withDirectories = new ArrayList<String>();
+        if (cl.hasOption(OPTION_WITH)) {
+            for (String with : Splitter.on(',').trimResults().omitEmptyStrings()
+                .split(cl.getOptionValue(OPTION_WITH))) {
+                this.withDirectories.add(with);
+            }
+        }
+    }
+
+    private static Properties loadProperties(Path directory) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(directory.resolve("xacml.properties"))) {
+            properties.load(is);
+        }
+        return properties;
+    }
+
+    /**
+     * Gets the test directories whose requests are decided on the engine, making sure that the ones given
+     * with -with configure the engine the same way as -dir.
+     *
+     * @return the test directories
+     * @throws IOException
+     */
+    protected List<Path> getDirectories() throws IOException {
+        List<Path> listDirectories = new ArrayList<Path>();
+        Path directoryPath = Paths.get(this.directory);
+        listDirectories.add(directoryPath);
+        Properties properties = loadProperties(directoryPath);
+        for (String with : this.withDirectories) {
+            Path withPath = Paths.get(with);
+            if (!properties.equals(loadProperties(withPath))) {
+                throw new IllegalArgumentException(with + " does not share the configuration of "
+                                                   + this.directory);
+            }
+            listDirectories.add(withPath);
+        }
+        return listDirectories;
+    }
+
+    /**
+     * Runs the requests concurrently and reports the results.
+     *
+     * @return the number of mismatched responses and latency regressions, so 0 if the run passed
+     * @throws java.io.IOException
+     * @throws org.apache.openaz.xacml.util.FactoryException
+     */
+    public int runParallel() throws IOException, FactoryException {
+        //
+        // Configure ourselves
+        //
+        this.configure();
+        //
+        // Load the requests and decide each once on its own, as the responses to compare against.
+        // The requests of the -with directories are named by their directory as well.
+        //
+        final Map<String, Request> mapRequests = new TreeMap<String, Request>();
+        final Map<String, Response> mapResponses = new TreeMap<String, Response>();
+        List<Path> listDirectories = this.getDirectories();
+        for (Path directoryPath : listDirectories) {
+            String prefix = (directoryPath == listDirectories.get(0) ? "" : directoryPath + "/");
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath.resolve("requests"))) {
+                for (Path file : stream) {
+                    Matcher matcher = this.pattern.matcher(file.getFileName().toString());
+                    if (matcher.matches() && !"Generate".equals(matcher.group(1))) {
+                        try {
+                            Request request = this.generateRequest(file, matcher.group(1));
+                            Response response = this.callPDP(request);
+                            if (response != null) {
+                                mapRequests.put(prefix + file.getFileName(), request);
+                                mapResponses.put(prefix + file.getFileName(), response);
+                            }
+                        } catch (Exception e) {
+                            logger.error("Failed to load " + file + ": " + e);
+                        }
+                    }
+                }
+            }
+        }
+        if (mapRequests.isEmpty()) {
+            throw new IllegalArgumentException("No requests found in " + this.directory);
+        }
+        //
+        // Decide every request from all of the threads at once
+        //
+        final LatencyReport latencyReport = new LatencyReport();
+        final AtomicLong mismatches = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(this.threads, 1));
+        long lTimeStart = System.currentTimeMillis();
+        for (int i = 0; i < this.iterations; i++) {
+            for (final Map.Entry<String, Request> entry : mapRequests.entrySet()) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long lStart = System.nanoTime();
+                        Response response = TestParallel.this.callPDP(entry.getValue());
+                        latencyReport.record(entry.getKey(), System.nanoTime() - lStart);
+                        if (response == null || !response.equals(mapResponses.get(entry.getKey()))) {
+                            logger.error("Response mismatch for " + entry.getKey() + ": " + response);
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = executor.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!terminated) {
+            executor.shutdownNow();
+            logger.error("Concurrent run did not finish, cancelled the remaining decisions");
+        }
+        long lElapsed = System.currentTimeMillis() - lTimeStart;
+        //
+        // Report
+        //
+        PrintWriter writer = new PrintWriter(System.out);
+        latencyReport.print(writer);
+        writer.printf("%d requests, %d threads, %d decisions, %d mismatches in %dms\n", mapRequests.size(),
+                      this.threads, mapRequests.size() * (long)this.iterations, mismatches.get(), lElapsed);
+        int failures = (int)mismatches.get();
+        if (!terminated) {
+            writer.println("TIMEOUT the concurrent run did not finish");
+            failures++;
+        }
+        if (this.baseline != null) {
+            List<String> listRegressions = latencyReport.getRegressions(LatencyReport
+                .loadBaseline(this.baseline), this.tolerance);
+            for (String regression : listRegressions) {
+                writer.println("REGRESSION " + regression);
+            }
+            failures += listRegressions.size();
+        }
+        writer.flush();
+        if (this.saveBaseline != null) {
+            latencyReport.saveBaseline(this.saveBaseline);
+        }
+        return failures;
+    }
+
+    @Override
+    public void run() throws IOException, FactoryException {
+        this.runParallel();
+    }
+
+    public static void main(String[] args) {
+        int failures = 0;
+        try {
+            failures = new TestParallel(args).runParallel();
+        } catch (ParseException | IOException | FactoryException e) {
+            logger.error(e);
+            failures = 1;
+        } catch (HelpException e) { //NOPMD
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
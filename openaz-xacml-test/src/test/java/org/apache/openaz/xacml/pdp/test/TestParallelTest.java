@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.apache.openaz.xacml.util.XACMLProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs the combined permit overrides requests, split over two directories with the same configuration, on
+ * one shared engine.
+ */
+public class TestParallelTest {
+
+    private static final Path TESTSETS = Paths.get("src/test/resources/testsets").toAbsolutePath();
+    private static final Path ALGORITHM_DIRECTORY = TESTSETS.resolve("algorithms/combinedPermitOverrides");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory1;
+    private Path directory2;
+    private String properties;
+
+    @Before
+    public void before() throws Exception {
+        // the policy files are relative to the testsets' parent directory
+        this.properties = new String(Files.readAllBytes(ALGORITHM_DIRECTORY.resolve("xacml.properties")),
+                                     StandardCharsets.UTF_8)
+            .replace("=testsets/", "=" + TESTSETS.toString().replace(File.separatorChar, '/') + "/");
+        this.directory1 = this.newDirectory("directory1", this.properties, "Request.01.Permit.json",
+                                            "Request.04.Deny.json");
+        this.directory2 = this.newDirectory("directory2", this.properties, "Request.02.Permit.json",
+                                            "Request.05.Deny.json", "Request.06.Deny.json");
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(XACMLProperties.XACML_PROPERTIES_NAME);
+        XACMLProperties.reloadProperties();
+    }
+
+    private Path newDirectory(String name, String xacmlProperties, String... requests) throws Exception {
+        Path directory = this.temporaryFolder.newFolder(name).toPath();
+        Files.write(directory.resolve("xacml.properties"), xacmlProperties.getBytes(StandardCharsets.UTF_8));
+        Path requestDirectory = Files.createDirectory(directory.resolve("requests"));
+        for (String request : requests) {
+            Files.copy(ALGORITHM_DIRECTORY.resolve("requests").resolve(request),
+                       requestDirectory.resolve(request));
+        }
+        return directory;
+    }
+
+    @Test
+    public void testSharedEngine() throws Exception {
+        Path baseline = this.temporaryFolder.getRoot().toPath().resolve("baseline.properties");
+        TestParallel testParallel = new TestParallel(new String[] {
+            "-dir", this.directory1.toString(), "-with", this.directory2.toString(), "-threads", "4",
+            "-iterations", "20", "-saveBaseline", baseline.toString()
+        });
+
+        assertEquals(0, testParallel.runParallel());
+
+        Properties properties = LatencyReport.loadBaseline(baseline);
+        assertEquals(5, properties.size());
+        assertTrue(properties.containsKey("Request.01.Permit.json"));
+        assertTrue(properties.containsKey("Request.04.Deny.json"));
+        assertTrue(properties.containsKey(this.directory2 + "/Request.02.Permit.json"));
+        assertTrue(properties.containsKey(this.directory2 + "/Request.06.Deny.json"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentConfiguration() throws Exception {
+        Path directory3 = this.newDirectory("directory3", this.properties
+            .replace("xacml.rootPolicies=p1,p2,d1,d2,na,no", "xacml.rootPolicies=p1,d1"),
+                                            "Request.03.Permit.json");
+        new TestParallel(new String[] {
+            "-dir", this.directory1.toString(), "-with", directory3.toString()
+        }).runParallel();
+    }
+}
@@ -35,10 +35,16 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.openaz.xacml.api.Advice;
 import org.apache.openaz.xacml.api.Attribute;
@@ -49,6 +55,7 @@ import org.apache.openaz.xacml.api.IdReference;
 import org.apache.openaz.xacml.api.Obligation;
 import org.apache.openaz.xacml.api.Response;
 import org.apache.openaz.xacml.api.Result;
+import org.apache.openaz.xacml.pdp.test.LatencyReport;
 
 /**
  * Conformance is an application that runs a <code>ConformanceTestSet</code> and dumps results comparing the
@@ -59,6 +66,10 @@ import org.apache.openaz.xacml.api.Result;
  * testsets/conformance/xacml3.0-ct-v.0.4 -o \Users\yourLogin\Downloads\conformance.txt You must also set the
  * VM arguments: -Dxacml.properties=src/test/resources/testsets/conformance/xacml.properties .
  * -Dlog4j.configuration=.\logging.properties
+ * <p>
+ * With --threads, every test is also decided concurrently on its engine after the sequential run, and the
+ * latency percentiles of each test are reported and may be compared against a baseline file, e.g. -i
+ * xacml3.0-ct-v.0.4 --threads 8 --iterations 50 --baseline conformance-baseline.properties
  */
 public class Conformance {
     private ConformanceScopeResolver scopeResolver;
@@ -74,6 +85,15 @@ public class Conformance {
     private boolean strict;
     private boolean stopOnFirstError;
 
+    // concurrent run of the tests after the sequential one
+    private int threads;
+    private int iterations = -1;
+    private Path baselineFile;
+    private Path saveBaselineFile;
+    private double tolerance = LatencyReport.DEFAULT_TOLERANCE;
+    private List<ConformanceTestResult> listParallelResults = new ArrayList<ConformanceTestResult>();
+    private int parallelFailures;
+
     private int testsRun;
     private int decisionsMatch;
     private int statusCodesMatch;
@@ -124,8 +144,6 @@ public class Conformance {
     private boolean init(String[] args) {
         boolean lenientRequests = true;
         boolean lenientPolicies = false;
-        // default is to not run any non-first-time iterations
-        int iterations = -1;
         String testSetDirectoryNames = "";
         for (int i = 0; i < args.length;) {
 
@@ -211,7 +229,7 @@ public class Conformance {
                 // and timings for 1 or more non-first-time calls to decide().
                 if (i + 1 < args.length) {
                     try {
-                        iterations = Integer.parseInt(args[i + 1]);
+                        this.iterations = Integer.parseInt(args[i + 1]);
                         i += 2;
                     } catch (NumberFormatException ex) {
                         System.err.println("Invalid iteration count '" + args[i + 1] + "'");
@@ -221,11 +239,49 @@ public class Conformance {
                     System.err.println("Missing argument to " + args[i] + " command line option");
                     return false;
                 }
-                if (iterations < 1) {
-                    System.err.println("Cannot use --iterations " + iterations
+                if (this.iterations < 1) {
+                    System.err.println("Cannot use --iterations " + this.iterations
                                        + ".  Must use an integer greater than 0");
                     return false;
                 }
+            } else if (args[i].equals("--threads")) {
+                if (i + 1 < args.length) {
+                    try {
+                        this.threads = Integer.parseInt(args[i + 1]);
+                        i += 2;
+                    } catch (NumberFormatException ex) {
+                        System.err.println("Invalid thread count '" + args[i + 1] + "'");
+                        return false;
+                    }
+                } else {
+                    System.err.println("Missing argument to " + args[i] + " command line option");
+                    return false;
+                }
+            } else if (args[i].equals("--baseline") || args[i].equals("--save-baseline")) {
+                if (i + 1 < args.length) {
+                    if (args[i].equals("--baseline")) {
+                        this.baselineFile = Paths.get(args[i + 1]);
+                    } else {
+                        this.saveBaselineFile = Paths.get(args[i + 1]);
+                    }
+                    i += 2;
+                } else {
+                    System.err.println("Missing argument to " + args[i] + " command line option");
+                    return false;
+                }
+            } else if (args[i].equals("--tolerance")) {
+                if (i + 1 < args.length) {
+                    try {
+                        this.tolerance = Double.parseDouble(args[i + 1]) / 100;
+                        i += 2;
+                    } catch (NumberFormatException ex) {
+                        System.err.println("Invalid tolerance '" + args[i + 1] + "'");
+                        return false;
+                    }
+                } else {
+                    System.err.println("Missing argument to " + args[i] + " command line option");
+                    return false;
+                }
             } else {
                 System.err.println("Unknown command line option " + args[i]);
                 return false;
@@ -233,7 +289,7 @@ public class Conformance {
         }
 
         this.testEngine = new ConformanceTestEngine(this.getScopeResolver(), lenientRequests,
-                                                    lenientPolicies, iterations);
+                                                    lenientPolicies, this.iterations);
 
         if (testSetDirectoryNames.length() == 0) {
             System.err.println("No test set directory given (need -i or --iniput command line option)");
@@ -283,6 +339,23 @@ public class Conformance {
         System.out
             .println(" --iterations               The number of times to run through the set of tests in the input directory.");
 
+        System.out.println("");
+        System.out
+            .println(" --threads <n>      After the sequential run, decide every test again from n concurrent threads \n"
+                     + "                    (--iterations times each, default 10) and report the latency percentiles of each test.");
+
+        System.out.println("");
+        System.out
+            .println(" --baseline <file>  Flag the tests whose P90 latency in the concurrent run regressed against the baseline file.");
+
+        System.out.println("");
+        System.out
+            .println(" --save-baseline <file>  Save the P90 latency of each test in the concurrent run as a baseline file.");
+
+        System.out.println("");
+        System.out
+            .println(" --tolerance <pct>  Percent a test's P90 latency may grow over the baseline.  Default is 25.");
+
         System.out.println("");
         System.out
             .println(" --lenient          Allow both Requests and Policies to have unexpected elements, no data in <Content>, etc. \n"
@@ -573,10 +646,82 @@ public class Conformance {
             } else if (conformanceTestResult.getError() != null) {
                 this.outputFileWriter.println(conformanceTestResult.getError());
             }
+            if (this.threads > 0 && conformanceTestResult.getPDPEngine() != null
+                && conformanceTestResult.getActualResponse() != null) {
+                this.listParallelResults.add(conformanceTestResult);
+            }
         }
         return (!bFailed || !this.stopOnFirstError);
     }
 
+    /**
+     * Decides the request of every test that was run from <code>threads</code> threads at once, on the
+     * engine of the test, and checks that each response is the same as the one from the sequential run.
+     * Reports the latency percentiles of each test and the tests whose latency regressed against the
+     * baseline file.
+     */
+    private void runParallel() throws Exception {
+        final LatencyReport latencyReport = new LatencyReport();
+        final AtomicLong mismatches = new AtomicLong();
+        int parallelIterations = (this.iterations > 0 ? this.iterations : 10);
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        long tStart = System.currentTimeMillis();
+        for (int i = 0; i < parallelIterations; i++) {
+            for (final ConformanceTestResult conformanceTestResult : this.listParallelResults) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        String testName = conformanceTestResult.getConformanceTest().getTestName();
+                        try {
+                            long startTime = System.nanoTime();
+                            Response response = conformanceTestResult.getPDPEngine()
+                                .decide(conformanceTestResult.getRequest());
+                            latencyReport.record(testName, System.nanoTime() - startTime);
+                            if (!conformanceTestResult.getActualResponse().equals(response)) {
+                                System.err.println("Concurrent response mismatch in " + testName + ": "
+                                                   + response);
+                                mismatches.incrementAndGet();
+                            }
+                        } catch (Exception ex) {
+                            System.err.println("Exception in concurrent decide of " + testName + ": " + ex);
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        boolean terminated = executor.awaitTermination(1, TimeUnit.HOURS);
+        if (!terminated) {
+            executor.shutdownNow();
+        }
+        long tElapsed = System.currentTimeMillis() - tStart;
+
+        this.outputFileWriter.println();
+        latencyReport.print(this.outputFileWriter);
+        this.outputFileWriter.printf("Concurrent run: %d tests, %d threads, %d decisions, %d mismatches in %dms\n",
+                                     this.listParallelResults.size(), this.threads,
+                                     this.listParallelResults.size() * (long)parallelIterations,
+                                     mismatches.get(), tElapsed);
+        this.parallelFailures = (int)mismatches.get();
+        if (!terminated) {
+            this.outputFileWriter.println("TIMEOUT the concurrent run did not finish");
+            this.parallelFailures++;
+        }
+        if (this.baselineFile != null) {
+            List<String> listRegressions = latencyReport.getRegressions(LatencyReport
+                .loadBaseline(this.baselineFile), this.tolerance);
+            for (String regression : listRegressions) {
+                this.outputFileWriter.println("REGRESSION " + regression);
+            }
+            this.parallelFailures += listRegressions.size();
+        }
+        this.outputFileWriter.flush();
+        if (this.saveBaselineFile != null) {
+            latencyReport.saveBaseline(this.saveBaselineFile);
+        }
+    }
+
     private void run() throws Exception {
         long tStart = System.currentTimeMillis();
 
@@ -637,6 +782,10 @@ public class Conformance {
             this.outputFileWriter.printf("Average decide time after first call in nano-seconds %d\n",
                                          this.testEngine.getAvgDecideTimeMultiple());
         }
+
+        if (this.threads > 0) {
+            this.runParallel();
+        }
     }
 
     public Conformance() {
@@ -659,7 +808,7 @@ public class Conformance {
                 ex.printStackTrace(System.err);
             }
         }
-        System.exit(0);
+        System.exit(conformance.parallelFailures == 0 ? 0 : 1);
     }
 
 }
@@ -151,6 +151,7 @@ public class ConformanceTestEngine {
                 conformanceTestResult.setError(new NullPointerException("Null engine"));
                 return conformanceTestResult;
             }
+            conformanceTestResult.setPDPEngine(pdpEngine);
 
             /*
              * Run the request
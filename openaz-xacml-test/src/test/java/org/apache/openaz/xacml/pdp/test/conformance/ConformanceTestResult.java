@@ -32,6 +32,7 @@ package org.apache.openaz.xacml.pdp.test.conformance;
 
 import org.apache.openaz.xacml.api.Request;
 import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.api.pdp.PDPEngine;
 
 /**
  * ConformanceTestResult holds all of the objects for a single conformance test run.
@@ -43,6 +44,8 @@ public class ConformanceTestResult {
     private Response actualResponse;
     private ResponseMatchResult responseMatchResult;
     private Exception error;
+    // the engine the test was run on, to run it again concurrently
+    private PDPEngine pdpEngine;
 
     // performance timings
     private long firstCallTime;
@@ -138,4 +141,12 @@ public class ConformanceTestResult {
         averageTotalLoopTime = t;
     }
 
+    public PDPEngine getPDPEngine() {
+        return pdpEngine;
+    }
+
+    public void setPDPEngine(PDPEngine engine) {
+        pdpEngine = engine;
+    }
+
 }
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test.pip;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openaz.xacml.api.pip.PIPException;
+import org.apache.openaz.xacml.api.pip.PIPFinder;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.api.pip.PIPResponse;
+import org.apache.openaz.xacml.std.pip.StdPIPResponse;
+import org.apache.openaz.xacml.std.pip.engines.StdConfigurableEngine;
+
+/**
+ * LatencyPIPEngine simulates a slow remote attribute source, such as a JDBC or LDAP server under load. Every
+ * call to <code>getAttributes</code> blocks the calling thread for the configured &lt;id&gt;.latency
+ * milliseconds and then returns no attributes.
+ */
+public class LatencyPIPEngine extends StdConfigurableEngine {
+    public static final String PROP_LATENCY = "latency";
+
+    private static final AtomicLong CALLS = new AtomicLong();
+
+    private long latency;
+
+    public static long getCalls() {
+        return CALLS.get();
+    }
+
+    @Override
+    public void configure(String id, Properties properties) throws PIPException {
+        super.configure(id, properties);
+        try {
+            this.latency = Long.parseLong(properties.getProperty(id + "." + PROP_LATENCY, "50"));
+        } catch (NumberFormatException e) {
+            throw new PIPException("Invalid " + id + "." + PROP_LATENCY, e);
+        }
+    }
+
+    @Override
+    public PIPResponse getAttributes(PIPRequest pipRequest, PIPFinder pipFinder) throws PIPException {
+        CALLS.incrementAndGet();
+        try {
+            Thread.sleep(this.latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PIPException("Interrupted", e);
+        }
+        return StdPIPResponse.PIP_RESPONSE_EMPTY;
+    }
+
+    @Override
+    public Collection<PIPRequest> attributesRequired() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<PIPRequest> attributesProvided() {
+        return Collections.emptyList();
+    }
+}
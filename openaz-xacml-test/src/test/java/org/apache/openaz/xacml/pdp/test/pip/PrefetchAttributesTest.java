@@ -0,0 +1,218 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test.pip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.api.pip.PIPException;
+import org.apache.openaz.xacml.api.pip.PIPFinder;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.api.pip.PIPResponse;
+import org.apache.openaz.xacml.pdp.OpenAZPDPEngine;
+import org.apache.openaz.xacml.pdp.OpenAZPDPEngineFactory;
+import org.apache.openaz.xacml.pdp.util.OpenAZPDPProperties;
+import org.apache.openaz.xacml.std.IdentifierImpl;
+import org.apache.openaz.xacml.std.StdAttributeValue;
+import org.apache.openaz.xacml.std.StdMutableAttribute;
+import org.apache.openaz.xacml.std.dom.DOMRequest;
+import org.apache.openaz.xacml.std.pip.StdPIPRequest;
+import org.apache.openaz.xacml.std.pip.StdPIPResponse;
+import org.apache.openaz.xacml.std.pip.engines.RequestEngine;
+import org.apache.openaz.xacml.std.pip.engines.StdConfigurableEngine;
+import org.apache.openaz.xacml.std.pip.finders.EngineFinder;
+import org.apache.openaz.xacml.std.pip.finders.RequestFinder;
+import org.junit.Test;
+
+/**
+ * Checks which attributes <code>RequestFinder.prefetchAttributes</code> retrieves from the PIP engines, that
+ * later lookups are answered from what was prefetched, and that prefetching is only done when configured.
+ */
+public class PrefetchAttributesTest {
+
+    private static final String REQUEST = "<Request xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\""
+        + " CombinedDecision=\"false\" ReturnPolicyIdList=\"false\">"
+        + "<Attributes Category=\"urn:oasis:names:tc:xacml:1.0:subject-category:access-subject\">"
+        + "<Attribute AttributeId=\"urn:oasis:names:tc:xacml:1.0:subject:subject-id\""
+        + " IncludeInResult=\"false\">"
+        + "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">bob</AttributeValue>"
+        + "</Attribute></Attributes></Request>";
+
+    private static final PIPRequest SUBJECT_ID = newPIPRequest(XACML3.ID_SUBJECT_SUBJECT_ID.stringValue());
+    private static final PIPRequest ROLE = newPIPRequest("urn:test:role");
+    private static final PIPRequest DEPARTMENT = newPIPRequest("urn:test:department");
+    private static final PIPRequest MISSING = newPIPRequest("urn:test:missing");
+
+    /**
+     * CountingPIPEngine answers the role and department of every subject and counts how often each attribute
+     * is asked for.
+     */
+    private static class CountingPIPEngine extends StdConfigurableEngine {
+        private final ConcurrentMap<PIPRequest, AtomicInteger> mapCalls;
+
+        CountingPIPEngine() {
+            this.mapCalls = new ConcurrentHashMap<PIPRequest, AtomicInteger>();
+            this.setName("counting");
+        }
+
+        int getCalls(PIPRequest pipRequest) {
+            AtomicInteger calls = this.mapCalls.get(pipRequest);
+            return calls == null ? 0 : calls.get();
+        }
+
+        @Override
+        public PIPResponse getAttributes(PIPRequest pipRequest, PIPFinder pipFinder) throws PIPException {
+            AtomicInteger calls = this.mapCalls.get(pipRequest);
+            if (calls == null) {
+                this.mapCalls.putIfAbsent(pipRequest, new AtomicInteger());
+                calls = this.mapCalls.get(pipRequest);
+            }
+            calls.incrementAndGet();
+            String value;
+            if (ROLE.equals(pipRequest)) {
+                value = "admin";
+            } else if (DEPARTMENT.equals(pipRequest)) {
+                value = "security";
+            } else {
+                return StdPIPResponse.PIP_RESPONSE_EMPTY;
+            }
+            return new StdPIPResponse(new StdMutableAttribute(pipRequest.getCategory(), pipRequest
+                .getAttributeId(), new StdAttributeValue<String>(XACML3.ID_DATATYPE_STRING, value)));
+        }
+
+        @Override
+        public Collection<PIPRequest> attributesRequired() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<PIPRequest> attributesProvided() {
+            return Collections.emptyList();
+        }
+    }
+
+    private static PIPRequest newPIPRequest(String attributeId) {
+        return new StdPIPRequest(XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT, new IdentifierImpl(attributeId),
+                                 XACML3.ID_DATATYPE_STRING);
+    }
+
+    private static RequestFinder newRequestFinder(CountingPIPEngine pipEngine) throws Exception {
+        Request request = DOMRequest.load(REQUEST);
+        EngineFinder engineFinder = new EngineFinder();
+        engineFinder.register(pipEngine);
+        return new RequestFinder(engineFinder, new RequestEngine(request));
+    }
+
+    private static List<Object> getValues(PIPResponse pipResponse) {
+        List<Object> listValues = new ArrayList<Object>();
+        for (Attribute attribute : pipResponse.getAttributes()) {
+            for (AttributeValue<?> attributeValue : attribute.getValues()) {
+                listValues.add(attributeValue.getValue());
+            }
+        }
+        return listValues;
+    }
+
+    private void testPrefetch(Executor executor) throws Exception {
+        CountingPIPEngine pipEngine = new CountingPIPEngine();
+        RequestFinder requestFinder = newRequestFinder(pipEngine);
+        requestFinder.prefetchAttributes(Arrays.asList(SUBJECT_ID, ROLE, DEPARTMENT, MISSING), executor);
+
+        // the subject-id is in the request, everything else is asked for once
+        assertEquals(0, pipEngine.getCalls(SUBJECT_ID));
+        assertEquals(1, pipEngine.getCalls(ROLE));
+        assertEquals(1, pipEngine.getCalls(DEPARTMENT));
+        assertEquals(1, pipEngine.getCalls(MISSING));
+
+        // later lookups give the same answers as looking them up directly, without asking again
+        CountingPIPEngine pipEngineDirect = new CountingPIPEngine();
+        RequestFinder requestFinderDirect = newRequestFinder(pipEngineDirect);
+        for (PIPRequest pipRequest : Arrays.asList(SUBJECT_ID, ROLE, DEPARTMENT, MISSING)) {
+            PIPResponse pipResponse = requestFinder.getAttributes(pipRequest, null);
+            assertTrue(pipResponse.getStatus() == null || pipResponse.getStatus().isOk());
+            PIPResponse pipResponseDirect = requestFinderDirect.getAttributes(pipRequest, null);
+            assertEquals(pipRequest.toString(), getValues(pipResponseDirect), getValues(pipResponse));
+        }
+        assertEquals(Collections.singletonList("admin"), getValues(requestFinder.getAttributes(ROLE, null)));
+        assertEquals(1, pipEngine.getCalls(ROLE));
+        assertEquals(1, pipEngine.getCalls(DEPARTMENT));
+        assertEquals(1, pipEngine.getCalls(MISSING));
+
+        // a second prefetch of the same attributes does not ask again
+        requestFinder.prefetchAttributes(Arrays.asList(ROLE, DEPARTMENT, MISSING), executor);
+        assertEquals(1, pipEngine.getCalls(ROLE));
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            this.testPrefetch(executorService);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchBusyExecutor() throws Exception {
+        // an executor that never gets around to the tasks leaves them to the calling thread
+        this.testPrefetch(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+            }
+        });
+    }
+
+    @Test
+    public void testPrefetchConfiguration() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(new File("src/test/resources/testsets/pip/latency",
+                                                                    "xacml.properties"))) {
+            properties.load(inputStream);
+        }
+        OpenAZPDPEngineFactory openAZPDPEngineFactory = new OpenAZPDPEngineFactory();
+        assertTrue(((OpenAZPDPEngine)openAZPDPEngineFactory.newEngine(properties)).getPrefetchAttributes());
+
+        properties.remove(OpenAZPDPProperties.PROP_PDPENGINE_PREFETCHATTRIBUTES);
+        assertFalse(((OpenAZPDPEngine)openAZPDPEngineFactory.newEngine(properties)).getPrefetchAttributes());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.pdp.test.pip;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.Response;
+import org.apache.openaz.xacml.pdp.test.TestBase;
+import org.apache.openaz.xacml.util.FactoryException;
+
+/**
+ * TestPIPLatency is a load test of decisions that wait on a slow PIP. It sends the requests of a test
+ * directory to the embedded PDP or a RESTful PDP from a number of concurrent client threads and reports the
+ * throughput and the average decision time. The testsets/pip/latency test directory configures a
+ * {@link LatencyPIPEngine}, so each attribute the PDP has to look up costs a fixed delay. For example:
+ *
+ * <pre>
+ * -dir testsets/pip/latency -threads 1 -requests 100
+ * -dir testsets/pip/latency -threads 32 -requests 1000
+ * -dir testsets/pip/latency -threads 32 -requests 1000 -rest -url http://localhost:8080/pdp/
+ * </pre>
+ *
+ * When run against a RESTful PDP, the PDP must be configured with the same policies and PIP engines, and
+ * compared with xacml.rest.pdp.async set to false and to true.
+ */
+public class TestPIPLatency extends TestBase {
+    private static final Log logger = LogFactory.getLog(TestPIPLatency.class);
+
+    public static final String OPTION_THREADS = "threads";
+    public static final String OPTION_REQUESTS = "requests";
+
+    static {
+        options.addOption(new Option(OPTION_THREADS, true, "Number of concurrent client threads. Default is 16."));
+        options.addOption(new Option(OPTION_REQUESTS, true, "Number of requests to send per run. Default is 500."));
+    }
+
+    protected int threads;
+    protected int requests;
+
+    public TestPIPLatency(String[] args) throws ParseException, MalformedURLException, HelpException {
+        super(args);
+    }
+
+    @Override
+    protected void parseCommands(String[] args) throws ParseException, MalformedURLException, HelpException {
+        //
+        // Have our parent class parse its options out
+        //
+        super.parseCommands(args);
+        //
+        // Parse our own options
+        //
+        CommandLine cl = new DefaultParser().parse(options, args);
+        this.threads = Integer.parseInt(cl.getOptionValue(OPTION_THREADS, "16"));
+        this.requests = Integer.parseInt(cl.getOptionValue(OPTION_REQUESTS, "500"));
+    }
+
+    @Override
+    public void run() throws IOException, FactoryException {
+        //
+        // Configure ourselves
+        //
+        this.configure();
+        //
+        // Load the requests up front, so only decisions are timed
+        //
+        final List<Request> listRequests = new ArrayList<Request>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(this.directory, "requests"))) {
+            for (Path file : stream) {
+                Matcher matcher = this.pattern.matcher(file.getFileName().toString());
+                if (matcher.matches() && !"Generate".equals(matcher.group(1))) {
+                    try {
+                        listRequests.add(this.generateRequest(file, matcher.group(1)));
+                    } catch (Exception e) {
+                        logger.error("Failed to load " + file + ": " + e);
+                    }
+                }
+            }
+        }
+        if (listRequests.isEmpty()) {
+            throw new IllegalArgumentException("No requests found in " + this.directory);
+        }
+        //
+        // Loop and run
+        //
+        int runs = 1;
+        do {
+            final AtomicLong decisions = new AtomicLong();
+            final AtomicLong failures = new AtomicLong();
+            final AtomicLong decisionTime = new AtomicLong();
+            long pipCalls = LatencyPIPEngine.getCalls();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(this.threads, 1));
+            long lTimeStart = System.currentTimeMillis();
+            for (int i = 0; i < this.requests; i++) {
+                final Request request = listRequests.get(i % listRequests.size());
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long lStart = System.nanoTime();
+                        Response response = TestPIPLatency.this.callPDP(request);
+                        decisionTime.addAndGet(System.nanoTime() - lStart);
+                        if (response == null) {
+                            failures.incrementAndGet();
+                        } else {
+                            decisions.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long lElapsed = Math.max(System.currentTimeMillis() - lTimeStart, 1);
+            logger.info("Run " + runs + ": " + this.threads + " threads, " + decisions.get() + " decisions, "
+                        + failures.get() + " failures, " + (LatencyPIPEngine.getCalls() - pipCalls)
+                        + " embedded PIP calls in " + lElapsed + "ms");
+            logger.info("Throughput: " + (decisions.get() * 1000 / lElapsed) + " decisions/s, average time: "
+                        + (decisionTime.get() / Math.max(this.requests, 1) / 1000000) + "ms");
+            runs++;
+        } while (this.loop == -1 || runs <= this.loop);
+    }
+
+    public static void main(String[] args) {
+        try {
+            new TestPIPLatency(args).run();
+        } catch (ParseException | IOException | FactoryException e) {
+            logger.error(e);
+        } catch (HelpException e) { //NOPMD
+        }
+    }
+}
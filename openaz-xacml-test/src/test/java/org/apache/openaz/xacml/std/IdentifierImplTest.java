@@ -0,0 +1,170 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.RequestAttributes;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.pdp.policy.PolicyDef;
+import org.apache.openaz.xacml.pdp.policy.dom.DOMPolicyDef;
+import org.apache.openaz.xacml.std.dom.DOMRequest;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * Tests the <code>IdentifierImpl</code> intern table and equality. The table is JVM-global and only grows,
+ * so the test that fills it runs last.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IdentifierImplTest {
+
+    private static String newId() {
+        return "urn:openaz:test:" + UUID.randomUUID().toString();
+    }
+
+    @Test
+    public void test1Intern() {
+        String id = newId();
+        Identifier interned = IdentifierImpl.intern(id);
+        assertSame(interned, IdentifierImpl.intern(id));
+        assertSame(interned, IdentifierImpl.intern(new IdentifierImpl(id)));
+        assertSame(interned, IdentifierImpl.intern(IdentifierImpl.intern("urn:openaz:test"),
+                                                   id.substring("urn:openaz:test:".length())));
+        assertEquals(id, interned.stringValue());
+
+        /*
+         * The constants are the canonical instances
+         */
+        assertSame(XACML3.ID_ATTRIBUTE_CATEGORY_RESOURCE,
+                   IdentifierImpl.intern(XACML3.ID_ATTRIBUTE_CATEGORY_RESOURCE.stringValue()));
+        assertSame(XACML3.ID_DATATYPE_STRING, IdentifierImpl.intern(XACML3.ID_DATATYPE_STRING.stringValue()));
+    }
+
+    @Test
+    public void test2InternIdentifier() {
+        Identifier identifier = new IdentifierImpl(newId());
+        assertSame(identifier, IdentifierImpl.intern(identifier));
+        assertSame(identifier, IdentifierImpl.intern(identifier.stringValue()));
+        assertSame(identifier, IdentifierImpl.intern(new IdentifierImpl(identifier.stringValue())));
+        assertEquals(null, IdentifierImpl.intern((Identifier)null));
+    }
+
+    @Test
+    public void test3Equals() {
+        String id = newId();
+        Identifier interned = IdentifierImpl.intern(id);
+        Identifier created = new IdentifierImpl(id);
+        assertNotSame(interned, created);
+        assertEquals(interned, created);
+        assertEquals(created, interned);
+        assertEquals(interned.hashCode(), created.hashCode());
+        assertEquals(created, new IdentifierImpl(URI.create(id)));
+        assertFalse(created.equals(new IdentifierImpl(newId())));
+        assertFalse(created.equals(id));
+
+        /*
+         * Any Identifier with an equal URI is equal
+         */
+        final URI uri = URI.create(id);
+        Identifier other = new Identifier() {
+            @Override
+            public URI getUri() {
+                return uri;
+            }
+
+            @Override
+            public String stringValue() {
+                return uri.toString();
+            }
+        };
+        assertTrue(created.equals(other));
+        assertTrue(interned.equals(other));
+        assertEquals(uri.hashCode(), created.hashCode());
+    }
+
+    @Test
+    public void test4PolicyInternedRequestNot() throws Exception {
+        String policyId = newId();
+        String policy = "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\""
+                        + policyId + "\" Version=\"1.0\" RuleCombiningAlgId="
+                        + "\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+                        + "<Target/></Policy>";
+        PolicyDef policyDef = DOMPolicyDef.load(new ByteArrayInputStream(policy
+            .getBytes(StandardCharsets.UTF_8)));
+        assertSame(policyDef.getIdentifier(), IdentifierImpl.intern(policyId));
+
+        String attributeId = newId();
+        String request = "<Request xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\""
+                         + " ReturnPolicyIdList=\"false\" CombinedDecision=\"false\">"
+                         + "<Attributes Category=\"urn:oasis:names:tc:xacml:3.0:attribute-category:resource\">"
+                         + "<Attribute IncludeInResult=\"false\" AttributeId=\"" + attributeId + "\">"
+                         + "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">r</AttributeValue>"
+                         + "</Attribute></Attributes></Request>";
+        Request req = DOMRequest.load(request);
+        RequestAttributes requestAttributes = req.getRequestAttributes().iterator().next();
+        Attribute attribute = requestAttributes.getAttributes().iterator().next();
+        assertEquals(attributeId, attribute.getAttributeId().stringValue());
+
+        /*
+         * Had the request been interned, its instance would now be the canonical one
+         */
+        Identifier canonical = IdentifierImpl.intern(attributeId);
+        assertNotSame(attribute.getAttributeId(), canonical);
+        assertEquals(attribute.getAttributeId(), canonical);
+        assertEquals(XACML3.ID_ATTRIBUTE_CATEGORY_RESOURCE, requestAttributes.getCategory());
+    }
+
+    @Test
+    public void test9InternCap() {
+        String before = newId();
+        Identifier canonical = IdentifierImpl.intern(before);
+
+        for (int i = 0; i < IdentifierImpl.MAX_INTERNED; i++) {
+            IdentifierImpl.intern(newId());
+        }
+
+        /*
+         * A full table still returns the ids it holds, but no longer registers new ones
+         */
+        assertSame(canonical, IdentifierImpl.intern(before));
+        assertSame(XACML3.ID_DATATYPE_STRING, IdentifierImpl.intern(XACML3.ID_DATATYPE_STRING.stringValue()));
+        String after = newId();
+        Identifier first = IdentifierImpl.intern(after);
+        Identifier second = IdentifierImpl.intern(after);
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertNotSame(IdentifierImpl.intern(new IdentifierImpl(after)), first);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.RequestAttributes;
+import org.apache.openaz.xacml.api.RequestAttributesReference;
+import org.apache.openaz.xacml.api.RequestReference;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.std.IdentifierImpl;
+import org.junit.Test;
+
+/**
+ * Tests that <code>RequestParser</code> builds a <code>Request</code> from an annotated object.
+ */
+public class RequestParserTest {
+
+    private static final Identifier ID_RESOURCE_OWNER = new IdentifierImpl("urn:test:resource:owner");
+    private static final Identifier ID_ENVIRONMENT_NUMBERS = new IdentifierImpl("urn:test:environment:numbers");
+
+    @XACMLRequest(ReturnPolicyIdList = true, multiRequest = @XACMLMultiRequest(values = {
+        @XACMLRequestReference(values = {
+            "subject1", "action", "resource", "environment"
+        }), @XACMLRequestReference(values = {
+            "subject2", "action", "resource", "environment"
+        })
+    }))
+    static class AnnotatedRequest {
+
+        @XACMLSubject(id = "subject1", includeInResults = true)
+        private String subject1 = "Julius Hibbert";
+
+        @XACMLSubject(id = "subject2", issuer = "urn:test:issuer")
+        private String subject2 = "Bart Simpson";
+
+        @XACMLAction(id = "action")
+        private static String action = "read";
+
+        @XACMLResource(id = "resource", datatype = "http://www.w3.org/2001/XMLSchema#anyURI")
+        private List<String> resources = Arrays.asList("http://medico.com/record/patient/BartSimpson",
+                                                       "http://medico.com/record/patient/LisaSimpson");
+
+        @XACMLResource(id = "resource", attributeId = "urn:test:resource:owner")
+        private String[] owners = {
+            "Homer", "Marge"
+        };
+
+        @XACMLEnvironment(id = "environment", attributeId = "urn:test:environment:numbers")
+        private int[] numbers = {
+            1, 2, 3
+        };
+
+        private String notAnAttribute = "ignored";
+    }
+
+    static class NotAnnotated {
+        @XACMLSubject
+        private String subject = "Julius Hibbert";
+    }
+
+    private static Attribute getAttribute(Request request, String xmlId, Identifier attributeId) {
+        RequestAttributes requestAttributes = request.getRequestAttributesByXmlId(xmlId);
+        assertNotNull(xmlId, requestAttributes);
+        Iterator<Attribute> attributes = requestAttributes.getAttributes(attributeId);
+        assertTrue(attributeId.stringValue(), attributes.hasNext());
+        Attribute attribute = attributes.next();
+        assertFalse(attributes.hasNext());
+        return attribute;
+    }
+
+    private static List<Object> getValues(Attribute attribute, Identifier datatypeId) {
+        List<Object> values = new ArrayList<Object>();
+        for (AttributeValue<?> value : attribute.getValues()) {
+            assertEquals(datatypeId, value.getDataTypeId());
+            values.add(value.getValue());
+        }
+        return values;
+    }
+
+    @Test
+    public void testParseRequest() throws Exception {
+        Request request = RequestParser.parseRequest(new AnnotatedRequest());
+        assertTrue(request.getReturnPolicyIdList());
+        assertFalse(request.getCombinedDecision());
+        assertNull(request.getRequestDefaults());
+        assertEquals(5, request.getRequestAttributes().size());
+
+        Attribute subject1 = getAttribute(request, "subject1", XACML3.ID_SUBJECT_SUBJECT_ID);
+        assertEquals(XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT, subject1.getCategory());
+        assertTrue(subject1.getIncludeInResults());
+        assertNull(subject1.getIssuer());
+        assertEquals(Arrays.<Object> asList("Julius Hibbert"),
+                     getValues(subject1, XACML3.ID_DATATYPE_STRING));
+
+        Attribute subject2 = getAttribute(request, "subject2", XACML3.ID_SUBJECT_SUBJECT_ID);
+        assertFalse(subject2.getIncludeInResults());
+        assertEquals("urn:test:issuer", subject2.getIssuer());
+        assertEquals(Arrays.<Object> asList("Bart Simpson"), getValues(subject2, XACML3.ID_DATATYPE_STRING));
+
+        Attribute action = getAttribute(request, "action", XACML3.ID_ACTION_ACTION_ID);
+        assertEquals(XACML3.ID_ATTRIBUTE_CATEGORY_ACTION, action.getCategory());
+        assertEquals(Arrays.<Object> asList("read"), getValues(action, XACML3.ID_DATATYPE_STRING));
+
+        Attribute resources = getAttribute(request, "resource", XACML3.ID_RESOURCE_RESOURCE_ID);
+        assertEquals(Arrays.<Object> asList(URI.create("http://medico.com/record/patient/BartSimpson"),
+                                            URI.create("http://medico.com/record/patient/LisaSimpson")),
+                     getValues(resources, XACML3.ID_DATATYPE_ANYURI));
+        Attribute owners = getAttribute(request, "resource", ID_RESOURCE_OWNER);
+        assertEquals(Arrays.<Object> asList("Homer", "Marge"), getValues(owners, XACML3.ID_DATATYPE_STRING));
+
+        Attribute numbers = getAttribute(request, "environment", ID_ENVIRONMENT_NUMBERS);
+        assertEquals(XACML3.ID_ATTRIBUTE_CATEGORY_ENVIRONMENT, numbers.getCategory());
+        List<Object> numberValues = getValues(numbers, XACML3.ID_DATATYPE_INTEGER);
+        assertEquals(3, numberValues.size());
+        assertEquals("1", numberValues.get(0).toString());
+        assertEquals("3", numberValues.get(2).toString());
+
+        /*
+         * Each XACMLRequestReference becomes a multi-request reference
+         */
+        List<List<String>> references = new ArrayList<List<String>>();
+        for (RequestReference requestReference : request.getMultiRequests()) {
+            List<String> ids = new ArrayList<String>();
+            for (RequestAttributesReference reference : requestReference.getAttributesReferences()) {
+                ids.add(reference.getReferenceId());
+            }
+            references.add(ids);
+        }
+        assertEquals(Arrays.asList(Arrays.asList("subject1", "action", "resource", "environment"),
+                                   Arrays.asList("subject2", "action", "resource", "environment")),
+                     references);
+    }
+
+    @Test
+    public void testParseTwice() throws Exception {
+        AnnotatedRequest annotatedRequest = new AnnotatedRequest();
+        Request request1 = RequestParser.parseRequest(annotatedRequest);
+        Request request2 = RequestParser.parseRequest(annotatedRequest);
+        assertEquals(request1, request2);
+        assertEquals(request1, RequestParser.parseRequest(new AnnotatedRequest()));
+
+        /*
+         * The cached metadata reads the current field values
+         */
+        annotatedRequest.subject1 = "Lisa Simpson";
+        Request request3 = RequestParser.parseRequest(annotatedRequest);
+        assertFalse(request1.equals(request3));
+        assertEquals(Arrays.<Object> asList("Lisa Simpson"),
+                     getValues(getAttribute(request3, "subject1", XACML3.ID_SUBJECT_SUBJECT_ID),
+                               XACML3.ID_DATATYPE_STRING));
+    }
+
+    @Test
+    public void testNotAnnotated() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                RequestParser.parseRequest(new NotAnnotated());
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().contains(NotAnnotated.class.getName()));
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std.datatypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+
+import org.apache.openaz.xacml.api.DataTypeException;
+import org.junit.Test;
+
+/**
+ * Tests the bounded <code>DataTypeValueCache</code> and its use by the data types.
+ */
+public class DataTypeValueCacheTest {
+
+    @Test
+    public void testHit() {
+        DataTypeValueCache<URI> cache = new DataTypeValueCache<URI>(4);
+        URI uri = URI.create("http://openaz.apache.org/");
+        assertNull(cache.get(uri.toString()));
+        cache.put(uri.toString(), uri);
+        assertSame(uri, cache.get(uri.toString()));
+        assertEquals(1, cache.size());
+        assertNull(cache.get(null));
+    }
+
+    @Test
+    public void testDataTypeHit() throws DataTypeException {
+        DataTypeX500Name dataType = DataTypeX500Name.newInstance();
+        assertSame(dataType.convert("CN=Julius Hibbert, O=Medico Corp, C=US"),
+                   dataType.convert("CN=Julius Hibbert, O=Medico Corp, C=US"));
+
+        DataTypeAnyURI dataTypeAnyURI = DataTypeAnyURI.newInstance();
+        URI uri = dataTypeAnyURI.convert("http://medico.com/record/patient/BartSimpson");
+        assertSame(uri, dataTypeAnyURI.convert("http://medico.com/record/patient/BartSimpson"));
+        assertNotSame(uri, dataTypeAnyURI.convert("http://medico.com/record/patient/LisaSimpson"));
+    }
+
+    @Test
+    public void testClearWhenFull() {
+        DataTypeValueCache<String> cache = new DataTypeValueCache<String>(3);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals(3, cache.size());
+        assertEquals("C", cache.get("c"));
+
+        cache.put("d", "D");
+        assertEquals(1, cache.size());
+        assertNull(cache.get("a"));
+        assertNull(cache.get("c"));
+        assertEquals("D", cache.get("d"));
+    }
+
+    @Test
+    public void testDisabled() {
+        DataTypeValueCache<String> cache = new DataTypeValueCache<String>(0);
+        cache.put("a", "A");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        cache.clear();
+
+        cache = new DataTypeValueCache<String>(-1);
+        cache.put("a", "A");
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testInvalidNotCached() throws Exception {
+        DataTypeX500Name dataType = DataTypeX500Name.newInstance();
+        Field field = DataTypeX500Name.class.getDeclaredField("valueCache");
+        field.setAccessible(true);
+        DataTypeValueCache<?> valueCache = (DataTypeValueCache<?>)field.get(dataType);
+        int size = valueCache.size();
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                dataType.convert("not=a=name,,");
+                fail("Expected DataTypeException");
+            } catch (DataTypeException ex) {
+                assertSame(dataType, ex.getDataType());
+            }
+        }
+        assertNull(valueCache.get("not=a=name,,"));
+        assertEquals(size, valueCache.size());
+    }
+}
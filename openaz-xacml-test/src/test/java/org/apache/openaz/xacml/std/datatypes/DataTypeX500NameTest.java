@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std.datatypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.Test;
+
+/**
+ * Tests the relative distinguished names <code>DataTypeX500Name</code> tokenizes for x500Name-match.
+ */
+public class DataTypeX500NameTest {
+
+    /**
+     * The tokenization x500Name-match used before the names were cached.
+     */
+    private static List<String> splitAndTrim(X500Principal x500Principal) {
+        List<String> rdns = new ArrayList<String>();
+        for (String term : x500Principal.getName().split(",")) {
+            rdns.add(term.trim());
+        }
+        return rdns;
+    }
+
+    @Test
+    public void testRelativeDistinguishedNames() throws Exception {
+        DataTypeX500Name dataType = DataTypeX500Name.newInstance();
+        String[] names = {
+            "CN=Julius Hibbert, O=Medico Corp, C=US",
+            "cn=Julius Hibbert,o=Medico Corp,c=US",
+            "O=Medico Corp,C=US",
+            "C=US",
+            "CN=Hibbert\\, Julius, O=Medico Corp, C=US",
+            "CN=Julius Hibbert+UID=jhibbert, OU= Physicians , O=Medico Corp, C=US",
+            "1.2.3.4=#04024869, O=Medico Corp"
+        };
+        for (String name : names) {
+            X500Principal x500Principal = dataType.convert(name);
+            assertEquals(name, splitAndTrim(x500Principal),
+                         dataType.getRelativeDistinguishedNames(x500Principal));
+        }
+
+        List<String> rdns = dataType
+            .getRelativeDistinguishedNames(new X500Principal("CN=Julius Hibbert, O=Medico Corp, C=US"));
+        assertEquals(3, rdns.size());
+        assertEquals("CN=Julius Hibbert", rdns.get(0));
+        assertEquals("C=US", rdns.get(2));
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        DataTypeX500Name dataType = DataTypeX500Name.newInstance();
+        List<String> rdns = dataType.getRelativeDistinguishedNames(dataType
+            .convert("CN=Bart Simpson, O=Springfield"));
+        X500Principal samePrincipal = new X500Principal("CN=Bart Simpson,O=Springfield");
+        assertSame(rdns, dataType.getRelativeDistinguishedNames(samePrincipal));
+        try {
+            rdns.add("C=US");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // the cached list is shared and must not change
+        }
+    }
+}
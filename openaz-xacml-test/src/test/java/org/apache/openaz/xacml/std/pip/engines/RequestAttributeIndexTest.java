@@ -0,0 +1,164 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std.pip.engines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.XACML3;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.api.pip.PIPResponse;
+import org.apache.openaz.xacml.std.StdAttributeValue;
+import org.apache.openaz.xacml.std.StdMutableAttribute;
+import org.apache.openaz.xacml.std.StdMutableRequest;
+import org.apache.openaz.xacml.std.StdMutableRequestAttributes;
+import org.apache.openaz.xacml.std.pip.StdPIPRequest;
+import org.apache.openaz.xacml.std.pip.StdPIPResponse;
+import org.apache.openaz.xacml.std.pip.engines.RequestAttributeIndex.IndexedPIPResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the lookups of request attributes by data type and issuer.
+ */
+public class RequestAttributeIndexTest {
+
+    private static final Identifier SUBJECT = XACML3.ID_SUBJECT_CATEGORY_ACCESS_SUBJECT;
+    private static final Identifier SUBJECT_ID = XACML3.ID_SUBJECT_SUBJECT_ID;
+    private static final Identifier STRING = XACML3.ID_DATATYPE_STRING;
+    private static final Identifier INTEGER = XACML3.ID_DATATYPE_INTEGER;
+
+    private RequestAttributeIndex index;
+
+    @Before
+    public void before() {
+        StdMutableRequest request = new StdMutableRequest();
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        // one attribute with values of two data types
+        attributes.add(newAttribute(SUBJECT_ID, null, new StdAttributeValue<String>(STRING, "alice"),
+                                    new StdAttributeValue<BigInteger>(INTEGER, BigInteger.ONE)));
+        // the same attribute id from an issuer
+        attributes.add(newAttribute(SUBJECT_ID, "issuer", new StdAttributeValue<String>(STRING, "bob")));
+        // an attribute without values
+        attributes.add(newAttribute(XACML3.ID_RESOURCE_RESOURCE_ID, null));
+        request.add(new StdMutableRequestAttributes(SUBJECT, attributes, null, null));
+        this.index = RequestAttributeIndex.newInstance(request);
+    }
+
+    private static Attribute newAttribute(Identifier attributeId, String issuer, AttributeValue<?>... values) {
+        return new StdMutableAttribute(SUBJECT, attributeId, Arrays.<AttributeValue<?>> asList(values),
+                                       issuer, false);
+    }
+
+    private static List<Object> getValues(PIPResponse pipResponse) {
+        List<Object> values = new ArrayList<Object>();
+        for (Attribute attribute : pipResponse.getAttributes()) {
+            for (AttributeValue<?> attributeValue : attribute.getValues()) {
+                values.add(attributeValue.getValue());
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void testMixedDataTypes() {
+        PIPResponse strings = this.index.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING,
+                                                                         null));
+        assertEquals(Arrays.<Object> asList("alice", "bob"), getValues(strings));
+        assertEquals(2, ((IndexedPIPResponse)strings).getAttributeValues().size());
+
+        PIPResponse integers = this.index.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, INTEGER,
+                                                                          null));
+        assertEquals(Collections.<Object> singletonList(BigInteger.ONE), getValues(integers));
+        for (Attribute attribute : integers.getAttributes()) {
+            for (AttributeValue<?> attributeValue : attribute.getValues()) {
+                assertEquals(INTEGER, attributeValue.getDataTypeId());
+            }
+        }
+
+        assertSame(StdPIPResponse.PIP_RESPONSE_EMPTY,
+                   this.index.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, XACML3.ID_DATATYPE_BOOLEAN)));
+    }
+
+    @Test
+    public void testIssuer() {
+        PIPResponse issuer = this.index.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING,
+                                                                        "issuer"));
+        assertEquals(Collections.<Object> singletonList("bob"), getValues(issuer));
+
+        assertSame(StdPIPResponse.PIP_RESPONSE_EMPTY,
+                   this.index.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, INTEGER, "issuer")));
+        assertSame(StdPIPResponse.PIP_RESPONSE_EMPTY,
+                   this.index.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING, "other")));
+    }
+
+    @Test
+    public void testEmptyValues() {
+        assertSame(StdPIPResponse.PIP_RESPONSE_EMPTY,
+                   this.index.getAttributes(new StdPIPRequest(SUBJECT, XACML3.ID_RESOURCE_RESOURCE_ID,
+                                                              STRING)));
+    }
+
+    @Test
+    public void testSameResponse() {
+        PIPRequest pipRequest = new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING);
+        assertSame(this.index.getAttributes(pipRequest),
+                   this.index.getAttributes(new StdPIPRequest(pipRequest)));
+    }
+
+    @Test
+    public void testProvidedAttributes() {
+        Set<PIPRequest> provided = this.index.getProvidedAttributes();
+        assertEquals(3, provided.size());
+        assertTrue(provided.contains(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING)));
+        assertTrue(provided.contains(new StdPIPRequest(SUBJECT, SUBJECT_ID, INTEGER)));
+        assertTrue(provided.contains(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING, "issuer")));
+        assertFalse(provided.contains(new StdPIPRequest(SUBJECT, XACML3.ID_RESOURCE_RESOURCE_ID, STRING)));
+    }
+
+    @Test
+    public void testRequestEngine() throws Exception {
+        StdMutableRequest request = new StdMutableRequest();
+        Collection<Attribute> attributes = new ArrayList<Attribute>();
+        attributes.add(newAttribute(SUBJECT_ID, "issuer", new StdAttributeValue<String>(STRING, "bob")));
+        request.add(new StdMutableRequestAttributes(SUBJECT, attributes, null, null));
+        RequestEngine requestEngine = new RequestEngine(request);
+
+        assertEquals(Collections.singleton(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING, "issuer")),
+                     requestEngine.attributesProvided());
+        PIPResponse anyIssuer = requestEngine.getAttributes(new StdPIPRequest(SUBJECT, SUBJECT_ID, STRING),
+                                                            null);
+        assertEquals(Collections.<Object> singletonList("bob"), getValues(anyIssuer));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyType;
+
+import org.junit.Test;
+
+/**
+ * Checks that pooled <code>Marshaller</code>s and <code>Unmarshaller</code>s are reused, bounded and never
+ * handed to two threads at once.
+ */
+public class XACMLJAXBUtilTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 50;
+
+    private static String policy(String policyId) {
+        return "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"" + policyId + "\""
+               + " Version=\"1\" RuleCombiningAlgId="
+               + "\"urn:oasis:names:tc:xacml:1.0:rule-combining-algorithm:deny-overrides\"><Target/></Policy>";
+    }
+
+    private static <T> Set<T> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    }
+
+    @Test
+    public void testContext() throws Exception {
+        assertSame(XACMLJAXBUtil.getContext(PolicyType.class), XACMLJAXBUtil.getContext(PolicyType.class));
+        assertNotSame(XACMLJAXBUtil.getContext(PolicyType.class), XACMLJAXBUtil.getContext(PolicySetType.class));
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        Marshaller marshaller1 = XACMLJAXBUtil.acquireMarshaller(PolicyType.class);
+        Marshaller marshaller2 = XACMLJAXBUtil.acquireMarshaller(PolicyType.class);
+        assertNotSame(marshaller1, marshaller2);
+        assertEquals(Boolean.TRUE, marshaller1.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+        XACMLJAXBUtil.release(PolicyType.class, marshaller1);
+        XACMLJAXBUtil.release(PolicyType.class, marshaller2);
+
+        // both come back, and only for the class they were created for
+        Set<Marshaller> marshallers = newIdentitySet();
+        marshallers.add(XACMLJAXBUtil.acquireMarshaller(PolicyType.class));
+        marshallers.add(XACMLJAXBUtil.acquireMarshaller(PolicyType.class));
+        assertTrue(marshallers.contains(marshaller1));
+        assertTrue(marshallers.contains(marshaller2));
+        Marshaller marshaller3 = XACMLJAXBUtil.acquireMarshaller(PolicySetType.class);
+        assertFalse(marshallers.contains(marshaller3));
+
+        Unmarshaller unmarshaller = XACMLJAXBUtil.acquireUnmarshaller(PolicyType.class);
+        XACMLJAXBUtil.release(PolicyType.class, unmarshaller);
+        assertSame(unmarshaller, XACMLJAXBUtil.acquireUnmarshaller(PolicyType.class));
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        int count = 12;
+        List<Unmarshaller> unmarshallers = new ArrayList<Unmarshaller>();
+        for (int i = 0; i < count; i++) {
+            unmarshallers.add(XACMLJAXBUtil.acquireUnmarshaller(PolicySetType.class));
+        }
+        Set<Unmarshaller> released = newIdentitySet();
+        released.addAll(unmarshallers);
+        assertEquals(count, released.size());
+        for (Unmarshaller unmarshaller : unmarshallers) {
+            XACMLJAXBUtil.release(PolicySetType.class, unmarshaller);
+        }
+        int reused = 0;
+        for (int i = 0; i < count; i++) {
+            if (released.contains(XACMLJAXBUtil.acquireUnmarshaller(PolicySetType.class))) {
+                reused++;
+            }
+        }
+        assertEquals(8, reused);
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        final Set<Object> inUse = Collections.synchronizedSet(XACMLJAXBUtilTest.<Object> newIdentitySet());
+        final Set<Object> seen = Collections.synchronizedSet(XACMLJAXBUtilTest.<Object> newIdentitySet());
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < THREADS; t++) {
+                final String policyId = "urn:test:policy:" + t;
+                futures.add(executorService.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int count = 0;
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            // a pooled object is only ever held by one thread
+                            Unmarshaller unmarshaller = XACMLJAXBUtil.acquireUnmarshaller(PolicyType.class);
+                            assertTrue(inUse.add(unmarshaller));
+                            seen.add(unmarshaller);
+                            Thread.yield();
+                            assertTrue(inUse.remove(unmarshaller));
+                            XACMLJAXBUtil.release(PolicyType.class, unmarshaller);
+
+                            // the public readers and writers that use the pools give each thread its own result
+                            Object policy = XACMLPolicyScanner.readPolicy(new ByteArrayInputStream(policy(policyId)
+                                .getBytes(StandardCharsets.UTF_8)));
+                            assertEquals(policyId, ((PolicyType)policy).getPolicyId());
+                            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                            XACMLPolicyWriter.writePolicyFile(outputStream, (PolicyType)policy);
+                            Object copy = XACMLPolicyScanner.readPolicy(new ByteArrayInputStream(outputStream
+                                .toByteArray()));
+                            assertEquals(policyId, ((PolicyType)copy).getPolicyId());
+                            count++;
+                        }
+                        return count;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(ITERATIONS, future.get().intValue());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertTrue(inUse.isEmpty());
+        // the threads shared a few pooled objects rather than creating one per use
+        assertTrue(seen.size() <= THREADS + 8);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.openaz.xacml.util.XACMLPolicyScanner.PolicyHeader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that the root Policy/PolicySet attributes are read with StAX without unmarshalling the policy.
+ */
+public class XACMLPolicyScannerTest {
+
+    private static final String XACML3 = "urn:oasis:names:tc:xacml:3.0:core:schema:wd-17";
+
+    private static final String POLICY = "<Policy xmlns=\"" + XACML3 + "\" PolicyId=\"urn:test:policy\""
+                                         + " Version=\"1.2\" RuleCombiningAlgId="
+                                         + "\"urn:oasis:names:tc:xacml:1.0:rule-combining-algorithm:deny-overrides\">"
+                                         + "<Target/></Policy>";
+
+    private static final String POLICYSET = "<PolicySet xmlns=\"" + XACML3 + "\" PolicySetId=\"urn:test:policyset\""
+                                            + " Version=\"3\" PolicyCombiningAlgId="
+                                            + "\"urn:oasis:names:tc:xacml:1.0:policy-combining-algorithm:deny-overrides\">"
+                                            + "<Target/>" + POLICY + "</PolicySet>";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path write(String xml) throws IOException {
+        File file = this.temporaryFolder.newFile();
+        return Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPolicy() {
+        PolicyHeader header = XACMLPolicyScanner.readPolicyHeader(stream("<?xml version=\"1.0\"?>\n<!-- a policy -->\n"
+                                                                         + POLICY));
+        assertFalse(header.isPolicySet());
+        assertEquals("urn:test:policy", header.getId());
+        assertEquals("1.2", header.getVersion());
+    }
+
+    @Test
+    public void testPolicySet() {
+        PolicyHeader header = XACMLPolicyScanner.readPolicyHeader(stream(POLICYSET));
+        assertTrue(header.isPolicySet());
+        assertEquals("urn:test:policyset", header.getId());
+        assertEquals("3", header.getVersion());
+    }
+
+    @Test
+    public void testOnlyRootElementIsRead() {
+        // the rest of the document is not parsed, so it does not have to be complete
+        PolicyHeader header = XACMLPolicyScanner.readPolicyHeader(stream(POLICY.replace("</Policy>", "<Rule")));
+        assertEquals("urn:test:policy", header.getId());
+    }
+
+    @Test
+    public void testNotAPolicy() {
+        assertNull(XACMLPolicyScanner.readPolicyHeader(stream(POLICY.replace(XACML3,
+                                                                             "urn:oasis:names:tc:xacml:2.0:policy:schema:os"))));
+        assertNull(XACMLPolicyScanner.readPolicyHeader(stream("<Request xmlns=\"" + XACML3 + "\"/>")));
+        assertNull(XACMLPolicyScanner.readPolicyHeader(stream("")));
+        assertNull(XACMLPolicyScanner.readPolicyHeader(stream("not xml")));
+    }
+
+    @Test
+    public void testPath() throws IOException {
+        Path policy = this.write(POLICY);
+        assertEquals("urn:test:policy", XACMLPolicyScanner.getID(policy));
+        assertEquals("1.2", XACMLPolicyScanner.getVersion(policy));
+
+        Path policySet = this.write(POLICYSET);
+        assertEquals("urn:test:policyset", XACMLPolicyScanner.getID(policySet));
+        assertEquals("3", XACMLPolicyScanner.getVersion(policySet));
+
+        // Version is optional
+        Path noVersion = this.write(POLICY.replace(" Version=\"1.2\"", ""));
+        assertEquals("urn:test:policy", XACMLPolicyScanner.getID(noVersion));
+        assertNull(XACMLPolicyScanner.readPolicyHeader(noVersion).getVersion());
+        assertNull(XACMLPolicyScanner.getVersion(noVersion));
+
+        Path request = this.write("<Request xmlns=\"" + XACML3 + "\"/>");
+        assertNull(XACMLPolicyScanner.getID(request));
+        assertNull(XACMLPolicyScanner.getVersion(request));
+    }
+}
@@ -33,10 +33,13 @@ package org.apache.openaz.xacml.api.pdp;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.concurrent.Executor;
 
 import org.apache.openaz.xacml.api.Request;
 import org.apache.openaz.xacml.api.Response;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * PDPEngine is the interface that applications use to make policy queries against a XACML 3.0 policy engine.
  */
@@ -50,6 +53,29 @@ public interface PDPEngine {
      */
     Response decide(Request pepRequest) throws PDPException;
 
+    /**
+     * Evaluates the given {@link org.apache.openaz.xacml.api.Request} on the default <code>Executor</code>
+     * of this <code>PDPEngine</code>, without blocking the calling thread. This only moves the blocking
+     * <code>decide</code> call to an executor thread: PIP lookups still block that thread while they run.
+     *
+     * @param pepRequest the <code>Request</code> to evaluate
+     * @return a <code>ListenableFuture</code> for the {@link org.apache.openaz.xacml.api.Response}, which
+     *         fails with a {@link PDPException} if <code>decide</code> would throw one
+     */
+    ListenableFuture<Response> decideAsync(Request pepRequest);
+
+    /**
+     * Evaluates the given {@link org.apache.openaz.xacml.api.Request} on the given <code>Executor</code>,
+     * without blocking the calling thread. As with {@link #decideAsync(Request)}, the evaluation, including
+     * its PIP lookups, blocks a thread of the <code>Executor</code>.
+     *
+     * @param pepRequest the <code>Request</code> to evaluate
+     * @param executor the <code>Executor</code> to evaluate the <code>Request</code> on
+     * @return a <code>ListenableFuture</code> for the {@link org.apache.openaz.xacml.api.Response}, which
+     *         fails with a {@link PDPException} if <code>decide</code> would throw one
+     */
+    ListenableFuture<Response> decideAsync(Request pepRequest, Executor executor);
+
     /**
      * Gets the <code>Collection</code> of <code>URI</code>s that represent the profiles supported by this
      * <code>PDPEngine</code>.
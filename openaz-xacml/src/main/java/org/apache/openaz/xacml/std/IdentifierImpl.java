@@ -33,16 +33,30 @@ package org.apache.openaz.xacml.std;
 
 import java.net.URI;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.openaz.xacml.api.Identifier;
-import org.apache.openaz.xacml.util.ObjUtil;
 
 /**
  * IdentifierImpl provides a common implementation of the {@link org.apache.openaz.xacml.api.Identifier}
- * interface with a stored, fixed <code>URI</code>.
+ * interface with a stored, fixed <code>URI</code>. The <code>String</code> value and hash code of the
+ * <code>URI</code> are computed once, and the <code>intern</code> methods return a canonical instance for
+ * each id so that identifiers from the XACML constants, parsed policies and parsed requests can usually be
+ * compared by reference.
  */
 public class IdentifierImpl implements Identifier {
-    private URI uri;
+    /**
+     * The maximum number of distinct ids kept in the intern table. Once it is full, <code>intern</code>
+     * returns new, un-interned instances so that request content cannot grow the table without bound.
+     */
+    public static final int MAX_INTERNED = 65536;
+
+    private static final ConcurrentMap<String, IdentifierImpl> INTERNED = new ConcurrentHashMap<String, IdentifierImpl>();
+
+    private final URI uri;
+    private final String stringValue;
+    private final int hashCode;
 
     /**
      * Creates a new <code>IdentifierImpl</code> with the given <code>URI</code> id.
@@ -54,6 +68,8 @@ public class IdentifierImpl implements Identifier {
             throw new IllegalArgumentException("Null URI");
         }
         this.uri = uriIn;
+        this.stringValue = uriIn.toString();
+        this.hashCode = uriIn.hashCode();
     }
 
     /**
@@ -69,6 +85,66 @@ public class IdentifierImpl implements Identifier {
         this(URI.create(identifierBase.stringValue() + ":" + id));
     }
 
+    /**
+     * Gets the canonical <code>Identifier</code> for the given <code>String</code> id, creating and
+     * registering it if this is the first time it has been seen.
+     *
+     * @param idIn the <code>String</code> id
+     * @return the canonical <code>Identifier</code> for <code>idIn</code>
+     * @throws IllegalArgumentException if <code>idIn</code> is not a valid <code>URI</code>
+     */
+    public static Identifier intern(String idIn) {
+        IdentifierImpl identifier = INTERNED.get(idIn);
+        if (identifier == null) {
+            identifier = new IdentifierImpl(idIn);
+            if (INTERNED.size() < MAX_INTERNED) {
+                IdentifierImpl existing = INTERNED.putIfAbsent(idIn, identifier);
+                if (existing != null) {
+                    identifier = existing;
+                }
+            }
+        }
+        return identifier;
+    }
+
+    /**
+     * Gets the canonical <code>Identifier</code> for the id formed by appending <code>id</code> to
+     * <code>identifierBase</code> with a ':' separator.
+     *
+     * @param identifierBase the base <code>Identifier</code>
+     * @param id the <code>String</code> suffix
+     * @return the canonical <code>Identifier</code>
+     */
+    public static Identifier intern(Identifier identifierBase, String id) {
+        return intern(identifierBase.stringValue() + ":" + id);
+    }
+
+    /**
+     * Gets the canonical instance of the given <code>Identifier</code>. If the table already holds an
+     * identifier with the same value it is returned, otherwise <code>identifier</code> itself is registered
+     * (when it is an <code>IdentifierImpl</code>) and returned.
+     *
+     * @param identifier the <code>Identifier</code> to intern
+     * @return the canonical <code>Identifier</code>, or null if <code>identifier</code> is null
+     */
+    public static Identifier intern(Identifier identifier) {
+        if (identifier == null) {
+            return null;
+        }
+        String idString = identifier.stringValue();
+        IdentifierImpl interned = INTERNED.get(idString);
+        if (interned != null) {
+            return interned;
+        }
+        if (!(identifier instanceof IdentifierImpl)) {
+            return intern(idString);
+        }
+        if (INTERNED.size() < MAX_INTERNED) {
+            interned = INTERNED.putIfAbsent(idString, (IdentifierImpl)identifier);
+        }
+        return interned == null ? identifier : interned;
+    }
+
     public static Identifier gensym(String pfx) {
         UUID uuid = UUID.randomUUID();
         return new IdentifierImpl(pfx + ":" + uuid.toString());
@@ -85,29 +161,33 @@ public class IdentifierImpl implements Identifier {
 
     @Override
     public String toString() {
-        return this.stringValue();
+        return this.stringValue;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
             return true;
-        } else if (obj == null || !(obj instanceof Identifier)) {
-            return false;
+        } else if (obj instanceof IdentifierImpl) {
+            IdentifierImpl identifierImpl = (IdentifierImpl)obj;
+            if (this.hashCode != identifierImpl.hashCode) {
+                return false;
+            }
+            return this.stringValue.equals(identifierImpl.stringValue) || this.uri.equals(identifierImpl.uri);
+        } else if (obj instanceof Identifier) {
+            return this.uri.equals(((Identifier)obj).getUri());
         } else {
-            return ObjUtil.equalsAllowNull(this.getUri(), ((Identifier)obj).getUri());
+            return false;
         }
     }
 
     @Override
     public int hashCode() {
-        URI thisURI = this.getUri();
-        return (thisURI == null ? super.hashCode() : thisURI.hashCode());
+        return this.hashCode;
     }
 
     @Override
     public String stringValue() {
-        URI thisURI = this.getUri();
-        return (thisURI == null ? null : thisURI.toString());
+        return this.stringValue;
     }
 }
@@ -93,7 +93,7 @@ public class StdIdReferenceMatch implements IdReferenceMatch {
         } else if (obj == null || !(obj instanceof IdReferenceMatch)) {
             return false;
         } else {
-            IdReferenceMatch objIdReferenceMatch = (IdReferenceMatch)id;
+            IdReferenceMatch objIdReferenceMatch = (IdReferenceMatch)obj;
             return ObjUtil.equalsAllowNull(this.getId(), objIdReferenceMatch.getId())
                    && ObjUtil.equalsAllowNull(this.getVersion(), objIdReferenceMatch.getVersion())
                    && ObjUtil.equalsAllowNull(this.getEarliestVersion(),
@@ -42,8 +42,12 @@ import org.w3c.dom.xpath.XPathExpression;
 
 import javax.security.auth.x500.X500Principal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.net.URI;
 import java.util.*;
 
@@ -53,26 +57,46 @@ public class RequestParser {
     //
     // Create our data type factory object. We could make this static
     //
-    protected static DataTypeFactory dataTypeFactory = null;
+    protected static volatile DataTypeFactory dataTypeFactory = null;
 
-    protected static synchronized DataTypeFactory getDataTypeFactory() {
-        try {
-            if (dataTypeFactory != null) {
-                return dataTypeFactory;
-            }
-            dataTypeFactory = DataTypeFactory.newInstance();
-            if (dataTypeFactory == null) {
-                logger.error("Could not create data type factory");
+    //
+    // The annotations of a class are read once, the first time an object of that class is parsed
+    //
+    private static final ClassValue<RequestMetadata> requestMetadata = new ClassValue<RequestMetadata>() {
+        @Override
+        protected RequestMetadata computeValue(Class<?> type) {
+            return new RequestMetadata(type);
+        }
+    };
+
+    protected static DataTypeFactory getDataTypeFactory() {
+        DataTypeFactory factory = dataTypeFactory;
+        if (factory != null) {
+            return factory;
+        }
+        synchronized (RequestParser.class) {
+            try {
+                if (dataTypeFactory != null) {
+                    return dataTypeFactory;
+                }
+                dataTypeFactory = DataTypeFactory.newInstance();
+                if (dataTypeFactory == null) {
+                    logger.error("Could not create data type factory");
+                }
+            } catch (FactoryException e) {
+                logger.error("Can't get Data type Factory: " + e.getLocalizedMessage());
             }
-        } catch (FactoryException e) {
-            logger.error("Can't get Data type Factory: " + e.getLocalizedMessage());
+            return dataTypeFactory;
         }
-        return dataTypeFactory;
     }
 
     public static Request parseRequest(Object obj) throws IllegalArgumentException, IllegalAccessException,
         DataTypeException {
         //
+        // Get the annotations of the object's class
+        //
+        RequestMetadata metadata = requestMetadata.get(obj.getClass());
+        //
         // Our returned object
         //
         StdMutableRequest stdMutableRequest = new StdMutableRequest();
@@ -81,102 +105,31 @@ public class RequestParser {
         //
         List<StdMutableRequestAttributes> attributes = new ArrayList<StdMutableRequestAttributes>();
         //
-        // Get overall XACML request annotation fields
-        //
-        XACMLRequest requestAnnotation = obj.getClass().getAnnotation(XACMLRequest.class);
-        //
-        // Add these annotations into the request
+        // Add the overall XACML request annotation fields into the request
         //
-        stdMutableRequest.setReturnPolicyIdList(requestAnnotation.ReturnPolicyIdList());
-        stdMutableRequest.setCombinedDecision(requestAnnotation.CombinedDecision());
-        if (!requestAnnotation.Defaults().equals(XACMLRequest.nullString)) {
-            stdMutableRequest.setRequestDefaults(new StdRequestDefaults(URI.create(requestAnnotation
-                .Defaults())));
+        stdMutableRequest.setReturnPolicyIdList(metadata.returnPolicyIdList);
+        stdMutableRequest.setCombinedDecision(metadata.combinedDecision);
+        if (metadata.requestDefaults != null) {
+            stdMutableRequest.setRequestDefaults(new StdRequestDefaults(metadata.requestDefaults));
         }
         //
-        // Check for multi-request
+        // Add the multi-request references
         //
-        XACMLMultiRequest multi = requestAnnotation.multiRequest();
-        if (multi != null) {
-            for (XACMLRequestReference reference : multi.values()) {
-                Collection<RequestAttributesReference> refs = new ArrayList<RequestAttributesReference>();
-                for (String id : reference.values()) {
-                    refs.add(new StdRequestAttributesReference(id));
-                }
-                if (!refs.isEmpty()) {
-                    stdMutableRequest.add(new StdRequestReference(refs));
-                }
+        for (List<String> reference : metadata.requestReferences) {
+            Collection<RequestAttributesReference> refs = new ArrayList<RequestAttributesReference>();
+            for (String id : reference) {
+                refs.add(new StdRequestAttributesReference(id));
             }
+            stdMutableRequest.add(new StdRequestReference(refs));
         }
         //
-        // Iterate all the fields in the object
+        // Iterate all the annotated fields in the object
         //
-        for (Field field : obj.getClass().getDeclaredFields()) {
+        for (FieldMetadata field : metadata.fields) {
             if (logger.isTraceEnabled()) {
-                logger.trace("Field: " + field);
-            }
-            XACMLSubject subject = field.getAnnotation(XACMLSubject.class);
-            if (subject != null) {
-                RequestParser.addAttribute(attributes,
-                                           new IdentifierImpl(subject.category()),
-                                           new IdentifierImpl(subject.attributeId()),
-                                           subject.includeInResults(),
-                                           (subject.datatype().equals(XACMLRequest.nullString)
-                                               ? null : subject.datatype()),
-                                           (subject.issuer().equals(XACMLRequest.nullString) ? null : subject
-                                               .issuer()), (subject.id().equals(XACMLRequest.nullString)
-                                               ? null : subject.id()), field, obj);
-            }
-            XACMLAction action = field.getAnnotation(XACMLAction.class);
-            if (action != null) {
-                RequestParser
-                    .addAttribute(attributes,
-                                  new IdentifierImpl(action.category()),
-                                  new IdentifierImpl(action.attributeId()),
-                                  action.includeInResults(),
-                                  (action.datatype().equals(XACMLRequest.nullString) ? null : action
-                                      .datatype()), (action.issuer().equals(XACMLRequest.nullString)
-                                      ? null : action.issuer()), (action.id().equals(XACMLRequest.nullString)
-                                      ? null : action.id()), field, obj);
-            }
-            XACMLResource resource = field.getAnnotation(XACMLResource.class);
-            if (resource != null) {
-                RequestParser.addAttribute(attributes,
-                                           new IdentifierImpl(resource.category()),
-                                           new IdentifierImpl(resource.attributeId()),
-                                           resource.includeInResults(),
-                                           (resource.datatype().equals(XACMLRequest.nullString)
-                                               ? null : resource.datatype()),
-                                           (resource.issuer().equals(XACMLRequest.nullString)
-                                               ? null : resource.issuer()),
-                                           (resource.id().equals(XACMLRequest.nullString) ? null : resource
-                                               .id()), field, obj);
-            }
-            XACMLEnvironment environment = field.getAnnotation(XACMLEnvironment.class);
-            if (environment != null) {
-                RequestParser.addAttribute(attributes, new IdentifierImpl(environment.category()),
-                                           new IdentifierImpl(environment.attributeId()), environment
-                                               .includeInResults(),
-                                           (environment.datatype().equals(XACMLRequest.nullString)
-                                               ? null : environment.datatype()),
-                                           (environment.issuer().equals(XACMLRequest.nullString)
-                                               ? null : environment.issuer()),
-                                           (environment.id().equals(XACMLRequest.nullString)
-                                               ? null : environment.id()), field, obj);
-            }
-            XACMLAttribute attribute = field.getAnnotation(XACMLAttribute.class);
-            if (attribute != null) {
-                RequestParser.addAttribute(attributes,
-                                           new IdentifierImpl(attribute.category()),
-                                           new IdentifierImpl(attribute.attributeId()),
-                                           attribute.includeInResults(),
-                                           (attribute.datatype().equals(XACMLRequest.nullString)
-                                               ? null : attribute.datatype()),
-                                           (attribute.issuer().equals(XACMLRequest.nullString)
-                                               ? null : attribute.issuer()),
-                                           (attribute.id().equals(XACMLRequest.nullString) ? null : attribute
-                                               .id()), field, obj);
+                logger.trace("Field: " + field.name);
             }
+            RequestParser.addAttribute(attributes, field, obj);
         }
         //
         // Add in all the attributes
@@ -190,6 +143,31 @@ public class RequestParser {
         return stdMutableRequest;
     }
 
+    private static void addAttribute(List<StdMutableRequestAttributes> attributes, //NOPMD
+                                     FieldMetadata field, Object object) throws DataTypeException {
+        //
+        // Create our attribute
+        //
+        StdMutableAttribute mutableAttribute = new StdMutableAttribute();
+        mutableAttribute.setCategory(field.category);
+        mutableAttribute.setAttributeId(field.attributeId);
+        mutableAttribute.setIncludeInResults(field.includeInResults);
+        if (field.issuer != null && !field.issuer.isEmpty()) {
+            mutableAttribute.setIssuer(field.issuer);
+        }
+        //
+        // Pull the values from the field
+        //
+        Collection<AttributeValue<?>> value = RequestParser.extractValues(field.datatypeId,
+                                                                          field.get(object));
+        if (value != null) {
+            mutableAttribute.addValues(value);
+        } else {
+            throw new IllegalArgumentException("Unable to extract attribute value from object");
+        }
+        RequestParser.addAttribute(attributes, mutableAttribute, field.id);
+    }
+
     public static void addAttribute(List<StdMutableRequestAttributes> attributes, Identifier category,
                                     Identifier attributeId, boolean includeInResults, String datatype,
                                     String issuer, String id, Field field, Object object)
@@ -214,6 +192,11 @@ public class RequestParser {
         } else {
             throw new IllegalArgumentException("Unable to extract attribute value from object");
         }
+        RequestParser.addAttribute(attributes, mutableAttribute, id);
+    }
+
+    private static void addAttribute(List<StdMutableRequestAttributes> attributes, //NOPMD
+                                     StdMutableAttribute mutableAttribute, String id) {
         //
         // Does the category exist?
         //
@@ -246,6 +229,12 @@ public class RequestParser {
 
     public static Collection<AttributeValue<?>> extractValues(String datatype, Field field, Object object)
         throws IllegalArgumentException, IllegalAccessException, DataTypeException {
+        return RequestParser.extractValues(datatype == null ? null : new IdentifierImpl(datatype),
+                                           field.get(object));
+    }
+
+    private static Collection<AttributeValue<?>> extractValues(Identifier datatypeId, //NOPMD
+                                                               Object fieldObject) throws DataTypeException {
         //
         // Synchronize?
         //
@@ -261,7 +250,6 @@ public class RequestParser {
         //
         // Sanity check the object
         //
-        Object fieldObject = field.get(object);
         if (logger.isDebugEnabled()) {
             logger.debug(fieldObject);
         }
@@ -274,9 +262,9 @@ public class RequestParser {
         //
         // Are we working with a collection or an array?
         //
-        if (field.get(object) instanceof Collection || field.get(object) instanceof Map) {
-            Collection<?> objects = (Collection<?>)field.get(object);
-            if (objects == null || objects.isEmpty()) {
+        if (fieldObject instanceof Collection || fieldObject instanceof Map) {
+            Collection<?> objects = (Collection<?>)fieldObject;
+            if (objects.isEmpty()) {
                 if (logger.isTraceEnabled()) {
                     logger.trace("empty collection");
                 }
@@ -286,22 +274,27 @@ public class RequestParser {
                 logger.trace("Object is a collection");
             }
             for (Object obj : objects) {
-                values.add(extractValue(datatype, obj));
+                values.add(extractValue(datatypeId, obj));
             }
         } else if (fieldObject.getClass().isArray()) {
             if (logger.isTraceEnabled()) {
                 logger.trace("Object is an array");
             }
             for (int i = 0; i < Array.getLength(fieldObject); i++) {
-                values.add(extractValue(datatype, Array.get(fieldObject, i)));
+                values.add(extractValue(datatypeId, Array.get(fieldObject, i)));
             }
         } else {
-            values.add(extractValue(datatype, field.get(object)));
+            values.add(extractValue(datatypeId, fieldObject));
         }
         return values;
     }
 
     protected static AttributeValue<?> extractValue(String datatype, Object object) throws DataTypeException {
+        return extractValue(datatype == null ? null : new IdentifierImpl(datatype), object);
+    }
+
+    private static AttributeValue<?> extractValue(Identifier datatype, Object object) //NOPMD
+        throws DataTypeException {
         //
         // Is there a data type?
         //
@@ -355,7 +348,7 @@ public class RequestParser {
                 datatypeId = XACML3.ID_DATATYPE_STRING;
             }
         } else {
-            datatypeId = new IdentifierImpl(datatype);
+            datatypeId = datatype;
         }
         DataType<?> dataTypeExtended = getDataTypeFactory().getDataType(datatypeId);
         if (dataTypeExtended == null) {
@@ -365,4 +358,130 @@ public class RequestParser {
         return dataTypeExtended.createAttributeValue(object);
     }
 
+    private static String nullIfUnset(String value) {
+        return value.equals(XACMLRequest.nullString) ? null : value;
+    }
+
+    /**
+     * RequestMetadata holds what <code>parseRequest</code> needs from the annotations of one class.
+     */
+    private static final class RequestMetadata {
+        final boolean returnPolicyIdList;
+        final boolean combinedDecision;
+        final URI requestDefaults;
+        final List<List<String>> requestReferences = new ArrayList<List<String>>();
+        final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+
+        RequestMetadata(Class<?> type) {
+            //
+            // Get overall XACML request annotation fields
+            //
+            XACMLRequest requestAnnotation = type.getAnnotation(XACMLRequest.class);
+            if (requestAnnotation == null) {
+                throw new IllegalArgumentException(type.getName() + " is not annotated with XACMLRequest");
+            }
+            this.returnPolicyIdList = requestAnnotation.ReturnPolicyIdList();
+            this.combinedDecision = requestAnnotation.CombinedDecision();
+            String defaults = nullIfUnset(requestAnnotation.Defaults());
+            this.requestDefaults = defaults == null ? null : URI.create(defaults);
+            //
+            // Check for multi-request
+            //
+            XACMLMultiRequest multi = requestAnnotation.multiRequest();
+            if (multi != null) {
+                for (XACMLRequestReference reference : multi.values()) {
+                    if (reference.values().length > 0) {
+                        this.requestReferences.add(Arrays.asList(reference.values()));
+                    }
+                }
+            }
+            //
+            // Iterate all the fields in the class
+            //
+            for (Field field : type.getDeclaredFields()) {
+                XACMLSubject subject = field.getAnnotation(XACMLSubject.class);
+                if (subject != null) {
+                    this.fields.add(new FieldMetadata(field, subject.category(), subject.attributeId(),
+                                                      subject.includeInResults(), subject.datatype(),
+                                                      subject.issuer(), subject.id()));
+                }
+                XACMLAction action = field.getAnnotation(XACMLAction.class);
+                if (action != null) {
+                    this.fields.add(new FieldMetadata(field, action.category(), action.attributeId(),
+                                                      action.includeInResults(), action.datatype(),
+                                                      action.issuer(), action.id()));
+                }
+                XACMLResource resource = field.getAnnotation(XACMLResource.class);
+                if (resource != null) {
+                    this.fields.add(new FieldMetadata(field, resource.category(), resource.attributeId(),
+                                                      resource.includeInResults(), resource.datatype(),
+                                                      resource.issuer(), resource.id()));
+                }
+                XACMLEnvironment environment = field.getAnnotation(XACMLEnvironment.class);
+                if (environment != null) {
+                    this.fields.add(new FieldMetadata(field, environment.category(),
+                                                      environment.attributeId(),
+                                                      environment.includeInResults(),
+                                                      environment.datatype(), environment.issuer(),
+                                                      environment.id()));
+                }
+                XACMLAttribute attribute = field.getAnnotation(XACMLAttribute.class);
+                if (attribute != null) {
+                    this.fields.add(new FieldMetadata(field, attribute.category(), attribute.attributeId(),
+                                                      attribute.includeInResults(), attribute.datatype(),
+                                                      attribute.issuer(), attribute.id()));
+                }
+            }
+        }
+    }
+
+    /**
+     * FieldMetadata holds the attribute an annotated field maps to and a <code>MethodHandle</code> that reads
+     * the field.
+     */
+    private static final class FieldMetadata {
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        final String name;
+        final Identifier category;
+        final Identifier attributeId;
+        final boolean includeInResults;
+        final Identifier datatypeId;
+        final String issuer;
+        final String id;
+        final MethodHandle getter;
+
+        FieldMetadata(Field field, String category, String attributeId, boolean includeInResults,
+                      String datatype, String issuer, String id) {
+            this.name = field.toString();
+            this.category = new IdentifierImpl(category);
+            this.attributeId = new IdentifierImpl(attributeId);
+            this.includeInResults = includeInResults;
+            String datatypeString = nullIfUnset(datatype);
+            this.datatypeId = datatypeString == null ? null : new IdentifierImpl(datatypeString);
+            this.issuer = nullIfUnset(issuer);
+            this.id = nullIfUnset(id);
+            try {
+                field.setAccessible(true);
+                MethodHandle handle = MethodHandles.lookup().unreflectGetter(field);
+                if (Modifier.isStatic(field.getModifiers())) {
+                    handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                }
+                this.getter = handle.asType(GETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot read field " + field + ": " + e.getMessage(), e);
+            }
+        }
+
+        Object get(Object object) {
+            try {
+                return this.getter.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalArgumentException("Cannot read field " + this.name + ": " + e.getMessage(),
+                                                   e);
+            }
+        }
+    }
 }
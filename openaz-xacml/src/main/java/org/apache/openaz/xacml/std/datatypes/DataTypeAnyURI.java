@@ -42,6 +42,7 @@ import org.apache.openaz.xacml.api.XACML;
  */
 public class DataTypeAnyURI extends DataTypeBase<URI> {
     private static final DataTypeAnyURI singleInstance = new DataTypeAnyURI();
+    private final DataTypeValueCache<URI> valueCache = new DataTypeValueCache<URI>();
 
     /**
      * Creates a <code>DataTypeAnyURI</code> with the XACML anyURI id and the java <code>URI</code> class.
@@ -65,7 +66,10 @@ public class DataTypeAnyURI extends DataTypeBase<URI> {
             if (stringValue == null) {
                 return null;
             }
-            URI uriValue = null;
+            URI uriValue = this.valueCache.get(stringValue);
+            if (uriValue != null) {
+                return uriValue;
+            }
             try {
                 // uriValue = URI.create(stringValue);
                 uriValue = new URI(stringValue);
@@ -74,6 +78,7 @@ public class DataTypeAnyURI extends DataTypeBase<URI> {
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to anyURI", ex);
             }
+            this.valueCache.put(stringValue, uriValue);
             return uriValue;
         }
     }
@@ -40,6 +40,7 @@ import org.apache.openaz.xacml.api.XACML2;
  */
 public class DataTypeDNSName extends DataTypeSemanticStringBase<RFC2396DomainName> {
     private static final DataTypeDNSName singleInstance = new DataTypeDNSName();
+    private final DataTypeValueCache<RFC2396DomainName> valueCache = new DataTypeValueCache<RFC2396DomainName>();
 
     private DataTypeDNSName() {
         super(XACML2.ID_DATATYPE_DNSNAME, RFC2396DomainName.class);
@@ -58,7 +59,10 @@ public class DataTypeDNSName extends DataTypeSemanticStringBase<RFC2396DomainNam
             if (stringValue == null) {
                 return null;
             }
-            RFC2396DomainName rfc2396DomainName = null;
+            RFC2396DomainName rfc2396DomainName = this.valueCache.get(stringValue);
+            if (rfc2396DomainName != null) {
+                return rfc2396DomainName;
+            }
             try {
                 rfc2396DomainName = RFC2396DomainName.newInstance(stringValue);
             } catch (ParseException ex) {
@@ -66,6 +70,7 @@ public class DataTypeDNSName extends DataTypeSemanticStringBase<RFC2396DomainNam
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to DNSName", ex);
             }
+            this.valueCache.put(stringValue, rfc2396DomainName);
             return rfc2396DomainName;
         }
     }
@@ -43,6 +43,7 @@ import org.apache.openaz.xacml.api.XACML;
  */
 public class DataTypeDate extends DataTypeSemanticStringBase<ISO8601Date> {
     private static final DataTypeDate singleInstance = new DataTypeDate();
+    private final DataTypeValueCache<ISO8601Date> valueCache = new DataTypeValueCache<ISO8601Date>();
 
     private DataTypeDate() {
         super(XACML.ID_DATATYPE_DATE, ISO8601Date.class);
@@ -62,7 +63,10 @@ public class DataTypeDate extends DataTypeSemanticStringBase<ISO8601Date> {
             return ISO8601Date.fromCalendar((Calendar)source);
         } else {
             String stringValue = this.convertToString(source);
-            ISO8601Date dateValue = null;
+            ISO8601Date dateValue = this.valueCache.get(stringValue);
+            if (dateValue != null) {
+                return dateValue;
+            }
             try {
                 dateValue = ISO8601Date.fromISO8601DateString(stringValue);
             } catch (ParseException ex) {
@@ -70,6 +74,7 @@ public class DataTypeDate extends DataTypeSemanticStringBase<ISO8601Date> {
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to Date", ex);
             }
+            this.valueCache.put(stringValue, dateValue);
             return dateValue;
         }
     }
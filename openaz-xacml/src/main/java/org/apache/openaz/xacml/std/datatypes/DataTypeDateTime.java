@@ -42,6 +42,7 @@ import org.apache.openaz.xacml.api.XACML;
  */
 public class DataTypeDateTime extends DataTypeSemanticStringBase<ISO8601DateTime> {
     private static final DataTypeDateTime singleInstance = new DataTypeDateTime();
+    private final DataTypeValueCache<ISO8601DateTime> valueCache = new DataTypeValueCache<ISO8601DateTime>();
 
     private DataTypeDateTime() {
         super(XACML.ID_DATATYPE_DATETIME, ISO8601DateTime.class);
@@ -61,7 +62,10 @@ public class DataTypeDateTime extends DataTypeSemanticStringBase<ISO8601DateTime
             return ISO8601DateTime.fromDate((Date)source);
         } else {
             String stringValue = this.convertToString(source);
-            ISO8601DateTime dateTime = null;
+            ISO8601DateTime dateTime = this.valueCache.get(stringValue);
+            if (dateTime != null) {
+                return dateTime;
+            }
             try {
                 dateTime = ISO8601DateTime.fromISO8601DateTimeString(stringValue);
             } catch (ParseException ex) {
@@ -69,6 +73,7 @@ public class DataTypeDateTime extends DataTypeSemanticStringBase<ISO8601DateTime
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to DateTime", ex);
             }
+            this.valueCache.put(stringValue, dateTime);
             return dateTime;
         }
     }
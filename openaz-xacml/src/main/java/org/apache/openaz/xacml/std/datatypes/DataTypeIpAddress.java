@@ -41,6 +41,7 @@ import org.apache.openaz.xacml.api.XACML2;
  */
 public class DataTypeIpAddress extends DataTypeSemanticStringBase<IPAddress> {
     private static final DataTypeIpAddress singleInstance = new DataTypeIpAddress();
+    private final DataTypeValueCache<IPAddress> valueCache = new DataTypeValueCache<IPAddress>();
 
     private DataTypeIpAddress() {
         super(XACML2.ID_DATATYPE_IPADDRESS, IPAddress.class);
@@ -59,7 +60,10 @@ public class DataTypeIpAddress extends DataTypeSemanticStringBase<IPAddress> {
             if (stringValue == null) {
                 return null;
             }
-            IPAddress ipAddress = null;
+            IPAddress ipAddress = this.valueCache.get(stringValue);
+            if (ipAddress != null) {
+                return ipAddress;
+            }
             try {
                 ipAddress = IPAddress.newInstance(stringValue);
             } catch (ParseException ex) {
@@ -67,6 +71,7 @@ public class DataTypeIpAddress extends DataTypeSemanticStringBase<IPAddress> {
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to IPAddress", ex);
             }
+            this.valueCache.put(stringValue, ipAddress);
             return ipAddress;
         }
     }
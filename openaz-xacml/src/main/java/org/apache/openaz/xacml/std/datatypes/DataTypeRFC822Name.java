@@ -41,6 +41,7 @@ import org.apache.openaz.xacml.api.XACML1;
  */
 public class DataTypeRFC822Name extends DataTypeSemanticStringBase<RFC822Name> {
     private static final DataTypeRFC822Name singleInstance = new DataTypeRFC822Name();
+    private final DataTypeValueCache<RFC822Name> valueCache = new DataTypeValueCache<RFC822Name>();
 
     private DataTypeRFC822Name() {
         super(XACML1.ID_DATATYPE_RFC822NAME, RFC822Name.class);
@@ -59,7 +60,10 @@ public class DataTypeRFC822Name extends DataTypeSemanticStringBase<RFC822Name> {
             if (stringValue == null) {
                 return null;
             }
-            RFC822Name rfc822Name = null;
+            RFC822Name rfc822Name = this.valueCache.get(stringValue);
+            if (rfc822Name != null) {
+                return rfc822Name;
+            }
             try {
                 rfc822Name = RFC822Name.newInstance(stringValue);
             } catch (ParseException ex) {
@@ -67,6 +71,7 @@ public class DataTypeRFC822Name extends DataTypeSemanticStringBase<RFC822Name> {
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to RFC822Name", ex);
             }
+            this.valueCache.put(stringValue, rfc822Name);
             return rfc822Name;
         }
     }
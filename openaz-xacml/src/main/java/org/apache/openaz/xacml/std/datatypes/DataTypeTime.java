@@ -43,6 +43,7 @@ import org.apache.openaz.xacml.api.XACML;
  */
 public class DataTypeTime extends DataTypeSemanticStringBase<ISO8601Time> {
     private static final DataTypeTime singleInstance = new DataTypeTime();
+    private final DataTypeValueCache<ISO8601Time> valueCache = new DataTypeValueCache<ISO8601Time>();
 
     private DataTypeTime() {
         super(XACML.ID_DATATYPE_TIME, ISO8601Time.class);
@@ -62,7 +63,10 @@ public class DataTypeTime extends DataTypeSemanticStringBase<ISO8601Time> {
             return ISO8601Time.fromCalendar((Calendar)source);
         } else {
             String stringValue = this.convertToString(source);
-            ISO8601Time timeValue = null;
+            ISO8601Time timeValue = this.valueCache.get(stringValue);
+            if (timeValue != null) {
+                return timeValue;
+            }
             try {
                 timeValue = ISO8601Time.fromISO8601TimeString(stringValue);
             } catch (ParseException ex) {
@@ -70,6 +74,7 @@ public class DataTypeTime extends DataTypeSemanticStringBase<ISO8601Time> {
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to Time", ex);
             }
+            this.valueCache.put(stringValue, timeValue);
             return timeValue;
         }
     }
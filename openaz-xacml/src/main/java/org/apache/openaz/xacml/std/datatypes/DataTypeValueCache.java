@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std.datatypes;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.openaz.xacml.util.XACMLProperties;
+
+/**
+ * DataTypeValueCache is a bounded, thread-safe cache from the <code>String</code> form of a value to the
+ * object a {@link org.apache.openaz.xacml.api.DataType} parsed it into. It is used by the data types whose
+ * values are expensive to parse, so that policy literals and request attributes that repeat the same value
+ * are parsed once. Cached values are shared between threads and must be immutable.
+ * <p>
+ * When the cache is full it is cleared rather than evicting single entries, which keeps lookups lock-free
+ * and bounds the memory that request content can pin.
+ *
+ * @param <T> the type of the cached values
+ */
+public class DataTypeValueCache<T> {
+    /**
+     * The cache size used when {@link XACMLProperties#PROP_DATATYPE_VALUECACHESIZE} is not set.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final int maxSize;
+    private final ConcurrentMap<String, T> values;
+
+    /**
+     * Creates a new <code>DataTypeValueCache</code> holding at most <code>maxSizeIn</code> values.
+     *
+     * @param maxSizeIn the maximum number of values to keep; 0 or less disables the cache
+     */
+    public DataTypeValueCache(int maxSizeIn) {
+        this.maxSize = maxSizeIn;
+        this.values = (maxSizeIn > 0 ? new ConcurrentHashMap<String, T>() : null);
+    }
+
+    /**
+     * Creates a new <code>DataTypeValueCache</code> sized by the
+     * {@link XACMLProperties#PROP_DATATYPE_VALUECACHESIZE} system property.
+     */
+    public DataTypeValueCache() {
+        this(getConfiguredMaxSize());
+    }
+
+    private static int getConfiguredMaxSize() {
+        String value = System.getProperty(XACMLProperties.PROP_DATATYPE_VALUECACHESIZE);
+        if (value == null) {
+            return DEFAULT_MAX_SIZE;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return DEFAULT_MAX_SIZE;
+        }
+    }
+
+    /**
+     * Gets the cached value for the given <code>String</code>.
+     *
+     * @param stringValue the <code>String</code> form of the value
+     * @return the cached value, or null if there is none
+     */
+    public T get(String stringValue) {
+        if (this.values == null || stringValue == null) {
+            return null;
+        }
+        return this.values.get(stringValue);
+    }
+
+    /**
+     * Caches the value parsed from the given <code>String</code>.
+     *
+     * @param stringValue the <code>String</code> form of the value
+     * @param value the parsed value
+     */
+    public void put(String stringValue, T value) {
+        if (this.values == null || stringValue == null || value == null) {
+            return;
+        }
+        if (this.values.size() >= this.maxSize) {
+            this.values.clear();
+        }
+        this.values.put(stringValue, value);
+    }
+
+    public int size() {
+        return this.values == null ? 0 : this.values.size();
+    }
+
+    public void clear() {
+        if (this.values != null) {
+            this.values.clear();
+        }
+    }
+}
@@ -30,6 +30,10 @@
  */
 package org.apache.openaz.xacml.std.datatypes;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import javax.security.auth.x500.X500Principal;
 
 import org.apache.openaz.xacml.api.DataTypeException;
@@ -40,6 +44,8 @@ import org.apache.openaz.xacml.api.XACML1;
  */
 public class DataTypeX500Name extends DataTypeBase<X500Principal> {
     private static final DataTypeX500Name singleInstance = new DataTypeX500Name();
+    private final DataTypeValueCache<X500Principal> valueCache = new DataTypeValueCache<X500Principal>();
+    private final DataTypeValueCache<List<String>> rdnCache = new DataTypeValueCache<List<String>>();
 
     /**
      * Creates a new <code>DataTypeX500Name</code>>
@@ -58,7 +64,10 @@ public class DataTypeX500Name extends DataTypeBase<X500Principal> {
             return (X500Principal)source;
         } else {
             String stringValue = this.convertToString(source);
-            X500Principal x500Principal = null;
+            X500Principal x500Principal = this.valueCache.get(stringValue);
+            if (x500Principal != null) {
+                return x500Principal;
+            }
             try {
                 x500Principal = new X500Principal(stringValue);
             } catch (IllegalArgumentException ex) {
@@ -66,7 +75,31 @@ public class DataTypeX500Name extends DataTypeBase<X500Principal> {
                                                   + source.getClass().getCanonicalName() + "\" with value \""
                                                   + stringValue + "\" to X500Name", ex);
             }
+            this.valueCache.put(stringValue, x500Principal);
             return x500Principal;
         }
     }
+
+    /**
+     * Gets the relative distinguished names of the given <code>X500Principal</code> in its RFC 2253 form,
+     * split on ',' and trimmed, most specific first. The result is cached by name so that matching functions
+     * do not split the same name on every evaluation.
+     *
+     * @param x500Principal the <code>X500Principal</code> to tokenize
+     * @return an unmodifiable <code>List</code> of the relative distinguished names
+     */
+    public List<String> getRelativeDistinguishedNames(X500Principal x500Principal) {
+        String name = x500Principal.getName();
+        List<String> rdns = this.rdnCache.get(name);
+        if (rdns == null) {
+            String[] terms = name.split(",");
+            List<String> listRdns = new ArrayList<String>(terms.length);
+            for (String term : terms) {
+                listRdns.add(term.trim());
+            }
+            rdns = Collections.unmodifiableList(listRdns);
+            this.rdnCache.put(name, rdns);
+        }
+        return rdns;
+    }
 }
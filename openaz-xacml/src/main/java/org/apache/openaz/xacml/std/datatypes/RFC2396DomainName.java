@@ -38,8 +38,9 @@ import org.apache.openaz.xacml.api.SemanticString;
  * RFC2396DomainName represents a host name from the RFC2396 specification.
  */
 public class RFC2396DomainName implements SemanticString {
-    private String domainName;
-    private PortRange portRange;
+    private final String domainName;
+    private final PortRange portRange;
+    private final String stringValue;
 
     public static boolean isValidTopLabel(String topLabel) {
         if (topLabel == null || topLabel.length() == 0) {
@@ -118,6 +119,13 @@ public class RFC2396DomainName implements SemanticString {
         }
         this.domainName = domainNameIn;
         this.portRange = portRangeIn;
+
+        StringBuilder stringBuilder = new StringBuilder(domainNameIn);
+        if (portRangeIn != null) {
+            stringBuilder.append(':');
+            stringBuilder.append(portRangeIn.stringValue());
+        }
+        this.stringValue = stringBuilder.toString();
     }
 
     /**
@@ -170,15 +178,7 @@ public class RFC2396DomainName implements SemanticString {
 
     @Override
     public String stringValue() {
-        StringBuilder stringBuilder = new StringBuilder();
-        if (this.getDomainName() != null) {
-            stringBuilder.append(this.getDomainName());
-        }
-        if (this.getPortRange() != null) {
-            stringBuilder.append(':');
-            stringBuilder.append(this.getPortRange().stringValue());
-        }
-        return stringBuilder.toString();
+        return this.stringValue;
     }
 
     @Override
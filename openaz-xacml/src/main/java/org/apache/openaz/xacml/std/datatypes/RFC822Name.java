@@ -38,8 +38,10 @@ import org.apache.openaz.xacml.api.SemanticString;
  * RFC822Name represents an RFC 822 name consisting of a local part and a domain part.
  */
 public class RFC822Name implements Comparable<RFC822Name>, SemanticString {
-    private String localName;
-    private String domainName;
+    private final String localName;
+    private final String domainName;
+    private final String canonicalDomainName;
+    private final String canonicalName;
 
     public RFC822Name(String localNameIn, String domainNameIn) {
         if (localNameIn == null || localNameIn.length() == 0 || domainNameIn == null
@@ -48,6 +50,8 @@ public class RFC822Name implements Comparable<RFC822Name>, SemanticString {
         }
         this.localName = localNameIn;
         this.domainName = domainNameIn;
+        this.canonicalDomainName = domainNameIn.toLowerCase();
+        this.canonicalName = localNameIn + "@" + this.canonicalDomainName;
     }
 
     public static RFC822Name newInstance(String rfc822NameString) throws ParseException {
@@ -82,7 +86,7 @@ public class RFC822Name implements Comparable<RFC822Name>, SemanticString {
     }
 
     public String getCanonicalDomainName() {
-        return this.getDomainName().toLowerCase();
+        return this.canonicalDomainName;
     }
 
     public String getName() {
@@ -90,7 +94,7 @@ public class RFC822Name implements Comparable<RFC822Name>, SemanticString {
     }
 
     public String getCanonicalName() {
-        return this.getLocalName() + "@" + this.getCanonicalDomainName();
+        return this.canonicalName;
     }
 
     @Override
@@ -321,13 +321,23 @@ public class DOMUtil {
     }
 
     private static Identifier getIdentifierFromString(Node node, String stringAttribute)
+        throws DOMStructureException {
+        return getIdentifierFromString(node, stringAttribute, false);
+    }
+
+    /**
+     * Creates the <code>Identifier</code> for an attribute or content string. Only policy content is
+     * interned; requests and responses come from outside the PDP and would otherwise fill the intern table.
+     */
+    private static Identifier getIdentifierFromString(Node node, String stringAttribute, boolean bIntern)
         throws DOMStructureException {
         if (stringAttribute == null) {
             return null;
         } else {
             Identifier identifierResult = null;
             try {
-                identifierResult = new IdentifierImpl(stringAttribute);
+                identifierResult = (bIntern ? IdentifierImpl.intern(stringAttribute)
+                    : new IdentifierImpl(stringAttribute));
             } catch (IllegalArgumentException ex) {
                 throw new DOMStructureException(node, "Invalid Identifier \"" + stringAttribute + "\" in \""
                                                       + getNodeLabel(node) + "\"", ex);
@@ -365,6 +375,16 @@ public class DOMUtil {
         return getIdentifierFromString(node, getStringAttribute(node, localName));
     }
 
+    /**
+     * Gets an <code>Identifier</code> attribute, using the canonical
+     * {@link org.apache.openaz.xacml.std.IdentifierImpl#intern(String)} instance if <code>bIntern</code> is
+     * true. Policy parsers intern; request and response parsers do not.
+     */
+    public static Identifier getIdentifierAttribute(Node node, String localName, boolean bRequired,
+                                                    boolean bIntern) throws DOMStructureException {
+        return getIdentifierFromString(node, getStringAttribute(node, localName, bRequired), bIntern);
+    }
+
     public static Identifier getIdentifierContent(Node node, boolean bRequired) throws DOMStructureException {
         Identifier identifier = getIdentifierFromString(node, node.getTextContent());
         if (bRequired && identifier == null) {
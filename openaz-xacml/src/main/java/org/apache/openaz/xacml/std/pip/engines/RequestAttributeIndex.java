@@ -0,0 +1,186 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.std.pip.engines;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.openaz.xacml.api.Attribute;
+import org.apache.openaz.xacml.api.AttributeValue;
+import org.apache.openaz.xacml.api.Identifier;
+import org.apache.openaz.xacml.api.Request;
+import org.apache.openaz.xacml.api.RequestAttributes;
+import org.apache.openaz.xacml.api.pip.PIPRequest;
+import org.apache.openaz.xacml.api.pip.PIPResponse;
+import org.apache.openaz.xacml.std.StdMutableAttribute;
+import org.apache.openaz.xacml.std.pip.StdPIPRequest;
+import org.apache.openaz.xacml.std.pip.StdPIPResponse;
+
+/**
+ * RequestAttributeIndex maps each category, attribute id, data type id and issuer found in a
+ * {@link org.apache.openaz.xacml.api.Request} to an immutable {@link IndexedPIPResponse} with the
+ * {@link org.apache.openaz.xacml.api.Attribute}s and values that match it. Every combination is also indexed
+ * without its issuer, which matches the attributes of all issuers. It is built once for a
+ * <code>Request</code>, after which finding the attributes for a {@link org.apache.openaz.xacml.api.pip.PIPRequest}
+ * is a single hash lookup that allocates nothing.
+ */
+public final class RequestAttributeIndex {
+    private final Map<PIPRequest, IndexedPIPResponse> responses;
+    private final Set<PIPRequest> providedAttributes;
+
+    /**
+     * An immutable <code>PIPResponse</code> from a <code>RequestAttributeIndex</code>. It also holds the
+     * values of all of its <code>Attribute</code>s in one <code>List</code>.
+     */
+    public static final class IndexedPIPResponse extends StdPIPResponse {
+        private final List<AttributeValue<?>> attributeValues;
+
+        IndexedPIPResponse(Collection<Attribute> attributes, List<AttributeValue<?>> attributeValuesIn) {
+            super(attributes);
+            this.attributeValues = Collections.unmodifiableList(attributeValuesIn);
+        }
+
+        /**
+         * Gets the values of all of the <code>Attribute</code>s of this <code>IndexedPIPResponse</code>, all
+         * of which have the requested data type.
+         *
+         * @return an unmodifiable <code>List</code> of <code>AttributeValue</code>s
+         */
+        public List<AttributeValue<?>> getAttributeValues() {
+            return this.attributeValues;
+        }
+    }
+
+    private RequestAttributeIndex(Map<PIPRequest, IndexedPIPResponse> responsesIn,
+                                  Set<PIPRequest> providedAttributesIn) {
+        this.responses = responsesIn;
+        this.providedAttributes = Collections.unmodifiableSet(providedAttributesIn);
+    }
+
+    /**
+     * Builds the <code>RequestAttributeIndex</code> for the given <code>Request</code>.
+     *
+     * @param request the <code>Request</code> to index
+     * @return a new <code>RequestAttributeIndex</code>
+     */
+    public static RequestAttributeIndex newInstance(Request request) {
+        Map<PIPRequest, List<Attribute>> mapAttributes = new HashMap<PIPRequest, List<Attribute>>();
+        Set<PIPRequest> providedAttributes = new LinkedHashSet<PIPRequest>();
+        Collection<RequestAttributes> listRequestAttributes = request.getRequestAttributes();
+        if (listRequestAttributes != null) {
+            for (RequestAttributes requestAttributes : listRequestAttributes) {
+                for (Attribute attribute : requestAttributes.getAttributes()) {
+                    if (attribute.getValues().size() > 0) {
+                        addAttribute(mapAttributes, providedAttributes, attribute);
+                    }
+                }
+            }
+        }
+
+        Map<PIPRequest, IndexedPIPResponse> responses = new HashMap<PIPRequest, IndexedPIPResponse>(
+            mapAttributes.size() * 2);
+        for (Map.Entry<PIPRequest, List<Attribute>> entry : mapAttributes.entrySet()) {
+            List<AttributeValue<?>> attributeValues = new ArrayList<AttributeValue<?>>();
+            for (Attribute attribute : entry.getValue()) {
+                attributeValues.addAll(attribute.getValues());
+            }
+            responses.put(entry.getKey(), new IndexedPIPResponse(entry.getValue(), attributeValues));
+        }
+        return new RequestAttributeIndex(responses, providedAttributes);
+    }
+
+    /*
+     * Adds the given Attribute under each of its data types, both with and without its issuer. If only some of
+     * its values have a data type, a copy of the Attribute with just those values is added.
+     */
+    private static void addAttribute(Map<PIPRequest, List<Attribute>> mapAttributes,
+                                     Set<PIPRequest> providedAttributes, Attribute attribute) {
+        Map<Identifier, List<AttributeValue<?>>> mapValues = new LinkedHashMap<Identifier, List<AttributeValue<?>>>();
+        for (AttributeValue<?> attributeValue : attribute.getValues()) {
+            List<AttributeValue<?>> listValues = mapValues.get(attributeValue.getDataTypeId());
+            if (listValues == null) {
+                listValues = new ArrayList<AttributeValue<?>>();
+                mapValues.put(attributeValue.getDataTypeId(), listValues);
+            }
+            listValues.add(attributeValue);
+        }
+        for (Map.Entry<Identifier, List<AttributeValue<?>>> entry : mapValues.entrySet()) {
+            Attribute attributeDataType = attribute;
+            if (mapValues.size() > 1) {
+                attributeDataType = new StdMutableAttribute(attribute.getCategory(), attribute.getAttributeId(),
+                                                            entry.getValue(), attribute.getIssuer(),
+                                                            attribute.getIncludeInResults());
+            }
+            PIPRequest pipRequestAnyIssuer = new StdPIPRequest(attribute.getCategory(),
+                                                               attribute.getAttributeId(), entry.getKey());
+            add(mapAttributes, pipRequestAnyIssuer, attributeDataType);
+            if (attribute.getIssuer() == null) {
+                providedAttributes.add(pipRequestAnyIssuer);
+            } else {
+                PIPRequest pipRequestIssuer = new StdPIPRequest(attribute.getCategory(),
+                                                                attribute.getAttributeId(), entry.getKey(),
+                                                                attribute.getIssuer());
+                add(mapAttributes, pipRequestIssuer, attributeDataType);
+                providedAttributes.add(pipRequestIssuer);
+            }
+        }
+    }
+
+    private static void add(Map<PIPRequest, List<Attribute>> mapAttributes, PIPRequest pipRequest,
+                            Attribute attribute) {
+        List<Attribute> listAttributes = mapAttributes.get(pipRequest);
+        if (listAttributes == null) {
+            listAttributes = new ArrayList<Attribute>(1);
+            mapAttributes.put(pipRequest, listAttributes);
+        }
+        listAttributes.add(attribute);
+    }
+
+    /**
+     * Gets the <code>PIPResponse</code> with the <code>Attribute</code>s of the <code>Request</code> that
+     * match the given <code>PIPRequest</code>.
+     *
+     * @param pipRequest the <code>PIPRequest</code> to look up
+     * @return the {@link IndexedPIPResponse}, or <code>StdPIPResponse.PIP_RESPONSE_EMPTY</code> if the
+     *         <code>Request</code> has no matching <code>Attribute</code>s
+     */
+    public PIPResponse getAttributes(PIPRequest pipRequest) {
+        IndexedPIPResponse pipResponse = this.responses.get(pipRequest);
+        return pipResponse == null ? StdPIPResponse.PIP_RESPONSE_EMPTY : pipResponse;
+    }
+
+    /**
+     * Gets a <code>PIPRequest</code> for each category, attribute id, data type id and issuer in the
+     * <code>Request</code>.
+     *
+     * @return an unmodifiable <code>Set</code> of <code>PIPRequest</code>s
+     */
+    public Set<PIPRequest> getProvidedAttributes() {
+        return this.providedAttributes;
+    }
+}
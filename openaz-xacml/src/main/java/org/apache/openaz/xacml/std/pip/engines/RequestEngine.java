@@ -30,36 +30,26 @@
  */
 package org.apache.openaz.xacml.std.pip.engines;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
 
-import org.apache.openaz.xacml.api.Attribute;
-import org.apache.openaz.xacml.api.AttributeValue;
-import org.apache.openaz.xacml.api.Identifier;
 import org.apache.openaz.xacml.api.Request;
-import org.apache.openaz.xacml.api.RequestAttributes;
 import org.apache.openaz.xacml.api.pip.PIPEngine;
 import org.apache.openaz.xacml.api.pip.PIPException;
 import org.apache.openaz.xacml.api.pip.PIPFinder;
 import org.apache.openaz.xacml.api.pip.PIPRequest;
 import org.apache.openaz.xacml.api.pip.PIPResponse;
-import org.apache.openaz.xacml.std.StdMutableAttribute;
-import org.apache.openaz.xacml.std.pip.StdMutablePIPResponse;
-import org.apache.openaz.xacml.std.pip.StdPIPRequest;
 import org.apache.openaz.xacml.std.pip.StdPIPResponse;
 
 /**
  * StdRequestEngine implements the {@link org.apache.openaz.xacml.api.pip.PIPEngine} interface to retrieve
  * matching {@link com.att.reserach.xacml.api.Attribute}s from a {@link org.apache.openaz.xacml.pip.Request}
- * object.
+ * object. The attributes of the <code>Request</code> are indexed by a {@link RequestAttributeIndex} the first
+ * time they are needed, so each lookup is a single hash probe.
  */
 public class RequestEngine implements PIPEngine {
     private Request request;
+    private volatile RequestAttributeIndex requestAttributeIndex;
 
     protected Request getRequest() {
         return this.request;
@@ -85,80 +75,32 @@ public class RequestEngine implements PIPEngine {
         return "PIPEngine for retrieving Attributes from the Request";
     }
 
-    @Override
-    public PIPResponse getAttributes(PIPRequest pipRequest, PIPFinder pipFinder) throws PIPException {
-        Request thisRequest = this.getRequest();
-        if (thisRequest == null) {
-            return StdPIPResponse.PIP_RESPONSE_EMPTY;
-        }
-
-        Iterator<RequestAttributes> iterRequestAttributes = thisRequest.getRequestAttributes(pipRequest
-            .getCategory());
-        if (iterRequestAttributes == null || !iterRequestAttributes.hasNext()) {
-            return StdPIPResponse.PIP_RESPONSE_EMPTY;
-        }
-
-        StdMutablePIPResponse pipResponse = null;
-
-        while (iterRequestAttributes.hasNext()) {
-            RequestAttributes requestAttributes = iterRequestAttributes.next();
-            Iterator<Attribute> iterAttributes = requestAttributes.getAttributes(pipRequest.getAttributeId());
-            while (iterAttributes.hasNext()) {
-                Attribute attribute = iterAttributes.next();
-                if (attribute.getValues().size() > 0
-                    && (pipRequest.getIssuer() == null || pipRequest.getIssuer()
-                        .equals(attribute.getIssuer()))) {
-                    /*
-                     * If all of the attribute values in the given Attribute match the requested data type, we
-                     * can just return the whole Attribute as part of the response.
-                     */
-                    boolean bAllMatch = true;
-                    for (AttributeValue<?> attributeValue : attribute.getValues()) {
-                        if (!pipRequest.getDataTypeId().equals(attributeValue.getDataTypeId())) {
-                            bAllMatch = false;
-                            break;
-                        }
-                    }
-                    if (bAllMatch) {
-                        if (pipResponse == null) {
-                            pipResponse = new StdMutablePIPResponse(attribute);
-                        } else {
-                            pipResponse.addAttribute(attribute);
-                        }
-                    } else {
-                        /*
-                         * Only a subset of the values match, so we have to construct a new Attribute
-                         * containing only the matching values.
-                         */
-                        List<AttributeValue<?>> listAttributeValues = null;
-                        for (AttributeValue<?> attributeValue : attribute.getValues()) {
-                            if (pipRequest.getDataTypeId().equals(attributeValue.getDataTypeId())) {
-                                if (listAttributeValues == null) {
-                                    listAttributeValues = new ArrayList<AttributeValue<?>>();
-                                }
-                                listAttributeValues.add(attributeValue);
-                            }
-                        }
-                        if (listAttributeValues != null) {
-                            if (pipResponse == null) {
-                                pipResponse = new StdMutablePIPResponse();
-                            }
-                            pipResponse.addAttribute(new StdMutableAttribute(attribute.getCategory(),
-                                                                             attribute.getAttributeId(),
-                                                                             listAttributeValues, attribute
-                                                                                 .getIssuer(), attribute
-                                                                                 .getIncludeInResults()));
-                        }
-                    }
-                }
+    /**
+     * Gets the {@link RequestAttributeIndex} of the <code>Request</code>, building it the first time it is
+     * needed.
+     *
+     * @return the <code>RequestAttributeIndex</code>, or null if there is no <code>Request</code>
+     */
+    protected RequestAttributeIndex getRequestAttributeIndex() {
+        RequestAttributeIndex thisRequestAttributeIndex = this.requestAttributeIndex;
+        if (thisRequestAttributeIndex == null) {
+            Request thisRequest = this.getRequest();
+            if (thisRequest == null) {
+                return null;
             }
+            thisRequestAttributeIndex = RequestAttributeIndex.newInstance(thisRequest);
+            this.requestAttributeIndex = thisRequestAttributeIndex;
         }
+        return thisRequestAttributeIndex;
+    }
 
-        if (pipResponse == null) {
+    @Override
+    public PIPResponse getAttributes(PIPRequest pipRequest, PIPFinder pipFinder) throws PIPException {
+        RequestAttributeIndex thisRequestAttributeIndex = this.getRequestAttributeIndex();
+        if (thisRequestAttributeIndex == null) {
             return StdPIPResponse.PIP_RESPONSE_EMPTY;
-        } else {
-            return pipResponse;
         }
+        return thisRequestAttributeIndex.getAttributes(pipRequest);
     }
 
     @Override
@@ -168,20 +110,11 @@ public class RequestEngine implements PIPEngine {
 
     @Override
     public Collection<PIPRequest> attributesProvided() {
-        Set<PIPRequest> providedAttributes = new HashSet<PIPRequest>();
-        for (RequestAttributes attributes : this.request.getRequestAttributes()) {
-            for (Attribute attribute : attributes.getAttributes()) {
-                Set<Identifier> datatypes = new HashSet<Identifier>();
-                for (AttributeValue<?> value : attribute.getValues()) {
-                    datatypes.add(value.getDataTypeId());
-                }
-                for (Identifier dt : datatypes) {
-                    providedAttributes.add(new StdPIPRequest(attribute.getCategory(), attribute
-                        .getAttributeId(), dt, attribute.getIssuer()));
-                }
-            }
+        RequestAttributeIndex thisRequestAttributeIndex = this.getRequestAttributeIndex();
+        if (thisRequestAttributeIndex == null) {
+            return Collections.emptySet();
         }
-        return providedAttributes;
+        return thisRequestAttributeIndex.getProvidedAttributes();
     }
 
 }
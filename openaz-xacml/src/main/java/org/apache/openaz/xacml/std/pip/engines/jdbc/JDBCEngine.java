@@ -84,7 +84,7 @@ public class JDBCEngine extends StdConfigurableEngine {
     private String type;
     private String jndiDataSource;
     private String jdbcDriverClass;
-    private boolean jdbcDriverClassLoaded;
+    private volatile boolean jdbcDriverClassLoaded;
     private String jdbcUrl;
     private Properties jdbcConnProperties = new Properties();
     private List<JDBCResolver> jdbcResolvers = new ArrayList<JDBCResolver>();
@@ -96,12 +96,9 @@ public class JDBCEngine extends StdConfigurableEngine {
      */
     protected void loadDriverClass() throws ClassNotFoundException {
         if (!this.jdbcDriverClassLoaded) {
-            synchronized (this) {
-                if (!this.jdbcDriverClassLoaded) {
-                    Class.forName(this.jdbcDriverClass);
-                    this.jdbcDriverClassLoaded = true;
-                }
-            }
+            // loading the class is idempotent, so concurrent callers need not wait on each other
+            Class.forName(this.jdbcDriverClass);
+            this.jdbcDriverClassLoaded = true;
         }
     }
 
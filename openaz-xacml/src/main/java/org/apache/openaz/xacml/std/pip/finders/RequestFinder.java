@@ -34,10 +34,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.openaz.xacml.api.Status;
 import org.apache.openaz.xacml.api.XACML3;
 import org.apache.openaz.xacml.api.pip.PIPEngine;
@@ -57,9 +64,11 @@ import org.apache.openaz.xacml.std.pip.engines.RequestEngine;
  * results are found, the wrapped <code>PIPFinder</code> is searched.
  */
 public class RequestFinder extends WrappingFinder {
+    private static final Log logger = LogFactory.getLog(RequestFinder.class);
+
     private RequestEngine requestEngine;
     private EnvironmentEngine environmentEngine;
-    private Map<PIPRequest, PIPResponse> mapCache = new HashMap<PIPRequest, PIPResponse>();
+    private Map<PIPRequest, PIPResponse> mapCache = new ConcurrentHashMap<PIPRequest, PIPResponse>();
 
     protected RequestEngine getRequestEngine() {
         return this.requestEngine;
@@ -173,6 +182,123 @@ public class RequestFinder extends WrappingFinder {
         // System.out.println("RequestFinder.getAttributesInternal() = " + (tEnd - tStart));
     }
 
+    /**
+     * Determines if the <code>RequestEngine</code> or the <code>EnvironmentEngine</code> can answer the given
+     * <code>PIPRequest</code> without going to the wrapped <code>PIPFinder</code>.
+     */
+    private boolean isLocal(PIPRequest pipRequest) throws PIPException {
+        RequestEngine thisRequestEngine = this.getRequestEngine();
+        if (thisRequestEngine != null) {
+            PIPResponse pipResponse = thisRequestEngine.getAttributes(pipRequest, this);
+            if (pipResponse.getAttributes().size() > 0) {
+                return true;
+            }
+        }
+        if (XACML3.ID_ATTRIBUTE_CATEGORY_ENVIRONMENT.equals(pipRequest.getCategory())
+            && (pipRequest.getIssuer() == null || pipRequest.getIssuer().length() == 0)) {
+            PIPResponse pipResponse = this.getEnvironmentEngine().getAttributes(pipRequest, this);
+            if (pipResponse.getAttributes().size() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void prefetchAttribute(PIPRequest pipRequest) {
+        try {
+            PIPResponse pipResponse = this.getWrappedFinder().getAttributes(pipRequest, null, this);
+            if (pipResponse == null || pipResponse.getStatus() != null && !pipResponse.getStatus().isOk()) {
+                return;
+            }
+            if (pipResponse.getAttributes().size() > 0) {
+                Map<PIPRequest, PIPResponse> mapResponses = StdPIPResponse.splitResponse(pipResponse);
+                if (mapResponses != null) {
+                    this.mapCache.putAll(mapResponses);
+                }
+            }
+            /*
+             * Also keep empty responses so the attribute is not asked for again when it is evaluated
+             */
+            if (!this.mapCache.containsKey(pipRequest)) {
+                this.mapCache.put(pipRequest, pipResponse);
+            }
+        } catch (PIPException ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to prefetch " + pipRequest + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Retrieves the given <code>PIPRequest</code>s that are not answered by the request or the environment
+     * from the wrapped <code>PIPFinder</code>, all but one of them on the given <code>Executor</code>, and
+     * caches the successful responses for later calls to <code>getAttributes</code>. The calling thread
+     * waits until all of them are done, so the time taken is that of the slowest retrieval rather than the
+     * sum of all of them. Retrievals the <code>Executor</code> has not started yet by then are run on the
+     * calling thread, so a busy <code>Executor</code> never makes this slower than retrieving them in turn.
+     * <p>
+     * The <code>PIPEngine</code>s of the wrapped <code>PIPFinder</code> must be safe to call from multiple
+     * threads.
+     *
+     * @param pipRequests the <code>Collection</code> of <code>PIPRequest</code>s to retrieve
+     * @param executor the <code>Executor</code> to retrieve them on
+     */
+    public void prefetchAttributes(Collection<PIPRequest> pipRequests, Executor executor) {
+        PIPFinder thisWrappedFinder = this.getWrappedFinder();
+        if (thisWrappedFinder == null || pipRequests.isEmpty()
+            || thisWrappedFinder.getPIPEngines().isEmpty()) {
+            return;
+        }
+        List<PIPRequest> listPrefetch = new ArrayList<PIPRequest>(pipRequests.size());
+        for (PIPRequest pipRequest : pipRequests) {
+            try {
+                if (!this.mapCache.containsKey(pipRequest) && !this.isLocal(pipRequest)) {
+                    listPrefetch.add(pipRequest);
+                }
+            } catch (PIPException ex) {
+                listPrefetch.add(pipRequest);
+            }
+        }
+        if (listPrefetch.isEmpty()) {
+            return;
+        }
+
+        List<FutureTask<Void>> listTasks = new ArrayList<FutureTask<Void>>(listPrefetch.size() - 1);
+        for (int i = 1; i < listPrefetch.size(); i++) {
+            final PIPRequest pipRequest = listPrefetch.get(i);
+            FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    RequestFinder.this.prefetchAttribute(pipRequest);
+                    return null;
+                }
+            });
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                task.run();
+            }
+            listTasks.add(task);
+        }
+        this.prefetchAttribute(listPrefetch.get(0));
+        for (FutureTask<Void> task : listTasks) {
+            /*
+             * Does nothing if the task has already been started on the executor
+             */
+            task.run();
+        }
+        for (FutureTask<Void> task : listTasks) {
+            try {
+                task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                logger.error("Failed to prefetch attributes: " + ex.getCause(), ex.getCause());
+            }
+        }
+    }
+
     @Override
     public Collection<PIPEngine> getPIPEngines() {
         List<PIPEngine> engines = new ArrayList<PIPEngine>();
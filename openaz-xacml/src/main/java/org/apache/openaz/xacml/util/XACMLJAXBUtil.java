@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.openaz.xacml.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.DocumentBuilder;
+
+import org.apache.openaz.xacml.std.dom.DOMStructureException;
+import org.apache.openaz.xacml.std.dom.DOMUtil;
+
+/**
+ * XACMLJAXBUtil caches the JAXB and DOM objects used to read, write and copy XACML policies. A
+ * <code>JAXBContext</code> is created once per class for the life of the process. <code>Marshaller</code>s,
+ * <code>Unmarshaller</code>s and <code>DocumentBuilder</code>s are not thread-safe, so they are kept in small
+ * pools. Each one is taken by one caller at a time and given back when the caller is done:
+ *
+ * <pre>
+ * Unmarshaller unmarshaller = XACMLJAXBUtil.acquireUnmarshaller(PolicyType.class);
+ * try {
+ *     ...
+ * } finally {
+ *     XACMLJAXBUtil.release(PolicyType.class, unmarshaller);
+ * }
+ * </pre>
+ */
+final class XACMLJAXBUtil {
+    private static final int MAX_POOLED = 8;
+
+    private static final ConcurrentMap<Class<?>, JAXBContext> contexts =
+        new ConcurrentHashMap<Class<?>, JAXBContext>();
+    private static final ConcurrentMap<Class<?>, Queue<Marshaller>> marshallers =
+        new ConcurrentHashMap<Class<?>, Queue<Marshaller>>();
+    private static final ConcurrentMap<Class<?>, Queue<Unmarshaller>> unmarshallers =
+        new ConcurrentHashMap<Class<?>, Queue<Unmarshaller>>();
+    private static final Queue<DocumentBuilder> documentBuilders =
+        new ConcurrentLinkedQueue<DocumentBuilder>();
+
+    private XACMLJAXBUtil() {
+    }
+
+    /**
+     * Gets the shared <code>JAXBContext</code> for the given class, creating it the first time.
+     *
+     * @param clazz the JAXB class
+     * @return the <code>JAXBContext</code> for the class
+     * @throws JAXBException if the <code>JAXBContext</code> cannot be created
+     */
+    static JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        JAXBContext context = contexts.get(clazz);
+        if (context == null) {
+            context = JAXBContext.newInstance(clazz);
+            JAXBContext existing = contexts.putIfAbsent(clazz, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Takes a <code>Marshaller</code> for the given class that writes formatted output.
+     *
+     * @param clazz the JAXB class
+     * @return a <code>Marshaller</code> to give back with {@link #release(Class, Marshaller)}
+     * @throws JAXBException if a new <code>Marshaller</code> cannot be created
+     */
+    static Marshaller acquireMarshaller(Class<?> clazz) throws JAXBException {
+        Marshaller marshaller = poll(marshallers, clazz);
+        if (marshaller == null) {
+            marshaller = getContext(clazz).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        }
+        return marshaller;
+    }
+
+    static void release(Class<?> clazz, Marshaller marshaller) {
+        offer(marshallers, clazz, marshaller);
+    }
+
+    /**
+     * Takes an <code>Unmarshaller</code> for the given class.
+     *
+     * @param clazz the JAXB class
+     * @return an <code>Unmarshaller</code> to give back with {@link #release(Class, Unmarshaller)}
+     * @throws JAXBException if a new <code>Unmarshaller</code> cannot be created
+     */
+    static Unmarshaller acquireUnmarshaller(Class<?> clazz) throws JAXBException {
+        Unmarshaller unmarshaller = poll(unmarshallers, clazz);
+        if (unmarshaller == null) {
+            unmarshaller = getContext(clazz).createUnmarshaller();
+        }
+        return unmarshaller;
+    }
+
+    static void release(Class<?> clazz, Unmarshaller unmarshaller) {
+        offer(unmarshallers, clazz, unmarshaller);
+    }
+
+    /**
+     * Takes a namespace aware <code>DocumentBuilder</code>.
+     *
+     * @return a <code>DocumentBuilder</code> to give back with {@link #release(DocumentBuilder)}
+     * @throws DOMStructureException if a new <code>DocumentBuilder</code> cannot be created
+     */
+    static DocumentBuilder acquireDocumentBuilder() throws DOMStructureException {
+        DocumentBuilder documentBuilder = documentBuilders.poll();
+        return documentBuilder != null ? documentBuilder : DOMUtil.getDocumentBuilder();
+    }
+
+    static void release(DocumentBuilder documentBuilder) {
+        if (documentBuilders.size() < MAX_POOLED) {
+            documentBuilder.reset();
+            documentBuilders.offer(documentBuilder);
+        }
+    }
+
+    private static <T> T poll(ConcurrentMap<Class<?>, Queue<T>> pools, Class<?> clazz) {
+        Queue<T> pool = pools.get(clazz);
+        return pool == null ? null : pool.poll();
+    }
+
+    private static <T> void offer(ConcurrentMap<Class<?>, Queue<T>> pools, Class<?> clazz, T object) {
+        Queue<T> pool = pools.get(clazz);
+        if (pool == null) {
+            pool = new ConcurrentLinkedQueue<T>();
+            Queue<T> existing = pools.putIfAbsent(clazz, pool);
+            if (existing != null) {
+                pool = existing;
+            }
+        }
+        if (pool.size() < MAX_POOLED) {
+            pool.offer(object);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.util.Map;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.util.JAXBSource;
 import javax.xml.namespace.QName;
 
@@ -314,10 +315,15 @@ public class XACMLObjectCopy {
         try {
             @SuppressWarnings("unchecked")
             Class<T> clazz = (Class<T>)object.getClass();
-            JAXBContext context = JAXBContext.newInstance(clazz);
+            JAXBContext context = XACMLJAXBUtil.getContext(clazz);
             JAXBElement<T> contentObject = new JAXBElement<T>(new QName(clazz.getSimpleName()), clazz, object);
             JAXBSource source = new JAXBSource(context, contentObject);
-            return context.createUnmarshaller().unmarshal(source, clazz).getValue();
+            Unmarshaller unmarshaller = XACMLJAXBUtil.acquireUnmarshaller(clazz);
+            try {
+                return unmarshaller.unmarshal(source, clazz).getValue();
+            } finally {
+                XACMLJAXBUtil.release(clazz, unmarshaller);
+            }
         } catch (JAXBException e) {
             throw new RuntimeException(e);
         }
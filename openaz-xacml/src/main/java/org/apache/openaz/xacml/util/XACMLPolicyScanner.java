@@ -37,10 +37,13 @@ import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpressionType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpressionsType;
@@ -73,11 +76,9 @@ import org.apache.openaz.xacml.std.StdAttributeAssignment;
 import org.apache.openaz.xacml.std.StdAttributeValue;
 import org.apache.openaz.xacml.std.StdMutableAdvice;
 import org.apache.openaz.xacml.std.StdMutableObligation;
-import org.apache.openaz.xacml.std.dom.DOMUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * class XACMLPolicyScanner This class traverses the hierarchy of a XACML 3.0 policy. You can optionally pass
@@ -324,10 +325,56 @@ public class XACMLPolicyScanner {
 
     }
 
+    /**
+     * The identity of a policy file, as read by {@link XACMLPolicyScanner#readPolicyHeader(InputStream)} from
+     * the root Policy/PolicySet element.
+     */
+    public static class PolicyHeader {
+        private final boolean policySet;
+        private final String id;
+        private final String version;
+
+        public PolicyHeader(boolean policySet, String id, String version) {
+            this.policySet = policySet;
+            this.id = id;
+            this.version = version;
+        }
+
+        /**
+         * @return true if the root element is a PolicySet, false if it is a Policy
+         */
+        public boolean isPolicySet() {
+            return this.policySet;
+        }
+
+        /**
+         * @return the PolicySetId or PolicyId
+         */
+        public String getId() {
+            return this.id;
+        }
+
+        /**
+         * @return the uninterpreted Version, or null if it is not set
+         */
+        public String getVersion() {
+            return this.version;
+        }
+    }
+
     private static final Log logger = LogFactory.getLog(XACMLPolicyScanner.class);
+    private static final String XACML3_NAMESPACE = "urn:oasis:names:tc:xacml:3.0:core:schema:wd-17";
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXMLInputFactory();
     private Object policyObject = null;
     private Callback callback = null;
 
+    private static XMLInputFactory newXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
     public XACMLPolicyScanner(Path filename, Callback callback) {
         try (InputStream is = Files.newInputStream(filename)) {
             this.policyObject = XACMLPolicyScanner.readPolicy(is);
@@ -757,18 +804,88 @@ public class XACMLPolicyScanner {
      * @throws java.io.IOException
      */
     public static String getVersion(Path policy) throws IOException {
-        Object data = null;
+        PolicyHeader header = XACMLPolicyScanner.readPolicyHeader(policy);
+        if (header == null) {
+            logger.warn("Version is null.");
+            return null;
+        }
+        if (header.getVersion() == null || header.getVersion().length() == 0) {
+            logger.warn("No version set in policy");
+            return null;
+        }
+        return header.getVersion();
+    }
+
+    /**
+     * Reads the PolicyId or PolicySetId of the root Policy/PolicySet element of the XACML XML policy file.
+     *
+     * @param policy - The policy file.
+     * @return - The policy/policyset's policy ID, or null if the file has no Policy/PolicySet root
+     * @throws java.io.IOException
+     */
+    public static String getID(Path policy) throws IOException {
+        PolicyHeader header = XACMLPolicyScanner.readPolicyHeader(policy);
+        return header == null ? null : header.getId();
+    }
+
+    /**
+     * Reads the attributes of the root Policy/PolicySet element of the XACML XML policy file, without
+     * unmarshalling the rest of the policy.
+     *
+     * @param policy - The policy file.
+     * @return - The PolicyHeader, or null if the file has no XACML 3.0 Policy/PolicySet root element
+     * @throws java.io.IOException
+     */
+    public static PolicyHeader readPolicyHeader(Path policy) throws IOException {
         try (InputStream is = Files.newInputStream(policy)) {
-            data = XACMLPolicyScanner.readPolicy(is);
+            return XACMLPolicyScanner.readPolicyHeader(is);
         } catch (IOException e) {
             logger.error("Failed to read policy", e);
             throw e;
         }
-        if (data == null) {
-            logger.warn("Version is null.");
-            return null;
+    }
+
+    /**
+     * Reads the attributes of the root Policy/PolicySet element from the stream with StAX, stopping at the
+     * root element.
+     *
+     * @param is - The stream to read the policy from.
+     * @return - The PolicyHeader, or null if the stream has no XACML 3.0 Policy/PolicySet root element
+     */
+    public static PolicyHeader readPolicyHeader(InputStream is) {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(is);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if (!XACML3_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        logger.warn("unsupported namespace: " + reader.getNamespaceURI());
+                        return null;
+                    }
+                    if ("Policy".equals(reader.getLocalName())) {
+                        return new PolicyHeader(false, reader.getAttributeValue(null, "PolicyId"),
+                                                reader.getAttributeValue(null, "Version"));
+                    } else if ("PolicySet".equals(reader.getLocalName())) {
+                        return new PolicyHeader(true, reader.getAttributeValue(null, "PolicySetId"),
+                                                reader.getAttributeValue(null, "Version"));
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Not supported yet: " + reader.getLocalName());
+                    }
+                    return null;
+                }
+            }
+        } catch (XMLStreamException e) {
+            logger.error(e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) { //NOPMD
+                }
+            }
         }
-        return getVersion(data);
+        return null;
     }
 
     /**
@@ -832,48 +949,58 @@ public class XACMLPolicyScanner {
             //
             // Parse the policy file
             //
-            DocumentBuilder db = DOMUtil.getDocumentBuilder();
-            Document doc = db.parse(is);
+            Document doc;
+            DocumentBuilder db = XACMLJAXBUtil.acquireDocumentBuilder();
+            try {
+                doc = db.parse(is);
+            } finally {
+                XACMLJAXBUtil.release(db);
+            }
             //
             // Because there is no root defined in xacml,
-            // find the first element
+            // find the root element, skipping any leading comments
             //
-            NodeList nodes = doc.getChildNodes();
-            Node node = nodes.item(0);
+            Node node = doc.getDocumentElement();
             Element e = null;
             if (node.getNodeType() == Node.ELEMENT_NODE) {
                 e = (Element)node;
                 //
                 // Is it a 3.0 policy?
                 //
-                if (e.getNamespaceURI().equals("urn:oasis:names:tc:xacml:3.0:core:schema:wd-17")) {
+                if (e.getNamespaceURI().equals(XACML3_NAMESPACE)) {
                     //
                     // A policyset or policy could be the root
                     //
                     if (e.getNodeName().endsWith("Policy")) {
                         //
-                        // Now we can create the context for the policy set
-                        // and unmarshall the policy into a class.
-                        //
-                        JAXBContext context = JAXBContext.newInstance(PolicyType.class);
-                        Unmarshaller um = context.createUnmarshaller();
-                        JAXBElement<PolicyType> root = um.unmarshal(e, PolicyType.class);
+                        // Now we can unmarshall the policy into a class
+                        // using the shared context for the policy set.
                         //
-                        // Here is our policy set class
-                        //
-                        return root.getValue();
+                        Unmarshaller um = XACMLJAXBUtil.acquireUnmarshaller(PolicyType.class);
+                        try {
+                            JAXBElement<PolicyType> root = um.unmarshal(e, PolicyType.class);
+                            //
+                            // Here is our policy set class
+                            //
+                            return root.getValue();
+                        } finally {
+                            XACMLJAXBUtil.release(PolicyType.class, um);
+                        }
                     } else if (e.getNodeName().endsWith("PolicySet")) {
                         //
-                        // Now we can create the context for the policy set
-                        // and unmarshall the policy into a class.
+                        // Now we can unmarshall the policy into a class
+                        // using the shared context for the policy set.
                         //
-                        JAXBContext context = JAXBContext.newInstance(PolicySetType.class);
-                        Unmarshaller um = context.createUnmarshaller();
-                        JAXBElement<PolicySetType> root = um.unmarshal(e, PolicySetType.class);
-                        //
-                        // Here is our policy set class
-                        //
-                        return root.getValue();
+                        Unmarshaller um = XACMLJAXBUtil.acquireUnmarshaller(PolicySetType.class);
+                        try {
+                            JAXBElement<PolicySetType> root = um.unmarshal(e, PolicySetType.class);
+                            //
+                            // Here is our policy set class
+                            //
+                            return root.getValue();
+                        } finally {
+                            XACMLJAXBUtil.release(PolicySetType.class, um);
+                        }
                     } else {
                         if (logger.isDebugEnabled()) {
                             logger.debug("Not supported yet: " + e.getNodeName());
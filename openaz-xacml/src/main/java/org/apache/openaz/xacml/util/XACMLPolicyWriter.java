@@ -34,7 +34,6 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
@@ -58,10 +57,12 @@ public class XACMLPolicyWriter {
     public static Path writePolicyFile(Path filename, PolicySetType policySet) {
         JAXBElement<PolicySetType> policySetElement = new ObjectFactory().createPolicySet(policySet);
         try {
-            JAXBContext context = JAXBContext.newInstance(PolicySetType.class);
-            Marshaller m = context.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(policySetElement, filename.toFile());
+            Marshaller m = XACMLJAXBUtil.acquireMarshaller(PolicySetType.class);
+            try {
+                m.marshal(policySetElement, filename.toFile());
+            } finally {
+                XACMLJAXBUtil.release(PolicySetType.class, m);
+            }
 
             if (Files.exists(filename)) {
                 return filename;
@@ -82,10 +83,12 @@ public class XACMLPolicyWriter {
     public static void writePolicyFile(OutputStream os, PolicySetType policySet) {
         JAXBElement<PolicySetType> policySetElement = new ObjectFactory().createPolicySet(policySet);
         try {
-            JAXBContext context = JAXBContext.newInstance(PolicySetType.class);
-            Marshaller m = context.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(policySetElement, os);
+            Marshaller m = XACMLJAXBUtil.acquireMarshaller(PolicySetType.class);
+            try {
+                m.marshal(policySetElement, os);
+            } finally {
+                XACMLJAXBUtil.release(PolicySetType.class, m);
+            }
         } catch (JAXBException e) {
             logger.error("writePolicyFile failed: " + e.getLocalizedMessage());
         }
@@ -97,10 +100,12 @@ public class XACMLPolicyWriter {
     public static Path writePolicyFile(Path filename, PolicyType policy) {
         JAXBElement<PolicyType> policyElement = new ObjectFactory().createPolicy(policy);
         try {
-            JAXBContext context = JAXBContext.newInstance(PolicyType.class);
-            Marshaller m = context.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(policyElement, filename.toFile());
+            Marshaller m = XACMLJAXBUtil.acquireMarshaller(PolicyType.class);
+            try {
+                m.marshal(policyElement, filename.toFile());
+            } finally {
+                XACMLJAXBUtil.release(PolicyType.class, m);
+            }
 
             if (Files.exists(filename)) {
                 return filename;
@@ -121,10 +126,12 @@ public class XACMLPolicyWriter {
     public static void writePolicyFile(OutputStream os, PolicyType policy) {
         JAXBElement<PolicyType> policySetElement = new ObjectFactory().createPolicy(policy);
         try {
-            JAXBContext context = JAXBContext.newInstance(PolicyType.class);
-            Marshaller m = context.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(policySetElement, os);
+            Marshaller m = XACMLJAXBUtil.acquireMarshaller(PolicyType.class);
+            try {
+                m.marshal(policySetElement, os);
+            } finally {
+                XACMLJAXBUtil.release(PolicyType.class, m);
+            }
         } catch (JAXBException e) {
             logger.error("writePolicyFile failed: " + e.getLocalizedMessage());
         }
@@ -66,6 +66,12 @@ public class XACMLProperties {
     public static final String PROP_REFERENCEDPOLICIES = "xacml.referencedPolicies";
 
     public static final String PROP_PDP_BEHAVIOR = "xacml.pdp.behavior";
+    /**
+     * Maximum number of converted values each data type with an expensive parse keeps in its value cache.
+     * Read from the system properties only, since the data types are created before xacml.properties is
+     * loaded. Default is 1024; 0 disables the caches.
+     */
+    public static final String PROP_DATATYPE_VALUECACHESIZE = "xacml.dataType.valueCacheSize";
     public static final String PROP_PIP_ENGINES = "xacml.pip.engines";
 
     // Alternative types of PAP Engine